@@ -0,0 +1,527 @@
+package App;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The DataGenerator class fills a database with made-up users, recipes, comments and
+ * upvotes for benchmarks and load tests. Everything it produces follows from its seed,
+ * so two runs with the same seed and scale build identical databases.
+ *
+ * Recipes are assembled from word lists: titles combine a style and a dish, and each
+ * recipe has up to eight ingredients from a shared vocabulary, the everyday ones (salt,
+ * onion) far more often than the rest. Activity follows a Zipf distribution: a few
+ * recipes collect most of the comments and upvotes, and a few users write most of the
+ * recipes, comments and upvotes. Popularity is independent of age, so old and new
+ * recipes alike can be hits.
+ *
+ * Rows are written straight to the tables in JDBC batches over a connection of the
+ * generator's own, which is far faster than going through DatabaseHelper one recipe at
+ * a time. The helper it returns is opened once the data is in, so its caches and
+ * lookup tables start out consistent with what was written.
+ */
+public class DataGenerator {
+    private static final String[] STYLES = {
+            "Spicy", "Creamy", "Roasted", "Grilled", "Quick", "Classic", "Smoky", "Lemon", "Garlic", "Herbed",
+            "Crispy", "Slow-Cooked", "Sweet", "Tangy", "Rustic", "Golden", "Summer", "Winter", "Hearty", "Light"
+    };
+    private static final String[] DISHES = {
+            "Tomato Soup", "Chicken Curry", "Pasta", "Risotto", "Salad", "Stir Fry", "Tacos", "Chili", "Pancakes",
+            "Omelette", "Lentil Stew", "Fried Rice", "Noodles", "Casserole", "Flatbread", "Dumplings", "Burrito",
+            "Shakshuka", "Ramen", "Gnocchi", "Paella", "Frittata", "Biryani", "Korma", "Goulash", "Pilaf"
+    };
+    // Ordered from most to least used, since ingredients are drawn by Zipf rank
+    private static final String[] INGREDIENTS = {
+            "Salt", "Onion", "Garlic", "Olive Oil", "Black Pepper", "Butter", "Tomato", "Egg", "Flour", "Sugar",
+            "Milk", "Lemon", "Carrot", "Rice", "Pasta", "Chicken Breast", "Potato", "Parsley", "Cumin", "Paprika",
+            "Basil", "Ginger", "Soy Sauce", "Celery", "Cheddar", "Parmesan", "Bell Pepper", "Spinach", "Mushroom",
+            "Cilantro", "Lime", "Chili Flakes", "Thyme", "Oregano", "Rosemary", "Cream", "Yogurt", "Honey", "Beef",
+            "Chickpeas", "Lentils", "Coconut Milk", "Zucchini", "Vegetable Stock", "Chicken Stock", "Pork", "Corn",
+            "Black Beans", "Avocado", "Tofu", "Shrimp", "Salmon", "Noodles", "Peas", "Cabbage", "Bread Crumbs"
+    };
+    private static final IngredientCategory[] INGREDIENT_CATEGORIES = {
+            IngredientCategory.SPICES, IngredientCategory.PRODUCE, IngredientCategory.PRODUCE,
+            IngredientCategory.PANTRY, IngredientCategory.SPICES, IngredientCategory.DAIRY,
+            IngredientCategory.PRODUCE, IngredientCategory.DAIRY, IngredientCategory.GRAINS,
+            IngredientCategory.PANTRY, IngredientCategory.DAIRY, IngredientCategory.PRODUCE,
+            IngredientCategory.PRODUCE, IngredientCategory.GRAINS, IngredientCategory.GRAINS,
+            IngredientCategory.MEAT, IngredientCategory.PRODUCE, IngredientCategory.PRODUCE,
+            IngredientCategory.SPICES, IngredientCategory.SPICES, IngredientCategory.PRODUCE,
+            IngredientCategory.PRODUCE, IngredientCategory.PANTRY, IngredientCategory.PRODUCE,
+            IngredientCategory.DAIRY, IngredientCategory.DAIRY, IngredientCategory.PRODUCE,
+            IngredientCategory.PRODUCE, IngredientCategory.PRODUCE, IngredientCategory.PRODUCE,
+            IngredientCategory.PRODUCE, IngredientCategory.SPICES, IngredientCategory.SPICES,
+            IngredientCategory.SPICES, IngredientCategory.SPICES, IngredientCategory.DAIRY,
+            IngredientCategory.DAIRY, IngredientCategory.PANTRY, IngredientCategory.MEAT,
+            IngredientCategory.PANTRY, IngredientCategory.PANTRY, IngredientCategory.PANTRY,
+            IngredientCategory.PRODUCE, IngredientCategory.PANTRY, IngredientCategory.PANTRY,
+            IngredientCategory.MEAT, IngredientCategory.PRODUCE, IngredientCategory.PANTRY,
+            IngredientCategory.PRODUCE, IngredientCategory.OTHER, IngredientCategory.SEAFOOD,
+            IngredientCategory.SEAFOOD, IngredientCategory.GRAINS, IngredientCategory.PRODUCE,
+            IngredientCategory.PRODUCE, IngredientCategory.GRAINS
+    };
+    private static final String[] UNITS = { "", "cup", "tbsp", "tsp", "g", "ml", "oz", "clove" };
+    private static final String[] COMMENTS = {
+            "Made this tonight, delicious!", "Needed a bit more salt.", "My kids loved it.",
+            "Great weeknight recipe.", "I swapped the herbs and it still worked.", "Too spicy for me.",
+            "Will make again.", "Doubled the garlic, no regrets."
+    };
+
+    /** Rows per JDBC batch and per transaction */
+    private static final int BATCH_SIZE = 1000;
+    private static final long HISTORY_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+    private final Random random;
+    private double commentsPerPost = 1.0;
+    private double upvotesPerPost = 3.0;
+    private double popularityExponent = 1.0;
+    private final ZipfSampler ingredientSampler = new ZipfSampler(INGREDIENTS.length, 0.8);
+
+    // Users and recipes get consecutive IDs; their popularity ranks are shuffled over the range
+    private int firstUserId = 0;
+    private int userCount = 0;
+    private int firstMealId = 0;
+    private int mealCount = 0;
+    private int[] userByRank = new int[0];
+    private int[] mealByRank = new int[0];
+    private ZipfSampler userSampler = null;
+    private ZipfSampler mealSampler = null;
+
+    /**
+     * Creates a generator
+     *
+     * @param seed The seed every generated value follows from
+     */
+    public DataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sets the average number of comments per recipe
+     *
+     * @param commentsPerPost The ratio of comments to recipes; 1 by default
+     * @return This generator
+     */
+    public DataGenerator withCommentsPerPost(double commentsPerPost) {
+        this.commentsPerPost = commentsPerPost;
+        return this;
+    }
+
+    /**
+     * Sets the average number of upvotes per recipe. A user can upvote a recipe only
+     * once, so repeated draws are dropped and slightly fewer upvotes land.
+     *
+     * @param upvotesPerPost The ratio of upvotes to recipes; 3 by default
+     * @return This generator
+     */
+    public DataGenerator withUpvotesPerPost(double upvotesPerPost) {
+        this.upvotesPerPost = upvotesPerPost;
+        return this;
+    }
+
+    /**
+     * Sets how steeply activity falls off from the most popular recipes and users
+     *
+     * @param exponent The Zipf exponent; 1 by default, larger is more skewed
+     * @return This generator
+     */
+    public DataGenerator withPopularityExponent(double exponent) {
+        this.popularityExponent = exponent;
+        return this;
+    }
+
+    /**
+     * Fills a database and opens it. The database is created if needed and may already
+     * hold data; generated users and recipes are added after any existing ones. An
+     * in-memory database stays alive as long as the returned helper is connected.
+     *
+     * @param url The JDBC URL of a file or in-memory H2 database
+     * @param posts The number of recipes to create; users are one tenth of that (at least ten)
+     * @return A DatabaseHelper connected to the filled database
+     */
+    public DatabaseHelper populate(String url, int posts) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, DatabaseHelper.USER, DatabaseHelper.PASS)) {
+            // Let DatabaseHelper create or migrate the schema, then write around it
+            new DatabaseHelper(url).closeConnection();
+
+            connection.setAutoCommit(false);
+            try {
+                insertUsers(connection, Math.max(10, posts / 10));
+                Map<String, Integer> ingredientIds = insertIngredients(connection);
+                Map<String, Integer> unitIds = insertUnits(connection);
+                int[] authors = insertMealPosts(connection, posts, ingredientIds, unitIds);
+                insertComments(connection, Math.round(posts * commentsPerPost));
+                insertUpvotes(connection, Math.round(posts * upvotesPerPost), authors);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+
+            // Opened before the bulk connection closes, so an in-memory database outlives it
+            return new DatabaseHelper(url);
+        }
+    }
+
+    private void insertUsers(Connection connection, int users) throws SQLException {
+        firstUserId = nextId(connection, "users");
+        userCount = users;
+        String sql = "INSERT INTO users (id, userName, password, role, reputation, email, creationDate, uuid) "
+                + "VALUES (?, ?, ?, 0, 0, ?, ?, ?)";
+        long now = System.currentTimeMillis();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < users; i++) {
+                int id = firstUserId + i;
+                pstmt.setInt(1, id);
+                pstmt.setString(2, "user" + id);
+                pstmt.setString(3, "password");
+                pstmt.setString(4, "user" + id + "@example.com");
+                pstmt.setTimestamp(5, new Timestamp(now - HISTORY_MILLIS + HISTORY_MILLIS * i / users));
+                pstmt.setString(6, new UUID(random.nextLong(), random.nextLong()).toString());
+                addToBatch(connection, pstmt, i);
+            }
+            pstmt.executeBatch();
+        }
+        restartIdentity(connection, "users", firstUserId + users);
+
+        userByRank = shuffledRange(firstUserId, users);
+        userSampler = new ZipfSampler(users, popularityExponent);
+    }
+
+    // Adds the vocabulary's missing ingredients, returning the ID of every vocabulary name
+    private Map<String, Integer> insertIngredients(Connection connection) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        try (PreparedStatement find = connection.prepareStatement("SELECT id FROM ingredients WHERE nameLower = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO ingredients (name, categoryCode, nameLower) VALUES (?, ?, ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < INGREDIENTS.length; i++) {
+                String nameLower = IngredientIndex.normalize(INGREDIENTS[i]);
+                find.setString(1, nameLower);
+                try (ResultSet rs = find.executeQuery()) {
+                    if (rs.next()) {
+                        ids.put(INGREDIENTS[i], rs.getInt(1));
+                        continue;
+                    }
+                }
+                insert.setString(1, INGREDIENTS[i]);
+                insert.setInt(2, INGREDIENT_CATEGORIES[i].getCode());
+                insert.setString(3, nameLower);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    ids.put(INGREDIENTS[i], keys.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Adds the units recipes use that DatabaseHelper hasn't created yet, returning the ID of each by name
+    private Map<String, Integer> insertUnits(Connection connection) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        try (PreparedStatement find = connection.prepareStatement("SELECT id FROM units WHERE name = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO units (name) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (String name : UNITS) {
+                Unit unit = Unit.of(name);
+                if (unit.isNone()) {
+                    continue;
+                }
+                find.setString(1, unit.getName());
+                try (ResultSet rs = find.executeQuery()) {
+                    if (rs.next()) {
+                        ids.put(unit.getName(), rs.getInt(1));
+                        continue;
+                    }
+                }
+                insert.setString(1, unit.getName());
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    ids.put(unit.getName(), keys.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Writes the recipes and their ingredients, returning each recipe's author as an offset from the first user
+    private int[] insertMealPosts(Connection connection, int posts, Map<String, Integer> ingredientIds,
+                                  Map<String, Integer> unitIds) throws SQLException {
+        firstMealId = nextId(connection, "meal_posts");
+        mealCount = posts;
+        int[] authors = new int[posts];
+        String postSql = "INSERT INTO meal_posts (id, title, titleLower, userId, description, instructions, "
+                + "preparationTime, cookingTime, servings, difficultyCode, dietaryCode, upvotes, creationDate, "
+                + "lastModified) VALUES (?, ?, LOWER(?), ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+        String ingredientSql = "INSERT INTO meal_ingredients (mealId, ingredientId, quantity, unitId) VALUES (?, ?, ?, ?)";
+        long now = System.currentTimeMillis();
+        try (PreparedStatement postStmt = connection.prepareStatement(postSql);
+             PreparedStatement ingredientStmt = connection.prepareStatement(ingredientSql)) {
+            for (int i = 0; i < posts; i++) {
+                int id = firstMealId + i;
+                // Authors are drawn by activity, so prolific users write many of the recipes
+                int author = randomActiveUserId(random);
+                authors[i] = author - firstUserId;
+                MealPost post = nextPost(author);
+                Timestamp created = new Timestamp(now - HISTORY_MILLIS + HISTORY_MILLIS * i / posts);
+
+                postStmt.setInt(1, id);
+                postStmt.setString(2, post.getTitle());
+                postStmt.setString(3, post.getTitle());
+                postStmt.setInt(4, author);
+                postStmt.setString(5, post.getDescription());
+                postStmt.setString(6, post.getInstructions());
+                postStmt.setInt(7, post.getPreparationTime());
+                postStmt.setInt(8, post.getCookingTime());
+                postStmt.setInt(9, post.getServings());
+                postStmt.setInt(10, post.getDifficulty().getCode());
+                postStmt.setInt(11, post.getDietaryType().getCode());
+                postStmt.setTimestamp(12, created);
+                postStmt.setTimestamp(13, created);
+                postStmt.addBatch();
+
+                for (MealIngredient ingredient : post.getIngredients()) {
+                    ingredientStmt.setInt(1, id);
+                    ingredientStmt.setInt(2, ingredientIds.get(ingredient.getName()));
+                    ingredientStmt.setFloat(3, ingredient.getQuantity());
+                    Integer unitId = unitIds.get(ingredient.getUnit().getName());
+                    if (unitId != null) {
+                        ingredientStmt.setInt(4, unitId);
+                    } else {
+                        ingredientStmt.setNull(4, Types.SMALLINT);
+                    }
+                    ingredientStmt.addBatch();
+                }
+
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    // Posts first, since their ingredients reference them
+                    postStmt.executeBatch();
+                    ingredientStmt.executeBatch();
+                    connection.commit();
+                }
+            }
+            postStmt.executeBatch();
+            ingredientStmt.executeBatch();
+        }
+        restartIdentity(connection, "meal_posts", firstMealId + posts);
+
+        if (posts > 0) {
+            mealByRank = shuffledRange(firstMealId, posts);
+            mealSampler = new ZipfSampler(posts, popularityExponent);
+        }
+        return authors;
+    }
+
+    private void insertComments(Connection connection, long comments) throws SQLException {
+        if (mealCount == 0) {
+            return;
+        }
+        String sql = "INSERT INTO comments (userId, mealId, content, creationDate) VALUES (?, ?, ?, ?)";
+        long now = System.currentTimeMillis();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (long i = 0; i < comments; i++) {
+                pstmt.setInt(1, randomActiveUserId(random));
+                pstmt.setInt(2, randomPopularMealId(random));
+                pstmt.setString(3, COMMENTS[random.nextInt(COMMENTS.length)]);
+                pstmt.setTimestamp(4, new Timestamp(now - (long) (random.nextDouble() * HISTORY_MILLIS)));
+                addToBatch(connection, pstmt, i);
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Writes distinct (user, recipe) upvotes, then the upvote counts and reputation they add up to
+    private void insertUpvotes(Connection connection, long upvotes, int[] authors) throws SQLException {
+        if (mealCount == 0) {
+            return;
+        }
+        // Pairs are packed into longs and sorted, which finds repeats without a set of millions of entries
+        long[] pairs = new long[(int) Math.min(upvotes, Integer.MAX_VALUE - 8)];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = ((long) randomActiveUserId(random) << 32) | randomPopularMealId(random);
+        }
+        Arrays.sort(pairs);
+
+        int[] upvotesByMeal = new int[mealCount];
+        int[] reputationByUser = new int[userCount];
+        try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO upvotes (userId, mealId) VALUES (?, ?)")) {
+            long written = 0;
+            for (int i = 0; i < pairs.length; i++) {
+                if (i > 0 && pairs[i] == pairs[i - 1]) {
+                    continue;
+                }
+                int mealId = (int) pairs[i];
+                pstmt.setInt(1, (int) (pairs[i] >>> 32));
+                pstmt.setInt(2, mealId);
+                addToBatch(connection, pstmt, written++);
+                upvotesByMeal[mealId - firstMealId]++;
+                reputationByUser[authors[mealId - firstMealId]]++;
+            }
+            pstmt.executeBatch();
+        }
+
+        // The same totals upvoteMealPost would have kept, applied once per row
+        try (PreparedStatement pstmt = connection.prepareStatement("UPDATE meal_posts SET upvotes = ? WHERE id = ?")) {
+            long written = 0;
+            for (int i = 0; i < mealCount; i++) {
+                if (upvotesByMeal[i] > 0) {
+                    pstmt.setInt(1, upvotesByMeal[i]);
+                    pstmt.setInt(2, firstMealId + i);
+                    addToBatch(connection, pstmt, written++);
+                }
+            }
+            pstmt.executeBatch();
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "UPDATE users SET reputation = reputation + ? WHERE id = ?")) {
+            long written = 0;
+            for (int i = 0; i < userCount; i++) {
+                if (reputationByUser[i] > 0) {
+                    pstmt.setInt(1, reputationByUser[i]);
+                    pstmt.setInt(2, firstUserId + i);
+                    addToBatch(connection, pstmt, written++);
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Queues a row, sending the batch and committing once it is full
+    private static void addToBatch(Connection connection, PreparedStatement pstmt, long row) throws SQLException {
+        pstmt.addBatch();
+        if ((row + 1) % BATCH_SIZE == 0) {
+            pstmt.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private static int nextId(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Explicit IDs don't advance the identity, so move it past them for the rows the app adds later
+    private static void restartIdentity(Connection connection, String table, int nextId) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextId);
+        }
+    }
+
+    private int[] shuffledRange(int first, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = first + i;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+
+    /**
+     * Makes up a recipe
+     *
+     * @param userId The author
+     * @return A recipe that has not been saved
+     */
+    public MealPost nextPost(int userId) {
+        MealPost post = new MealPost();
+        post.setUserId(userId);
+        String dish = DISHES[random.nextInt(DISHES.length)];
+        post.setTitle(STYLES[random.nextInt(STYLES.length)] + " " + dish);
+        post.setDescription("A " + STYLES[random.nextInt(STYLES.length)].toLowerCase() + " take on "
+                + dish.toLowerCase() + " for " + (2 + random.nextInt(6)) + " people.");
+        post.setInstructions("Prepare the ingredients. Cook for " + (5 + random.nextInt(60))
+                + " minutes, stirring now and then. Season and serve.");
+        post.setPreparationTime(5 + random.nextInt(40));
+        post.setCookingTime(random.nextInt(90));
+        post.setServings(1 + random.nextInt(8));
+        post.setDifficulty(Difficulty.values()[random.nextInt(Difficulty.values().length)]);
+        post.setDietaryType(DietaryType.values()[random.nextInt(DietaryType.values().length)]);
+
+        int ingredientCount = 3 + random.nextInt(6);
+        boolean[] used = new boolean[INGREDIENTS.length];
+        for (int i = 0; i < ingredientCount; i++) {
+            int ingredient = ingredientSampler.sample(random) - 1;
+            if (used[ingredient]) {
+                continue;
+            }
+            used[ingredient] = true;
+            Unit unit = Unit.of(UNITS[random.nextInt(UNITS.length)]);
+            post.addIngredient(new MealIngredient(INGREDIENTS[ingredient], INGREDIENT_CATEGORIES[ingredient],
+                    1 + random.nextInt(4), unit));
+        }
+        return post;
+    }
+
+    /**
+     * Picks one of the words titles are made of, for search queries that find something
+     *
+     * @param random The source of the choice
+     * @return A lowercase title word
+     */
+    public String randomTitleWord(Random random) {
+        String title = random.nextBoolean()
+                ? STYLES[random.nextInt(STYLES.length)] : DISHES[random.nextInt(DISHES.length)];
+        return title.split(" ")[0].toLowerCase();
+    }
+
+    /**
+     * Picks a generated user, every one equally likely
+     *
+     * @param random The source of the choice
+     * @return A user ID
+     */
+    public int randomUserId(Random random) {
+        return firstUserId + random.nextInt(userCount);
+    }
+
+    /**
+     * Picks a generated user by activity, so the most active users come up most often
+     *
+     * @param random The source of the choice
+     * @return A user ID
+     */
+    public int randomActiveUserId(Random random) {
+        return userByRank[userSampler.sample(random) - 1];
+    }
+
+    /**
+     * Picks a generated recipe, every one equally likely
+     *
+     * @param random The source of the choice
+     * @return A meal post ID
+     */
+    public int randomMealId(Random random) {
+        return firstMealId + random.nextInt(mealCount);
+    }
+
+    /**
+     * Picks a generated recipe by popularity, so the most popular recipes come up most often
+     *
+     * @param random The source of the choice
+     * @return A meal post ID
+     */
+    public int randomPopularMealId(Random random) {
+        return mealByRank[mealSampler.sample(random) - 1];
+    }
+}
@@ -0,0 +1,286 @@
+package App;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The DataLayerBenchmark class measures the DatabaseHelper calls the app spends most
+ * of its database time in, against an in-memory H2 database seeded by DataGenerator.
+ * For every scale it builds a fresh database, then runs each benchmark for a warmup
+ * period followed by a measured period on a single thread, reporting throughput,
+ * latency percentiles, and the allocation and garbage collection the calls caused.
+ *
+ * Latencies and throughput count only the time inside the measured call, not the
+ * untimed preparation of its inputs. Allocation is read from the thread's allocation
+ * counter around each call; garbage collections are counted over the whole period.
+ *
+ * Run it from the repository root with src and bench compiled onto the classpath
+ * (running needs only the H2 jar, compiling needs JavaFX for the pages as well):
+ *
+ *   javac -d out/bench -cp "h2.jar:javafx-sdk/lib/*" src/App/*.java bench/App/*.java
+ *   java -Xmx4g -cp out/bench:h2.jar App.DataLayerBenchmark --scales 1k,100k,1m
+ *
+ * Options are --scales (any of 1k, 100k, 1m, or a plain number of posts; default
+ * "1k,100k"), --warmup and --measure (seconds per benchmark; default 5 and 10),
+ * --benchmarks (a comma-separated subset of the names below) and --seed.
+ */
+public class DataLayerBenchmark {
+    private static final long DEFAULT_SEED = 42;
+    private static final int PAGE_SIZE = 5;
+    private static final String[] TIME_FILTERS = { "All", "Quick", "Medium", "Long" };
+    private static final String[] SORT_MODES = { "Date", "Reputation", "Preparation Time", "Cooking Time" };
+
+    /** One measured call; prepare and cleanUp run around it untimed */
+    private abstract static class Benchmark {
+        private final String name;
+
+        Benchmark(String name) {
+            this.name = name;
+        }
+
+        void prepare(Random random) throws SQLException {
+        }
+
+        abstract void invoke() throws SQLException;
+
+        void cleanUp() throws SQLException {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> scales = List.of(1_000, 100_000);
+        int warmupSeconds = 5;
+        int measureSeconds = 10;
+        List<String> selected = null;
+        long seed = DEFAULT_SEED;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scales" -> scales = parseScales(args[++i]);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(args[++i]);
+                case "--measure" -> measureSeconds = Integer.parseInt(args[++i]);
+                case "--benchmarks" -> selected = Arrays.asList(args[++i].split(","));
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        System.out.printf("%-26s %9s %11s %10s %10s %10s %10s %11s %8s %8s%n", "Benchmark", "Posts", "ops/s",
+                "avg us", "p50 us", "p99 us", "p99.9 us", "alloc B/op", "gc count", "gc ms");
+        for (int posts : scales) {
+            runScale(posts, seed, warmupSeconds, measureSeconds, selected);
+        }
+    }
+
+    private static void runScale(int posts, long seed, int warmupSeconds, int measureSeconds, List<String> selected)
+            throws SQLException {
+        // Without DB_CLOSE_DELAY the in-memory database is dropped when the connection closes
+        DataGenerator generator = new DataGenerator(seed);
+        long start = System.nanoTime();
+        DatabaseHelper db = generator.populate("jdbc:h2:mem:benchmark" + posts, posts);
+        System.out.printf("# Seeded %d posts in %.1f s%n", posts, (System.nanoTime() - start) / 1e9);
+
+        for (Benchmark benchmark : createBenchmarks(db, generator)) {
+            if (selected == null || selected.contains(benchmark.name)) {
+                // Every benchmark draws its inputs from its own seeded sequence, whatever ran before it
+                Random random = new Random(seed ^ benchmark.name.hashCode());
+                run(benchmark, random, posts, warmupSeconds, measureSeconds);
+            }
+        }
+
+        db.closeConnection();
+    }
+
+    private static List<Benchmark> createBenchmarks(DatabaseHelper db, DataGenerator generator) {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(new Benchmark("createMealPost") {
+            private MealPost post;
+
+            @Override
+            void prepare(Random random) {
+                post = generator.nextPost(generator.randomUserId(random));
+            }
+
+            @Override
+            void invoke() throws SQLException {
+                db.createMealPost(post);
+            }
+        });
+
+        benchmarks.add(new Benchmark("searchAndFilterMealPosts") {
+            private String query;
+            private Difficulty difficulty;
+            private String timeFilter;
+            private DietaryType dietaryFilter;
+            private String sortMode;
+            private int page;
+
+            @Override
+            void prepare(Random random) {
+                // Half the calls browse without search text, as the feed mostly does
+                query = random.nextBoolean() ? "" : generator.randomTitleWord(random);
+                difficulty = random.nextInt(4) == 0 ? Difficulty.values()[random.nextInt(3)] : null;
+                timeFilter = TIME_FILTERS[random.nextInt(TIME_FILTERS.length)];
+                dietaryFilter = random.nextInt(4) == 0 ? DietaryType.values()[random.nextInt(3)] : null;
+                sortMode = SORT_MODES[random.nextInt(SORT_MODES.length)];
+                page = random.nextInt(3);
+            }
+
+            @Override
+            void invoke() throws SQLException {
+                db.searchAndFilterMealPosts(query, difficulty, timeFilter, dietaryFilter, sortMode, page, PAGE_SIZE);
+            }
+        });
+
+        benchmarks.add(new Benchmark("getCommentsForMeal") {
+            private int mealId;
+
+            @Override
+            void prepare(Random random) {
+                mealId = generator.randomMealId(random);
+            }
+
+            @Override
+            void invoke() throws SQLException {
+                db.getCommentsForMeal(mealId);
+            }
+        });
+
+        benchmarks.add(new Benchmark("upvoteMealPost") {
+            private int userId;
+            private int mealId;
+            private boolean upvoted;
+
+            @Override
+            void prepare(Random random) {
+                userId = generator.randomUserId(random);
+                mealId = generator.randomMealId(random);
+            }
+
+            @Override
+            void invoke() throws SQLException {
+                upvoted = db.upvoteMealPost(userId, mealId);
+            }
+
+            @Override
+            void cleanUp() throws SQLException {
+                // Undone so the database stays the same size however long the run is
+                if (upvoted) {
+                    db.removeUpvote(userId, mealId);
+                }
+            }
+        });
+
+        benchmarks.add(new Benchmark("getIngredientsForMeal") {
+            private int mealId;
+
+            @Override
+            void prepare(Random random) {
+                mealId = generator.randomMealId(random);
+            }
+
+            @Override
+            void invoke() throws SQLException {
+                db.getIngredientsForMeal(mealId);
+            }
+        });
+
+        return benchmarks;
+    }
+
+    private static void run(Benchmark benchmark, Random random, int posts, int warmupSeconds, int measureSeconds)
+            throws SQLException {
+        long warmupEnd = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            benchmark.prepare(random);
+            benchmark.invoke();
+            benchmark.cleanUp();
+        }
+        System.gc();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] latencies = new long[1 << 16];
+        int count = 0;
+        long allocated = 0;
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+
+        long measureStart = System.nanoTime();
+        long measureEnd = measureStart + measureSeconds * 1_000_000_000L;
+        long measured = 0;
+        while (System.nanoTime() < measureEnd) {
+            benchmark.prepare(random);
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            benchmark.invoke();
+            long elapsed = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            benchmark.cleanUp();
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = elapsed;
+            measured += elapsed;
+        }
+
+        long gcCount = gcCount() - gcCountBefore;
+        long gcMillis = gcMillis() - gcMillisBefore;
+        Arrays.sort(latencies, 0, count);
+        System.out.printf(Locale.ROOT, "%-26s %9d %11.1f %10.1f %10.1f %10.1f %10.1f %11d %8d %8d%n",
+                benchmark.name, posts, count / (measured / 1e9), measured / 1e3 / count,
+                percentile(latencies, count, 0.50), percentile(latencies, count, 0.99),
+                percentile(latencies, count, 0.999), allocated / Math.max(1, count), gcCount, gcMillis);
+    }
+
+    // Nearest-rank percentile of sorted latencies, in microseconds
+    private static double percentile(long[] sorted, int count, double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))] / 1e3;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static List<Integer> parseScales(String value) {
+        List<Integer> scales = new ArrayList<>();
+        for (String scale : value.split(",")) {
+            String lower = scale.trim().toLowerCase(Locale.ROOT);
+            if (lower.endsWith("k")) {
+                scales.add(Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1_000);
+            } else if (lower.endsWith("m")) {
+                scales.add(Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1_000_000);
+            } else {
+                scales.add(Integer.parseInt(lower));
+            }
+        }
+        return scales;
+    }
+}
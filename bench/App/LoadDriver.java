@@ -0,0 +1,303 @@
+package App;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The LoadDriver class simulates many people using the app at once against one H2
+ * database. Each virtual user runs on its own thread with its own DatabaseHelper, the
+ * way separate copies of the app would each hold a connection, and repeats a weighted
+ * mix of what people do: browse the feed, search, open a recipe, comment and upvote.
+ * Which recipes they open, comment on and upvote follows the same Zipf popularity the
+ * data was generated with, so the hot recipes are hit far more than the rest.
+ *
+ * Before the run the database is filled by DataGenerator. An in-memory database
+ * starts empty; a file database gets the generated data added to what it already has.
+ * At the end the driver prints, per operation, how many completed and failed, the
+ * throughput, and the average, 50th, 95th and 99th percentile latencies.
+ *
+ * Run it from the repository root with src and bench compiled onto the classpath:
+ *
+ *   java -cp out/bench:h2.jar App.LoadDriver --posts 100000 --users 16 --duration 60
+ *   java -cp out/bench:h2.jar App.LoadDriver --url "jdbc:h2:./load" --users 32 --think 200
+ *
+ * Options are --url (default an in-memory database), --posts (recipes to generate, at
+ * least one; default 10000), --users (virtual users; default 8), --duration and
+ * --warmup (seconds; default 30 and 5), --mix (weights per operation; default
+ * "browse=40,search=25,open=20,comment=5,upvote=10"), --think (average pause between a
+ * user's operations in milliseconds; default 0) and --seed.
+ */
+public class LoadDriver {
+    private static final long DEFAULT_SEED = 42;
+    private static final int PAGE_SIZE = 5;
+    private static final String[] OPERATIONS = { "browse", "search", "open", "comment", "upvote" };
+    private static final String[] TIME_FILTERS = { "All", "Quick", "Medium", "Long" };
+    private static final String[] SORT_MODES = { "Date", "Reputation", "Preparation Time", "Cooking Time" };
+    private static final String[] COMMENTS = {
+            "Trying this at the weekend.", "Turned out great.", "A bit bland, added chili.", "Family favourite now."
+    };
+
+    public static void main(String[] args) throws Exception {
+        String url = "jdbc:h2:mem:load";
+        int posts = 10_000;
+        int users = 8;
+        int durationSeconds = 30;
+        int warmupSeconds = 5;
+        int[] weights = parseMix("browse=40,search=25,open=20,comment=5,upvote=10");
+        long thinkMillis = 0;
+        long seed = DEFAULT_SEED;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> url = args[++i];
+                case "--posts" -> posts = Integer.parseInt(args[++i]);
+                case "--users" -> users = Integer.parseInt(args[++i]);
+                case "--duration" -> durationSeconds = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(args[++i]);
+                case "--mix" -> weights = parseMix(args[++i]);
+                case "--think" -> thinkMillis = Long.parseLong(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (posts < 1 || users < 1) {
+            System.err.println("Need at least one post and one virtual user");
+            System.exit(2);
+        }
+
+        DataGenerator generator = new DataGenerator(seed);
+        long start = System.nanoTime();
+        // Kept open for the whole run, so an in-memory database isn't dropped between connections
+        DatabaseHelper seeded = generator.populate(url, posts);
+        System.out.printf("# Seeded %d posts in %.1f s%n", posts, (System.nanoTime() - start) / 1e9);
+
+        VirtualUser[] virtualUsers = new VirtualUser[users];
+        for (int i = 0; i < users; i++) {
+            virtualUsers[i] = new VirtualUser(url, generator, weights, thinkMillis, new Random(seed + 1 + i));
+        }
+
+        System.out.printf("# %d virtual users, %d s warmup, %d s measured%n", users, warmupSeconds, durationSeconds);
+        long now = System.nanoTime();
+        long measureStart = now + warmupSeconds * 1_000_000_000L;
+        long measureEnd = measureStart + durationSeconds * 1_000_000_000L;
+        CountDownLatch finished = new CountDownLatch(users);
+        for (int i = 0; i < users; i++) {
+            VirtualUser virtualUser = virtualUsers[i];
+            Thread thread = new Thread(() -> {
+                try {
+                    virtualUser.run(measureStart, measureEnd);
+                } finally {
+                    finished.countDown();
+                }
+            }, "virtual-user-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        finished.await();
+
+        report(virtualUsers, durationSeconds);
+        for (VirtualUser virtualUser : virtualUsers) {
+            virtualUser.db.closeConnection();
+        }
+        seeded.closeConnection();
+    }
+
+    /** One simulated person, with a connection and a latency log per operation of their own */
+    private static final class VirtualUser {
+        private final DatabaseHelper db;
+        private final DataGenerator generator;
+        private final int[] weights;
+        private final int totalWeight;
+        private final long thinkMillis;
+        private final Random random;
+        private final int userId;
+        private final long[][] latencies = new long[OPERATIONS.length][1024];
+        private final int[] counts = new int[OPERATIONS.length];
+        private final int[] errors = new int[OPERATIONS.length];
+
+        private VirtualUser(String url, DataGenerator generator, int[] weights, long thinkMillis, Random random) {
+            this.db = new DatabaseHelper(url);
+            this.generator = generator;
+            this.weights = weights;
+            this.totalWeight = Arrays.stream(weights).sum();
+            this.thinkMillis = thinkMillis;
+            this.random = random;
+            // Active users log in more, so the people online are mostly the prolific ones
+            this.userId = generator.randomActiveUserId(random);
+        }
+
+        private void run(long measureStart, long measureEnd) {
+            long now;
+            while ((now = System.nanoTime()) < measureEnd) {
+                int operation = pickOperation();
+                long start = System.nanoTime();
+                boolean failed = false;
+                try {
+                    perform(operation);
+                } catch (SQLException | RuntimeException e) {
+                    failed = true;
+                }
+                long elapsed = System.nanoTime() - start;
+                if (now >= measureStart) {
+                    record(operation, elapsed, failed);
+                }
+                think();
+            }
+        }
+
+        private int pickOperation() {
+            int roll = random.nextInt(totalWeight);
+            for (int i = 0; i < weights.length; i++) {
+                roll -= weights[i];
+                if (roll < 0) {
+                    return i;
+                }
+            }
+            return weights.length - 1;
+        }
+
+        private void perform(int operation) throws SQLException {
+            switch (OPERATIONS[operation]) {
+                case "browse" -> {
+                    // Mostly the newest recipes, sometimes filtered or sorted, a few pages deep
+                    boolean filtered = random.nextInt(4) == 0;
+                    FeedQuery query = new FeedQuery("",
+                            filtered ? Difficulty.values()[random.nextInt(3)] : null,
+                            filtered ? TIME_FILTERS[random.nextInt(TIME_FILTERS.length)] : "All",
+                            filtered ? DietaryType.values()[random.nextInt(3)] : null,
+                            random.nextInt(3) == 0 ? SORT_MODES[random.nextInt(SORT_MODES.length)] : "Date",
+                            PAGE_SIZE);
+                    db.getFeedPage(query, random.nextInt(10) < 7 ? 0 : random.nextInt(5));
+                    db.getFeedCount(query);
+                }
+                case "search" -> {
+                    FeedQuery query = new FeedQuery(generator.randomTitleWord(random), null, "All", null,
+                            SORT_MODES[random.nextInt(SORT_MODES.length)], PAGE_SIZE);
+                    db.getFeedPage(query, 0);
+                    db.getFeedCount(query);
+                }
+                case "open" -> {
+                    MealPost post = db.getMealPostById(generator.randomPopularMealId(random));
+                    db.getCommentsForMeal(post.getId());
+                    db.getUserById(post.getUserId());
+                }
+                case "comment" -> db.addComment(userId, generator.randomPopularMealId(random),
+                        COMMENTS[random.nextInt(COMMENTS.length)]);
+                case "upvote" -> {
+                    // Clicking the button again takes the upvote back, as the recipe page does
+                    int mealId = generator.randomPopularMealId(random);
+                    if (!db.upvoteMealPost(userId, mealId)) {
+                        db.removeUpvote(userId, mealId);
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown operation " + OPERATIONS[operation]);
+            }
+        }
+
+        private void record(int operation, long elapsed, boolean failed) {
+            if (failed) {
+                errors[operation]++;
+                return;
+            }
+            if (counts[operation] == latencies[operation].length) {
+                latencies[operation] = Arrays.copyOf(latencies[operation], counts[operation] * 2);
+            }
+            latencies[operation][counts[operation]++] = elapsed;
+        }
+
+        // Exponentially distributed pauses, like the gaps between independent clicks
+        private void think() {
+            if (thinkMillis <= 0) {
+                return;
+            }
+            long pause = (long) (-Math.log(1 - random.nextDouble()) * thinkMillis);
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void report(VirtualUser[] virtualUsers, int durationSeconds) {
+        System.out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s%n", "Operation", "count", "errors", "ops/s",
+                "avg ms", "p50 ms", "p95 ms", "p99 ms");
+        long[] all = new long[0];
+        int allCount = 0;
+        int allErrors = 0;
+        for (int operation = 0; operation < OPERATIONS.length; operation++) {
+            int count = 0;
+            int errors = 0;
+            for (VirtualUser virtualUser : virtualUsers) {
+                count += virtualUser.counts[operation];
+                errors += virtualUser.errors[operation];
+            }
+            long[] merged = new long[count];
+            int offset = 0;
+            for (VirtualUser virtualUser : virtualUsers) {
+                System.arraycopy(virtualUser.latencies[operation], 0, merged, offset, virtualUser.counts[operation]);
+                offset += virtualUser.counts[operation];
+            }
+            if (count + errors == 0) {
+                continue;
+            }
+            printRow(OPERATIONS[operation], merged, errors, durationSeconds);
+
+            all = Arrays.copyOf(all, allCount + count);
+            System.arraycopy(merged, 0, all, allCount, count);
+            allCount += count;
+            allErrors += errors;
+        }
+        printRow("total", all, allErrors, durationSeconds);
+    }
+
+    private static void printRow(String name, long[] latencies, int errors, int durationSeconds) {
+        Arrays.sort(latencies);
+        int count = latencies.length;
+        double average = count == 0 ? 0 : Arrays.stream(latencies).sum() / 1e6 / count;
+        System.out.printf(Locale.ROOT, "%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, count, errors,
+                count / (double) Math.max(1, durationSeconds), average, percentile(latencies, 0.50),
+                percentile(latencies, 0.95), percentile(latencies, 0.99));
+    }
+
+    // Nearest-rank percentile of sorted latencies, in milliseconds
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6;
+    }
+
+    private static int[] parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            mix.put(parts[0].trim().toLowerCase(Locale.ROOT), Integer.parseInt(parts[1].trim()));
+        }
+        int[] weights = new int[OPERATIONS.length];
+        List<String> known = new ArrayList<>(List.of(OPERATIONS));
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            int operation = known.indexOf(entry.getKey());
+            if (operation < 0) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + entry.getKey());
+            }
+            weights[operation] = entry.getValue();
+        }
+        if (Arrays.stream(weights).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+        return weights;
+    }
+}
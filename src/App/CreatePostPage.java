@@ -2,6 +2,7 @@ package App;
 
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
@@ -87,9 +88,9 @@ public class CreatePostPage {
         timeInputs.getChildren().addAll(prepTimeBox, cookTimeBox, servingsBox);
         
         // Difficulty selection
-        ComboBox<String> difficultyCombo = new ComboBox<>();
-        difficultyCombo.getItems().addAll("Easy", "Medium", "Hard");
-        difficultyCombo.setValue("Medium");
+        ComboBox<Difficulty> difficultyCombo = new ComboBox<>();
+        difficultyCombo.getItems().addAll(Difficulty.values());
+        difficultyCombo.setValue(Difficulty.MEDIUM);
         difficultyCombo.setStyle(DarkTheme.CSS_FIELD);
 
         // Dietary type selection
@@ -172,7 +173,7 @@ public class CreatePostPage {
 
                 // Get selected dietary type
                 RadioButton selectedDietaryType = (RadioButton) dietaryGroup.getSelectedToggle();
-                String dietaryType = selectedDietaryType.getText();
+                DietaryType dietaryType = DietaryType.fromLabel(selectedDietaryType.getText());
 
                 // Create the post
                 MealPost post = new MealPost();
@@ -214,6 +215,7 @@ public class CreatePostPage {
         nameField.setPromptText("Ingredient name");
         nameField.setStyle(DarkTheme.CSS_FIELD);
         nameField.setPrefWidth(200);
+        attachIngredientSuggestions(nameField);
         
         TextField quantityField = new TextField();
         quantityField.setPromptText("Amount");
@@ -233,6 +235,47 @@ public class CreatePostPage {
         ingredientsContainer.getChildren().add(ingredientRow);
     }
     
+    // Shows existing ingredient names matching what has been typed, most used first
+    private void attachIngredientSuggestions(TextField nameField) {
+        ContextMenu suggestionsMenu = new ContextMenu();
+        nameField.textProperty().addListener((obs, oldText, newText) -> {
+            if (!nameField.isFocused() || newText == null || newText.trim().isEmpty()) {
+                suggestionsMenu.hide();
+                return;
+            }
+
+            // Served from the in-memory ingredient index, so typing never waits for the database
+            List<String> suggestions = databaseHelper.suggestIngredients(newText, 8);
+
+            // Nothing to suggest if the only match is exactly what was typed
+            if (suggestions.isEmpty()
+                    || (suggestions.size() == 1 && suggestions.get(0).equalsIgnoreCase(newText.trim()))) {
+                suggestionsMenu.hide();
+                return;
+            }
+
+            List<MenuItem> items = new ArrayList<>();
+            for (String suggestion : suggestions) {
+                MenuItem item = new MenuItem(suggestion);
+                item.setOnAction(e -> {
+                    nameField.setText(suggestion);
+                    nameField.positionCaret(suggestion.length());
+                    suggestionsMenu.hide();
+                });
+                items.add(item);
+            }
+            suggestionsMenu.getItems().setAll(items);
+            if (!suggestionsMenu.isShowing()) {
+                suggestionsMenu.show(nameField, Side.BOTTOM, 0, 0);
+            }
+        });
+        nameField.focusedProperty().addListener((obs, wasFocused, isFocused) -> {
+            if (!isFocused) {
+                suggestionsMenu.hide();
+            }
+        });
+    }
+    
     private List<MealIngredient> getIngredientsList() {
         List<MealIngredient> ingredients = new ArrayList<>();
         
@@ -246,7 +289,7 @@ public class CreatePostPage {
                     MealIngredient ingredient = new MealIngredient();
                     ingredient.setName(nameField.getText().trim());
                     ingredient.setQuantity(Float.parseFloat(quantityField.getText().trim()));
-                    ingredient.setUnit(unitField.getText().trim());
+                    ingredient.setUnit(Unit.of(unitField.getText()));
                     ingredients.add(ingredient);
                 }
             }
@@ -0,0 +1,34 @@
+package App;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The DatabaseCallEvent class is the Java Flight Recorder event for one call of a
+ * DatabaseHelper data access method, spanning the whole call including any methods it
+ * calls in turn. Its duration, thread and stack show in a recording next to garbage
+ * collections and the JavaFX thread.
+ *
+ * Like every Ptyxes event it is on in any recording by default, and can be turned off
+ * or given a duration threshold in the recording's settings under "ptyxes.DatabaseCall".
+ * Unless a running recording enables it, no event is even created, so leaving the
+ * events in costs nothing but a flag check per call.
+ */
+@Name("ptyxes.DatabaseCall")
+@Label("Database Call")
+@Category({ "Ptyxes", "Database" })
+@Description("A call of a DatabaseHelper data access method")
+public class DatabaseCallEvent extends jdk.jfr.Event {
+    @Label("Method")
+    String method;
+
+    @Label("Rows")
+    @Description("Rows returned or changed by the method's statements")
+    long rows;
+
+    @Label("Failed")
+    @Description("Whether one of the method's statements threw")
+    boolean failed;
+}
@@ -1,15 +1,34 @@
 package App;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The DatabaseHelper class is responsible for managing the connection to the
  * database, performing operations such as user registration, login validation,
  * and handling meal posts with ingredients and recipes.
  */
+// Methods open a QueryMetrics.Call only to time their body, so most never reference it
+@SuppressWarnings("try")
 public class DatabaseHelper {
 
     // JDBC driver name and database URL
@@ -23,11 +42,79 @@ public class DatabaseHelper {
     private Connection connection = null;
     private Statement statement = null;
 
+    // Prepared statements kept open for every fixed query, so H2 parses and plans each only once
+    private StatementCache statementCache = null;
+
+    // Reads of threads made by newBackgroundThread run on a connection of their own, so they
+    // never see a transaction the FX thread hasn't committed, nor hold the main connection up
+    private static final ThreadLocal<Boolean> BACKGROUND_THREAD = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private Connection backgroundConnection = null;
+    private StatementCache backgroundStatements = null;
+    private static final int STATEMENT_CACHE_SIZE = 128;
+
+    // Calls, rows and latency of every data access method and statement, kept across reconnects
+    private final QueryMetrics metrics = new QueryMetrics();
+    private static final long QUERY_METRICS_DUMP_MILLIS = 60_000;
+
+    // Optional log of statements slower than a threshold, with their parameters and plans
+    private SlowQueryLog slowQueryLog = null;
+
+    // Unit lookup table, cached in memory so ingredient rows only carry a unit ID
+    private final Map<Unit, Integer> unitIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Unit> unitsById = new ConcurrentHashMap<>();
+
+    // Optional in-memory snapshot of meal post metadata for filtering without SQL
+    private MealPostColumnStore columnStore = null;
+
+    // Search text results, and the statement of the typed search currently running so it can be cancelled
+    private static final int SEARCH_TIMEOUT_SECONDS = 10;
+    private final SearchResultCache searchCache = new SearchResultCache(64);
+    private volatile Statement activeSearch = null;
+    // Set on the thread running the typed search; other threads' statements are never registered
+    private final ThreadLocal<Boolean> cancellableSearch = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    // Recently shown and prefetched pages of the main feed
+    private final FeedPageCache feedCache = new FeedPageCache(8);
+
+    // Optional background model behind "people who upvoted this also upvoted"
+    private RecommendationEngine recommendations = null;
+    private static final long RECOMMENDATION_FLUSH_MILLIS = 2000;
+
+    // Lowest Jaccard similarity shown as a similar recipe
+    private static final double MIN_SIMILAR_RECIPE = 0.25;
+
+    // Builds the in-memory indexes below on a background thread, so no UI call waits for one
+    private final ExecutorService indexLoader = Executors.newSingleThreadExecutor(
+            runnable -> newBackgroundThread(runnable, "ptyxes-index-loader"));
+
+    // Prefix index over ingredient names for autocomplete, loaded in the background at startup
+    private volatile IngredientIndex ingredientIndex = null;
+    // Bumped whenever the ingredient index is dropped, so a load that started earlier isn't kept
+    private final AtomicLong ingredientIndexVersion = new AtomicLong();
+
+    // MinHash signatures of each meal's ingredient set for similar recipes, loaded in the background at startup
+    private volatile MinHashIndex similarityIndex = null;
+
+    // Words of titles and ingredient names that search texts are spelled against, loaded on first use
+    private volatile FuzzyTermIndex searchVocabulary = null;
+
+    // Optional vector index for searching recipes by meaning, and the file it is kept in
+    private volatile VectorIndex vectorIndex = null;
+    private volatile Path vectorIndexFile = null;
+    // Completed once the index is built or refreshed in the background; null while disabled
+    private volatile CompletableFuture<Void> semanticSearchReady = null;
+    private ScheduledExecutorService vectorIndexSaver = null;
+    private static final long VECTOR_INDEX_SAVE_MILLIS = 5 * 60_000;
+    private static final int VECTOR_PROBES = 8;
+    private static final float MIN_SEMANTIC_SCORE = 0.1f;
+    // Posts modified this close to the index's save time are embedded again, in case of clock skew
+    private static final long VECTOR_INDEX_SLACK_MILLIS = 1000;
+
     public DatabaseHelper() {
         try {
             connectToDatabase();
         } catch (SQLException e) {
-            System.err.println(e.getMessage());
+            Log.error("Could not connect to the database", e, "url", DB_URL);
         }
     }
 
@@ -36,20 +123,40 @@ public class DatabaseHelper {
         try {
             connectToDatabase();
         } catch (SQLException e) {
-            System.err.println(e.getMessage());
+            Log.error("Could not connect to the database", e, "url", DB_URL);
         }
     }
 
     public int ResetHard(String URL) {
         if (URL.equals(DB_URL)) {
-            System.out.println("WARNING: Attempting to reset the database using DROP ALL OBJECTS...");
+            Log.warn("Resetting the database with DROP ALL OBJECTS", "url", URL);
             try {
                 // Use H2's specific command for dropping everything
+                statementCache.clear();
+                if (backgroundStatements != null) {
+                    backgroundStatements.clear();
+                }
                 statement.execute("DROP ALL OBJECTS");
-                System.out.println("Database reset successfully. All objects dropped.");
+                Log.info("Database reset; all objects dropped");
                 createTables();
+                if (recommendations != null) {
+                    disableRecommendations();
+                    enableRecommendations();
+                }
+                invalidateIngredientIndex();
+                similarityIndex = null;
+                scheduleSimilarityIndexLoad();
+                searchVocabulary = null;
+                if (vectorIndex != null) {
+                    vectorIndex = new VectorIndex(TextEmbedder.DIMENSIONS);
+                }
+                searchCache.clear();
+                feedCache.invalidate();
+                if (columnStore != null) {
+                    enableColumnStore();
+                }
             } catch (SQLException e) {
-                System.err.println("Error during database reset: " + e.getMessage());
+                Log.error("Error during database reset", e);
             }
             return 0;
         }
@@ -59,18 +166,56 @@ public class DatabaseHelper {
     public void connectToDatabase() throws SQLException {
         try {
             Class.forName(JDBC_DRIVER); // Load the JDBC driver
-            System.out.println("Connecting to database...");
+            Log.info("Connecting to database", "url", DB_URL);
             connection = DriverManager.getConnection(DB_URL, USER, PASS);
             statement = connection.createStatement();
+            statementCache = new StatementCache(connection, STATEMENT_CACHE_SIZE, metrics);
+            statementCache.setSlowQueryLog(slowQueryLog);
             // You can use this command to clear the database and restart from fresh.
             // statement.execute("DROP ALL OBJECTS");
 
             createTables();
+
+            backgroundConnection = DriverManager.getConnection(DB_URL, USER, PASS);
+            backgroundStatements = new StatementCache(backgroundConnection, STATEMENT_CACHE_SIZE, metrics);
+            backgroundStatements.setSlowQueryLog(slowQueryLog);
+
+            scheduleIngredientIndexLoad();
+            scheduleSimilarityIndexLoad();
         } catch (ClassNotFoundException e) {
-            System.err.println("JDBC Driver not found: " + e.getMessage());
+            Log.error("JDBC driver not found", e, "driver", JDBC_DRIVER);
         }
     }
 
+    /**
+     * Creates a daemon thread for background work. Its database reads run on a
+     * connection separate from the one the FX thread runs its transactions on, so they
+     * only ever see committed rows and never wait for a transaction to finish.
+     * Background threads must only read.
+     *
+     * @param runnable The thread's work
+     * @param name The thread's name
+     * @return The thread, not started yet
+     */
+    public static Thread newBackgroundThread(Runnable runnable, String name) {
+        Thread thread = new Thread(() -> {
+            BACKGROUND_THREAD.set(Boolean.TRUE);
+            runnable.run();
+        }, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // The statements of the calling thread's connection
+    private StatementCache statements() {
+        return BACKGROUND_THREAD.get() && backgroundStatements != null ? backgroundStatements : statementCache;
+    }
+
+    // The calling thread's connection
+    private Connection connection() {
+        return BACKGROUND_THREAD.get() && backgroundConnection != null ? backgroundConnection : connection;
+    }
+
     private void createTables() throws SQLException {
         // Users table
         String userTable = "CREATE TABLE IF NOT EXISTS users (" 
@@ -88,14 +233,15 @@ public class DatabaseHelper {
         String mealPostTable = "CREATE TABLE IF NOT EXISTS meal_posts ("
                 + "id INT AUTO_INCREMENT PRIMARY KEY, "
                 + "title VARCHAR(255), "
+                + "titleLower VARCHAR(255), "
                 + "userId INT, "
                 + "description TEXT, "
                 + "instructions TEXT, "
                 + "preparationTime INT, "
                 + "cookingTime INT, "
                 + "servings INT, " 
-                + "difficulty VARCHAR(50), "
-                + "dietaryType VARCHAR(50), "
+                + "difficultyCode TINYINT, "
+                + "dietaryCode TINYINT, "
                 + "imageUrl VARCHAR(255), "
                 + "creationDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
                 + "lastModified TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
@@ -107,18 +253,34 @@ public class DatabaseHelper {
         String ingredientsTable = "CREATE TABLE IF NOT EXISTS ingredients (" 
                 + "id INT AUTO_INCREMENT PRIMARY KEY, "
                 + "name VARCHAR(255), " 
-                + "category VARCHAR(100))";
+                + "nameLower VARCHAR(255), "
+                + "categoryCode TINYINT)";
         statement.execute(ingredientsTable);
 
+        // Units lookup table
+        String unitsTable = "CREATE TABLE IF NOT EXISTS units ("
+                + "id SMALLINT AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(50) UNIQUE)";
+        statement.execute(unitsTable);
+
+        // Conversion factors from units of volume and mass to milliliters or grams
+        String unitConversionsTable = "CREATE TABLE IF NOT EXISTS unit_conversions ("
+                + "unitId SMALLINT PRIMARY KEY, "
+                + "dimensionCode TINYINT, "
+                + "baseFactor DOUBLE, "
+                + "FOREIGN KEY (unitId) REFERENCES units(id))";
+        statement.execute(unitConversionsTable);
+
         // Meal ingredients junction table
         String mealIngredientsTable = "CREATE TABLE IF NOT EXISTS meal_ingredients (" 
                 + "id INT AUTO_INCREMENT PRIMARY KEY, "
                 + "mealId INT, " 
                 + "ingredientId INT, " 
                 + "quantity FLOAT, " 
-                + "unit VARCHAR(50), "
+                + "unitId SMALLINT, "
                 + "FOREIGN KEY (mealId) REFERENCES meal_posts(id) ON DELETE CASCADE, "
-                + "FOREIGN KEY (ingredientId) REFERENCES ingredients(id))";
+                + "FOREIGN KEY (ingredientId) REFERENCES ingredients(id), "
+                + "FOREIGN KEY (unitId) REFERENCES units(id))";
         statement.execute(mealIngredientsTable);
 
         // Upvotes table (to track who upvoted what)
@@ -142,1075 +304,2954 @@ public class DatabaseHelper {
                 + "FOREIGN KEY (userId) REFERENCES users(id), "
                 + "FOREIGN KEY (mealId) REFERENCES meal_posts(id) ON DELETE CASCADE)";
         statement.execute(commentsTable);
-    }
 
-    // User Management Methods
+        // Meal plans, with their aggregates for the whole week
+        String mealPlansTable = "CREATE TABLE IF NOT EXISTS meal_plans ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "userId INT, "
+                + "name VARCHAR(255), "
+                + "weekStart DATE, "
+                + "mealCount INT DEFAULT 0, "
+                + "totalTime INT DEFAULT 0, "
+                + "servings INT DEFAULT 0, "
+                + "ingredientCount INT DEFAULT 0, "
+                + "creationDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                + "FOREIGN KEY (userId) REFERENCES users(id) ON DELETE CASCADE)";
+        statement.execute(mealPlansTable);
+
+        // Aggregates for each day of a meal plan
+        String mealPlanDaysTable = "CREATE TABLE IF NOT EXISTS meal_plan_days ("
+                + "planId INT, "
+                + "dayOfWeek TINYINT, "
+                + "mealCount INT DEFAULT 0, "
+                + "totalTime INT DEFAULT 0, "
+                + "servings INT DEFAULT 0, "
+                + "ingredientCount INT DEFAULT 0, "
+                + "PRIMARY KEY (planId, dayOfWeek), "
+                + "FOREIGN KEY (planId) REFERENCES meal_plans(id) ON DELETE CASCADE)";
+        statement.execute(mealPlanDaysTable);
+
+        // Meal plan entries, with a snapshot of the values counted in the aggregates
+        String mealPlanEntriesTable = "CREATE TABLE IF NOT EXISTS meal_plan_entries ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "planId INT, "
+                + "mealId INT, "
+                + "dayOfWeek TINYINT, "
+                + "slotCode TINYINT, "
+                + "servings INT, "
+                + "totalTime INT, "
+                + "ingredientCount INT, "
+                + "FOREIGN KEY (planId) REFERENCES meal_plans(id) ON DELETE CASCADE, "
+                + "FOREIGN KEY (mealId) REFERENCES meal_posts(id) ON DELETE CASCADE)";
+        statement.execute(mealPlanEntriesTable);
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_meal_plan_entries_meal ON meal_plan_entries(mealId)");
+
+        // Top upvote co-occurrence neighbors of each meal post, written by the RecommendationEngine
+        String recommendationsTable = "CREATE TABLE IF NOT EXISTS meal_recommendations ("
+                + "mealId INT, "
+                + "neighborId INT, "
+                + "score DOUBLE, "
+                + "PRIMARY KEY (mealId, neighborId), "
+                + "FOREIGN KEY (mealId) REFERENCES meal_posts(id) ON DELETE CASCADE, "
+                + "FOREIGN KEY (neighborId) REFERENCES meal_posts(id) ON DELETE CASCADE)";
+        statement.execute(recommendationsTable);
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_meal_recommendations_score "
+                + "ON meal_recommendations(mealId, score DESC)");
+
+        migrateLegacyColumns();
+        migrateSearchColumns();
+        loadUnits();
+        loadUnitConversions();
+    }
 
     /**
-     * Authenticates a user based on username and password
-     * 
-     * @param username The username
-     * @param password The password
-     * @return User object if authenticated, null otherwise
+     * Converts databases created before difficulty, dietary type, unit and category were
+     * stored as codes. The old free-form text columns are translated into their compact
+     * replacements and then dropped.
      */
-    public User authenticateUser(String username, String password) throws SQLException {
-        String query = "SELECT * FROM users WHERE userName = ? AND password = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, password); // In a real app, use password hashing
-            
-            ResultSet resultSet = pstmt.executeQuery();
-            if (resultSet.next()) {
-                return extractUserFromResultSet(resultSet);
+    private void migrateLegacyColumns() throws SQLException {
+        if (columnExists("MEAL_POSTS", "DIFFICULTY")) {
+            statement.execute("ALTER TABLE meal_posts ADD COLUMN IF NOT EXISTS difficultyCode TINYINT");
+            StringBuilder caseSql = new StringBuilder("UPDATE meal_posts SET difficultyCode = CASE LOWER(difficulty) ");
+            for (Difficulty difficulty : Difficulty.values()) {
+                caseSql.append("WHEN '").append(difficulty.getLabel().toLowerCase()).append("' THEN ")
+                        .append(difficulty.getCode()).append(' ');
             }
+            statement.execute(caseSql.append("ELSE NULL END").toString());
+            statement.execute("ALTER TABLE meal_posts DROP COLUMN difficulty");
         }
-        return null;
-    }
 
-    /**
-     * Creates a new user account
-     * 
-     * @param username The username
-     * @param password The password
-     * @param email The email address
-     * @param role User role (e.g., 0 for regular user, 1 for admin)
-     * @return The created User object, or null if creation failed
-     */
-    public User createUser(String username, String password, String email, int role) throws SQLException {
-        String uuid = UUID.randomUUID().toString();
-        String query = "INSERT INTO users (userName, password, email, role, reputation, uuid) VALUES (?, ?, ?, ?, 0, ?)";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, password); // In a real app, use password hashing
-            pstmt.setString(3, email);
-            pstmt.setInt(4, role);
-            pstmt.setString(5, uuid);
-            
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        int userId = generatedKeys.getInt(1);
-                        return getUserById(userId);
-                    }
-                }
+        if (columnExists("MEAL_POSTS", "DIETARYTYPE")) {
+            statement.execute("ALTER TABLE meal_posts ADD COLUMN IF NOT EXISTS dietaryCode TINYINT");
+            StringBuilder caseSql = new StringBuilder("UPDATE meal_posts SET dietaryCode = CASE LOWER(dietaryType) ");
+            for (DietaryType type : DietaryType.values()) {
+                caseSql.append("WHEN '").append(type.getLabel().toLowerCase()).append("' THEN ")
+                        .append(type.getCode()).append(' ');
             }
+            statement.execute(caseSql.append("ELSE ").append(DietaryType.NONE.getCode()).append(" END").toString());
+            statement.execute("ALTER TABLE meal_posts DROP COLUMN dietaryType");
         }
-        return null;
-    }
 
-    /**
-     * Deletes a user account and all associated data
-     * 
-     * @param userId The ID of the user to delete
-     * @return true if successful, false otherwise
-     */
-    public boolean deleteUser(int userId) throws SQLException {
-        // Start a transaction to ensure data integrity
-        connection.setAutoCommit(false);
-        try {
-            // First remove upvotes by this user
-            String deleteUpvotes = "DELETE FROM upvotes WHERE userId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteUpvotes)) {
-                pstmt.setInt(1, userId);
-                pstmt.executeUpdate();
-            }
-            
-            // Remove comments by this user
-            String deleteComments = "DELETE FROM comments WHERE userId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteComments)) {
-                pstmt.setInt(1, userId);
-                pstmt.executeUpdate();
-            }
-            
-            // Get all meal posts by this user to handle their deletion
-            List<Integer> userMealIds = new ArrayList<>();
-            String getMealIds = "SELECT id FROM meal_posts WHERE userId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(getMealIds)) {
-                pstmt.setInt(1, userId);
-                ResultSet rs = pstmt.executeQuery();
+        if (columnExists("INGREDIENTS", "CATEGORY")) {
+            statement.execute("ALTER TABLE ingredients ADD COLUMN IF NOT EXISTS categoryCode TINYINT");
+            List<Object[]> updates = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery("SELECT id, category FROM ingredients WHERE category IS NOT NULL")) {
                 while (rs.next()) {
-                    userMealIds.add(rs.getInt("id"));
+                    IngredientCategory category = IngredientCategory.fromLabel(rs.getString("category"));
+                    if (category != null) {
+                        updates.add(new Object[] { category.getCode(), rs.getInt("id") });
+                    }
                 }
             }
-            
-            // Delete meal ingredients for each meal post
-            for (Integer mealId : userMealIds) {
-                String deleteMealIngredients = "DELETE FROM meal_ingredients WHERE mealId = ?";
-                try (PreparedStatement pstmt = connection.prepareStatement(deleteMealIngredients)) {
-                    pstmt.setInt(1, mealId);
-                    pstmt.executeUpdate();
+            try (PreparedStatement pstmt = connection.prepareStatement("UPDATE ingredients SET categoryCode = ? WHERE id = ?")) {
+                for (Object[] update : updates) {
+                    pstmt.setInt(1, (Integer) update[0]);
+                    pstmt.setInt(2, (Integer) update[1]);
+                    pstmt.addBatch();
                 }
+                pstmt.executeBatch();
             }
-            
-            // Delete the meal posts
-            String deleteMeals = "DELETE FROM meal_posts WHERE userId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteMeals)) {
-                pstmt.setInt(1, userId);
-                pstmt.executeUpdate();
+            statement.execute("ALTER TABLE ingredients DROP COLUMN category");
+        }
+
+        if (columnExists("MEAL_INGREDIENTS", "UNIT")) {
+            statement.execute("ALTER TABLE meal_ingredients ADD COLUMN IF NOT EXISTS unitId SMALLINT");
+            loadUnits();
+            List<Object[]> updates = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery("SELECT id, unit FROM meal_ingredients")) {
+                while (rs.next()) {
+                    Unit unit = Unit.of(rs.getString("unit"));
+                    if (!unit.isNone()) {
+                        updates.add(new Object[] { unit, rs.getInt("id") });
+                    }
+                }
             }
-            
-            // Finally, delete the user
-            String deleteUser = "DELETE FROM users WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteUser)) {
-                pstmt.setInt(1, userId);
-                int affectedRows = pstmt.executeUpdate();
-                
-                // Commit the transaction if everything succeeded
-                connection.commit();
-                return affectedRows > 0;
+            try (PreparedStatement pstmt = connection.prepareStatement("UPDATE meal_ingredients SET unitId = ? WHERE id = ?")) {
+                for (Object[] update : updates) {
+                    pstmt.setInt(1, getOrCreateUnitId((Unit) update[0]));
+                    pstmt.setInt(2, (Integer) update[1]);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
             }
-        } catch (SQLException e) {
-            // Rollback the transaction if anything fails
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+            statement.execute("ALTER TABLE meal_ingredients DROP COLUMN unit");
+            statement.execute("ALTER TABLE meal_ingredients ADD FOREIGN KEY (unitId) REFERENCES units(id)");
         }
     }
 
     /**
-     * Updates user profile information
-     * 
-     * @param userId User ID
-     * @param password New password (can be null if not updating)
-     * @param email New email (can be null if not updating)
-     * @return true if successful, false otherwise
+     * Adds the lowercase copies of titles and ingredient names that case-insensitive
+     * searches compare against to databases created without them. Ingredient names are
+     * indexed for the equality lookup of getOrCreateIngredient. Titles aren't: they are
+     * only ever searched for a substring (%text%), which an index can't help, so an
+     * index on them would only slow down writes.
      */
-    public boolean updateUser(int userId, String password, String email) throws SQLException {
-        StringBuilder query = new StringBuilder("UPDATE users SET ");
-        List<Object> params = new ArrayList<>();
-        
-        boolean hasPassword = password != null && !password.isEmpty();
-        boolean hasEmail = email != null && !email.isEmpty();
-        
-        if (hasPassword) {
-            query.append("password = ?");
-            params.add(password); // In a real app, use password hashing
+    private void migrateSearchColumns() throws SQLException {
+        if (!columnExists("MEAL_POSTS", "TITLELOWER")) {
+            statement.execute("ALTER TABLE meal_posts ADD COLUMN titleLower VARCHAR(255)");
+            statement.execute("UPDATE meal_posts SET titleLower = LOWER(title)");
         }
-        
-        if (hasPassword && hasEmail) {
-            query.append(", ");
+        if (!columnExists("INGREDIENTS", "NAMELOWER")) {
+            statement.execute("ALTER TABLE ingredients ADD COLUMN nameLower VARCHAR(255)");
+            statement.execute("UPDATE ingredients SET nameLower = LOWER(TRIM(name))");
         }
-        
-        if (hasEmail) {
-            query.append("email = ?");
-            params.add(email);
+        statement.execute("DROP INDEX IF EXISTS idx_meal_posts_title_lower");
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_ingredients_name_lower ON ingredients(nameLower)");
+    }
+
+    // Helper method to check whether a column exists (names must be upper case)
+    private boolean columnExists(String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(null, null, table, column)) {
+            return rs.next();
         }
-        
-        query.append(" WHERE id = ?");
-        params.add(userId);
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
-            for (int i = 0; i < params.size(); i++) {
-                pstmt.setObject(i + 1, params.get(i));
+    }
+
+    // Loads the units lookup table into memory
+    private void loadUnits() throws SQLException {
+        unitIds.clear();
+        unitsById.clear();
+        try (ResultSet rs = statement.executeQuery("SELECT id, name FROM units")) {
+            while (rs.next()) {
+                Unit unit = Unit.of(rs.getString("name"));
+                unitIds.put(unit, rs.getInt("id"));
+                unitsById.put(rs.getInt("id"), unit);
             }
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
         }
     }
 
-    /**
-     * Retrieves a user by ID
-     * 
-     * @param userId The user ID
-     * @return User object if found, null otherwise
-     */
-    public User getUserById(int userId) throws SQLException {
-        String query = "SELECT * FROM users WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, userId);
-            
-            ResultSet resultSet = pstmt.executeQuery();
-            if (resultSet.next()) {
-                return extractUserFromResultSet(resultSet);
+    // Writes the conversion factor of every measured unit, so aggregations can convert in SQL
+    private void loadUnitConversions() throws SQLException {
+        String mergeQuery = "MERGE INTO unit_conversions (unitId, dimensionCode, baseFactor) KEY (unitId) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = statements().prepare(mergeQuery)) {
+            for (Unit unit : Unit.getMeasuredUnits()) {
+                pstmt.setInt(1, getOrCreateUnitId(unit));
+                pstmt.setInt(2, unit.getDimension().getCode());
+                pstmt.setDouble(3, unit.getBaseFactor());
+                pstmt.addBatch();
             }
+            pstmt.executeBatch();
         }
-        return null;
     }
 
     /**
-     * Retrieves a user by username
-     * 
-     * @param username The username
-     * @return User object if found, null otherwise
+     * Gets or creates the lookup table entry for a unit
+     *
+     * @param unit The unit (must not be Unit.NONE)
+     * @return The unit ID
      */
-    public User getUserByUsername(String username) throws SQLException {
-        String query = "SELECT * FROM users WHERE userName = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setString(1, username);
-            
-            ResultSet resultSet = pstmt.executeQuery();
-            if (resultSet.next()) {
-                return extractUserFromResultSet(resultSet);
+    private int getOrCreateUnitId(Unit unit) throws SQLException {
+        Integer cached = unitIds.get(unit);
+        if (cached != null) {
+            return cached;
+        }
+
+        String insertQuery = "INSERT INTO units (name) VALUES (?)";
+        try (PreparedStatement pstmt = statements().prepare(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, unit.getName());
+            pstmt.executeUpdate();
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    int unitId = generatedKeys.getInt(1);
+                    unitIds.put(unit, unitId);
+                    unitsById.put(unitId, unit);
+                    return unitId;
+                }
             }
         }
-        return null;
+
+        throw new SQLException("Failed to get or create unit");
     }
 
-    /**
-     * Updates a user's reputation
-     * 
-     * @param userId The user ID
-     * @param reputationChange The change in reputation (positive or negative)
-     * @return true if successful, false otherwise
-     */
-    public boolean updateUserReputation(int userId, int reputationChange) throws SQLException {
-        String query = "UPDATE users SET reputation = reputation + ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, reputationChange);
-            pstmt.setInt(2, userId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+    // Helper method to resolve a nullable unit ID column
+    private Unit getUnit(ResultSet rs, String column) throws SQLException {
+        int unitId = rs.getInt(column);
+        if (rs.wasNull()) {
+            return Unit.NONE;
         }
+        return unitsById.getOrDefault(unitId, Unit.NONE);
     }
 
-    // Helper method to construct User objects from ResultSet
-    private User extractUserFromResultSet(ResultSet rs) throws SQLException {
-        User user = new User();
-        user.setId(rs.getInt("id"));
-        user.setUsername(rs.getString("userName"));
-        user.setPassword(rs.getString("password"));
-        user.setEmail(rs.getString("email"));
-        user.setRole(rs.getInt("role"));
-        user.setReputation(rs.getInt("reputation"));
-        user.setUuid(rs.getString("uuid"));
-        if (rs.getTimestamp("creationDate") != null) {
-            user.setCreationDate(rs.getTimestamp("creationDate").toLocalDateTime());
+    /**
+     * Loads the in-memory column store snapshot of all meal posts. Once enabled,
+     * searchAndFilterMealPosts and getFilteredPostsCount answer filter-only requests
+     * (no search text) from the snapshot, and every write method keeps it current.
+     */
+    public void enableColumnStore() throws SQLException {
+        MealPostColumnStore store = new MealPostColumnStore();
+        String query = "SELECT p.id, p.userId, p.preparationTime, p.cookingTime, p.servings, p.difficultyCode, "
+                + "p.dietaryCode, p.upvotes, p.creationDate, u.reputation "
+                + "FROM meal_posts p LEFT JOIN users u ON p.userId = u.id "
+                + "ORDER BY p.creationDate, p.id";
+        try (ResultSet rs = statement.executeQuery(query)) {
+            while (rs.next()) {
+                int difficultyCode = rs.getInt("difficultyCode");
+                Difficulty difficulty = rs.wasNull() ? null : Difficulty.fromCode(difficultyCode);
+                Timestamp creationDate = rs.getTimestamp("creationDate");
+                store.append(
+                        rs.getInt("id"),
+                        rs.getInt("userId"),
+                        rs.getInt("preparationTime"),
+                        rs.getInt("cookingTime"),
+                        rs.getInt("servings"),
+                        difficulty,
+                        DietaryType.fromCode(rs.getInt("dietaryCode")),
+                        rs.getInt("upvotes"),
+                        creationDate != null ? creationDate.getTime() : 0L,
+                        rs.getInt("reputation"));
+            }
         }
-        return user;
+        columnStore = store;
     }
 
-    // Meal Post Management Methods
+    /**
+     * Gets the in-memory column store snapshot
+     *
+     * @return The column store, or null if it has not been enabled
+     */
+    public MealPostColumnStore getColumnStore() {
+        return columnStore;
+    }
 
     /**
-     * Creates a new meal post
-     * 
-     * @param post The MealPost object to create
-     * @return The created MealPost with ID set, or null if creation failed
+     * Gets how often queries reused a cached prepared statement, and the parse and plan
+     * time that saved
+     *
+     * @return The statement cache counters
      */
-    public MealPost createMealPost(MealPost post) throws SQLException {
-        String sql = "INSERT INTO meal_posts (title, userId, description, instructions, " +
-                "preparationTime, cookingTime, servings, difficulty, dietaryType, " +
-                "imageUrl, upvotes, creationDate, lastModified) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, NOW(), NOW())";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, post.getTitle());
-            pstmt.setInt(2, post.getUserId());
-            pstmt.setString(3, post.getDescription());
-            pstmt.setString(4, post.getInstructions());
-            pstmt.setInt(5, post.getPreparationTime());
-            pstmt.setInt(6, post.getCookingTime());
-            pstmt.setInt(7, post.getServings());
-            pstmt.setString(8, post.getDifficulty());
-            pstmt.setString(9, post.getDietaryType());
-            pstmt.setString(10, post.getImageUrl());
+    public StatementCache.Statistics getStatementCacheStatistics() {
+        return statementCache.getStatistics();
+    }
 
-            int affectedRows = pstmt.executeUpdate();
+    /**
+     * Gets the statement cache, for reading its counters without taking its lock
+     *
+     * @return The cache of the current connection
+     */
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
 
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        post.setId(generatedKeys.getInt(1));
+    /**
+     * Gets the call counts, rows and latency histograms recorded for every data access
+     * method and SQL statement
+     *
+     * @return The live metrics
+     */
+    public QueryMetrics getQueryMetrics() {
+        return metrics;
+    }
 
-                        // Save ingredients if any
-                        if (post.getIngredients() != null && !post.getIngredients().isEmpty()) {
-                            for (MealIngredient ingredient : post.getIngredients()) {
-                                addIngredientToMeal(post.getId(), ingredient);
-                            }
-                        }
+    /**
+     * Starts writing the query metrics report to a file every minute, and once more
+     * when the connection is closed
+     *
+     * @param file The file to write
+     */
+    public void enableQueryMetricsDump(Path file) {
+        metrics.startDumping(file, QUERY_METRICS_DUMP_MILLIS);
+    }
 
-                        return post;
-                    }
-                }
-            }
-            return null;
-        }
+    /**
+     * Stops writing the query metrics report, writing it one last time
+     */
+    public void disableQueryMetricsDump() {
+        metrics.stopDumping();
     }
 
     /**
-     * Adds an ingredient to a meal post
-     * 
-     * @param mealId The meal post ID
-     * @param ingredient The ingredient to add
-     * @return true if successful, false otherwise
+     * Starts logging every statement that takes longer than a threshold, with its
+     * parameters, duration and query plan, to a file rotated once it grows large.
+     * Plans are captured on a separate connection in the background.
+     *
+     * @param file The log file
+     * @param thresholdMillis How long a statement may take before it is logged
      */
-    private boolean addIngredientToMeal(int mealId, MealIngredient ingredient) throws SQLException {
-        // First check if the ingredient exists, if not create it
-        int ingredientId = getOrCreateIngredient(ingredient.getName(), ingredient.getCategory());
-        
-        // Now add the connection in the junction table
-        String query = "INSERT INTO meal_ingredients (mealId, ingredientId, quantity, unit) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, mealId);
-            pstmt.setInt(2, ingredientId);
-            pstmt.setFloat(3, ingredient.getQuantity());
-            pstmt.setString(4, ingredient.getUnit());
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+    public void enableSlowQueryLog(Path file, long thresholdMillis) throws SQLException {
+        disableSlowQueryLog();
+        slowQueryLog = new SlowQueryLog(DriverManager.getConnection(DB_URL, USER, PASS), file, thresholdMillis);
+        if (statementCache != null) {
+            statementCache.setSlowQueryLog(slowQueryLog);
+        }
+        if (backgroundStatements != null) {
+            backgroundStatements.setSlowQueryLog(slowQueryLog);
         }
     }
 
     /**
-     * Gets or creates an ingredient
-     * 
-     * @param name The ingredient name
-     * @param category The ingredient category
-     * @return The ingredient ID
+     * Stops logging slow statements, writing the per-shape summary at the end of the log
      */
-    private int getOrCreateIngredient(String name, String category) throws SQLException {
-        // First check if the ingredient exists
-        String checkQuery = "SELECT id FROM ingredients WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(checkQuery)) {
-            pstmt.setString(1, name);
-            
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("id");
-            }
+    public void disableSlowQueryLog() {
+        if (slowQueryLog == null) {
+            return;
         }
-        
-        // If not, create it
-        String insertQuery = "INSERT INTO ingredients (name, category) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, category);
-            
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        return generatedKeys.getInt(1);
-                    }
-                }
-            }
+        if (statementCache != null) {
+            statementCache.setSlowQueryLog(null);
         }
-        
-        throw new SQLException("Failed to get or create ingredient");
+        if (backgroundStatements != null) {
+            backgroundStatements.setSlowQueryLog(null);
+        }
+        slowQueryLog.close();
+        slowQueryLog = null;
     }
 
     /**
-     * Updates an existing meal post
-     * 
-     * @param post The MealPost object with updated data
-     * @return true if successful, false otherwise
+     * Gets the slow query log, for its per-shape summary
+     *
+     * @return The log, or null when slow statements aren't logged
      */
-    public boolean updateMealPost(MealPost post) throws SQLException {
-        // Start a transaction to ensure data integrity
-        connection.setAutoCommit(false);
-        try {
-            // Update the meal post
-            String sql = "UPDATE meal_posts SET title = ?, description = ?, instructions = ?, " +
-                    "preparationTime = ?, cookingTime = ?, servings = ?, difficulty = ?, " +
-                    "dietaryType = ?, imageUrl = ?, lastModified = NOW() " +
-                    "WHERE id = ?";
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
 
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, post.getTitle());
-                pstmt.setString(2, post.getDescription());
-                pstmt.setString(3, post.getInstructions());
-                pstmt.setInt(4, post.getPreparationTime());
-                pstmt.setInt(5, post.getCookingTime());
-                pstmt.setInt(6, post.getServings());
-                pstmt.setString(7, post.getDifficulty());
-                pstmt.setString(8, post.getDietaryType());
-                pstmt.setString(9, post.getImageUrl());
-                pstmt.setInt(10, post.getId());
+    /**
+     * Gets how often a search text was answered from the search result cache
+     *
+     * @return The hits and misses, in that order
+     */
+    public long[] getSearchCacheCounts() {
+        return new long[] { searchCache.getHits(), searchCache.getMisses() };
+    }
+
+    /**
+     * Gets how often a feed page was served from the feed page cache
+     *
+     * @return The hits and misses, in that order
+     */
+    public long[] getFeedCacheCounts() {
+        return new long[] { feedCache.getHits(), feedCache.getMisses() };
+    }
+
+    /**
+     * Counts the rows of every table, for the diagnostics page
+     *
+     * @return Row counts by table name, in the order H2 lists the tables
+     */
+    public Map<String, Long> getTableRowCounts() throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getTableRowCounts")) {
+            List<String> tables = new ArrayList<>();
+            try (ResultSet rs = connection().getMetaData().getTables(null, "PUBLIC", "%", new String[] { "TABLE" })) {
+                while (rs.next()) {
+                    tables.add(rs.getString("TABLE_NAME"));
+                }
+            }
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (String table : tables) {
+                // H2 keeps a row count per table, so an unfiltered COUNT(*) doesn't scan. Left out of
+                // the statement cache, where one statement per table would evict the hot queries
+                try (PreparedStatement pstmt = statements().prepareUncached("SELECT COUNT(*) FROM \"" + table + "\"")) {
+                    ResultSet rs = pstmt.executeQuery();
+                    counts.put(table.toLowerCase(), rs.next() ? rs.getLong(1) : 0);
+                }
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Gets the size of the database file
+     *
+     * @return The size in bytes, or -1 for an in-memory or remote database
+     */
+    public long getDatabaseFileSize() throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getDatabaseFileSize")) {
+            String path;
+            try (PreparedStatement pstmt = statements().prepare("CALL DATABASE_PATH()")) {
+                ResultSet rs = pstmt.executeQuery();
+                path = rs.next() ? rs.getString(1) : null;
+            }
+            if (path == null) {
+                return -1;
+            }
+            try {
+                return Files.size(Path.of(path + ".mv.db"));
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+    }
+
+    // User Management Methods
+
+    /**
+     * Authenticates a user based on username and password
+     * 
+     * @param username The username
+     * @param password The password
+     * @return User object if authenticated, null otherwise
+     */
+    public User authenticateUser(String username, String password) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("authenticateUser")) {
+            String query = "SELECT * FROM users WHERE userName = ? AND password = ?";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setString(1, username);
+                pstmt.setString(2, password); // In a real app, use password hashing
+
+                ResultSet resultSet = pstmt.executeQuery();
+                if (resultSet.next()) {
+                    return extractUserFromResultSet(resultSet);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new user account
+     * 
+     * @param username The username
+     * @param password The password
+     * @param email The email address
+     * @param role User role (e.g., 0 for regular user, 1 for admin)
+     * @return The created User object, or null if creation failed
+     */
+    public User createUser(String username, String password, String email, int role) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("createUser")) {
+            String uuid = UUID.randomUUID().toString();
+            String query = "INSERT INTO users (userName, password, email, role, reputation, uuid) VALUES (?, ?, ?, ?, 0, ?)";
+
+            try (PreparedStatement pstmt = statements().prepare(query, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, username);
+                pstmt.setString(2, password); // In a real app, use password hashing
+                pstmt.setString(3, email);
+                pstmt.setInt(4, role);
+                pstmt.setString(5, uuid);
+
+                int affectedRows = pstmt.executeUpdate();
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            int userId = generatedKeys.getInt(1);
+                            return getUserById(userId);
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a user account and all associated data
+     * 
+     * @param userId The ID of the user to delete
+     * @return true if successful, false otherwise
+     */
+    public boolean deleteUser(int userId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("deleteUser")) {
+            // Start a transaction to ensure data integrity
+            connection.setAutoCommit(false);
+            try {
+                // First remove upvotes by this user
+                String deleteUpvotes = "DELETE FROM upvotes WHERE userId = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteUpvotes)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.executeUpdate();
+                }
+
+                // Remove comments by this user
+                String deleteComments = "DELETE FROM comments WHERE userId = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteComments)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.executeUpdate();
+                }
+
+                // Get all meal posts by this user to handle their deletion
+                List<Integer> userMealIds = new ArrayList<>();
+                String getMealIds = "SELECT id FROM meal_posts WHERE userId = ?";
+                try (PreparedStatement pstmt = statements().prepare(getMealIds)) {
+                    pstmt.setInt(1, userId);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        userMealIds.add(rs.getInt("id"));
+                    }
+                }
+
+                // Take this user's meals out of other users' meal plans
+                detachMealPlanEntries("mealId IN (SELECT id FROM meal_posts WHERE userId = ?)", userId);
+
+                // Delete meal ingredients for each meal post
+                for (Integer mealId : userMealIds) {
+                    String deleteMealIngredients = "DELETE FROM meal_ingredients WHERE mealId = ?";
+                    try (PreparedStatement pstmt = statements().prepare(deleteMealIngredients)) {
+                        pstmt.setInt(1, mealId);
+                        pstmt.executeUpdate();
+                    }
+                }
+
+                // Delete the meal posts
+                String deleteMeals = "DELETE FROM meal_posts WHERE userId = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteMeals)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.executeUpdate();
+                }
+
+                // Finally, delete the user
+                String deleteUser = "DELETE FROM users WHERE id = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteUser)) {
+                    pstmt.setInt(1, userId);
+                    int affectedRows = pstmt.executeUpdate();
+
+                    // Commit the transaction if everything succeeded
+                    connection.commit();
+                    searchCache.clear();
+                    feedCache.invalidate();
+                    invalidateIngredientIndex(); // Usage counts changed for many ingredients
+                    searchVocabulary = null;
+                    if (similarityIndex != null) {
+                        for (Integer mealId : userMealIds) {
+                            similarityIndex.remove(mealId);
+                        }
+                    }
+                    if (vectorIndex != null) {
+                        for (Integer mealId : userMealIds) {
+                            vectorIndex.remove(mealId);
+                        }
+                    }
+                    if (recommendations != null) {
+                        for (Integer mealId : userMealIds) {
+                            recommendations.mealRemoved(mealId);
+                        }
+                        recommendations.userRemoved(userId);
+                    }
+                    if (columnStore != null) {
+                        columnStore.removeByUser(userId);
+                    }
+                    return affectedRows > 0;
+                }
+            } catch (SQLException e) {
+                // Rollback the transaction if anything fails
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Updates user profile information
+     * 
+     * @param userId User ID
+     * @param password New password (can be null if not updating)
+     * @param email New email (can be null if not updating)
+     * @return true if successful, false otherwise
+     */
+    public boolean updateUser(int userId, String password, String email) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("updateUser")) {
+            StringBuilder query = new StringBuilder("UPDATE users SET ");
+            List<Object> params = new ArrayList<>();
+
+            boolean hasPassword = password != null && !password.isEmpty();
+            boolean hasEmail = email != null && !email.isEmpty();
+
+            if (hasPassword) {
+                query.append("password = ?");
+                params.add(password); // In a real app, use password hashing
+            }
+
+            if (hasPassword && hasEmail) {
+                query.append(", ");
+            }
+
+            if (hasEmail) {
+                query.append("email = ?");
+                params.add(email);
+            }
+
+            query.append(" WHERE id = ?");
+            params.add(userId);
+
+            try (PreparedStatement pstmt = statements().prepare(query.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        }
+    }
+
+    /**
+     * Retrieves a user by ID
+     * 
+     * @param userId The user ID
+     * @return User object if found, null otherwise
+     */
+    public User getUserById(int userId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getUserById")) {
+            String query = "SELECT * FROM users WHERE id = ?";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, userId);
+
+                ResultSet resultSet = pstmt.executeQuery();
+                if (resultSet.next()) {
+                    return extractUserFromResultSet(resultSet);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves a user by username
+     * 
+     * @param username The username
+     * @return User object if found, null otherwise
+     */
+    public User getUserByUsername(String username) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getUserByUsername")) {
+            String query = "SELECT * FROM users WHERE userName = ?";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setString(1, username);
+
+                ResultSet resultSet = pstmt.executeQuery();
+                if (resultSet.next()) {
+                    return extractUserFromResultSet(resultSet);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Updates a user's reputation
+     * 
+     * @param userId The user ID
+     * @param reputationChange The change in reputation (positive or negative)
+     * @return true if successful, false otherwise
+     */
+    public boolean updateUserReputation(int userId, int reputationChange) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("updateUserReputation")) {
+            boolean success = applyReputationChange(userId, reputationChange);
+            if (success) {
+                feedCache.invalidate();
+            }
+            if (success && columnStore != null) {
+                columnStore.adjustReputation(userId, reputationChange);
+            }
+            return success;
+        }
+    }
+
+    // Updates the reputation column only; callers inside a transaction update the column store after committing
+    private boolean applyReputationChange(int userId, int reputationChange) throws SQLException {
+        String query = "UPDATE users SET reputation = reputation + ? WHERE id = ?";
+        try (PreparedStatement pstmt = statements().prepare(query)) {
+            pstmt.setInt(1, reputationChange);
+            pstmt.setInt(2, userId);
+            
+            int affectedRows = pstmt.executeUpdate();
+            return affectedRows > 0;
+        }
+    }
+
+    // Helper method to construct User objects from ResultSet
+    private User extractUserFromResultSet(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setUsername(rs.getString("userName"));
+        user.setPassword(rs.getString("password"));
+        user.setEmail(rs.getString("email"));
+        user.setRole(rs.getInt("role"));
+        user.setReputation(rs.getInt("reputation"));
+        user.setUuid(rs.getString("uuid"));
+        if (rs.getTimestamp("creationDate") != null) {
+            user.setCreationDate(rs.getTimestamp("creationDate").toLocalDateTime());
+        }
+        return user;
+    }
+
+    // Meal Post Management Methods
+
+    /**
+     * Creates a new meal post
+     * 
+     * @param post The MealPost object to create
+     * @return The created MealPost with ID set, or null if creation failed
+     */
+    public MealPost createMealPost(MealPost post) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("createMealPost")) {
+            String sql = "INSERT INTO meal_posts (title, userId, description, instructions, " +
+                    "preparationTime, cookingTime, servings, difficultyCode, dietaryCode, " +
+                    "imageUrl, upvotes, creationDate, lastModified, titleLower) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, NOW(), NOW(), LOWER(?))";
+
+            try (PreparedStatement pstmt = statements().prepare(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, post.getTitle());
+                pstmt.setInt(2, post.getUserId());
+                pstmt.setString(3, post.getDescription());
+                pstmt.setString(4, post.getInstructions());
+                pstmt.setInt(5, post.getPreparationTime());
+                pstmt.setInt(6, post.getCookingTime());
+                pstmt.setInt(7, post.getServings());
+                setDifficulty(pstmt, 8, post.getDifficulty());
+                pstmt.setInt(9, post.getDietaryType().getCode());
+                pstmt.setString(10, post.getImageUrl());
+                pstmt.setString(11, post.getTitle());
+
+                int affectedRows = pstmt.executeUpdate();
 
-                int affectedRows = pstmt.executeUpdate();
                 if (affectedRows > 0) {
-                    // Clear existing ingredients
-                    String deleteIngredients = "DELETE FROM meal_ingredients WHERE mealId = ?";
-                    try (PreparedStatement deleteStmt = connection.prepareStatement(deleteIngredients)) {
-                        deleteStmt.setInt(1, post.getId());
-                        deleteStmt.executeUpdate();
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            post.setId(generatedKeys.getInt(1));
+
+                            // Save ingredients if any
+                            if (post.getIngredients() != null && !post.getIngredients().isEmpty()) {
+                                for (MealIngredient ingredient : post.getIngredients()) {
+                                    addIngredientToMeal(post.getId(), ingredient);
+                                }
+                                recordIngredientUses(post.getIngredients(), 1);
+                            }
+                            indexSimilarity(post);
+                            indexText(post);
+                            if (searchVocabulary != null) {
+                                searchVocabulary.addText(post.getTitle());
+                            }
+
+                            searchCache.clear();
+
+                            feedCache.invalidate();
+                            if (columnStore != null) {
+                                appendToColumnStore(post);
+                            }
+
+                            return post;
+                        }
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    // Reads the stored creation time back, so sorting in memory agrees with sorting in SQL
+    private void appendToColumnStore(MealPost post) throws SQLException {
+        String query = "SELECT p.creationDate, COALESCE(u.reputation, 0) AS reputation "
+                + "FROM meal_posts p LEFT JOIN users u ON p.userId = u.id WHERE p.id = ?";
+        try (PreparedStatement pstmt = statements().prepare(query)) {
+            pstmt.setInt(1, post.getId());
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                return;
+            }
+            Timestamp creationDate = rs.getTimestamp("creationDate");
+            if (creationDate != null) {
+                post.setCreationDate(creationDate.toLocalDateTime());
+            }
+            columnStore.append(post.getId(), post.getUserId(), post.getPreparationTime(),
+                    post.getCookingTime(), post.getServings(), post.getDifficulty(),
+                    post.getDietaryType(), 0, creationDate != null ? creationDate.getTime() : 0L,
+                    rs.getInt("reputation"));
+        }
+    }
+
+    /**
+     * Adds an ingredient to a meal post
+     * 
+     * @param mealId The meal post ID
+     * @param ingredient The ingredient to add
+     * @return true if successful, false otherwise
+     */
+    private boolean addIngredientToMeal(int mealId, MealIngredient ingredient) throws SQLException {
+        // First check if the ingredient exists, if not create it
+        int ingredientId = getOrCreateIngredient(ingredient.getName(), ingredient.getCategory());
+        ingredient.setId(ingredientId);
+        
+        // Now add the connection in the junction table
+        String query = "INSERT INTO meal_ingredients (mealId, ingredientId, quantity, unitId) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = statements().prepare(query)) {
+            pstmt.setInt(1, mealId);
+            pstmt.setInt(2, ingredientId);
+            pstmt.setFloat(3, ingredient.getQuantity());
+            if (ingredient.getUnit().isNone()) {
+                pstmt.setNull(4, Types.SMALLINT);
+            } else {
+                pstmt.setInt(4, getOrCreateUnitId(ingredient.getUnit()));
+            }
+            
+            int affectedRows = pstmt.executeUpdate();
+            return affectedRows > 0;
+        }
+    }
+
+    /**
+     * Gets or creates an ingredient
+     * 
+     * @param name The ingredient name
+     * @param category The ingredient category
+     * @return The ingredient ID
+     */
+    private int getOrCreateIngredient(String name, IngredientCategory category) throws SQLException {
+        // First check if the ingredient exists, ignoring case so spellings don't fragment the table
+        if (ingredientIndex != null) {
+            int indexedId = ingredientIndex.find(name);
+            if (indexedId >= 0) {
+                return indexedId;
+            }
+        }
+
+        String checkQuery = "SELECT id FROM ingredients WHERE nameLower = ?";
+        try (PreparedStatement pstmt = statements().prepare(checkQuery)) {
+            pstmt.setString(1, IngredientIndex.normalize(name));
+            
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("id");
+            }
+        }
+        
+        // If not, create it
+        String insertQuery = "INSERT INTO ingredients (name, categoryCode, nameLower) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = statements().prepare(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            if (category != null) {
+                pstmt.setInt(2, category.getCode());
+            } else {
+                pstmt.setNull(2, Types.TINYINT);
+            }
+            pstmt.setString(3, IngredientIndex.normalize(name));
+            
+            int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        int ingredientId = generatedKeys.getInt(1);
+                        if (ingredientIndex != null) {
+                            ingredientIndex.put(ingredientId, name, 0);
+                        }
+                        if (searchVocabulary != null) {
+                            searchVocabulary.addText(name);
+                        }
+                        return ingredientId;
+                    }
+                }
+            }
+        }
+        
+        throw new SQLException("Failed to get or create ingredient");
+    }
+
+    /**
+     * Suggests existing ingredient names starting with the given text, most used first
+     *
+     * @param prefix The text typed so far
+     * @param limit The maximum number of suggestions
+     * @return The suggested ingredient names
+     */
+    public List<String> suggestIngredients(String prefix, int limit) {
+        try (QueryMetrics.Call call = metrics.startCall("suggestIngredients")) {
+            IngredientIndex index = ingredientIndex;
+            if (index == null) {
+                scheduleIngredientIndexLoad();
+                return new ArrayList<>(); // Nothing to suggest until the index is loaded
+            }
+            return index.suggest(prefix, limit);
+        }
+    }
+
+    // Drops the ingredient index and loads it again in the background
+    private void invalidateIngredientIndex() {
+        ingredientIndex = null;
+        ingredientIndexVersion.incrementAndGet();
+        scheduleIngredientIndexLoad();
+    }
+
+    // Loads the ingredient index on the index loader thread unless it is already loaded
+    private void scheduleIngredientIndexLoad() {
+        indexLoader.execute(() -> {
+            if (ingredientIndex != null || backgroundConnection == null) {
+                return;
+            }
+            long version = ingredientIndexVersion.get();
+            try {
+                IngredientIndex index = loadIngredientIndex();
+                if (version == ingredientIndexVersion.get()) {
+                    ingredientIndex = index; // Otherwise the reload queued by the invalidation takes over
+                }
+            } catch (SQLException e) {
+                Log.error("Could not load the ingredient index", e);
+            }
+        });
+    }
+
+    // Loads every ingredient with the number of meal posts using it
+    private IngredientIndex loadIngredientIndex() throws SQLException {
+        IngredientIndex index = new IngredientIndex();
+        String query = "SELECT i.id, i.name, COUNT(mi.id) AS uses FROM ingredients i "
+                + "LEFT JOIN meal_ingredients mi ON mi.ingredientId = i.id "
+                + "GROUP BY i.id, i.name";
+        try (PreparedStatement pstmt = statements().prepare(query)) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                if (rs.getString("name") != null) {
+                    index.put(rs.getInt("id"), rs.getString("name"), rs.getInt("uses"));
+                }
+            }
+        }
+        return index;
+    }
+
+    // Keeps the autocomplete usage counts current after ingredients are linked or unlinked
+    private void recordIngredientUses(List<MealIngredient> ingredients, int delta) {
+        if (ingredientIndex != null) {
+            for (MealIngredient ingredient : ingredients) {
+                ingredientIndex.adjustUses(ingredient.getId(), delta);
+            }
+        }
+    }
+
+    /**
+     * Updates an existing meal post
+     * 
+     * @param post The MealPost object with updated data
+     * @return true if successful, false otherwise
+     */
+    public boolean updateMealPost(MealPost post) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("updateMealPost")) {
+            // Start a transaction to ensure data integrity
+            connection.setAutoCommit(false);
+            try {
+                String previousTitle = searchVocabulary != null ? getMealPostTitle(post.getId()) : null;
+
+                // Update the meal post
+                String sql = "UPDATE meal_posts SET title = ?, description = ?, instructions = ?, " +
+                        "preparationTime = ?, cookingTime = ?, servings = ?, difficultyCode = ?, " +
+                        "dietaryCode = ?, imageUrl = ?, lastModified = NOW(), titleLower = LOWER(?) " +
+                        "WHERE id = ?";
+
+                try (PreparedStatement pstmt = statements().prepare(sql)) {
+                    pstmt.setString(1, post.getTitle());
+                    pstmt.setString(2, post.getDescription());
+                    pstmt.setString(3, post.getInstructions());
+                    pstmt.setInt(4, post.getPreparationTime());
+                    pstmt.setInt(5, post.getCookingTime());
+                    pstmt.setInt(6, post.getServings());
+                    setDifficulty(pstmt, 7, post.getDifficulty());
+                    pstmt.setInt(8, post.getDietaryType().getCode());
+                    pstmt.setString(9, post.getImageUrl());
+                    pstmt.setString(10, post.getTitle());
+                    pstmt.setInt(11, post.getId());
+
+                    int affectedRows = pstmt.executeUpdate();
+                    if (affectedRows > 0) {
+                        List<MealIngredient> previousIngredients = getIngredientsForMeal(post.getId());
+
+                        // Clear existing ingredients
+                        String deleteIngredients = "DELETE FROM meal_ingredients WHERE mealId = ?";
+                        try (PreparedStatement deleteStmt = statements().prepare(deleteIngredients)) {
+                            deleteStmt.setInt(1, post.getId());
+                            deleteStmt.executeUpdate();
+                        }
+
+                        // Add updated ingredients
+                        for (MealIngredient ingredient : post.getIngredients()) {
+                            addIngredientToMeal(post.getId(), ingredient);
+                        }
+
+                        // Carry the new time and ingredient count into meal plans containing the meal
+                        refreshMealPlanEntries(post.getId(),
+                                post.getPreparationTime() + post.getCookingTime(), post.getIngredients().size());
+
+                        // Commit the transaction
+                        connection.commit();
+                        searchCache.clear();
+                        feedCache.invalidate();
+                        recordIngredientUses(previousIngredients, -1);
+                        recordIngredientUses(post.getIngredients(), 1);
+                        indexSimilarity(post);
+                        indexText(post);
+                        if (searchVocabulary != null) {
+                            searchVocabulary.removeText(previousTitle);
+                            searchVocabulary.addText(post.getTitle());
+                        }
+                        if (columnStore != null) {
+                            columnStore.update(post);
+                        }
+                        return true;
+                    }
+                }
+                // If we get here, something went wrong
+                connection.rollback();
+                return false;
+            } catch (SQLException e) {
+                connection.rollback();
+                invalidateIngredientIndex(); // May hold ingredients created by the rolled back transaction
+                searchVocabulary = null;
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Deletes a meal post and all associated data
+     * 
+     * @param mealId The ID of the meal post to delete
+     * @return true if successful, false otherwise
+     */
+    public boolean deleteMealPost(int mealId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("deleteMealPost")) {
+            // Start a transaction to ensure data integrity
+            connection.setAutoCommit(false);
+            try {
+                // Delete upvotes for this meal
+                String deleteUpvotes = "DELETE FROM upvotes WHERE mealId = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteUpvotes)) {
+                    pstmt.setInt(1, mealId);
+                    pstmt.executeUpdate();
+                }
+
+                // Delete comments for this meal
+                String deleteComments = "DELETE FROM comments WHERE mealId = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteComments)) {
+                    pstmt.setInt(1, mealId);
+                    pstmt.executeUpdate();
+                }
+
+                // Take the meal out of any meal plans
+                detachMealPlanEntries("mealId = ?", mealId);
+                String previousTitle = searchVocabulary != null ? getMealPostTitle(mealId) : null;
+
+                // Delete meal ingredients
+                List<MealIngredient> previousIngredients = getIngredientsForMeal(mealId);
+                String deleteIngredients = "DELETE FROM meal_ingredients WHERE mealId = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteIngredients)) {
+                    pstmt.setInt(1, mealId);
+                    pstmt.executeUpdate();
+                }
+
+                // Delete the meal post
+                String deleteMeal = "DELETE FROM meal_posts WHERE id = ?";
+                try (PreparedStatement pstmt = statements().prepare(deleteMeal)) {
+                    pstmt.setInt(1, mealId);
+                    int affectedRows = pstmt.executeUpdate();
+
+                    // Commit the transaction
+                    connection.commit();
+                    searchCache.clear();
+                    feedCache.invalidate();
+                    recordIngredientUses(previousIngredients, -1);
+                    if (similarityIndex != null) {
+                        similarityIndex.remove(mealId);
+                    }
+                    if (vectorIndex != null) {
+                        vectorIndex.remove(mealId);
+                    }
+                    if (searchVocabulary != null) {
+                        searchVocabulary.removeText(previousTitle);
+                    }
+                    if (recommendations != null) {
+                        recommendations.mealRemoved(mealId);
+                    }
+                    if (columnStore != null) {
+                        columnStore.remove(mealId);
+                    }
+                    return affectedRows > 0;
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Retrieves a meal post by ID with all its ingredients
+     * 
+     * @param mealId The meal post ID
+     * @return MealPost object if found, null otherwise
+     */
+    public MealPost getMealPostById(int mealId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getMealPostById")) {
+            String query = "SELECT * FROM meal_posts WHERE id = ?";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, mealId);
+
+                ResultSet resultSet = pstmt.executeQuery();
+                if (resultSet.next()) {
+                    MealPost post = extractMealPostFromResultSet(resultSet);
+
+                    // Load ingredients for this meal
+                    post.setIngredients(getIngredientsForMeal(mealId));
+
+                    return post;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Starts maintaining upvote-based recommendations on a background thread with its
+     * own database connection. The model is built from the upvotes table, then kept
+     * current from upvote events.
+     */
+    public void enableRecommendations() throws SQLException {
+        if (recommendations != null) {
+            return;
+        }
+        recommendations = new RecommendationEngine(DriverManager.getConnection(DB_URL, USER, PASS));
+        recommendations.start(RECOMMENDATION_FLUSH_MILLIS);
+    }
+
+    /**
+     * Stops maintaining recommendations; stored neighbor lists stay readable
+     */
+    public void disableRecommendations() {
+        if (recommendations != null) {
+            recommendations.stop();
+            recommendations = null;
+        }
+    }
+
+    /**
+     * Gets the meal posts most often upvoted by the users who upvoted the given one,
+     * read from the precomputed neighbor lists. Ingredients are not loaded.
+     *
+     * @param mealId The meal post ID
+     * @param limit The maximum number of recommendations
+     * @return The recommended meal posts, best first
+     */
+    public List<MealPost> getRecommendedMealPosts(int mealId, int limit) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getRecommendedMealPosts")) {
+            List<MealPost> posts = new ArrayList<>();
+            String query = "SELECT mp.* FROM meal_recommendations r "
+                    + "JOIN meal_posts mp ON mp.id = r.neighborId "
+                    + "WHERE r.mealId = ? ORDER BY r.score DESC, r.neighborId LIMIT ?";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, mealId);
+                pstmt.setInt(2, limit);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    posts.add(extractMealPostFromResultSet(rs));
+                }
+            }
+            return posts;
+        }
+    }
+
+    /**
+     * Gets the meal posts sharing the most ingredients with the given one. Candidates
+     * come from the MinHash index, so the post is never compared against the whole corpus.
+     *
+     * @param mealId The meal post ID
+     * @param limit The maximum number of similar posts
+     * @return The similar meal posts, most similar first; empty while the index is still loading
+     */
+    public List<MealPost> getSimilarMealPosts(int mealId, int limit) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getSimilarMealPosts")) {
+            MinHashIndex index = similarityIndex;
+            if (index == null) {
+                return new ArrayList<>();
+            }
+            List<MinHashIndex.SimilarPair> similar = index.findSimilar(mealId, limit, MIN_SIMILAR_RECIPE);
+            int[] mealIds = new int[similar.size()];
+            for (int i = 0; i < mealIds.length; i++) {
+                mealIds[i] = similar.get(i).getSecondMealId();
+            }
+            return getMealPostsByIds(mealIds);
+        }
+    }
+
+    /**
+     * Finds pairs of meal posts with nearly the same ingredients, for moderators to review
+     *
+     * @param minSimilarity The lowest share of ingredients in common (Jaccard similarity) to report
+     * @return The pairs, most similar first; empty while the index is still loading
+     */
+    public List<MinHashIndex.SimilarPair> getNearDuplicatePairs(double minSimilarity) {
+        try (QueryMetrics.Call call = metrics.startCall("getNearDuplicatePairs")) {
+            MinHashIndex index = similarityIndex;
+            if (index == null) {
+                return new ArrayList<>();
+            }
+            return index.findNearDuplicates(minSimilarity);
+        }
+    }
+
+    /**
+     * Checks if the similar recipes index has finished loading
+     *
+     * @return true once similar recipes and near duplicates can be found
+     */
+    public boolean isSimilarityIndexReady() {
+        return similarityIndex != null;
+    }
+
+    // Loads the similarity index on the index loader thread unless it is already loaded
+    private void scheduleSimilarityIndexLoad() {
+        indexLoader.execute(() -> {
+            if (similarityIndex != null || backgroundConnection == null) {
+                return;
+            }
+            try {
+                similarityIndex = loadSimilarityIndex();
+            } catch (SQLException e) {
+                Log.error("Could not load the similar recipes index", e);
+            }
+        });
+    }
+
+    // Loads the ingredient set of every meal post in one pass over meal_ingredients
+    private MinHashIndex loadSimilarityIndex() throws SQLException {
+        MinHashIndex index = new MinHashIndex();
+        String query = "SELECT mealId, ingredientId FROM meal_ingredients ORDER BY mealId";
+        try (PreparedStatement pstmt = statements().prepare(query)) {
+            ResultSet rs = pstmt.executeQuery();
+            int currentMeal = -1;
+            List<Integer> ingredientIds = new ArrayList<>();
+            while (rs.next()) {
+                int mealId = rs.getInt("mealId");
+                if (mealId != currentMeal && !ingredientIds.isEmpty()) {
+                    index.put(currentMeal, ingredientIds.stream().mapToInt(Integer::intValue).toArray());
+                    ingredientIds.clear();
+                }
+                currentMeal = mealId;
+                ingredientIds.add(rs.getInt("ingredientId"));
+            }
+            if (!ingredientIds.isEmpty()) {
+                index.put(currentMeal, ingredientIds.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return index;
+    }
+
+    // Replaces a meal's signature after its ingredients were saved
+    private void indexSimilarity(MealPost post) {
+        if (similarityIndex != null) {
+            List<MealIngredient> ingredients = post.getIngredients();
+            similarityIndex.put(post.getId(), ingredients == null ? new int[0]
+                    : ingredients.stream().mapToInt(MealIngredient::getId).toArray());
+        }
+    }
+
+    /**
+     * Starts maintaining the vector index behind semantic search. The index is built on
+     * the index loader thread: it is read from the given file if there is one, and only
+     * posts created or edited since it was saved are embedded again; otherwise every post
+     * is embedded. Until then semantic search stays unavailable. The write methods keep
+     * the index current, and it is saved every few minutes and when semantic search is
+     * disabled.
+     *
+     * @param file The file to keep the index in, or null to keep it in memory only
+     */
+    public void enableSemanticSearch(Path file) {
+        if (semanticSearchReady != null) {
+            return;
+        }
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        semanticSearchReady = ready;
+        vectorIndexFile = file;
+
+        indexLoader.execute(() -> {
+            try {
+                long startedAt = System.currentTimeMillis();
+                VectorIndex index = loadVectorIndex(file);
+                if (semanticSearchReady != ready) {
+                    return; // Disabled while building
+                }
+                vectorIndex = index;
+                // Posts saved while the index was being built were skipped by the write methods
+                refreshVectorIndex(index, startedAt);
+                ready.complete(null);
+            } catch (SQLException e) {
+                Log.error("Could not build the semantic search index", e, "file", file);
+            }
+        });
+
+        if (file != null) {
+            vectorIndexSaver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ptyxes-vector-index-saver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            vectorIndexSaver.scheduleWithFixedDelay(this::saveVectorIndex,
+                    VECTOR_INDEX_SAVE_MILLIS, VECTOR_INDEX_SAVE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs an action once semantic search becomes available, right away if it already is.
+     * The action runs on whichever thread finishes building the index.
+     *
+     * @param action The action to run
+     */
+    public void onSemanticSearchReady(Runnable action) {
+        CompletableFuture<Void> ready = semanticSearchReady;
+        if (ready != null) {
+            ready.thenRun(action);
+        }
+    }
+
+    // Reads the index from its file and brings it up to date, or embeds every post
+    private VectorIndex loadVectorIndex(Path file) throws SQLException {
+        if (file != null && Files.exists(file)) {
+            try {
+                VectorIndex.Loaded loaded = VectorIndex.load(file, TextEmbedder.DIMENSIONS);
+                refreshVectorIndex(loaded.getIndex(), loaded.getSavedAt());
+                return loaded.getIndex();
+            } catch (IOException e) {
+                Log.warn("Could not load the semantic search index; rebuilding it", e, "file", file);
+            }
+        }
+
+        VectorIndex index = new VectorIndex(TextEmbedder.DIMENSIONS);
+        String query = "SELECT id, title, description, instructions FROM meal_posts";
+        try (PreparedStatement pstmt = statements().prepareUncached(query)) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                index.put(rs.getInt("id"), TextEmbedder.embed(rs.getString("title"),
+                        rs.getString("description"), rs.getString("instructions")));
+            }
+        }
+        return index;
+    }
+
+    // Embeds the posts changed since the given time again, and drops the ones deleted
+    private void refreshVectorIndex(VectorIndex index, long since) throws SQLException {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> stale = new ArrayList<>();
+        String query = "SELECT id, lastModified FROM meal_posts";
+        try (PreparedStatement pstmt = statements().prepareUncached(query)) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                int mealId = rs.getInt("id");
+                Timestamp lastModified = rs.getTimestamp("lastModified");
+                existing.add(mealId);
+                if (!index.contains(mealId) || lastModified == null
+                        || lastModified.getTime() >= since - VECTOR_INDEX_SLACK_MILLIS) {
+                    stale.add(mealId);
+                }
+            }
+        }
+        for (int mealId : index.ids()) {
+            if (!existing.contains(mealId)) {
+                index.remove(mealId);
+            }
+        }
+
+        String staleQuery = "SELECT id, title, description, instructions FROM meal_posts WHERE id = ANY(?)";
+        try (PreparedStatement pstmt = statements().prepare(staleQuery)) {
+            pstmt.setArray(1, connection().createArrayOf("INTEGER", stale.toArray()));
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                index.put(rs.getInt("id"), TextEmbedder.embed(rs.getString("title"),
+                        rs.getString("description"), rs.getString("instructions")));
+            }
+        }
+    }
+
+    // Writes the index to its file, so a crash loses at most a few minutes of embeddings
+    private void saveVectorIndex() {
+        VectorIndex index = vectorIndex;
+        Path file = vectorIndexFile;
+        if (index == null || file == null) {
+            return;
+        }
+        try {
+            index.save(file, System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.error("Error saving semantic search index", e, "file", file);
+        }
+    }
+
+    /**
+     * Stops maintaining the semantic search index, saving it to its file first
+     */
+    public void disableSemanticSearch() {
+        if (semanticSearchReady == null) {
+            return;
+        }
+        if (vectorIndexSaver != null) {
+            vectorIndexSaver.shutdown(); // A save in progress finishes before the one below starts
+            vectorIndexSaver = null;
+        }
+        saveVectorIndex();
+        semanticSearchReady = null;
+        vectorIndex = null;
+        vectorIndexFile = null;
+    }
+
+    public boolean isSemanticSearchEnabled() {
+        return vectorIndex != null;
+    }
+
+    /**
+     * Finds the meal posts whose text is closest in meaning to a description such as
+     * "a light summer pasta", using the vector index rather than keyword matches.
+     *
+     * @param text The description to search for
+     * @param limit The maximum number of results
+     * @return The closest meal posts, closest first; empty if semantic search is disabled
+     */
+    public List<MealPost> semanticSearchMealPosts(String text, int limit) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("semanticSearchMealPosts")) {
+            VectorIndex index = vectorIndex;
+            if (index == null) {
+                return new ArrayList<>();
+            }
+            return getMealPostsByIds(index.search(TextEmbedder.embedQuery(text), limit, VECTOR_PROBES, MIN_SEMANTIC_SCORE));
+        }
+    }
+
+    // Embeds a meal's text again after it was saved
+    private void indexText(MealPost post) {
+        if (vectorIndex != null) {
+            vectorIndex.put(post.getId(), TextEmbedder.embed(post.getTitle(), post.getDescription(),
+                    post.getInstructions()));
+        }
+    }
+
+    /**
+     * Gets all ingredients for a meal
+     * 
+     * @param mealId The meal ID
+     * @return List of MealIngredient objects
+     */
+    List<MealIngredient> getIngredientsForMeal(int mealId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getIngredientsForMeal")) {
+            List<MealIngredient> ingredients = new ArrayList<>();
+
+            String query = "SELECT mi.quantity, mi.unitId, i.id, i.name, i.categoryCode " 
+                    + "FROM meal_ingredients mi "
+                    + "JOIN ingredients i ON mi.ingredientId = i.id "
+                    + "WHERE mi.mealId = ?";
+
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, mealId);
+
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    MealIngredient ingredient = new MealIngredient();
+                    ingredient.setId(rs.getInt("id"));
+                    ingredient.setName(rs.getString("name"));
+                    int categoryCode = rs.getInt("categoryCode");
+                    ingredient.setCategory(rs.wasNull() ? null : IngredientCategory.fromCode(categoryCode));
+                    ingredient.setQuantity(rs.getFloat("quantity"));
+                    ingredient.setUnit(getUnit(rs, "unitId"));
+
+                    ingredients.add(ingredient);
+                }
+            }
+
+            return ingredients;
+        }
+    }
+
+    /**
+     * Loads the ingredients of several meals in one query and sets them on their posts
+     *
+     * @param posts The posts, which get an empty list if they have no ingredients
+     */
+    private void attachIngredients(List<MealPost> posts) throws SQLException {
+        if (posts.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<MealIngredient>> ingredientsByMeal = new HashMap<>();
+        Integer[] ids = new Integer[posts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = posts.get(i).getId();
+            ingredientsByMeal.put(ids[i], new ArrayList<>());
+        }
+
+        String query = "SELECT mi.mealId, mi.quantity, mi.unitId, i.id, i.name, i.categoryCode "
+                + "FROM meal_ingredients mi "
+                + "JOIN ingredients i ON mi.ingredientId = i.id "
+                + "WHERE mi.mealId = ANY(?) ORDER BY mi.id";
+        try (PreparedStatement pstmt = statements().prepare(query)) {
+            pstmt.setArray(1, connection().createArrayOf("INTEGER", ids));
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                MealIngredient ingredient = new MealIngredient();
+                ingredient.setId(rs.getInt("id"));
+                ingredient.setName(rs.getString("name"));
+                int categoryCode = rs.getInt("categoryCode");
+                ingredient.setCategory(rs.wasNull() ? null : IngredientCategory.fromCode(categoryCode));
+                ingredient.setQuantity(rs.getFloat("quantity"));
+                ingredient.setUnit(getUnit(rs, "unitId"));
+                ingredientsByMeal.get(rs.getInt("mealId")).add(ingredient);
+            }
+        }
+
+        for (MealPost post : posts) {
+            post.setIngredients(ingredientsByMeal.get(post.getId()));
+        }
+    }
+
+    /**
+     * Gets all meal posts, with pagination support
+     * 
+     * @param page The page number (0-based)
+     * @param pageSize The number of posts per page
+     * @return List of MealPost objects
+     */
+    public List<MealPost> getAllMealPosts(int page, int pageSize) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getAllMealPosts")) {
+            List<MealPost> posts = new ArrayList<>();
+
+            String query = "SELECT * FROM meal_posts ORDER BY creationDate DESC LIMIT ? OFFSET ?";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, pageSize);
+                pstmt.setInt(2, page * pageSize);
+
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    MealPost post = extractMealPostFromResultSet(rs);
+                    // Optionally load ingredients if needed
+                    // post.setIngredients(getIngredientsForMeal(post.getId()));
+                    posts.add(post);
+                }
+            }
+
+            return posts;
+        }
+    }
+
+    /**
+     * Gets the total number of meal posts
+     *
+     * @return Number of MealPosts
+     */
+    public int getTotalPostsCount() throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getTotalPostsCount")) {
+            String query = "SELECT COUNT(*) FROM meal_posts";
+            try (PreparedStatement stmt = statements().prepare(query)) {
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gets meal posts by a specific user
+     * 
+     * @param userId The user ID
+     * @param page The page number (0-based)
+     * @param pageSize The number of posts per page
+     * @return List of MealPost objects
+     */
+    public List<MealPost> getMealPostsByUser(int userId, int page, int pageSize) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getMealPostsByUser")) {
+            List<MealPost> posts = new ArrayList<>();
+
+            String query = "SELECT * FROM meal_posts WHERE userId = ? ORDER BY creationDate DESC LIMIT ? OFFSET ?";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, pageSize);
+                pstmt.setInt(3, page * pageSize);
+
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    MealPost post = extractMealPostFromResultSet(rs);
+                    // Optionally load ingredients if needed
+                    // post.setIngredients(getIngredientsForMeal(post.getId()));
+                    posts.add(post);
+                }
+            }
+
+            return posts;
+        }
+    }
+
+    /**
+     * Searches for meal posts by title, description, or ingredients
+     * 
+     * @param searchTerm The search term (case-insensitive)
+     * @param page The page number (0-based)
+     * @param pageSize The number of posts per page
+     * @return List of MealPost objects
+     */
+    public List<MealPost> searchMealPosts(String searchTerm, int page, int pageSize) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("searchMealPosts")) {
+            List<MealPost> posts = new ArrayList<>();
+
+            String query = "SELECT DISTINCT mp.* FROM meal_posts mp " 
+                    + "LEFT JOIN meal_ingredients mi ON mp.id = mi.mealId "
+                    + "LEFT JOIN ingredients i ON mi.ingredientId = i.id "
+                    + "WHERE mp.titleLower LIKE ? OR LOWER(mp.description) LIKE ? OR i.nameLower LIKE ? "
+                    + "ORDER BY mp.upvotes DESC, mp.creationDate DESC LIMIT ? OFFSET ?";
+
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                String term = "%" + searchTerm.toLowerCase() + "%";
+                pstmt.setString(1, term);
+                pstmt.setString(2, term);
+                pstmt.setString(3, term);
+                pstmt.setInt(4, pageSize);
+                pstmt.setInt(5, page * pageSize);
+
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    MealPost post = extractMealPostFromResultSet(rs);
+                    // Optionally load ingredients if needed
+                    // post.setIngredients(getIngredientsForMeal(post.getId()));
+                    posts.add(post);
+                }
+            }
+
+            return posts;
+        }
+    }
+
+    /**
+     * Retrieves several meal posts with their ingredients in a single query
+     *
+     * @param mealIds The meal post IDs
+     * @return List of MealPost objects in the same order as the given IDs
+     */
+    public List<MealPost> getMealPostsByIds(int[] mealIds) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getMealPostsByIds")) {
+            List<MealPost> posts = new ArrayList<>();
+            if (mealIds.length == 0) {
+                return posts;
+            }
+
+            // The IDs are bound as one array, so every call shares a single cached statement
+            String query = "SELECT * FROM meal_posts WHERE id = ANY(?)";
+            Map<Integer, MealPost> postsById = new HashMap<>();
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                Integer[] ids = new Integer[mealIds.length];
+                for (int i = 0; i < mealIds.length; i++) {
+                    ids[i] = mealIds[i];
+                }
+                pstmt.setArray(1, connection().createArrayOf("INTEGER", ids));
+
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    MealPost post = extractMealPostFromResultSet(rs);
+                    postsById.put(post.getId(), post);
+                }
+            }
+
+            for (int mealId : mealIds) {
+                MealPost post = postsById.get(mealId);
+                if (post != null) {
+                    posts.add(post);
+                }
+            }
+            attachIngredients(posts);
+            return posts;
+        }
+    }
+
+    // Helper method to construct MealPost objects from ResultSet
+    private MealPost extractMealPostFromResultSet(ResultSet rs) throws SQLException {
+        MealPost post = new MealPost();
+        post.setId(rs.getInt("id"));
+        post.setTitle(rs.getString("title"));
+        post.setUserId(rs.getInt("userId"));
+        post.setDescription(rs.getString("description"));
+        post.setInstructions(rs.getString("instructions"));
+        post.setPreparationTime(rs.getInt("preparationTime"));
+        post.setCookingTime(rs.getInt("cookingTime"));
+        post.setServings(rs.getInt("servings"));
+        int difficultyCode = rs.getInt("difficultyCode");
+        post.setDifficulty(rs.wasNull() ? null : Difficulty.fromCode(difficultyCode));
+        post.setImageUrl(rs.getString("imageUrl"));
+        post.setUpvotes(rs.getInt("upvotes"));
+        post.setDietaryType(DietaryType.fromCode(rs.getInt("dietaryCode")));
+        if (rs.getTimestamp("creationDate") != null) {
+            post.setCreationDate(rs.getTimestamp("creationDate").toLocalDateTime());
+        }
+        if (rs.getTimestamp("lastModified") != null) {
+            post.setLastModified(rs.getTimestamp("lastModified").toLocalDateTime());
+        }
+        return post;
+    }
+
+    /**
+     * Counts how many posts each difficulty, time and dietary filter choice would yield
+     * under the current search text and the other selected filters
+     *
+     * @param query The search text (may be empty)
+     * @param difficulty The selected difficulty, or null for all
+     * @param timeFilter The selected time filter ("Quick", "Medium", "Long" or "All")
+     * @param dietaryFilter The selected dietary type, or null for all
+     * @return The facet counts
+     */
+    public FacetCounts getFacetCounts(
+            String query, Difficulty difficulty, String timeFilter, DietaryType dietaryFilter) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getFacetCounts")) {
+            if (columnStore == null) {
+                return countMealPostFacets(MealPostQuery.forFeed(query, difficulty, timeFilter, dietaryFilter, null));
+            }
+            int[] searchIds = query != null && !query.isEmpty() ? getMealPostIdsMatching(query) : null;
+            return columnStore.facetCounts(searchIds, difficulty, timeFilter, dietaryFilter);
+        }
+    }
+
+    /**
+     * Suggests a spelling correction for a search text, for a "did you mean" prompt
+     *
+     * @param query The search text
+     * @return The text with misspelled words replaced by the closest title or ingredient
+     *         words, or null if every word is known or nothing is close
+     */
+    public String suggestSearchCorrection(String query) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("suggestSearchCorrection")) {
+            if (query == null || query.isBlank()) {
+                return null;
+            }
+            return parseSearch(query).getCorrection();
+        }
+    }
+
+    // Checks the words of a search text against the vocabulary
+    private SearchTerms parseSearch(String query) throws SQLException {
+        FuzzyTermIndex vocabulary = searchVocabulary;
+        if (vocabulary == null) {
+            vocabulary = loadSearchVocabulary();
+        }
+        return new SearchTerms(query, vocabulary);
+    }
+
+    // Loads the words of every title and ingredient name
+    private FuzzyTermIndex loadSearchVocabulary() throws SQLException {
+        FuzzyTermIndex vocabulary = new FuzzyTermIndex();
+        try (PreparedStatement pstmt = statements().prepare("SELECT title FROM meal_posts")) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                vocabulary.addText(rs.getString("title"));
+            }
+        }
+        try (PreparedStatement pstmt = statements().prepare("SELECT name FROM ingredients")) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                vocabulary.addText(rs.getString("name"));
+            }
+        }
+        searchVocabulary = vocabulary;
+        return vocabulary;
+    }
+
+    private String getMealPostTitle(int mealId) throws SQLException {
+        try (PreparedStatement pstmt = statements().prepare("SELECT title FROM meal_posts WHERE id = ?")) {
+            pstmt.setInt(1, mealId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getString("title") : null;
+        }
+    }
+
+    /**
+     * Gets the IDs of all meal posts whose title, description or an ingredient's name
+     * contains the search text.
+     * Misspelled words also match the known words a few edits away from them.
+     * Results are cached, and a query that extends a cached one (as happens while typing)
+     * only re-checks the posts that matched the shorter query.
+     *
+     * @param query The search text (case-insensitive)
+     * @return The matching meal post IDs
+     */
+    public int[] getMealPostIdsMatching(String query) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getMealPostIdsMatching")) {
+            String normalized = query.toLowerCase();
+            int[] cached = searchCache.get(normalized);
+            if (cached != null) {
+                return cached;
+            }
+
+            // A widened search can match posts a shorter query didn't, so it can't reuse those
+            SearchTerms terms = parseSearch(query);
+            int[] candidates = terms.isExpanded() ? null : searchCache.getCandidates(normalized);
+            StringBuilder sql = new StringBuilder("SELECT id FROM meal_posts WHERE 1=1 ");
+            // The ingredient subquery doesn't depend on the row, so it is evaluated once per term
+            terms.appendCondition(sql, "titleLower LIKE ?", "LOWER(description) LIKE ?",
+                    "id IN (SELECT mi.mealId FROM meal_ingredients mi "
+                            + "JOIN ingredients i ON i.id = mi.ingredientId WHERE i.nameLower LIKE ?)");
+            if (candidates != null) {
+                sql.append("AND id = ANY(?)");
+            }
+
+            // Not cached: the text decides the number of LIKE terms, so caching would only evict fixed queries
+            try (PreparedStatement pstmt = statements().prepareUncached(sql.toString())) {
+                pstmt.setQueryTimeout(SEARCH_TIMEOUT_SECONDS);
+                int paramIndex = terms.bind(pstmt, 1, 3);
+                if (candidates != null) {
+                    Integer[] candidateIds = new Integer[candidates.length];
+                    for (int i = 0; i < candidates.length; i++) {
+                        candidateIds[i] = candidates[i];
                     }
-                    
-                    // Add updated ingredients
-                    for (MealIngredient ingredient : post.getIngredients()) {
-                        addIngredientToMeal(post.getId(), ingredient);
+                    pstmt.setArray(paramIndex, connection().createArrayOf("INTEGER", candidateIds));
+                }
+
+                int[] ids = new int[64];
+                int count = 0;
+                registerSearch(pstmt);
+                try {
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = rs.getInt(1);
                     }
-                    
-                    // Commit the transaction
-                    connection.commit();
-                    return true;
+                } finally {
+                    unregisterSearch(pstmt);
                 }
+
+                ids = Arrays.copyOf(ids, count);
+                searchCache.put(normalized, ids);
+                return ids;
             }
-            // If we get here, something went wrong
-            connection.rollback();
-            return false;
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
         }
     }
 
     /**
-     * Deletes a meal post and all associated data
-     * 
-     * @param mealId The ID of the meal post to delete
-     * @return true if successful, false otherwise
+     * Marks the calling thread as running the search the user typed, until
+     * endCancellableSearch is called, so cancelSearch can stop its search queries.
+     * Search queries run by any other thread, such as feed prefetches, are never
+     * registered and can't be cancelled by a newer search.
      */
-    public boolean deleteMealPost(int mealId) throws SQLException {
-        // Start a transaction to ensure data integrity
-        connection.setAutoCommit(false);
-        try {
-            // Delete upvotes for this meal
-            String deleteUpvotes = "DELETE FROM upvotes WHERE mealId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteUpvotes)) {
-                pstmt.setInt(1, mealId);
-                pstmt.executeUpdate();
+    public void beginCancellableSearch() {
+        cancellableSearch.set(Boolean.TRUE);
+    }
+
+    public void endCancellableSearch() {
+        cancellableSearch.remove();
+    }
+
+    private void registerSearch(Statement statement) {
+        if (cancellableSearch.get()) {
+            activeSearch = statement;
+        }
+    }
+
+    private void unregisterSearch(Statement statement) {
+        if (cancellableSearch.get() && activeSearch == statement) {
+            activeSearch = null;
+        }
+    }
+
+    /**
+     * Cancels the query of the typed search currently running, if any. This is safe to
+     * call from any thread; the cancelled call fails with an SQLException.
+     */
+    public void cancelSearch() {
+        Statement running = activeSearch;
+        if (running != null) {
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                Log.warn("Could not cancel search", e);
             }
-            
-            // Delete comments for this meal
-            String deleteComments = "DELETE FROM comments WHERE mealId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteComments)) {
-                pstmt.setInt(1, mealId);
-                pstmt.executeUpdate();
+        }
+    }
+
+    // Helper method to bind a nullable difficulty as its code
+    private void setDifficulty(PreparedStatement pstmt, int index, Difficulty difficulty) throws SQLException {
+        if (difficulty != null) {
+            pstmt.setInt(index, difficulty.getCode());
+        } else {
+            pstmt.setNull(index, Types.TINYINT);
+        }
+    }
+
+    /**
+     * Builds a consolidated shopping list for several meals. Quantities of the same
+     * ingredient are converted to a common unit and summed, after scaling each meal
+     * from its own servings to the chosen number of servings. Ingredients in units
+     * that can't be converted (e.g., "clove") are summed per unit.
+     *
+     * @param servingsByMeal The selected meal post IDs, each with the number of servings wanted
+     * @return The shopping list, ordered by ingredient category and name
+     */
+    public List<MealIngredient> getShoppingList(Map<Integer, Integer> servingsByMeal) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getShoppingList")) {
+            List<MealIngredient> shoppingList = new ArrayList<>();
+            if (servingsByMeal.isEmpty()) {
+                return shoppingList;
             }
-            
-            // Delete meal ingredients
-            String deleteIngredients = "DELETE FROM meal_ingredients WHERE mealId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteIngredients)) {
-                pstmt.setInt(1, mealId);
-                pstmt.executeUpdate();
+
+            Integer[] mealIds = new Integer[servingsByMeal.size()];
+            Integer[] servings = new Integer[servingsByMeal.size()];
+            int index = 0;
+            for (Map.Entry<Integer, Integer> entry : servingsByMeal.entrySet()) {
+                mealIds[index] = entry.getKey();
+                servings[index] = entry.getValue();
+                index++;
             }
-            
-            // Delete the meal post
-            String deleteMeal = "DELETE FROM meal_posts WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(deleteMeal)) {
-                pstmt.setInt(1, mealId);
-                int affectedRows = pstmt.executeUpdate();
-                
-                // Commit the transaction
-                connection.commit();
-                return affectedRows > 0;
+
+            // One pass over the selected meals' ingredients; measured units are converted to
+            // milliliters or grams before summing, other units are kept apart
+            String query = "SELECT i.id, i.name, i.categoryCode, uc.dimensionCode, MIN(mi.unitId) AS unitId, "
+                    + "SUM(COALESCE(mi.quantity, 0) * COALESCE(uc.baseFactor, 1) "
+                    + "* CASE WHEN mp.servings > 0 THEN CAST(sel.servings AS DOUBLE) / mp.servings ELSE 1 END) AS total "
+                    + "FROM UNNEST(?, ?) AS sel(mealId, servings) "
+                    + "JOIN meal_posts mp ON mp.id = sel.mealId "
+                    + "JOIN meal_ingredients mi ON mi.mealId = sel.mealId "
+                    + "JOIN ingredients i ON i.id = mi.ingredientId "
+                    + "LEFT JOIN unit_conversions uc ON uc.unitId = mi.unitId "
+                    + "GROUP BY i.id, i.name, i.categoryCode, uc.dimensionCode, "
+                    + "CASE WHEN uc.unitId IS NULL THEN mi.unitId END "
+                    + "ORDER BY i.categoryCode NULLS LAST, i.nameLower";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setArray(1, connection().createArrayOf("INTEGER", mealIds));
+                pstmt.setArray(2, connection().createArrayOf("INTEGER", servings));
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    int categoryCode = rs.getInt("categoryCode");
+                    IngredientCategory category = rs.wasNull() ? null : IngredientCategory.fromCode(categoryCode);
+                    Unit unit = getUnit(rs, "unitId");
+                    double total = rs.getDouble("total");
+                    rs.getInt("dimensionCode");
+                    if (!rs.wasNull()) {
+                        // Show the summed base quantity in the most readable unit of the same system
+                        unit = unit.bestUnitFor(total);
+                        total = total / unit.getBaseFactor();
+                    }
+                    MealIngredient item = new MealIngredient(
+                            rs.getInt("id"),
+                            rs.getString("name"),
+                            category,
+                            (float) (Math.round(total * 100) / 100.0),
+                            unit
+                    );
+                    shoppingList.add(item);
+                }
             }
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+            return shoppingList;
         }
     }
 
     /**
-     * Retrieves a meal post by ID with all its ingredients
-     * 
-     * @param mealId The meal post ID
-     * @return MealPost object if found, null otherwise
+     * Gets a page of the main feed, from the page cache when it was already loaded or prefetched
+     *
+     * @param feedQuery The search text, filters and sort order
+     * @param page The page number (0-based)
+     * @return The meal posts on the page
      */
-    public MealPost getMealPostById(int mealId) throws SQLException {
-        String query = "SELECT * FROM meal_posts WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, mealId);
-            
-            ResultSet resultSet = pstmt.executeQuery();
-            if (resultSet.next()) {
-                MealPost post = extractMealPostFromResultSet(resultSet);
-                
-                // Load ingredients for this meal
-                post.setIngredients(getIngredientsForMeal(mealId));
-                
-                return post;
+    public List<MealPost> getFeedPage(FeedQuery feedQuery, int page) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getFeedPage")) {
+            List<MealPost> posts = feedCache.getPage(feedQuery, page);
+            if (posts == null) {
+                long version = feedCache.getVersion();
+                posts = loadFeedPage(feedQuery, page);
+                feedCache.putPage(feedQuery, page, posts, version);
             }
+            return posts;
         }
-        return null;
     }
 
     /**
-     * Gets all ingredients for a meal
-     * 
-     * @param mealId The meal ID
-     * @return List of MealIngredient objects
+     * Gets the number of posts in the main feed, from the page cache when known
+     *
+     * @param feedQuery The search text, filters and sort order
+     * @return The number of matching meal posts
      */
-    private List<MealIngredient> getIngredientsForMeal(int mealId) throws SQLException {
-        List<MealIngredient> ingredients = new ArrayList<>();
-        
-        String query = "SELECT mi.quantity, mi.unit, i.id, i.name, i.category " 
-                + "FROM meal_ingredients mi "
-                + "JOIN ingredients i ON mi.ingredientId = i.id "
-                + "WHERE mi.mealId = ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, mealId);
-            
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                MealIngredient ingredient = new MealIngredient();
-                ingredient.setId(rs.getInt("id"));
-                ingredient.setName(rs.getString("name"));
-                ingredient.setCategory(rs.getString("category"));
-                ingredient.setQuantity(rs.getFloat("quantity"));
-                ingredient.setUnit(rs.getString("unit"));
-                
-                ingredients.add(ingredient);
+    public int getFeedCount(FeedQuery feedQuery) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getFeedCount")) {
+            int total = feedCache.getTotalPosts(feedQuery);
+            if (total < 0) {
+                long version = feedCache.getVersion();
+                total = getFilteredPostsCount(feedQuery.getSearchQuery(), feedQuery.getDifficulty(),
+                        feedQuery.getTimeFilter(), feedQuery.getDietaryFilter());
+                feedCache.putTotalPosts(feedQuery, total, version);
             }
+            return total;
         }
-        
-        return ingredients;
     }
 
     /**
-     * Gets all meal posts, with pagination support
-     * 
+     * Loads a page of the main feed into the page cache ahead of it being shown.
+     * Does nothing if the page is already cached or lies outside the results.
+     *
+     * @param feedQuery The search text, filters and sort order
      * @param page The page number (0-based)
-     * @param pageSize The number of posts per page
-     * @return List of MealPost objects
      */
-    public List<MealPost> getAllMealPosts(int page, int pageSize) throws SQLException {
-        List<MealPost> posts = new ArrayList<>();
-        
-        String query = "SELECT * FROM meal_posts ORDER BY creationDate DESC LIMIT ? OFFSET ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, pageSize);
-            pstmt.setInt(2, page * pageSize);
-            
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                MealPost post = extractMealPostFromResultSet(rs);
-                // Optionally load ingredients if needed
-                // post.setIngredients(getIngredientsForMeal(post.getId()));
-                posts.add(post);
+    public void prefetchFeedPage(FeedQuery feedQuery, int page) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("prefetchFeedPage")) {
+            if (page < 0 || feedCache.hasPage(feedQuery, page)) {
+                return;
+            }
+            if ((long) page * feedQuery.getPageSize() >= getFeedCount(feedQuery)) {
+                return;
             }
+            long version = feedCache.getVersion();
+            feedCache.putPage(feedQuery, page, loadFeedPage(feedQuery, page), version);
         }
-        
-        return posts;
+    }
+
+    private List<MealPost> loadFeedPage(FeedQuery feedQuery, int page) throws SQLException {
+        return searchAndFilterMealPosts(feedQuery.getSearchQuery(), feedQuery.getDifficulty(),
+                feedQuery.getTimeFilter(), feedQuery.getDietaryFilter(), feedQuery.getSortMode(),
+                page, feedQuery.getPageSize());
     }
 
     /**
-     * Gets the total number of meal posts
+     * Searches and filters meal posts based on provided criteria such as search query, difficulty level, time filters, and pagination settings.
      *
-     * @return Number of MealPosts
+     * @param query The search text to filter meal posts by title, description or ingredient name (case-insensitive).
+     * @param difficulty The difficulty level to filter meal posts by. Use null to ignore this filter.
+     * @param timeFilter The time category for filtering based on total preparation and cooking time ("Quick", "Medium", "Long"). Use "All" to ignore this filter.
+     * @param dietaryFilter The dietary type to filter meal posts by. Use null to ignore this filter.
+     * @param sortMode The sort order ("Date", "Reputation", "Preparation Time", "Cooking Time").
+     * @param page The page number for paginated results (0-based).
+     * @param pageSize The number of meal posts per page.
+     * @return A list of filtered and paginated MealPost objects matching the criteria.
      */
-    public int getTotalPostsCount() throws SQLException {
-        String query = "SELECT COUNT(*) FROM meal_posts";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
+    public List<MealPost> searchAndFilterMealPosts(
+            String query, Difficulty difficulty, String timeFilter, DietaryType dietaryFilter,
+            String sortMode, int page, int pageSize) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("searchAndFilterMealPosts")) {
+
+            // With the in-memory snapshot, only the search text needs SQL
+            if (columnStore != null) {
+                int[] searchIds = query != null && !query.isEmpty() ? getMealPostIdsMatching(query) : null;
+                return getMealPostsByIds(columnStore.query(searchIds, difficulty, timeFilter, dietaryFilter,
+                        sortMode, page, pageSize));
             }
-            return 0;
+
+            MealPostQuery spec = MealPostQuery.forFeed(query, difficulty, timeFilter, dietaryFilter, sortMode);
+            return findMealPosts(spec, page * pageSize, pageSize);
+        }
+    }
+
+    public int getFilteredPostsCount(
+            String query, Difficulty difficulty, String timeFilter, DietaryType dietaryFilter) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getFilteredPostsCount")) {
+
+            if (columnStore != null) {
+                int[] searchIds = query != null && !query.isEmpty() ? getMealPostIdsMatching(query) : null;
+                return columnStore.count(searchIds, difficulty, timeFilter, dietaryFilter);
+            }
+
+            return countMealPosts(MealPostQuery.forFeed(query, difficulty, timeFilter, dietaryFilter, null));
         }
     }
 
     /**
-     * Gets meal posts by a specific user
-     * 
-     * @param userId The user ID
-     * @param page The page number (0-based)
-     * @param pageSize The number of posts per page
-     * @return List of MealPost objects
+     * Finds the meal posts matching a query, with their ingredients
+     *
+     * @param spec The query
+     * @param offset The number of matching posts to skip
+     * @param limit The maximum number of posts
+     * @return The posts, in the query's sort order
      */
-    public List<MealPost> getMealPostsByUser(int userId, int page, int pageSize) throws SQLException {
-        List<MealPost> posts = new ArrayList<>();
-        
-        String query = "SELECT * FROM meal_posts WHERE userId = ? ORDER BY creationDate DESC LIMIT ? OFFSET ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, pageSize);
-            pstmt.setInt(3, page * pageSize);
-            
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                MealPost post = extractMealPostFromResultSet(rs);
-                // Optionally load ingredients if needed
-                // post.setIngredients(getIngredientsForMeal(post.getId()));
-                posts.add(post);
+    public List<MealPost> findMealPosts(MealPostQuery spec, int offset, int limit) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("findMealPosts")) {
+            List<MealPost> posts = new ArrayList<>();
+            int[] searchIds = getSearchIds(spec);
+            if (searchIds != null && searchIds.length == 0) {
+                return posts;
+            }
+
+            try (PreparedStatement pstmt = statements().prepare(spec.sql(MealPostQuery.Kind.LIST))) {
+                pstmt.setQueryTimeout(SEARCH_TIMEOUT_SECONDS);
+                int paramIndex = spec.bind(pstmt, MealPostQuery.Kind.LIST, connection(), searchIds);
+                pstmt.setInt(paramIndex++, limit);
+                pstmt.setInt(paramIndex, offset);
+
+                registerSearch(pstmt);
+                try {
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        posts.add(extractMealPostFromResultSet(rs));
+                    }
+                } finally {
+                    unregisterSearch(pstmt);
+                }
             }
+
+            attachIngredients(posts);
+            return posts;
         }
-        
-        return posts;
     }
 
     /**
-     * Searches for meal posts by title, description, or ingredients
-     * 
-     * @param searchTerm The search term
-     * @param page The page number (0-based)
-     * @param pageSize The number of posts per page
-     * @return List of MealPost objects
+     * Counts the meal posts matching a query, ignoring its cursor
+     *
+     * @param spec The query
+     * @return The number of matching posts
      */
-    public List<MealPost> searchMealPosts(String searchTerm, int page, int pageSize) throws SQLException {
-        List<MealPost> posts = new ArrayList<>();
-        
-        String query = "SELECT DISTINCT mp.* FROM meal_posts mp " 
-                + "LEFT JOIN meal_ingredients mi ON mp.id = mi.mealId "
-                + "LEFT JOIN ingredients i ON mi.ingredientId = i.id "
-                + "WHERE mp.title LIKE ? OR mp.description LIKE ? OR i.name LIKE ? "
-                + "ORDER BY mp.upvotes DESC, mp.creationDate DESC LIMIT ? OFFSET ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            String term = "%" + searchTerm + "%";
-            pstmt.setString(1, term);
-            pstmt.setString(2, term);
-            pstmt.setString(3, term);
-            pstmt.setInt(4, pageSize);
-            pstmt.setInt(5, page * pageSize);
-            
+    public int countMealPosts(MealPostQuery spec) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("countMealPosts")) {
+            int[] searchIds = getSearchIds(spec);
+            if (searchIds != null && searchIds.length == 0) {
+                return 0;
+            }
+
+            try (PreparedStatement pstmt = statements().prepare(spec.sql(MealPostQuery.Kind.COUNT))) {
+                pstmt.setQueryTimeout(SEARCH_TIMEOUT_SECONDS);
+                spec.bind(pstmt, MealPostQuery.Kind.COUNT, connection(), searchIds);
+                ResultSet rs = pstmt.executeQuery();
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Counts how many posts each difficulty, time and dietary choice would yield under
+     * a query. Each facet is counted under the query's other filters, as the column
+     * store does in memory.
+     *
+     * @param spec The query
+     * @return The facet counts
+     */
+    public FacetCounts countMealPostFacets(MealPostQuery spec) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("countMealPostFacets")) {
+            int[] difficultyCounts = new int[Difficulty.values().length];
+            int[] timeCounts = new int[FacetIndex.TIME_BUCKETS.length];
+            int[] dietaryCounts = new int[DietaryType.values().length];
+            int[] searchIds = getSearchIds(spec);
+            if (searchIds != null && searchIds.length == 0) {
+                return new FacetCounts(difficultyCounts, 0, timeCounts, 0, dietaryCounts, 0);
+            }
+
+            int allDifficulties = countFacet(spec, MealPostQuery.Kind.FACET_DIFFICULTY, searchIds, difficultyCounts);
+            int allTimes = countFacet(spec, MealPostQuery.Kind.FACET_TIME, searchIds, timeCounts);
+            int allDietary = countFacet(spec, MealPostQuery.Kind.FACET_DIETARY, searchIds, dietaryCounts);
+            return new FacetCounts(difficultyCounts, allDifficulties, timeCounts, allTimes, dietaryCounts, allDietary);
+        }
+    }
+
+    // Runs one grouped facet query, filling in the count for each code and returning the total
+    private int countFacet(MealPostQuery spec, MealPostQuery.Kind kind, int[] searchIds, int[] counts)
+            throws SQLException {
+        int total = 0;
+        try (PreparedStatement pstmt = statements().prepare(spec.sql(kind))) {
+            pstmt.setQueryTimeout(SEARCH_TIMEOUT_SECONDS);
+            spec.bind(pstmt, kind, connection(), searchIds);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                MealPost post = extractMealPostFromResultSet(rs);
-                // Optionally load ingredients if needed
-                // post.setIngredients(getIngredientsForMeal(post.getId()));
-                posts.add(post);
+                int code = rs.getInt(1);
+                boolean noCode = rs.wasNull();
+                int count = rs.getInt(2);
+                if (!noCode && code >= 0 && code < counts.length) {
+                    counts[code] = count;
+                }
+                total += count;
             }
         }
-        
-        return posts;
+        return total;
     }
 
-    // Helper method to construct MealPost objects from ResultSet
-    private MealPost extractMealPostFromResultSet(ResultSet rs) throws SQLException {
-        MealPost post = new MealPost();
-        post.setId(rs.getInt("id"));
-        post.setTitle(rs.getString("title"));
-        post.setUserId(rs.getInt("userId"));
-        post.setDescription(rs.getString("description"));
-        post.setInstructions(rs.getString("instructions"));
-        post.setPreparationTime(rs.getInt("preparationTime"));
-        post.setCookingTime(rs.getInt("cookingTime"));
-        post.setServings(rs.getInt("servings"));
-        post.setDifficulty(rs.getString("difficulty"));
-        post.setImageUrl(rs.getString("imageUrl"));
-        post.setUpvotes(rs.getInt("upvotes"));
-        post.setDietaryType(rs.getString("dietaryType"));
-        if (rs.getTimestamp("creationDate") != null) {
-            post.setCreationDate(rs.getTimestamp("creationDate").toLocalDateTime());
+    /**
+     * Writes the meal posts matching a query as CSV, one row per post in the query's
+     * sort order, ignoring its cursor
+     *
+     * @param spec The query
+     * @param out Where to write the CSV
+     * @return The number of posts written
+     */
+    public int exportMealPosts(MealPostQuery spec, Appendable out) throws SQLException, IOException {
+        try (QueryMetrics.Call call = metrics.startCall("exportMealPosts")) {
+            out.append("id,title,author,difficulty,dietaryType,preparationTime,cookingTime,servings,upvotes,creationDate\n");
+            int[] searchIds = getSearchIds(spec);
+            if (searchIds != null && searchIds.length == 0) {
+                return 0;
+            }
+
+            int rows = 0;
+            try (PreparedStatement pstmt = statements().prepare(spec.sql(MealPostQuery.Kind.EXPORT))) {
+                spec.bind(pstmt, MealPostQuery.Kind.EXPORT, connection(), searchIds);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    int difficultyCode = rs.getInt("difficultyCode");
+                    Difficulty difficulty = rs.wasNull() ? null : Difficulty.fromCode(difficultyCode);
+                    Timestamp creationDate = rs.getTimestamp("creationDate");
+
+                    out.append(Integer.toString(rs.getInt("id"))).append(',');
+                    appendCsvField(out, rs.getString("title"));
+                    out.append(',');
+                    appendCsvField(out, rs.getString("username"));
+                    out.append(',').append(difficulty != null ? difficulty.getLabel() : "");
+                    out.append(',').append(DietaryType.fromCode(rs.getInt("dietaryCode")).getLabel());
+                    out.append(',').append(Integer.toString(rs.getInt("preparationTime")));
+                    out.append(',').append(Integer.toString(rs.getInt("cookingTime")));
+                    out.append(',').append(Integer.toString(rs.getInt("servings")));
+                    out.append(',').append(Integer.toString(rs.getInt("upvotes")));
+                    out.append(',').append(creationDate != null ? creationDate.toLocalDateTime().toString() : "");
+                    out.append('\n');
+                    rows++;
+                }
+            }
+            return rows;
         }
-        if (rs.getTimestamp("lastModified") != null) {
-            post.setLastModified(rs.getTimestamp("lastModified").toLocalDateTime());
+    }
+
+    // Quotes a CSV field when it contains a separator, quote or line break
+    private static void appendCsvField(Appendable out, String value) throws IOException {
+        if (value == null) {
+            return;
         }
-        return post;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    // Resolves a query's search text to the IDs of the matching posts, through the search cache
+    private int[] getSearchIds(MealPostQuery spec) throws SQLException {
+        return spec.getText() != null ? getMealPostIdsMatching(spec.getText()) : null;
     }
 
+
     /**
-     * Searches and filters meal posts based on provided criteria such as search query, difficulty level, time filters, and pagination settings.
-     *
-     * @param query The search text to filter meal posts by title or description (case-insensitive).
-     * @param difficulty The difficulty level to filter meal posts (e.g., "Easy", "Medium", "Hard"). Use "All" to ignore this filter.
-     * @param timeFilter The time category for filtering based on total preparation and cooking time ("Quick", "Medium", "Long"). Use "All" to ignore this filter.
-     * @param page The page number for paginated results (0-based).
-     * @param pageSize The number of meal posts per page.
-     * @return A list of filtered and paginated MealPost objects matching the criteria.
+     * Upvotes a meal post
+     * 
+     * @param userId The user ID who is upvoting
+     * @param mealId The meal post ID being upvoted
+     * @return true if successful, false otherwise
      */
-    public List<MealPost> searchAndFilterMealPosts(
-            String query, String difficulty, String timeFilter, String dietaryFilter,
-            String sortMode, int page, int pageSize) throws SQLException {
+    public boolean upvoteMealPost(int userId, int mealId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("upvoteMealPost")) {
+            // Start a transaction to ensure data integrity
+            connection.setAutoCommit(false);
+            try {
+                // Check if user already upvoted this post
+                String checkQuery = "SELECT COUNT(*) FROM upvotes WHERE userId = ? AND mealId = ?";
+                try (PreparedStatement pstmt = statements().prepare(checkQuery)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, mealId);
+
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next() && rs.getInt(1) > 0) {
+                        // User already upvoted this post
+                        connection.rollback();
+                        return false;
+                    }
+                }
+
+                // Record the upvote
+                String upvoteQuery = "INSERT INTO upvotes (userId, mealId) VALUES (?, ?)";
+                try (PreparedStatement pstmt = statements().prepare(upvoteQuery)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, mealId);
+                    pstmt.executeUpdate();
+                }
+
+                // Increment the upvotes count in the meal_posts table
+                String updateQuery = "UPDATE meal_posts SET upvotes = upvotes + 1 WHERE id = ?";
+                try (PreparedStatement pstmt = statements().prepare(updateQuery)) {
+                    pstmt.setInt(1, mealId);
+                    pstmt.executeUpdate();
+                }
 
-        List<MealPost> results = new ArrayList<>();
+                // Get the user ID of the meal post creator
+                int creatorId = 0;
+                String getCreatorQuery = "SELECT userId FROM meal_posts WHERE id = ?";
+                try (PreparedStatement pstmt = statements().prepare(getCreatorQuery)) {
+                    pstmt.setInt(1, mealId);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next()) {
+                        creatorId = rs.getInt("userId");
+                    }
+                }
 
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT p.*, u.reputation FROM meal_posts p ");
-        sql.append("LEFT JOIN users u ON p.userId = u.id ");
-        sql.append("WHERE 1=1 ");
+                // Update the reputation of the meal post creator
+                if (creatorId > 0) {
+                    applyReputationChange(creatorId, 1);
+                }
 
-        // Add search condition if query is not empty
-        if (query != null && !query.isEmpty()) {
-            sql.append("AND (LOWER(p.title) LIKE ? OR LOWER(p.description) LIKE ?) ");
+                // Commit the transaction
+                connection.commit();
+                feedCache.invalidate();
+                if (recommendations != null) {
+                    recommendations.upvoteAdded(userId, mealId);
+                }
+                if (columnStore != null) {
+                    columnStore.adjustUpvotes(mealId, 1);
+                    columnStore.adjustReputation(creatorId, 1);
+                }
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         }
+    }
+
+    /**
+     * Removes an upvote from a meal post
+     * 
+     * @param userId The user ID who is removing the upvote
+     * @param mealId The meal post ID to remove the upvote from
+     * @return true if successful, false otherwise
+     */
+    public boolean removeUpvote(int userId, int mealId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("removeUpvote")) {
+            // Start a transaction to ensure data integrity
+            connection.setAutoCommit(false);
+            try {
+                // Check if user has upvoted this post
+                String checkQuery = "SELECT COUNT(*) FROM upvotes WHERE userId = ? AND mealId = ?";
+                try (PreparedStatement pstmt = statements().prepare(checkQuery)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, mealId);
+
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next() && rs.getInt(1) == 0) {
+                        // User hasn't upvoted this post
+                        connection.rollback();
+                        return false;
+                    }
+                }
+
+                // Remove the upvote
+                String removeUpvoteQuery = "DELETE FROM upvotes WHERE userId = ? AND mealId = ?";
+                try (PreparedStatement pstmt = statements().prepare(removeUpvoteQuery)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, mealId);
+                    pstmt.executeUpdate();
+                }
+
+                // Decrement the upvotes count in the meal_posts table
+                String updateQuery = "UPDATE meal_posts SET upvotes = upvotes - 1 WHERE id = ?";
+                try (PreparedStatement pstmt = statements().prepare(updateQuery)) {
+                    pstmt.setInt(1, mealId);
+                    pstmt.executeUpdate();
+                }
 
-        // Add difficulty filter if not "All"
-        if (difficulty != null && !difficulty.equals("All")) {
-            sql.append("AND p.difficulty = ? ");
-        }
+                // Get the user ID of the meal post creator
+                int creatorId = 0;
+                String getCreatorQuery = "SELECT userId FROM meal_posts WHERE id = ?";
+                try (PreparedStatement pstmt = statements().prepare(getCreatorQuery)) {
+                    pstmt.setInt(1, mealId);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next()) {
+                        creatorId = rs.getInt("userId");
+                    }
+                }
 
-        // Add time filter
-        if (timeFilter != null && !timeFilter.equals("All")) {
-            switch (timeFilter) {
-                case "Quick" -> sql.append("AND (p.preparationTime + p.cookingTime) < 30 ");
-                case "Medium" -> sql.append("AND (p.preparationTime + p.cookingTime) BETWEEN 30 AND 60 ");
-                case "Long" -> sql.append("AND (p.preparationTime + p.cookingTime) > 60 ");
-            }
-        }
+                // Update the reputation of the meal post creator
+                if (creatorId > 0) {
+                    applyReputationChange(creatorId, -1);
+                }
 
-        if (dietaryFilter != null && !dietaryFilter.equals("All")) {
-            if (dietaryFilter.equals("Vegetarian")) {
-                sql.append("AND p.dietaryType LIKE ? OR p.dietaryType LIKE 'Vegan' ");
-            } else {
-                sql.append("AND p.dietaryType LIKE ? ");
-            }
-        }
-
-        // Add sorting
-        if (sortMode != null) {
-            switch (sortMode) {
-                case "Reputation":
-                    sql.append("ORDER BY u.reputation DESC ");
-                    break;
-                case "Preparation Time":
-                    sql.append("ORDER BY p.preparationTime ASC, p.creationDate DESC ");
-                    break;
-                case "Cooking Time":
-                    sql.append("ORDER BY p.cookingTime ASC, p.creationDate DESC ");
-                    break;
-                case "Date":
-                default:
-                    sql.append("ORDER BY p.creationDate DESC ");
-                    break;
+                // Commit the transaction
+                connection.commit();
+                feedCache.invalidate();
+                if (recommendations != null) {
+                    recommendations.upvoteRemoved(userId, mealId);
+                }
+                if (columnStore != null) {
+                    columnStore.adjustUpvotes(mealId, -1);
+                    columnStore.adjustReputation(creatorId, -1);
+                }
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
-        } else {
-            // Default sort by creation date (newest first)
-            sql.append("ORDER BY p.creationDate DESC ");
         }
+    }
 
-        // Add pagination
-        sql.append("LIMIT ? OFFSET ?");
-
-        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
-            int paramIndex = 1;
+    /**
+     * Adds a comment to a meal post
+     * 
+     * @param userId The user ID adding the comment
+     * @param mealId The meal post ID being commented on
+     * @param content The comment content
+     * @return true if successful, false otherwise
+     */
+    public boolean addComment(int userId, int mealId, String content) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("addComment")) {
+            String query = "INSERT INTO comments (userId, mealId, content) VALUES (?, ?, ?)";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, mealId);
+                pstmt.setString(3, content);
 
-            // Set search parameters
-            if (query != null && !query.isEmpty()) {
-                String likeParam = "%" + query.toLowerCase() + "%";
-                statement.setString(paramIndex++, likeParam);
-                statement.setString(paramIndex++, likeParam);
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
             }
+        }
+    }
 
-            // Set difficulty parameter
-            if (difficulty != null && !difficulty.equals("All")) {
-                statement.setString(paramIndex++, difficulty);
-            }
+    /**
+     * Deletes a comment
+     * 
+     * @param commentId The comment ID to delete
+     * @param userId The user ID (to verify ownership)
+     * @return true if successful, false otherwise
+     */
+    public boolean deleteComment(int commentId, int userId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("deleteComment")) {
+            // Check if the user is the owner of the comment or an admin
+            String checkQuery = "SELECT userId FROM comments WHERE id = ?";
+            try (PreparedStatement pstmt = statements().prepare(checkQuery)) {
+                pstmt.setInt(1, commentId);
 
-            // Set dietary filter parameter
-            if (dietaryFilter != null && !dietaryFilter.equals("All")) {
-                statement.setString(paramIndex++, dietaryFilter);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next()) {
+                    int commentUserId = rs.getInt("userId");
+                    if (commentUserId != userId) {
+                        // Check if the user is an admin
+                        User user = getUserById(userId);
+                        if (user == null || user.getRole() != 1) {
+                            // Not the owner and not an admin
+                            return false;
+                        }
+                    }
+                } else {
+                    // Comment not found
+                    return false;
+                }
             }
 
-            // Set pagination parameters
-            statement.setInt(paramIndex++, pageSize);
-            statement.setInt(paramIndex, page * pageSize);
+            // Delete the comment
+            String deleteQuery = "DELETE FROM comments WHERE id = ?";
+            try (PreparedStatement pstmt = statements().prepare(deleteQuery)) {
+                pstmt.setInt(1, commentId);
 
-            ResultSet rs = statement.executeQuery();
-
-            while (rs.next()) {
-                MealPost post = extractMealPostFromResultSet(rs);
-                post.setIngredients(getIngredientsForMeal(post.getId()));
-                results.add(post);
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
             }
         }
-
-        return results;
     }
 
-    public int getFilteredPostsCount(
-            String query, String difficulty, String timeFilter, String dietaryFilter) throws SQLException {
+    /**
+     * Gets comments for a meal post
+     * 
+     * @param mealId The meal post ID
+     * @return List of Comment objects
+     */
+    public List<Comment> getCommentsForMeal(int mealId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getCommentsForMeal")) {
+            List<Comment> comments = new ArrayList<>();
 
-        String sql = "SELECT COUNT(*) FROM meal_posts WHERE 1=1";
+            String query = "SELECT c.*, u.userName FROM comments c " 
+                    + "JOIN users u ON c.userId = u.id " 
+                    + "WHERE c.mealId = ? " 
+                    + "ORDER BY c.creationDate DESC";
 
-        if (query != null && !query.isEmpty()) {
-            sql += " AND (title LIKE ? OR description LIKE ?)";
-        }
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, mealId);
 
-        if (difficulty != null && !"All".equals(difficulty)) {
-            sql += " AND difficulty = ?";
-        }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Comment comment = new Comment();
+                    comment.setId(rs.getInt("id"));
+                    comment.setUserId(rs.getInt("userId"));
+                    comment.setMealId(rs.getInt("mealId"));
+                    comment.setContent(rs.getString("content"));
+                    comment.setUsername(rs.getString("userName"));
+                    if (rs.getTimestamp("creationDate") != null) {
+                        comment.setCreationDate(rs.getTimestamp("creationDate").toLocalDateTime());
+                    }
 
-        if (timeFilter != null && !"All".equals(timeFilter)) {
-            switch (timeFilter) {
-                case "Quick":
-                    sql += " AND (preparationTime + cookingTime) < 30";
-                    break;
-                case "Medium":
-                    sql += " AND (preparationTime + cookingTime) BETWEEN 30 AND 60";
-                    break;
-                case "Long":
-                    sql += " AND (preparationTime + cookingTime) > 60";
-                    break;
+                    comments.add(comment);
+                }
             }
-        }
 
-        if (dietaryFilter != null && !"All".equals(dietaryFilter)) {
-            sql += " AND dietaryType = ?";
+            return comments;
         }
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            int paramIndex = 1;
-
-            if (query != null && !query.isEmpty()) {
-                String likeQuery = "%" + query + "%";
-                pstmt.setString(paramIndex++, likeQuery);
-                pstmt.setString(paramIndex++, likeQuery);
-            }
+    /**
+     * Creates a new, empty meal plan
+     *
+     * @param userId The ID of the user owning the plan
+     * @param name The plan name
+     * @param weekStart The Monday the plan's week starts on
+     * @return The created MealPlan
+     */
+    public MealPlan createMealPlan(int userId, String name, LocalDate weekStart) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("createMealPlan")) {
+            connection.setAutoCommit(false);
+            try {
+                MealPlan plan = null;
+                String insertPlan = "INSERT INTO meal_plans (userId, name, weekStart) VALUES (?, ?, ?)";
+                try (PreparedStatement pstmt = statements().prepare(insertPlan, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setString(2, name);
+                    pstmt.setDate(3, Date.valueOf(weekStart));
+                    pstmt.executeUpdate();
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            plan = new MealPlan(generatedKeys.getInt(1), userId, name, weekStart);
+                        }
+                    }
+                }
+                if (plan == null) {
+                    throw new SQLException("Failed to create meal plan");
+                }
 
-            if (difficulty != null && !"All".equals(difficulty)) {
-                pstmt.setString(paramIndex++, difficulty);
-            }
+                // One aggregate row per day, so entries only ever update existing rows
+                String insertDay = "INSERT INTO meal_plan_days (planId, dayOfWeek) VALUES (?, ?)";
+                try (PreparedStatement pstmt = statements().prepare(insertDay)) {
+                    for (int day = 0; day < MealPlan.DAYS; day++) {
+                        pstmt.setInt(1, plan.getId());
+                        pstmt.setInt(2, day);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
 
-            if (dietaryFilter != null && !"All".equals(dietaryFilter)) {
-                pstmt.setString(paramIndex++, dietaryFilter);
+                connection.commit();
+                return plan;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
+        }
+    }
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
+    /**
+     * Gets a user's meal plans with their weekly totals, newest week first.
+     * Entries and daily totals are not loaded; use getMealPlan for those.
+     *
+     * @param userId The user ID
+     * @return The user's meal plans
+     */
+    public List<MealPlan> getMealPlansForUser(int userId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getMealPlansForUser")) {
+            List<MealPlan> plans = new ArrayList<>();
+            String query = "SELECT * FROM meal_plans WHERE userId = ? ORDER BY weekStart DESC, id DESC";
+            try (PreparedStatement pstmt = statements().prepare(query)) {
+                pstmt.setInt(1, userId);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    plans.add(extractMealPlanFromResultSet(rs));
                 }
-                return 0;
             }
+            return plans;
         }
     }
 
-
     /**
-     * Upvotes a meal post
-     * 
-     * @param userId The user ID who is upvoting
-     * @param mealId The meal post ID being upvoted
-     * @return true if successful, false otherwise
+     * Gets a meal plan with its entries and daily totals. The stored aggregates are
+     * read as they are, and meal titles come from a single join, so no meal post is
+     * loaded individually.
+     *
+     * @param planId The meal plan ID
+     * @return The MealPlan, or null if not found
      */
-    public boolean upvoteMealPost(int userId, int mealId) throws SQLException {
-        // Start a transaction to ensure data integrity
-        connection.setAutoCommit(false);
-        try {
-            // Check if user already upvoted this post
-            String checkQuery = "SELECT COUNT(*) FROM upvotes WHERE userId = ? AND mealId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(checkQuery)) {
-                pstmt.setInt(1, userId);
-                pstmt.setInt(2, mealId);
-                
+    public MealPlan getMealPlan(int planId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getMealPlan")) {
+            MealPlan plan = null;
+            try (PreparedStatement pstmt = statements().prepare("SELECT * FROM meal_plans WHERE id = ?")) {
+                pstmt.setInt(1, planId);
                 ResultSet rs = pstmt.executeQuery();
-                if (rs.next() && rs.getInt(1) > 0) {
-                    // User already upvoted this post
-                    connection.rollback();
-                    return false;
+                if (rs.next()) {
+                    plan = extractMealPlanFromResultSet(rs);
                 }
             }
-            
-            // Record the upvote
-            String upvoteQuery = "INSERT INTO upvotes (userId, mealId) VALUES (?, ?)";
-            try (PreparedStatement pstmt = connection.prepareStatement(upvoteQuery)) {
-                pstmt.setInt(1, userId);
-                pstmt.setInt(2, mealId);
-                pstmt.executeUpdate();
-            }
-            
-            // Increment the upvotes count in the meal_posts table
-            String updateQuery = "UPDATE meal_posts SET upvotes = upvotes + 1 WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(updateQuery)) {
-                pstmt.setInt(1, mealId);
-                pstmt.executeUpdate();
+            if (plan == null) {
+                return null;
             }
-            
-            // Get the user ID of the meal post creator
-            int creatorId = 0;
-            String getCreatorQuery = "SELECT userId FROM meal_posts WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(getCreatorQuery)) {
-                pstmt.setInt(1, mealId);
+
+            String daysQuery = "SELECT * FROM meal_plan_days WHERE planId = ?";
+            try (PreparedStatement pstmt = statements().prepare(daysQuery)) {
+                pstmt.setInt(1, planId);
                 ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    creatorId = rs.getInt("userId");
+                while (rs.next()) {
+                    plan.setDayTotals(rs.getInt("dayOfWeek"), extractMealPlanTotals(rs));
                 }
             }
-            
-            // Update the reputation of the meal post creator
-            if (creatorId > 0) {
-                updateUserReputation(creatorId, 1);
+
+            String entriesQuery = "SELECT e.*, mp.title FROM meal_plan_entries e "
+                    + "JOIN meal_posts mp ON mp.id = e.mealId "
+                    + "WHERE e.planId = ? ORDER BY e.dayOfWeek, e.slotCode, e.id";
+            try (PreparedStatement pstmt = statements().prepare(entriesQuery)) {
+                pstmt.setInt(1, planId);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    plan.getEntries().add(new MealPlanEntry(
+                            rs.getInt("id"),
+                            rs.getInt("planId"),
+                            rs.getInt("mealId"),
+                            rs.getString("title"),
+                            rs.getInt("dayOfWeek"),
+                            MealSlot.fromCode(rs.getInt("slotCode")),
+                            rs.getInt("servings"),
+                            rs.getInt("totalTime"),
+                            rs.getInt("ingredientCount")
+                    ));
+                }
             }
-            
-            // Commit the transaction
-            connection.commit();
-            return true;
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+            return plan;
         }
     }
 
     /**
-     * Removes an upvote from a meal post
-     * 
-     * @param userId The user ID who is removing the upvote
-     * @param mealId The meal post ID to remove the upvote from
-     * @return true if successful, false otherwise
+     * Adds a meal post to a day of a meal plan and updates the day's and week's totals
+     *
+     * @param planId The meal plan ID
+     * @param mealId The meal post ID
+     * @param dayOfWeek 0 for Monday through 6 for Sunday
+     * @param slot The meal slot
+     * @param servings The number of servings planned
+     * @return The created MealPlanEntry, or null if the meal post doesn't exist
      */
-    public boolean removeUpvote(int userId, int mealId) throws SQLException {
-        // Start a transaction to ensure data integrity
-        connection.setAutoCommit(false);
-        try {
-            // Check if user has upvoted this post
-            String checkQuery = "SELECT COUNT(*) FROM upvotes WHERE userId = ? AND mealId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(checkQuery)) {
-                pstmt.setInt(1, userId);
-                pstmt.setInt(2, mealId);
-                
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next() && rs.getInt(1) == 0) {
-                    // User hasn't upvoted this post
-                    connection.rollback();
-                    return false;
-                }
-            }
-            
-            // Remove the upvote
-            String removeUpvoteQuery = "DELETE FROM upvotes WHERE userId = ? AND mealId = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(removeUpvoteQuery)) {
-                pstmt.setInt(1, userId);
-                pstmt.setInt(2, mealId);
-                pstmt.executeUpdate();
-            }
-            
-            // Decrement the upvotes count in the meal_posts table
-            String updateQuery = "UPDATE meal_posts SET upvotes = upvotes - 1 WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(updateQuery)) {
-                pstmt.setInt(1, mealId);
-                pstmt.executeUpdate();
+    public MealPlanEntry addMealPlanEntry(int planId, int mealId, int dayOfWeek, MealSlot slot, int servings)
+            throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("addMealPlanEntry")) {
+            if (dayOfWeek < 0 || dayOfWeek >= MealPlan.DAYS) {
+                throw new IllegalArgumentException("Day of week must be between 0 and " + (MealPlan.DAYS - 1));
             }
-            
-            // Get the user ID of the meal post creator
-            int creatorId = 0;
-            String getCreatorQuery = "SELECT userId FROM meal_posts WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(getCreatorQuery)) {
-                pstmt.setInt(1, mealId);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    creatorId = rs.getInt("userId");
+
+            connection.setAutoCommit(false);
+            try {
+                // Snapshot the values the aggregates count for this meal
+                String title;
+                int totalTime;
+                int ingredientCount;
+                String mealQuery = "SELECT mp.title, mp.preparationTime + mp.cookingTime AS totalTime, "
+                        + "(SELECT COUNT(*) FROM meal_ingredients mi WHERE mi.mealId = mp.id) AS ingredientCount "
+                        + "FROM meal_posts mp WHERE mp.id = ?";
+                try (PreparedStatement pstmt = statements().prepare(mealQuery)) {
+                    pstmt.setInt(1, mealId);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (!rs.next()) {
+                        connection.rollback();
+                        return null;
+                    }
+                    title = rs.getString("title");
+                    totalTime = rs.getInt("totalTime");
+                    ingredientCount = rs.getInt("ingredientCount");
+                }
+
+                MealPlanEntry entry = null;
+                String insertEntry = "INSERT INTO meal_plan_entries "
+                        + "(planId, mealId, dayOfWeek, slotCode, servings, totalTime, ingredientCount) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement pstmt = statements().prepare(insertEntry, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, planId);
+                    pstmt.setInt(2, mealId);
+                    pstmt.setInt(3, dayOfWeek);
+                    pstmt.setInt(4, slot.getCode());
+                    pstmt.setInt(5, servings);
+                    pstmt.setInt(6, totalTime);
+                    pstmt.setInt(7, ingredientCount);
+                    pstmt.executeUpdate();
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            entry = new MealPlanEntry(generatedKeys.getInt(1), planId, mealId, title, dayOfWeek, slot,
+                                    servings, totalTime, ingredientCount);
+                        }
+                    }
                 }
+                if (entry == null) {
+                    throw new SQLException("Failed to add meal plan entry");
+                }
+
+                applyMealPlanDelta(planId, dayOfWeek, 1, totalTime, servings, ingredientCount);
+                connection.commit();
+                return entry;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
-            
-            // Update the reputation of the meal post creator
-            if (creatorId > 0) {
-                updateUserReputation(creatorId, -1);
+        }
+    }
+
+    /**
+     * Removes an entry from its meal plan and updates the day's and week's totals
+     *
+     * @param entryId The meal plan entry ID
+     * @return true if successful, false if the entry doesn't exist
+     */
+    public boolean removeMealPlanEntry(int entryId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("removeMealPlanEntry")) {
+            connection.setAutoCommit(false);
+            try {
+                String query = "SELECT planId, dayOfWeek, servings, totalTime, ingredientCount "
+                        + "FROM meal_plan_entries WHERE id = ?";
+                try (PreparedStatement pstmt = statements().prepare(query)) {
+                    pstmt.setInt(1, entryId);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (!rs.next()) {
+                        connection.rollback();
+                        return false;
+                    }
+                    applyMealPlanDelta(rs.getInt("planId"), rs.getInt("dayOfWeek"), -1,
+                            -rs.getInt("totalTime"), -rs.getInt("servings"), -rs.getInt("ingredientCount"));
+                }
+
+                try (PreparedStatement pstmt = statements().prepare("DELETE FROM meal_plan_entries WHERE id = ?")) {
+                    pstmt.setInt(1, entryId);
+                    pstmt.executeUpdate();
+                }
+
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
-            
-            // Commit the transaction
-            connection.commit();
-            return true;
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
         }
     }
 
     /**
-     * Adds a comment to a meal post
-     * 
-     * @param userId The user ID adding the comment
-     * @param mealId The meal post ID being commented on
-     * @param content The comment content
+     * Deletes a meal plan with all its entries
+     *
+     * @param planId The meal plan ID
      * @return true if successful, false otherwise
      */
-    public boolean addComment(int userId, int mealId, String content) throws SQLException {
-        String query = "INSERT INTO comments (userId, mealId, content) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, mealId);
-            pstmt.setString(3, content);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+    public boolean deleteMealPlan(int planId) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("deleteMealPlan")) {
+            try (PreparedStatement pstmt = statements().prepare("DELETE FROM meal_plans WHERE id = ?")) {
+                pstmt.setInt(1, planId);
+                return pstmt.executeUpdate() > 0;
+            }
         }
     }
 
     /**
-     * Deletes a comment
-     * 
-     * @param commentId The comment ID to delete
-     * @param userId The user ID (to verify ownership)
-     * @return true if successful, false otherwise
+     * Loads every recipe the meal plan optimizer may choose from, with its ingredient IDs,
+     * in a single query streamed into primitive arrays
+     *
+     * @param dietaryFilter Only include recipes of this dietary type, or null for all
+     * @return The finished candidate set
      */
-    public boolean deleteComment(int commentId, int userId) throws SQLException {
-        // Check if the user is the owner of the comment or an admin
-        String checkQuery = "SELECT userId FROM comments WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(checkQuery)) {
-            pstmt.setInt(1, commentId);
-            
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                int commentUserId = rs.getInt("userId");
-                if (commentUserId != userId) {
-                    // Check if the user is an admin
-                    User user = getUserById(userId);
-                    if (user == null || user.getRole() != 1) {
-                        // Not the owner and not an admin
-                        return false;
+    public MealPlanCandidates getMealPlanCandidates(DietaryType dietaryFilter) throws SQLException {
+        try (QueryMetrics.Call call = metrics.startCall("getMealPlanCandidates")) {
+            MealPlanCandidates candidates = new MealPlanCandidates();
+            MealPostQuery spec = MealPostQuery.forMealPlan(dietaryFilter);
+
+            try (PreparedStatement pstmt = statements().prepare(spec.sql(MealPostQuery.Kind.PLAN_CANDIDATES))) {
+                spec.bind(pstmt, MealPostQuery.Kind.PLAN_CANDIDATES, connection(), null);
+                pstmt.setFetchSize(1000);
+                ResultSet rs = pstmt.executeQuery();
+                int lastMealId = -1;
+                while (rs.next()) {
+                    int mealId = rs.getInt("id");
+                    if (mealId != lastMealId) {
+                        candidates.addRecipe(mealId, rs.getInt("totalTime"), rs.getInt("upvotes"));
+                        lastMealId = mealId;
+                    }
+                    int ingredientId = rs.getInt("ingredientId");
+                    if (!rs.wasNull()) {
+                        candidates.addIngredient(ingredientId);
                     }
                 }
-            } else {
-                // Comment not found
-                return false;
             }
+            candidates.finish();
+            return candidates;
         }
-        
-        // Delete the comment
-        String deleteQuery = "DELETE FROM comments WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteQuery)) {
-            pstmt.setInt(1, commentId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+    }
+
+    // Adds to the stored totals of one day of a plan and of the plan's week
+    private void applyMealPlanDelta(int planId, int dayOfWeek, int meals, int totalTime, int servings,
+                                    int ingredientCount) throws SQLException {
+        String updateDay = "UPDATE meal_plan_days SET mealCount = mealCount + ?, totalTime = totalTime + ?, "
+                + "servings = servings + ?, ingredientCount = ingredientCount + ? "
+                + "WHERE planId = ? AND dayOfWeek = ?";
+        try (PreparedStatement pstmt = statements().prepare(updateDay)) {
+            pstmt.setInt(1, meals);
+            pstmt.setInt(2, totalTime);
+            pstmt.setInt(3, servings);
+            pstmt.setInt(4, ingredientCount);
+            pstmt.setInt(5, planId);
+            pstmt.setInt(6, dayOfWeek);
+            pstmt.executeUpdate();
+        }
+
+        String updatePlan = "UPDATE meal_plans SET mealCount = mealCount + ?, totalTime = totalTime + ?, "
+                + "servings = servings + ?, ingredientCount = ingredientCount + ? WHERE id = ?";
+        try (PreparedStatement pstmt = statements().prepare(updatePlan)) {
+            pstmt.setInt(1, meals);
+            pstmt.setInt(2, totalTime);
+            pstmt.setInt(3, servings);
+            pstmt.setInt(4, ingredientCount);
+            pstmt.setInt(5, planId);
+            pstmt.executeUpdate();
         }
     }
 
     /**
-     * Gets comments for a meal post
-     * 
+     * Removes the meal plan entries of meal posts about to be deleted, subtracting
+     * them from the plans' totals. Must be called inside the deleting transaction.
+     *
+     * @param mealCondition SQL condition on mealId selecting the deleted meal posts, with one parameter
+     * @param parameter The value of the condition's parameter
+     */
+    private void detachMealPlanEntries(String mealCondition, int parameter) throws SQLException {
+        String query = "SELECT planId, dayOfWeek, servings, totalTime, ingredientCount "
+                + "FROM meal_plan_entries WHERE " + mealCondition;
+        try (PreparedStatement pstmt = statements().prepare(query)) {
+            pstmt.setInt(1, parameter);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                applyMealPlanDelta(rs.getInt("planId"), rs.getInt("dayOfWeek"), -1,
+                        -rs.getInt("totalTime"), -rs.getInt("servings"), -rs.getInt("ingredientCount"));
+            }
+        }
+
+        try (PreparedStatement pstmt = statements().prepare("DELETE FROM meal_plan_entries WHERE " + mealCondition)) {
+            pstmt.setInt(1, parameter);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Brings the snapshots of a meal post's plan entries up to date after it was edited,
+     * applying only the difference to the plans' totals. Must be called inside the
+     * updating transaction.
+     *
      * @param mealId The meal post ID
-     * @return List of Comment objects
+     * @param totalTime The meal's new preparation plus cooking time
+     * @param ingredientCount The meal's new number of ingredients
      */
-    public List<Comment> getCommentsForMeal(int mealId) throws SQLException {
-        List<Comment> comments = new ArrayList<>();
-        
-        String query = "SELECT c.*, u.userName FROM comments c " 
-                + "JOIN users u ON c.userId = u.id " 
-                + "WHERE c.mealId = ? " 
-                + "ORDER BY c.creationDate DESC";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+    private void refreshMealPlanEntries(int mealId, int totalTime, int ingredientCount) throws SQLException {
+        String query = "SELECT planId, dayOfWeek, totalTime, ingredientCount FROM meal_plan_entries "
+                + "WHERE mealId = ? AND (totalTime <> ? OR ingredientCount <> ?)";
+        try (PreparedStatement pstmt = statements().prepare(query)) {
             pstmt.setInt(1, mealId);
-            
+            pstmt.setInt(2, totalTime);
+            pstmt.setInt(3, ingredientCount);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                Comment comment = new Comment();
-                comment.setId(rs.getInt("id"));
-                comment.setUserId(rs.getInt("userId"));
-                comment.setMealId(rs.getInt("mealId"));
-                comment.setContent(rs.getString("content"));
-                comment.setUsername(rs.getString("userName"));
-                if (rs.getTimestamp("creationDate") != null) {
-                    comment.setCreationDate(rs.getTimestamp("creationDate").toLocalDateTime());
-                }
-                
-                comments.add(comment);
+                applyMealPlanDelta(rs.getInt("planId"), rs.getInt("dayOfWeek"), 0,
+                        totalTime - rs.getInt("totalTime"), 0, ingredientCount - rs.getInt("ingredientCount"));
             }
         }
-        
-        return comments;
+
+        String update = "UPDATE meal_plan_entries SET totalTime = ?, ingredientCount = ? WHERE mealId = ?";
+        try (PreparedStatement pstmt = statements().prepare(update)) {
+            pstmt.setInt(1, totalTime);
+            pstmt.setInt(2, ingredientCount);
+            pstmt.setInt(3, mealId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Helper method to extract a meal plan and its weekly totals from a result set
+    private MealPlan extractMealPlanFromResultSet(ResultSet rs) throws SQLException {
+        Date weekStart = rs.getDate("weekStart");
+        MealPlan plan = new MealPlan(
+                rs.getInt("id"),
+                rs.getInt("userId"),
+                rs.getString("name"),
+                weekStart != null ? weekStart.toLocalDate() : null
+        );
+        plan.setWeekTotals(extractMealPlanTotals(rs));
+        return plan;
+    }
+
+    private MealPlanTotals extractMealPlanTotals(ResultSet rs) throws SQLException {
+        return new MealPlanTotals(
+                rs.getInt("mealCount"),
+                rs.getInt("totalTime"),
+                rs.getInt("servings"),
+                rs.getInt("ingredientCount")
+        );
     }
 
     // Check if the database is empty
     public boolean isDatabaseEmpty() throws SQLException {
-        String query = "SELECT COUNT(*) AS count FROM users";
-        ResultSet resultSet = statement.executeQuery(query);
-        if (resultSet.next()) {
-            return resultSet.getInt("count") == 0;
+        try (QueryMetrics.Call call = metrics.startCall("isDatabaseEmpty")) {
+            String query = "SELECT COUNT(*) AS count FROM users";
+            ResultSet resultSet = statement.executeQuery(query);
+            if (resultSet.next()) {
+                return resultSet.getInt("count") == 0;
+            }
+            return true;
         }
-        return true;
     }
 
     // Closes the database connection and statement.
     public void closeConnection() {
+        indexLoader.shutdownNow();
+        disableRecommendations();
+        disableSemanticSearch();
+        disableQueryMetricsDump();
+        disableSlowQueryLog();
+        if (statementCache != null) {
+            Log.info("Statement cache", "statistics", statementCache.getStatistics());
+            statementCache.close();
+        }
+        if (backgroundStatements != null) {
+            Log.info("Background statement cache", "statistics", backgroundStatements.getStatistics());
+            backgroundStatements.close();
+        }
+        try {
+            if (backgroundConnection != null)
+                backgroundConnection.close();
+        } catch (SQLException se) {
+            Log.error("Error closing background connection", se);
+        }
         try {
             if (statement != null)
                 statement.close();
         } catch (SQLException se2) {
-            se2.printStackTrace();
+            Log.error("Error closing statement", se2);
         }
         try {
             if (connection != null)
                 connection.close();
         } catch (SQLException se) {
-            se.printStackTrace();
+            Log.error("Error closing connection", se);
         }
     }
 }
\ No newline at end of file
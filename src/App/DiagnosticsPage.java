@@ -0,0 +1,283 @@
+package App;
+
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DiagnosticsPage class shows admins how the app is doing on this machine: the
+ * statements and caches in use, query latencies, memory and garbage collection, FX
+ * thread stalls, and the database's size and row counts. Figures are captured every
+ * few seconds on a background thread, which also formats them, so the FX thread only
+ * sets the text of a few labels and a slow capture never freezes the page.
+ */
+public class DiagnosticsPage {
+    private static final long REFRESH_MILLIS = 2_000;
+    private static final int MAX_METHODS = 15;
+    private static final int MAX_SLOW_SHAPES = 5;
+    private static final int MAX_RECENT_STALLS = 5;
+
+    private final DatabaseHelper databaseHelper;
+    private final User currentUser;
+    private ScheduledExecutorService sampler = null;
+    private DiagnosticsSnapshot previous = null;
+
+    private Label updatedLabel;
+    private Label statementsLabel;
+    private Label latencyLabel;
+    private Label memoryLabel;
+    private Label stallsLabel;
+    private Label databaseLabel;
+
+    public DiagnosticsPage(DatabaseHelper databaseHelper, User currentUser) {
+        this.databaseHelper = databaseHelper;
+        this.currentUser = currentUser;
+    }
+
+    public void show(Stage primaryStage) {
+        primaryStage.setTitle("Diagnostics - Ptyxes");
+
+        ScrollPane scrollPane = new ScrollPane();
+        scrollPane.setFitToWidth(true);
+        scrollPane.setStyle("-fx-background: " + DarkTheme.BACKGROUND_COLOR + ";");
+
+        VBox mainContainer = new VBox(15);
+        mainContainer.setPadding(new Insets(30));
+        mainContainer.setStyle(DarkTheme.CSS_BACKGROUND);
+
+        // Top navigation and back button
+        HBox topBar = new HBox(15);
+        topBar.setAlignment(Pos.CENTER_LEFT);
+
+        Button backButton = new Button("← Back to Recipes");
+        backButton.setStyle(DarkTheme.CSS_BUTTON);
+
+        backButton.setOnAction(e -> {
+            stopSampling();
+            MainPage mainPage = new MainPage(databaseHelper, currentUser);
+            mainPage.show(primaryStage);
+        });
+
+        updatedLabel = new Label("Collecting...");
+        updatedLabel.setStyle(DarkTheme.CSS_LABEL);
+
+        topBar.getChildren().addAll(backButton, updatedLabel);
+
+        Text titleText = new Text("Diagnostics");
+        titleText.setFont(Font.font("System", FontWeight.BOLD, 28));
+        titleText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        statementsLabel = createFigures();
+        latencyLabel = createFigures();
+        memoryLabel = createFigures();
+        stallsLabel = createFigures();
+        databaseLabel = createFigures();
+
+        mainContainer.getChildren().addAll(topBar, titleText,
+                createHeading("Statements and caches"), statementsLabel,
+                createHeading("Query latency"), latencyLabel,
+                createHeading("Memory and garbage collection"), memoryLabel,
+                createHeading("UI thread"), stallsLabel,
+                createHeading("Database"), databaseLabel);
+
+        scrollPane.setContent(mainContainer);
+        Scene scene = new Scene(scrollPane, 1000, 700);
+        DarkTheme.applyTheme(scene);
+
+        primaryStage.setScene(scene);
+        primaryStage.show();
+
+        startSampling();
+    }
+
+    private Text createHeading(String title) {
+        Text heading = new Text(title);
+        heading.setFont(Font.font("System", FontWeight.BOLD, 18));
+        heading.setFill(Color.web(DarkTheme.TEXT_COLOR));
+        return heading;
+    }
+
+    private Label createFigures() {
+        Label figures = new Label();
+        figures.setStyle(DarkTheme.CSS_LABEL);
+        figures.setFont(Font.font("Monospaced", 12));
+        return figures;
+    }
+
+    private void startSampling() {
+        // The sampler's row counts and file size are read on the background connection
+        sampler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> DatabaseHelper.newBackgroundThread(runnable, "ptyxes-diagnostics"));
+        sampler.scheduleWithFixedDelay(this::sample, 0, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopSampling() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+    }
+
+    // Runs on the sampler thread; only the finished text is handed to the FX thread
+    private void sample() {
+        try {
+            DiagnosticsSnapshot snapshot = DiagnosticsSnapshot.capture(databaseHelper);
+            String updated = String.format(Locale.ROOT, "Updated %s (collected in %.1f ms), every %d s",
+                    snapshot.getTakenAt().toLocalTime().withNano(0), snapshot.getCaptureNanos() / 1e6,
+                    REFRESH_MILLIS / 1000);
+            String statements = formatStatements(snapshot);
+            String latency = formatLatency(snapshot);
+            String memory = formatMemory(snapshot, previous);
+            String stalls = formatStalls(snapshot);
+            String database = formatDatabase(snapshot);
+            previous = snapshot;
+
+            Platform.runLater(() -> {
+                updatedLabel.setText(updated);
+                statementsLabel.setText(statements);
+                latencyLabel.setText(latency);
+                memoryLabel.setText(memory);
+                stallsLabel.setText(stalls);
+                databaseLabel.setText(database);
+            });
+        } catch (RuntimeException e) {
+            // A failed capture must not cancel the schedule
+            Platform.runLater(() -> updatedLabel.setText("Error collecting diagnostics: " + e.getMessage()));
+        }
+    }
+
+    private static String formatStatements(DiagnosticsSnapshot snapshot) {
+        StatementCache.Statistics cache = snapshot.getStatementCache();
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Prepared statements on the connection: %d in use, %d idle%n",
+                cache.getStatementsInUse(), cache.getIdleStatements()));
+        text.append("Statement cache: ").append(cache).append('\n');
+        text.append(formatHitRate("Search result cache", snapshot.getSearchCacheCounts()));
+        text.append(formatHitRate("Feed page cache", snapshot.getFeedCacheCounts()));
+        return text.toString().stripTrailing();
+    }
+
+    private static String formatHitRate(String name, long[] counts) {
+        long total = counts[0] + counts[1];
+        return String.format(Locale.ROOT, "%s: %d hits, %d misses (%.1f%% hit rate)%n", name, counts[0], counts[1],
+                total == 0 ? 0.0 : 100.0 * counts[0] / total);
+    }
+
+    private static String formatLatency(DiagnosticsSnapshot snapshot) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-32s %9s %7s %9s %9s %9s %9s%n", "Method (most total time first)", "calls",
+                "errors", "mean ms", "p50 ms", "p99 ms", "max ms"));
+        List<QueryMetrics.Statistics> methods = snapshot.getMethods();
+        for (QueryMetrics.Statistics method : methods.subList(0, Math.min(MAX_METHODS, methods.size()))) {
+            text.append(String.format(Locale.ROOT, "%-32s %9d %7d %9.2f %9.2f %9.2f %9.2f%n", method.getName(),
+                    method.getCalls(), method.getErrors(), method.getMeanNanos() / 1e6, method.getP50Nanos() / 1e6,
+                    method.getP99Nanos() / 1e6, method.getMaxNanos() / 1e6));
+        }
+        if (methods.size() > MAX_METHODS) {
+            text.append("... and ").append(methods.size() - MAX_METHODS).append(" more methods\n");
+        }
+
+        List<SlowQueryLog.ShapeSummary> shapes = snapshot.getSlowShapes();
+        if (!shapes.isEmpty()) {
+            text.append("\nSlowest statement shapes\n");
+            for (SlowQueryLog.ShapeSummary shape : shapes.subList(0, Math.min(MAX_SLOW_SHAPES, shapes.size()))) {
+                String scanned = shape.getScannedTables().isEmpty() ? ""
+                        : ", full scan of " + String.join(", ", shape.getScannedTables());
+                text.append(String.format(Locale.ROOT, "%6d x %8.1f ms max%s: %s%n", shape.getCount(),
+                        shape.getMaxNanos() / 1e6, scanned, abbreviate(shape.getShape(), 100)));
+            }
+        }
+        return text.toString().stripTrailing();
+    }
+
+    private static String formatMemory(DiagnosticsSnapshot snapshot, DiagnosticsSnapshot previous) {
+        StringBuilder text = new StringBuilder();
+        text.append("Heap: ").append(formatUsage(snapshot.getHeap())).append('\n');
+        text.append("Non-heap: ").append(formatUsage(snapshot.getNonHeap())).append('\n');
+        for (int i = 0; i < snapshot.getCollectors().size(); i++) {
+            DiagnosticsSnapshot.CollectorTotals gc = snapshot.getCollectors().get(i);
+            text.append(String.format("%s: %d collections, %d ms in total", gc.getName(), gc.getCount(),
+                    gc.getMillis()));
+            if (previous != null && i < previous.getCollectors().size()) {
+                // Collectors are listed in the same order every time
+                DiagnosticsSnapshot.CollectorTotals before = previous.getCollectors().get(i);
+                long count = gc.getCount() - before.getCount();
+                long millis = gc.getMillis() - before.getMillis();
+                text.append(String.format(Locale.ROOT, "; %d since the last update (%.1f ms each)", count,
+                        count == 0 ? 0.0 : millis / (double) count));
+            }
+            text.append('\n');
+        }
+        return text.toString().stripTrailing();
+    }
+
+    private static String formatUsage(MemoryUsage usage) {
+        return String.format(Locale.ROOT, "%.1f MB used, %.1f MB committed, %s max", usage.getUsed() / 1e6,
+                usage.getCommitted() / 1e6, usage.getMax() < 0 ? "no" : String.format(Locale.ROOT, "%.1f MB",
+                        usage.getMax() / 1e6));
+    }
+
+    private static String formatStalls(DiagnosticsSnapshot snapshot) {
+        if (!snapshot.hasStallMonitor()) {
+            return "The FX stall monitor is off.";
+        }
+        LatencyHistogram.Snapshot stalls = snapshot.getStalls();
+        LatencyHistogram.Snapshot pulses = snapshot.getPulses();
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "Stalls over %d ms: %d (p50 %.0f ms, p99 %.0f ms, max %.0f ms)%n",
+                snapshot.getStallThresholdMillis(), stalls.getCount(), stalls.getValueAtPercentile(0.50) / 1e6,
+                stalls.getValueAtPercentile(0.99) / 1e6, stalls.getMaxNanos() / 1e6));
+        for (Map.Entry<String, Long> entry : snapshot.getStallsByPage().entrySet()) {
+            text.append(String.format("%8d on %s%n", entry.getValue(), entry.getKey()));
+        }
+        text.append(String.format(Locale.ROOT, "Pulse layout passes: %d (p50 %.2f ms, p99 %.2f ms, max %.2f ms)%n",
+                pulses.getCount(), pulses.getValueAtPercentile(0.50) / 1e6, pulses.getValueAtPercentile(0.99) / 1e6,
+                pulses.getMaxNanos() / 1e6));
+
+        List<FxStallMonitor.Stall> recent = snapshot.getRecentStalls();
+        if (!recent.isEmpty()) {
+            text.append("\nRecent stalls\n");
+            for (FxStallMonitor.Stall stall : recent.subList(0, Math.min(MAX_RECENT_STALLS, recent.size()))) {
+                text.append(String.format(Locale.ROOT, "%s %8.0f ms on %s in %s%s%n",
+                        stall.getStartedAt().toLocalTime().withNano(0), stall.getDurationNanos() / 1e6,
+                        stall.getPage(), stall.getHandler(),
+                        stall.getDetail().equals(stall.getHandler()) ? "" : " at " + stall.getDetail()));
+            }
+        }
+        return text.toString().stripTrailing();
+    }
+
+    private static String formatDatabase(DiagnosticsSnapshot snapshot) {
+        if (snapshot.getDatabaseError() != null) {
+            return "Error reading the database: " + snapshot.getDatabaseError();
+        }
+        StringBuilder text = new StringBuilder();
+        long size = snapshot.getDatabaseFileSize();
+        text.append(size < 0 ? "In-memory database" : String.format(Locale.ROOT, "File size: %.1f MB", size / 1e6))
+                .append('\n');
+        for (Map.Entry<String, Long> entry : snapshot.getTableRowCounts().entrySet()) {
+            text.append(String.format("%-24s %12d rows%n", entry.getKey(), entry.getValue()));
+        }
+        return text.toString().stripTrailing();
+    }
+
+    private static String abbreviate(String text, int length) {
+        return text.length() <= length ? text : text.substring(0, length - 3) + "...";
+    }
+}
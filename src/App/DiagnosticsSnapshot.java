@@ -0,0 +1,244 @@
+package App;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DiagnosticsSnapshot class gathers the app's operational numbers at one moment:
+ * statement and cache counters, query latencies, heap and garbage collection, FX
+ * thread stalls, and the database's size and row counts. Capturing one runs a few
+ * queries and reads every counter, so it is meant to be done off the FX thread; the
+ * snapshot itself never changes afterwards and can be handed to any thread.
+ */
+public class DiagnosticsSnapshot {
+    private final LocalDateTime takenAt = LocalDateTime.now();
+    private long captureNanos;
+
+    private StatementCache.Statistics statementCache;
+    private long[] searchCacheCounts;
+    private long[] feedCacheCounts;
+    private List<QueryMetrics.Statistics> methods;
+    private List<SlowQueryLog.ShapeSummary> slowShapes = List.of();
+
+    private MemoryUsage heap;
+    private MemoryUsage nonHeap;
+    private final List<CollectorTotals> collectors = new ArrayList<>();
+
+    private FxStallMonitor stallMonitor;
+    private LatencyHistogram.Snapshot stalls;
+    private LatencyHistogram.Snapshot pulses;
+    private Map<String, Long> stallsByPage = Map.of();
+    private List<FxStallMonitor.Stall> recentStalls = List.of();
+
+    private long databaseFileSize = -1;
+    private Map<String, Long> tableRowCounts = Map.of();
+    private String databaseError = null;
+
+    private DiagnosticsSnapshot() {
+    }
+
+    /**
+     * Reads every counter of the app
+     *
+     * @param databaseHelper The connected database helper
+     * @return The snapshot; database figures are left out, with the error kept, if their queries fail
+     */
+    public static DiagnosticsSnapshot capture(DatabaseHelper databaseHelper) {
+        long start = System.nanoTime();
+        DiagnosticsSnapshot snapshot = new DiagnosticsSnapshot();
+
+        snapshot.statementCache = databaseHelper.getStatementCacheStatistics();
+        snapshot.searchCacheCounts = databaseHelper.getSearchCacheCounts();
+        snapshot.feedCacheCounts = databaseHelper.getFeedCacheCounts();
+        snapshot.methods = databaseHelper.getQueryMetrics().getMethodStatistics();
+        SlowQueryLog slowQueryLog = databaseHelper.getSlowQueryLog();
+        if (slowQueryLog != null) {
+            snapshot.slowShapes = slowQueryLog.getSummaries();
+        }
+
+        snapshot.heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        snapshot.nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            snapshot.collectors.add(new CollectorTotals(gc.getName(), Math.max(0, gc.getCollectionCount()),
+                    Math.max(0, gc.getCollectionTime())));
+        }
+
+        snapshot.stallMonitor = FxStallMonitor.getRunning();
+        if (snapshot.stallMonitor != null) {
+            snapshot.stalls = snapshot.stallMonitor.getStallLatency();
+            snapshot.pulses = snapshot.stallMonitor.getPulseLatency();
+            snapshot.stallsByPage = snapshot.stallMonitor.getStallCountsByPage();
+            snapshot.recentStalls = snapshot.stallMonitor.getRecentStalls();
+        }
+
+        try {
+            snapshot.databaseFileSize = databaseHelper.getDatabaseFileSize();
+            snapshot.tableRowCounts = databaseHelper.getTableRowCounts();
+        } catch (SQLException e) {
+            snapshot.databaseError = e.getMessage();
+        }
+
+        snapshot.captureNanos = System.nanoTime() - start;
+        return snapshot;
+    }
+
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+
+    /**
+     * Gets how long capturing the snapshot took
+     *
+     * @return The capture time in nanoseconds
+     */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    public StatementCache.Statistics getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Gets the search result cache's counters
+     *
+     * @return The hits and misses, in that order
+     */
+    public long[] getSearchCacheCounts() {
+        return searchCacheCounts;
+    }
+
+    /**
+     * Gets the feed page cache's counters
+     *
+     * @return The hits and misses, in that order
+     */
+    public long[] getFeedCacheCounts() {
+        return feedCacheCounts;
+    }
+
+    /**
+     * Gets the totals of every data access method
+     *
+     * @return One entry per method, the most total time first
+     */
+    public List<QueryMetrics.Statistics> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Gets the slow statements by shape
+     *
+     * @return The shape summaries, the most total time first; empty when slow queries aren't logged
+     */
+    public List<SlowQueryLog.ShapeSummary> getSlowShapes() {
+        return slowShapes;
+    }
+
+    public MemoryUsage getHeap() {
+        return heap;
+    }
+
+    public MemoryUsage getNonHeap() {
+        return nonHeap;
+    }
+
+    /**
+     * Gets the collections each garbage collector has done since the JVM started
+     *
+     * @return One entry per collector
+     */
+    public List<CollectorTotals> getCollectors() {
+        return collectors;
+    }
+
+    /**
+     * Checks whether the FX stall monitor is running
+     *
+     * @return true if the stall and pulse figures are filled in
+     */
+    public boolean hasStallMonitor() {
+        return stallMonitor != null;
+    }
+
+    public long getStallThresholdMillis() {
+        return stallMonitor != null ? stallMonitor.getThresholdMillis() : 0;
+    }
+
+    public LatencyHistogram.Snapshot getStalls() {
+        return stalls;
+    }
+
+    public LatencyHistogram.Snapshot getPulses() {
+        return pulses;
+    }
+
+    public Map<String, Long> getStallsByPage() {
+        return stallsByPage;
+    }
+
+    public List<FxStallMonitor.Stall> getRecentStalls() {
+        return recentStalls;
+    }
+
+    /**
+     * Gets the size of the database file
+     *
+     * @return The size in bytes, or -1 for an in-memory database or when it couldn't be read
+     */
+    public long getDatabaseFileSize() {
+        return databaseFileSize;
+    }
+
+    public Map<String, Long> getTableRowCounts() {
+        return tableRowCounts;
+    }
+
+    /**
+     * Gets why the database figures are missing
+     *
+     * @return The error message, or null if they were read
+     */
+    public String getDatabaseError() {
+        return databaseError;
+    }
+
+    /**
+     * The collections one garbage collector has done
+     */
+    public static final class CollectorTotals {
+        private final String name;
+        private final long count;
+        private final long millis;
+
+        private CollectorTotals(String name, long count, long millis) {
+            this.name = name;
+            this.count = count;
+            this.millis = millis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the time spent collecting, which for the young and mixed collections of
+         * G1 is time the application was paused
+         *
+         * @return The total in milliseconds
+         */
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
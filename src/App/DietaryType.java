@@ -0,0 +1,85 @@
+package App;
+
+/**
+ * The DietaryType enum represents the dietary restriction a meal post satisfies.
+ * Each value is stored in the database as a compact numeric code rather than
+ * as its display label.
+ */
+public enum DietaryType {
+    VEGAN(0, "Vegan"),
+    VEGETARIAN(1, "Vegetarian"),
+    NONE(2, "None");
+
+    private static final DietaryType[] BY_CODE = new DietaryType[values().length];
+
+    static {
+        for (DietaryType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+    private final String label;
+
+    DietaryType(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the dietary types a post may have in order to match this type when used
+     * as a filter. Vegan posts are also vegetarian, so they match the vegetarian filter.
+     *
+     * @return The matching dietary types
+     */
+    public DietaryType[] getMatchingTypes() {
+        if (this == VEGETARIAN) {
+            return new DietaryType[] { VEGETARIAN, VEGAN };
+        }
+        return new DietaryType[] { this };
+    }
+
+    /**
+     * Looks up a dietary type by its database code
+     *
+     * @param code The stored code
+     * @return The matching DietaryType, or NONE if the code is unknown
+     */
+    public static DietaryType fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            return NONE;
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Looks up a dietary type by its display label (case-insensitive)
+     *
+     * @param label The label (e.g., "Vegan", "Vegetarian", "None")
+     * @return The matching DietaryType, or null if the label is unknown or "All"
+     */
+    public static DietaryType fromLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        for (DietaryType type : values()) {
+            if (type.label.equalsIgnoreCase(label.trim())) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,72 @@
+package App;
+
+/**
+ * The Difficulty enum represents how hard a meal post is to prepare.
+ * Each value is stored in the database as a compact numeric code rather than
+ * as its display label.
+ */
+public enum Difficulty {
+    EASY(0, "Easy"),
+    MEDIUM(1, "Medium"),
+    HARD(2, "Hard");
+
+    private static final Difficulty[] BY_CODE = new Difficulty[values().length];
+
+    static {
+        for (Difficulty difficulty : values()) {
+            BY_CODE[difficulty.code] = difficulty;
+        }
+    }
+
+    private final int code;
+    private final String label;
+
+    Difficulty(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Looks up a difficulty by its database code
+     *
+     * @param code The stored code
+     * @return The matching Difficulty, or null if the code is unknown
+     */
+    public static Difficulty fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            return null;
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Looks up a difficulty by its display label (case-insensitive)
+     *
+     * @param label The label (e.g., "Easy", "Medium", "Hard")
+     * @return The matching Difficulty, or null if the label is unknown or "All"
+     */
+    public static Difficulty fromLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        for (Difficulty difficulty : values()) {
+            if (difficulty.label.equalsIgnoreCase(label.trim())) {
+                return difficulty;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,63 @@
+package App;
+
+/**
+ * The FacetCounts class holds the number of meal posts each sidebar filter choice
+ * would yield under the current search text and the other selected filters.
+ */
+public class FacetCounts {
+    private final int[] difficultyCounts;
+    private final int allDifficultiesCount;
+    private final int[] timeCounts;
+    private final int allTimesCount;
+    private final int[] dietaryCounts;
+    private final int allDietaryCount;
+
+    public FacetCounts(int[] difficultyCounts, int allDifficultiesCount, int[] timeCounts, int allTimesCount,
+                       int[] dietaryCounts, int allDietaryCount) {
+        this.difficultyCounts = difficultyCounts;
+        this.allDifficultiesCount = allDifficultiesCount;
+        this.timeCounts = timeCounts;
+        this.allTimesCount = allTimesCount;
+        this.dietaryCounts = dietaryCounts;
+        this.allDietaryCount = allDietaryCount;
+    }
+
+    /**
+     * Gets the count for a difficulty choice
+     *
+     * @param difficulty The difficulty, or null for "All"
+     * @return The number of matching posts
+     */
+    public int getDifficultyCount(Difficulty difficulty) {
+        return difficulty != null ? difficultyCounts[difficulty.getCode()] : allDifficultiesCount;
+    }
+
+    /**
+     * Gets the count for a time filter choice
+     *
+     * @param timeFilter "Quick", "Medium", "Long" or "All"
+     * @return The number of matching posts
+     */
+    public int getTimeCount(String timeFilter) {
+        int bucket = FacetIndex.timeBucket(timeFilter);
+        return bucket >= 0 ? timeCounts[bucket] : allTimesCount;
+    }
+
+    /**
+     * Gets the count for a dietary filter choice. Vegan posts are included in the
+     * vegetarian count, matching how the filter itself behaves.
+     *
+     * @param dietaryFilter The dietary type, or null for "All"
+     * @return The number of matching posts
+     */
+    public int getDietaryCount(DietaryType dietaryFilter) {
+        if (dietaryFilter == null) {
+            return allDietaryCount;
+        }
+        int count = 0;
+        for (DietaryType type : dietaryFilter.getMatchingTypes()) {
+            count += dietaryCounts[type.getCode()];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,218 @@
+package App;
+
+import java.util.Arrays;
+
+/**
+ * The FacetIndex class keeps one bitmap per facet value (difficulty, total time bucket
+ * and dietary type) over the rows of a MealPostColumnStore. Counting how many posts
+ * each sidebar choice would yield is then a single pass of AND and popcount over the
+ * bitmap words, no matter how many facet values there are.
+ */
+public class FacetIndex {
+    /** Time filter names in bucket order */
+    public static final String[] TIME_BUCKETS = { "Quick", "Medium", "Long" };
+
+    private long[] liveBits;
+    private final long[][] difficultyBits = new long[Difficulty.values().length][];
+    private final long[][] timeBits = new long[TIME_BUCKETS.length][];
+    private final long[][] dietaryBits = new long[DietaryType.values().length][];
+
+    public FacetIndex(int capacity) {
+        int words = wordsFor(capacity);
+        liveBits = new long[words];
+        for (int i = 0; i < difficultyBits.length; i++) {
+            difficultyBits[i] = new long[words];
+        }
+        for (int i = 0; i < timeBits.length; i++) {
+            timeBits[i] = new long[words];
+        }
+        for (int i = 0; i < dietaryBits.length; i++) {
+            dietaryBits[i] = new long[words];
+        }
+    }
+
+    /**
+     * Gets the time bucket a total time falls into
+     *
+     * @param totalTime Preparation plus cooking time in minutes
+     * @return The index into TIME_BUCKETS
+     */
+    public static int timeBucket(int totalTime) {
+        if (totalTime < 30) {
+            return 0;
+        }
+        return totalTime <= 60 ? 1 : 2;
+    }
+
+    /**
+     * Gets the bucket index of a time filter
+     *
+     * @param timeFilter "Quick", "Medium", "Long" or "All"
+     * @return The index into TIME_BUCKETS, or -1 for "All"
+     */
+    public static int timeBucket(String timeFilter) {
+        for (int i = 0; i < TIME_BUCKETS.length; i++) {
+            if (TIME_BUCKETS[i].equals(timeFilter)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the facet bits of a row, clearing any previous values
+     *
+     * @param row The row number in the column store
+     * @param difficultyCode The difficulty code, or a negative value if none
+     * @param totalTime Preparation plus cooking time in minutes
+     * @param dietaryCode The dietary type code
+     */
+    public void set(int row, int difficultyCode, int totalTime, int dietaryCode) {
+        ensureCapacity(row + 1);
+        clear(row);
+        int word = row >>> 6;
+        long bit = 1L << row;
+        liveBits[word] |= bit;
+        if (difficultyCode >= 0) {
+            difficultyBits[difficultyCode][word] |= bit;
+        }
+        timeBits[timeBucket(totalTime)][word] |= bit;
+        dietaryBits[dietaryCode][word] |= bit;
+    }
+
+    /**
+     * Clears all facet bits of a row
+     *
+     * @param row The row number in the column store
+     */
+    public void clear(int row) {
+        int word = row >>> 6;
+        if (word >= liveBits.length) {
+            return;
+        }
+        long mask = ~(1L << row);
+        liveBits[word] &= mask;
+        for (long[] bits : difficultyBits) {
+            bits[word] &= mask;
+        }
+        for (long[] bits : timeBits) {
+            bits[word] &= mask;
+        }
+        for (long[] bits : dietaryBits) {
+            bits[word] &= mask;
+        }
+    }
+
+    /**
+     * Clears every row from the given row onwards
+     *
+     * @param fromRow The first row to clear
+     */
+    public void truncate(int fromRow) {
+        int firstWord = fromRow >>> 6;
+        if (firstWord >= liveBits.length) {
+            return;
+        }
+        long keepMask = (fromRow & 63) == 0 ? 0L : -1L >>> (64 - (fromRow & 63));
+        truncate(liveBits, firstWord, keepMask);
+        for (long[] bits : difficultyBits) {
+            truncate(bits, firstWord, keepMask);
+        }
+        for (long[] bits : timeBits) {
+            truncate(bits, firstWord, keepMask);
+        }
+        for (long[] bits : dietaryBits) {
+            truncate(bits, firstWord, keepMask);
+        }
+    }
+
+    /**
+     * Counts the rows for every facet value in one pass. Each facet is counted under
+     * the selections of the other two facets, so the count next to a choice is the
+     * number of results selecting it would give.
+     *
+     * @param searchBits Bitmap of rows matching the search text, or null for no search
+     * @param difficulty The selected difficulty, or null for all
+     * @param timeFilter The selected time filter
+     * @param dietaryFilter The selected dietary type, or null for all
+     * @return The counts for every facet value
+     */
+    public FacetCounts count(long[] searchBits, Difficulty difficulty, String timeFilter, DietaryType dietaryFilter) {
+        long[] selectedDifficulty = difficulty != null ? difficultyBits[difficulty.getCode()] : null;
+        int selectedBucket = timeBucket(timeFilter);
+        long[] selectedTime = selectedBucket >= 0 ? timeBits[selectedBucket] : null;
+        DietaryType[] matchingDietary = dietaryFilter != null ? dietaryFilter.getMatchingTypes() : null;
+
+        int[] difficultyCounts = new int[difficultyBits.length];
+        int[] timeCounts = new int[timeBits.length];
+        int[] dietaryCounts = new int[dietaryBits.length];
+        int allDifficulties = 0;
+        int allTimes = 0;
+        int allDietary = 0;
+
+        for (int word = 0; word < liveBits.length; word++) {
+            long base = liveBits[word];
+            if (searchBits != null) {
+                base &= word < searchBits.length ? searchBits[word] : 0L;
+            }
+            if (base == 0) {
+                continue;
+            }
+
+            long difficultyMask = selectedDifficulty != null ? selectedDifficulty[word] : -1L;
+            long timeMask = selectedTime != null ? selectedTime[word] : -1L;
+            long dietaryMask = -1L;
+            if (matchingDietary != null) {
+                dietaryMask = 0L;
+                for (DietaryType type : matchingDietary) {
+                    dietaryMask |= dietaryBits[type.getCode()][word];
+                }
+            }
+
+            long forDifficulty = base & timeMask & dietaryMask;
+            long forTime = base & difficultyMask & dietaryMask;
+            long forDietary = base & difficultyMask & timeMask;
+            allDifficulties += Long.bitCount(forDifficulty);
+            allTimes += Long.bitCount(forTime);
+            allDietary += Long.bitCount(forDietary);
+            for (int i = 0; i < difficultyBits.length; i++) {
+                difficultyCounts[i] += Long.bitCount(forDifficulty & difficultyBits[i][word]);
+            }
+            for (int i = 0; i < timeBits.length; i++) {
+                timeCounts[i] += Long.bitCount(forTime & timeBits[i][word]);
+            }
+            for (int i = 0; i < dietaryBits.length; i++) {
+                dietaryCounts[i] += Long.bitCount(forDietary & dietaryBits[i][word]);
+            }
+        }
+
+        return new FacetCounts(difficultyCounts, allDifficulties, timeCounts, allTimes, dietaryCounts, allDietary);
+    }
+
+    private void ensureCapacity(int rows) {
+        int words = wordsFor(rows);
+        if (words <= liveBits.length) {
+            return;
+        }
+        words = Math.max(words, liveBits.length * 2);
+        liveBits = Arrays.copyOf(liveBits, words);
+        for (int i = 0; i < difficultyBits.length; i++) {
+            difficultyBits[i] = Arrays.copyOf(difficultyBits[i], words);
+        }
+        for (int i = 0; i < timeBits.length; i++) {
+            timeBits[i] = Arrays.copyOf(timeBits[i], words);
+        }
+        for (int i = 0; i < dietaryBits.length; i++) {
+            dietaryBits[i] = Arrays.copyOf(dietaryBits[i], words);
+        }
+    }
+
+    private static void truncate(long[] bits, int firstWord, long keepMask) {
+        bits[firstWord] &= keepMask;
+        Arrays.fill(bits, firstWord + 1, bits.length, 0L);
+    }
+
+    private static int wordsFor(int rows) {
+        return Math.max(1, (rows + 63) >>> 6);
+    }
+}
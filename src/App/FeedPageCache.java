@@ -0,0 +1,136 @@
+package App;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The FeedPageCache class holds recently loaded and prefetched pages of the main feed
+ * for a single feed query, so turning to an adjacent page is usually served from
+ * memory. Looking up a different feed query discards the pages of the previous one.
+ *
+ * Every write to meal posts invalidates the cache and bumps its version. Loads record
+ * the version they started at and are only stored if no write happened since, so a
+ * prefetch that raced with a write never puts stale posts back.
+ */
+public class FeedPageCache {
+    private final int capacity;
+    private final Map<Integer, List<MealPost>> pages;
+    private FeedQuery feedQuery = null;
+    private int totalPosts = -1;
+    private long version = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FeedPageCache(int capacity) {
+        this.capacity = capacity;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<MealPost>> eldest) {
+                return size() > FeedPageCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the current version, to be passed back when storing a load
+     *
+     * @return The number of invalidations so far
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets a cached page, switching the cache to the given feed query
+     *
+     * @param query The feed query being shown
+     * @param page The page number (0-based)
+     * @return The posts on the page, or null if not cached
+     */
+    public synchronized List<MealPost> getPage(FeedQuery query, int page) {
+        switchTo(query);
+        List<MealPost> posts = pages.get(page);
+        if (posts != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return posts;
+    }
+
+    /**
+     * Checks whether a page is cached without switching feed queries
+     *
+     * @param query The feed query
+     * @param page The page number (0-based)
+     * @return true if the page is cached for that query
+     */
+    public synchronized boolean hasPage(FeedQuery query, int page) {
+        return query.equals(feedQuery) && pages.containsKey(page);
+    }
+
+    /**
+     * Gets the cached number of posts matching a feed query
+     *
+     * @param query The feed query
+     * @return The number of posts, or -1 if not cached
+     */
+    public synchronized int getTotalPosts(FeedQuery query) {
+        return query.equals(feedQuery) ? totalPosts : -1;
+    }
+
+    /**
+     * Stores a loaded page if the feed query is still current and nothing was written
+     * since the load started
+     *
+     * @param query The feed query the page was loaded for
+     * @param page The page number (0-based)
+     * @param posts The posts on the page
+     * @param loadVersion The version when the load started
+     */
+    public synchronized void putPage(FeedQuery query, int page, List<MealPost> posts, long loadVersion) {
+        if (loadVersion == version && query.equals(feedQuery)) {
+            pages.put(page, posts);
+        }
+    }
+
+    /**
+     * Stores the number of posts matching a feed query, under the same conditions as putPage
+     *
+     * @param query The feed query the count was loaded for
+     * @param total The number of matching posts
+     * @param loadVersion The version when the load started
+     */
+    public synchronized void putTotalPosts(FeedQuery query, int total, long loadVersion) {
+        if (loadVersion == version && query.equals(feedQuery)) {
+            totalPosts = total;
+        }
+    }
+
+    /**
+     * Discards every cached page after a write
+     */
+    public synchronized void invalidate() {
+        version++;
+        pages.clear();
+        totalPosts = -1;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void switchTo(FeedQuery query) {
+        if (!query.equals(feedQuery)) {
+            feedQuery = query;
+            pages.clear();
+            totalPosts = -1;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package App;
+
+import java.util.Objects;
+
+/**
+ * The FeedQuery class is the search text, filters and sort order the main feed is
+ * currently showing. Two feed queries are equal when they would return the same pages.
+ */
+public final class FeedQuery {
+    private final String searchQuery;
+    private final Difficulty difficulty;
+    private final String timeFilter;
+    private final DietaryType dietaryFilter;
+    private final String sortMode;
+    private final int pageSize;
+
+    /**
+     * Creates a feed query
+     *
+     * @param searchQuery The search text, empty for none
+     * @param difficulty The difficulty filter, or null for all
+     * @param timeFilter "Quick", "Medium", "Long" or "All"
+     * @param dietaryFilter The dietary filter, or null for all
+     * @param sortMode The sort order
+     * @param pageSize The number of posts per page
+     */
+    public FeedQuery(String searchQuery, Difficulty difficulty, String timeFilter, DietaryType dietaryFilter,
+                     String sortMode, int pageSize) {
+        this.searchQuery = searchQuery != null ? searchQuery : "";
+        this.difficulty = difficulty;
+        this.timeFilter = timeFilter;
+        this.dietaryFilter = dietaryFilter;
+        this.sortMode = sortMode;
+        this.pageSize = pageSize;
+    }
+
+    public String getSearchQuery() {
+        return searchQuery;
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public String getTimeFilter() {
+        return timeFilter;
+    }
+
+    public DietaryType getDietaryFilter() {
+        return dietaryFilter;
+    }
+
+    public String getSortMode() {
+        return sortMode;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FeedQuery)) {
+            return false;
+        }
+        FeedQuery other = (FeedQuery) o;
+        return pageSize == other.pageSize
+                && searchQuery.equals(other.searchQuery)
+                && difficulty == other.difficulty
+                && Objects.equals(timeFilter, other.timeFilter)
+                && dietaryFilter == other.dietaryFilter
+                && Objects.equals(sortMode, other.sortMode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(searchQuery, difficulty, timeFilter, dietaryFilter, sortMode, pageSize);
+    }
+}
@@ -176,7 +176,7 @@ public class FirstPage {
             User user = databaseHelper.authenticateUser(username, password);
             return user != null;
         } catch (SQLException e) {
-            System.out.println("Authentication error: " + e.getMessage());
+            Log.error("Authentication error", e, "username", username);
             return false;
         }
     }
@@ -0,0 +1,183 @@
+package App;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The FuzzyTermIndex class holds the vocabulary that searches are spelled against:
+ * the words of recipe titles and ingredient names, each with the number of times it
+ * is used. It finds the known words within a small edit distance of a misspelled one
+ * ("spagetti" to "spaghetti") through a trigram index, so only words sharing enough
+ * three-letter fragments with the misspelling are compared letter by letter.
+ *
+ * A word of n letters has n + 2 trigrams once padded with boundary marks, and one
+ * edit changes at most four of them (three, unless it swaps two letters), so a word
+ * within distance d of the query shares at least (n + 2) - 4d of the query's trigrams.
+ */
+public class FuzzyTermIndex {
+    // Words shorter than this are only matched exactly; too many short words are one edit apart
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private final Map<String, Integer> uses = new HashMap<>();
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+
+    /**
+     * Splits text into the lowercase words the vocabulary is made of
+     *
+     * @param text The text to split
+     * @return The words, in order; empty for null text
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Adds one use of every word in the text
+     *
+     * @param text A title or ingredient name
+     */
+    public synchronized void addText(String text) {
+        for (String word : words(text)) {
+            if (uses.merge(word, 1, Integer::sum) == 1) {
+                for (String trigram : trigrams(word)) {
+                    termsByTrigram.computeIfAbsent(trigram, key -> new HashSet<>()).add(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes one use of every word in the text; words no longer used are forgotten
+     *
+     * @param text A title or ingredient name that was added before
+     */
+    public synchronized void removeText(String text) {
+        for (String word : words(text)) {
+            Integer remaining = uses.computeIfPresent(word, (key, count) -> count > 1 ? count - 1 : null);
+            if (remaining == null) {
+                for (String trigram : trigrams(word)) {
+                    Set<String> terms = termsByTrigram.get(trigram);
+                    if (terms != null) {
+                        terms.remove(word);
+                        if (terms.isEmpty()) {
+                            termsByTrigram.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized boolean contains(String word) {
+        return uses.containsKey(word);
+    }
+
+    /**
+     * Finds known words close to a word that isn't in the vocabulary
+     *
+     * @param word A lowercase word
+     * @param limit The maximum number of words
+     * @return The closest words, fewest edits first and most used first among equals
+     */
+    public synchronized List<String> similar(String word, int limit) {
+        List<String> similar = new ArrayList<>();
+        int maxDistance = maxDistance(word);
+        if (maxDistance == 0) {
+            return similar;
+        }
+
+        // Count the trigrams each known word shares with the query
+        List<String> grams = trigrams(word);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : grams) {
+            for (String term : termsByTrigram.getOrDefault(trigram, Set.of())) {
+                shared.merge(term, 1, Integer::sum);
+            }
+        }
+
+        int minShared = Math.max(1, grams.size() - 4 * maxDistance);
+        Map<String, Integer> distances = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            String term = entry.getKey();
+            if (entry.getValue() < minShared || Math.abs(term.length() - word.length()) > maxDistance) {
+                continue;
+            }
+            int distance = distance(word, term, maxDistance);
+            if (distance <= maxDistance) {
+                distances.put(term, distance);
+                similar.add(term);
+            }
+        }
+        similar.sort((a, b) -> !distances.get(a).equals(distances.get(b))
+                ? Integer.compare(distances.get(a), distances.get(b))
+                : Integer.compare(uses.get(b), uses.get(a)));
+        return similar.size() > limit ? new ArrayList<>(similar.subList(0, limit)) : similar;
+    }
+
+    // One edit for words of 4 to 7 letters, two for longer ones
+    private static int maxDistance(String word) {
+        if (word.length() < MIN_FUZZY_LENGTH) {
+            return 0;
+        }
+        return word.length() < 8 ? 1 : 2;
+    }
+
+    private static List<String> trigrams(String word) {
+        String padded = '#' + word + '#';
+        List<String> trigrams = new ArrayList<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Edit distance counting insertions, deletions, substitutions and swaps of adjacent
+     * letters, giving up once every alignment exceeds the limit
+     */
+    private static int distance(String a, String b, int limit) {
+        int[] rowBefore = new int[b.length() + 1];
+        int[] previousRow = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            row[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            // Rotate the three rows, reusing the oldest one for the new row
+            int[] oldest = rowBefore;
+            rowBefore = previousRow;
+            previousRow = row;
+            row = oldest;
+
+            row[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(row[j - 1] + 1, previousRow[j] + 1), previousRow[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, rowBefore[j - 2] + 1);
+                }
+                row[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+        }
+        return row[b.length()];
+    }
+}
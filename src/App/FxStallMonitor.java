@@ -0,0 +1,449 @@
+package App;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+/**
+ * The FxStallMonitor class watches the JavaFX Application Thread for stalls: stretches
+ * of time in which it doesn't get around to running queued work, which users see as
+ * the window freezing. A watchdog thread posts a small task to the FX thread every
+ * few milliseconds and waits for it to run. Once a task has waited longer than the
+ * threshold, the watchdog takes a stack sample of the FX thread on every check until
+ * the task runs, so a stall is known to within one check interval and the samples
+ * show what the thread was busy with.
+ *
+ * Each stall is attributed to the page shown at the time, and to the handler that was
+ * running in most samples: the innermost method of a page class, such as a button's
+ * action in MainPage, or the outermost method of the app's own classes when no page
+ * is on the stack. The innermost app method, often a DatabaseHelper query, is kept as
+ * detail. Stalls are written to a log file with their duration, page, handler, detail
+ * and stack, and the most recent are kept for the admin
+ * diagnostics page along with per-page counts and a histogram of stall lengths.
+ *
+ * The monitor also times every pulse of the watched stage's scenes, from the start
+ * of the pulse's layout pass to its end, which covers applying CSS and laying out
+ * the nodes the last handlers changed.
+ *
+ * One monitor runs for the whole app; pages find it with getRunning.
+ */
+public class FxStallMonitor {
+    private static final int MAX_RECENT_STALLS = 50;
+    private static final int MAX_SAMPLES_PER_STALL = 200;
+    private static final int MAX_LOGGED_FRAMES = 40;
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024;
+    private static final String APP_PACKAGE = "App.";
+
+    private static volatile FxStallMonitor running = null;
+
+    private final Path file;
+    private final long thresholdNanos;
+    private final long checkMillis;
+    private ScheduledExecutorService watchdog = null;
+    private Thread fxThread = null;
+
+    // Written by the watchdog; the FX thread only answers pings
+    private volatile long pingSentAt = 0;
+    private volatile long pongAt = 0;
+    private Stall stall = null;
+
+    private volatile String currentPage = "(none)";
+    private long pulseStart = 0;
+
+    private final LatencyHistogram pulseLatency = new LatencyHistogram();
+    private final LatencyHistogram stallLatency = new LatencyHistogram();
+    private final Map<String, LongAdder> stallsByPage = new ConcurrentHashMap<>();
+    private final ArrayDeque<Stall> recentStalls = new ArrayDeque<>();
+
+    /**
+     * Creates a monitor; it watches nothing until started
+     *
+     * @param file The file stalls are logged to
+     * @param thresholdMillis How long the FX thread may be busy before it counts as a stall
+     */
+    public FxStallMonitor(Path file, long thresholdMillis) {
+        this.file = file;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.checkMillis = Math.max(10, thresholdMillis / 5);
+    }
+
+    /**
+     * Gets the monitor started for the app
+     *
+     * @return The running monitor, or null when stalls aren't monitored
+     */
+    public static FxStallMonitor getRunning() {
+        return running;
+    }
+
+    /**
+     * Starts watching. Must be called on the FX Application Thread.
+     *
+     * @param stage The stage whose scenes' pulses are timed and whose pages stalls are attributed to
+     */
+    public synchronized void start(Stage stage) {
+        stop();
+        fxThread = Thread.currentThread();
+        stage.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            currentPage = callingPage();
+            watchPulses(newScene);
+        });
+        if (stage.getScene() != null) {
+            watchPulses(stage.getScene());
+        }
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ptyxes-fx-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleAtFixedRate(this::check, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        running = this;
+    }
+
+    /**
+     * Stops watching, finishing a stall still in progress and appending a summary to the log
+     */
+    public synchronized void stop() {
+        if (watchdog == null) {
+            return;
+        }
+        watchdog.shutdownNow();
+        try {
+            watchdog.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watchdog = null;
+        if (stall != null) {
+            finishStall(System.nanoTime() - pingSentAt);
+        }
+        if (running == this) {
+            running = null;
+        }
+        try {
+            StringBuilder summary = new StringBuilder();
+            writeSummary(summary);
+            append(summary.append('\n').toString());
+        } catch (IOException e) {
+            Log.error("Error writing FX stall summary", e, "file", file);
+        }
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * Gets the page shown on the watched stage
+     *
+     * @return The page's class name
+     */
+    public String getCurrentPage() {
+        return currentPage;
+    }
+
+    /**
+     * Gets the durations of the layout passes of every pulse so far
+     *
+     * @return A snapshot of the pulse histogram
+     */
+    public LatencyHistogram.Snapshot getPulseLatency() {
+        return pulseLatency.snapshot();
+    }
+
+    /**
+     * Gets the durations of every stall so far
+     *
+     * @return A snapshot of the stall histogram; its count is the number of stalls
+     */
+    public LatencyHistogram.Snapshot getStallLatency() {
+        return stallLatency.snapshot();
+    }
+
+    /**
+     * Gets the number of stalls on each page
+     *
+     * @return Stall counts by page name, sorted by name
+     */
+    public Map<String, Long> getStallCountsByPage() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : stallsByPage.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the most recent stalls
+     *
+     * @return Up to MAX_RECENT_STALLS stalls, the newest first
+     */
+    public List<Stall> getRecentStalls() {
+        synchronized (recentStalls) {
+            return new ArrayList<>(recentStalls);
+        }
+    }
+
+    /**
+     * Writes the stall and pulse totals as text
+     *
+     * @param out Where to write them
+     */
+    public void writeSummary(Appendable out) throws IOException {
+        LatencyHistogram.Snapshot stalls = getStallLatency();
+        LatencyHistogram.Snapshot pulses = getPulseLatency();
+        out.append(String.format(Locale.ROOT, "%s FX stalls over %d ms: %d, p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                LocalDateTime.now(), getThresholdMillis(), stalls.getCount(),
+                stalls.getValueAtPercentile(0.50) / 1e6, stalls.getValueAtPercentile(0.99) / 1e6,
+                stalls.getMaxNanos() / 1e6));
+        for (Map.Entry<String, Long> entry : getStallCountsByPage().entrySet()) {
+            out.append(String.format("%8d  %s%n", entry.getValue(), entry.getKey()));
+        }
+        out.append(String.format(Locale.ROOT, "Pulse layout passes: %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                pulses.getCount(), pulses.getValueAtPercentile(0.50) / 1e6, pulses.getValueAtPercentile(0.99) / 1e6,
+                pulses.getMaxNanos() / 1e6));
+    }
+
+    private void watchPulses(Scene scene) {
+        if (scene == null || scene.getProperties().containsKey(FxStallMonitor.class)) {
+            return;
+        }
+        // Both listeners run on the FX thread, so pulseStart needs no synchronization
+        scene.getProperties().put(FxStallMonitor.class, Boolean.TRUE);
+        scene.addPreLayoutPulseListener(() -> pulseStart = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> {
+            if (pulseStart != 0) {
+                pulseLatency.record(System.nanoTime() - pulseStart);
+                pulseStart = 0;
+            }
+        });
+    }
+
+    // Runs on the watchdog every checkMillis
+    private void check() {
+        try {
+            long sent = pingSentAt;
+            if (sent != 0 && pongAt >= sent) {
+                if (stall != null) {
+                    finishStall(pongAt - sent);
+                }
+                sent = 0;
+            }
+            long now = System.nanoTime();
+            if (sent == 0) {
+                pingSentAt = now;
+                try {
+                    Platform.runLater(() -> pongAt = System.nanoTime());
+                } catch (IllegalStateException e) {
+                    // The FX toolkit has exited, so there is nothing left to stall
+                    pingSentAt = 0;
+                }
+            } else if (now - sent >= thresholdNanos) {
+                if (stall == null) {
+                    stall = new Stall(LocalDateTime.now().minusNanos(now - sent), currentPage);
+                }
+                if (stall.samples.size() < MAX_SAMPLES_PER_STALL) {
+                    stall.samples.add(fxThread.getStackTrace());
+                }
+            }
+        } catch (RuntimeException e) {
+            // A failed check must not cancel the schedule
+            Log.warn("FX stall check failed", e);
+        }
+    }
+
+    private void finishStall(long nanos) {
+        Stall finished = stall;
+        stall = null;
+        finished.finish(nanos);
+        stallLatency.record(nanos);
+        stallsByPage.computeIfAbsent(finished.page, page -> new LongAdder()).increment();
+        synchronized (recentStalls) {
+            recentStalls.addFirst(finished);
+            if (recentStalls.size() > MAX_RECENT_STALLS) {
+                recentStalls.removeLast();
+            }
+        }
+        append(finished.toLogEntry());
+    }
+
+    // Rotates to a single older file once the log has grown too large
+    private void append(String text) {
+        try {
+            if (Files.exists(file) && Files.size(file) > MAX_FILE_BYTES) {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Log.error("Error writing FX stall log", e, "file", file);
+        }
+    }
+
+    // The page class showing itself, found on the stack of the setScene call
+    private static String callingPage() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .map(frame -> appClass(frame.getClassName()))
+                .filter(name -> name != null && name.endsWith("Page"))
+                .findFirst()
+                .orElse("(unknown)"));
+    }
+
+    // The app class a frame belongs to, without the package or inner class suffix
+    private static String appClass(String className) {
+        if (!className.startsWith(APP_PACKAGE) || className.equals(FxStallMonitor.class.getName())) {
+            return null;
+        }
+        String name = className.substring(APP_PACKAGE.length());
+        int inner = name.indexOf('$');
+        return inner >= 0 ? name.substring(0, inner) : name;
+    }
+
+    /**
+     * One stall of the FX thread
+     */
+    public static final class Stall {
+        private final LocalDateTime startedAt;
+        private final String page;
+        private final List<StackTraceElement[]> samples = new ArrayList<>();
+        private long durationNanos = 0;
+        private String handler = "(unknown)";
+        private String detail = "(unknown)";
+        private StackTraceElement[] stack = new StackTraceElement[0];
+
+        private Stall(LocalDateTime startedAt, String page) {
+            this.startedAt = startedAt;
+            this.page = page;
+        }
+
+        // Picks the most sampled handler, the most sampled detail within it, and one stack that was in both
+        private void finish(long nanos) {
+            durationNanos = nanos;
+            Map<String, Integer> handlerCounts = new HashMap<>();
+            Map<String, Map<String, Integer>> detailCounts = new HashMap<>();
+            Map<String, StackTraceElement[]> stacks = new HashMap<>();
+            for (StackTraceElement[] sample : samples) {
+                String innermost = null;
+                String outermost = null;
+                String pageFrame = null;
+                for (StackTraceElement element : sample) {
+                    String appClass = appClass(element.getClassName());
+                    if (appClass == null) {
+                        continue;
+                    }
+                    String frame = appClass + "." + element.getMethodName();
+                    if (innermost == null) {
+                        innermost = frame;
+                    }
+                    if (pageFrame == null && appClass.endsWith("Page")) {
+                        pageFrame = frame;
+                    }
+                    outermost = frame;
+                }
+                String sampleHandler = pageFrame != null ? pageFrame
+                        : outermost != null ? outermost : "(outside the app's code)";
+                String sampleDetail = innermost != null ? innermost : sampleHandler;
+                handlerCounts.merge(sampleHandler, 1, Integer::sum);
+                detailCounts.computeIfAbsent(sampleHandler, key -> new HashMap<>()).merge(sampleDetail, 1, Integer::sum);
+                stacks.putIfAbsent(sampleHandler + " " + sampleDetail, sample);
+            }
+            handler = mostCommon(handlerCounts, handler);
+            Map<String, Integer> details = detailCounts.get(handler);
+            if (details != null) {
+                detail = mostCommon(details, detail);
+                stack = stacks.get(handler + " " + detail);
+            }
+            samples.clear();
+        }
+
+        private static String mostCommon(Map<String, Integer> counts, String fallback) {
+            String common = fallback;
+            int best = 0;
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() > best) {
+                    best = entry.getValue();
+                    common = entry.getKey();
+                }
+            }
+            return common;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * Gets the page shown when the stall began
+         *
+         * @return The page's class name
+         */
+        public String getPage() {
+            return page;
+        }
+
+        /**
+         * Gets the app method the FX thread was in for most of the stall
+         *
+         * @return The class and method name, such as MainPage.loadMealPosts
+         */
+        public String getHandler() {
+            return handler;
+        }
+
+        /**
+         * Gets the innermost app method the FX thread was in during the handler, such as
+         * the query the handler was waiting on
+         *
+         * @return The class and method name, such as DatabaseHelper.getFeedPage
+         */
+        public String getDetail() {
+            return detail;
+        }
+
+        /**
+         * Gets a stack sample taken in the handler
+         *
+         * @return The FX thread's stack, innermost frame first
+         */
+        public StackTraceElement[] getStack() {
+            return stack;
+        }
+
+        private String toLogEntry() {
+            StringBuilder entry = new StringBuilder();
+            entry.append(startedAt).append(String.format(Locale.ROOT, " FX thread stalled %.1f ms on %s in %s%s%n",
+                    durationNanos / 1e6, page, handler, detail.equals(handler) ? "" : " at " + detail));
+            for (int i = 0; i < stack.length && i < MAX_LOGGED_FRAMES; i++) {
+                entry.append("    at ").append(stack[i]).append('\n');
+            }
+            if (stack.length > MAX_LOGGED_FRAMES) {
+                entry.append("    ... ").append(stack.length - MAX_LOGGED_FRAMES).append(" more\n");
+            }
+            return entry.append('\n').toString();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package App;
+
+/**
+ * The IngredientCategory enum groups ingredients by the aisle they are usually found in.
+ * Each value is stored in the database as a compact numeric code.
+ */
+public enum IngredientCategory {
+    PRODUCE(0, "Produce"),
+    MEAT(1, "Meat"),
+    SEAFOOD(2, "Seafood"),
+    DAIRY(3, "Dairy"),
+    GRAINS(4, "Grains"),
+    SPICES(5, "Spices"),
+    PANTRY(6, "Pantry"),
+    OTHER(7, "Other");
+
+    private static final IngredientCategory[] BY_CODE = new IngredientCategory[values().length];
+
+    static {
+        for (IngredientCategory category : values()) {
+            BY_CODE[category.code] = category;
+        }
+    }
+
+    private final int code;
+    private final String label;
+
+    IngredientCategory(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Looks up a category by its database code
+     *
+     * @param code The stored code
+     * @return The matching IngredientCategory, or OTHER if the code is unknown
+     */
+    public static IngredientCategory fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            return OTHER;
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Looks up a category by its display label (case-insensitive)
+     *
+     * @param label The label (e.g., "Produce", "Dairy")
+     * @return The matching IngredientCategory, null for a blank label, or OTHER if unknown
+     */
+    public static IngredientCategory fromLabel(String label) {
+        if (label == null || label.isBlank()) {
+            return null;
+        }
+        for (IngredientCategory category : values()) {
+            if (category.label.equalsIgnoreCase(label.trim())) {
+                return category;
+            }
+        }
+        return OTHER;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
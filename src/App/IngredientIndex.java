@@ -0,0 +1,148 @@
+package App;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The IngredientIndex class is an in-memory prefix index over the ingredients table,
+ * used to suggest existing ingredient names while a user types. Ingredients are kept
+ * sorted by their lower-case name, so all names starting with a prefix form one
+ * contiguous range found by binary search. Suggestions within that range are ranked
+ * by how many meal posts use the ingredient.
+ */
+public class IngredientIndex {
+
+    // A single ingredient in the index
+    private static class Entry {
+        final int id;
+        final String name;
+        final String key;
+        int uses;
+
+        Entry(int id, String name, int uses) {
+            this.id = id;
+            this.name = name;
+            this.key = normalize(name);
+            this.uses = uses;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Integer, Entry> entriesById = new HashMap<>();
+    private final Map<String, Entry> entriesByKey = new HashMap<>();
+
+    /**
+     * Normalizes an ingredient name for lookups
+     *
+     * @param name The ingredient name
+     * @return The trimmed, lower-case name
+     */
+    public static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds an ingredient to the index, or updates its usage count if already present
+     *
+     * @param id The ingredient ID
+     * @param name The ingredient name
+     * @param uses The number of meal posts using the ingredient
+     */
+    public synchronized void put(int id, String name, int uses) {
+        Entry existing = entriesById.get(id);
+        if (existing != null) {
+            existing.uses = uses;
+            return;
+        }
+
+        Entry entry = new Entry(id, name, uses);
+        entries.add(lowerBound(entry.key), entry);
+        entriesById.put(id, entry);
+        entriesByKey.putIfAbsent(entry.key, entry);
+    }
+
+    /**
+     * Applies a change to an ingredient's usage count
+     *
+     * @param id The ingredient ID
+     * @param delta The change in the number of meal posts using it
+     */
+    public synchronized void adjustUses(int id, int delta) {
+        Entry entry = entriesById.get(id);
+        if (entry != null) {
+            entry.uses = Math.max(0, entry.uses + delta);
+        }
+    }
+
+    /**
+     * Finds an ingredient by name, ignoring case and surrounding whitespace
+     *
+     * @param name The ingredient name
+     * @return The ingredient ID, or -1 if not found
+     */
+    public synchronized int find(String name) {
+        Entry entry = entriesByKey.get(normalize(name));
+        return entry != null ? entry.id : -1;
+    }
+
+    /**
+     * Suggests ingredient names starting with a prefix, most used first
+     *
+     * @param prefix The text typed so far
+     * @param limit The maximum number of suggestions
+     * @return The suggested names
+     */
+    public synchronized List<String> suggest(String prefix, int limit) {
+        List<String> suggestions = new ArrayList<>();
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+
+        // Keep the best `limit` entries of the prefix range, ordered by uses (descending)
+        Entry[] best = new Entry[limit];
+        int found = 0;
+        for (int i = lowerBound(key); i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (!entry.key.startsWith(key)) {
+                break;
+            }
+            if (found == limit && entry.uses <= best[limit - 1].uses) {
+                continue;
+            }
+            int position = found < limit ? found++ : limit - 1;
+            while (position > 0 && best[position - 1].uses < entry.uses) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = entry;
+        }
+
+        for (int i = 0; i < found; i++) {
+            suggestions.add(best[i].name);
+        }
+        return suggestions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Index of the first entry whose key is not less than the given key
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries.get(middle).key.compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,159 @@
+package App;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts durations in buckets whose width grows with the
+ * value, the way HdrHistogram does: every power of two is split into SUB_BUCKETS
+ * equal buckets, so any recorded value is known to within about 3% however large it
+ * is, and the whole range from a nanosecond to over an hour fits in a fixed array.
+ *
+ * Recording is lock-free (an atomic increment of one bucket, plus the running total and
+ * maximum), so many threads can record into the same histogram without waiting on
+ * each other. Reading takes a snapshot; values recorded while it is taken may or may
+ * not be in it.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values above 2^42 ns (about 73 minutes) are counted in the last bucket
+    private static final int MAX_VALUE_BITS = 42;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one duration
+     *
+     * @param nanos The duration in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_VALUE)));
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Copies the current counts
+     *
+     * @return A snapshot that later recording doesn't change
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.get(), maxNanos.get());
+    }
+
+    /**
+     * Clears every count. Values recorded at the same time may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    // Values below 2 * SUB_BUCKETS get a bucket each; above that, each power of two gets SUB_BUCKETS
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // The largest value that falls in a bucket
+    private static long highestValueIn(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * The counts of a histogram at one moment
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * Gets the duration a given share of the recorded values were at or below
+         *
+         * @param fraction The share, from 0 to 1 (0.99 for the 99th percentile)
+         * @return The upper edge of the bucket holding that value, capped at the maximum
+         */
+        public long getValueAtPercentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        /**
+         * Counts the recorded values known to be at or below a bound, as the cumulative
+         * buckets of a Prometheus histogram need
+         *
+         * @param nanos The bound
+         * @return The values in every bucket that lies wholly at or below the bound; the
+         *         bucket the bound falls inside is left out, so this can undercount by
+         *         about 3% of the bound
+         */
+        public long getCountAtOrBelow(long nanos) {
+            long seen = 0;
+            for (int i = 0; i < counts.length && highestValueIn(i) <= nanos; i++) {
+                seen += counts[i];
+            }
+            return seen;
+        }
+    }
+}
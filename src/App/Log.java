@@ -0,0 +1,422 @@
+package App;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The Log class is the app's logger. A log call copies its level, message, up to three
+ * key/value fields and an optional exception into a slot of a fixed ring buffer and
+ * returns; a background thread formats the entries and writes them out. The calling
+ * thread, often the FX Application Thread, never waits on console or file I/O.
+ *
+ * The ring buffer is lock-free: a caller claims a slot with a compare-and-set on the
+ * tail and publishes it by writing the slot's sequence number, which the writer thread
+ * waits on before reading the slot. The writer sleeps while the buffer is empty and is
+ * woken by the call that publishes into it, so an idle app has no thread polling the
+ * buffer. Slots are allocated once and reused, so logging
+ * allocates nothing itself, and a call below the configured level returns before
+ * touching the buffer. Primitive field values are boxed by the caller before the call,
+ * though, so a call with an int or long field that is often disabled should be guarded
+ * with isEnabled. When the writer falls behind and the buffer is full, new entries are
+ * dropped and counted rather than blocking the caller.
+ *
+ * Until setFile is called, entries go to the console as before: errors and warnings to
+ * System.err and the rest to System.out. Once logging to a file, every entry goes to the
+ * file and only warnings and errors are also copied to the console. The file is rotated
+ * once it grows past MAX_FILE_BYTES, keeping ROTATED_FILES older files next to it.
+ *
+ * The level is read from the ptyxes.logLevel property (DEBUG, INFO, WARN or ERROR;
+ * default INFO). Entries still buffered when the JVM exits are written by a shutdown hook.
+ */
+public final class Log {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+    private static final long MAX_FILE_BYTES = 10L * 1024 * 1024;
+    private static final int ROTATED_FILES = 5;
+
+    private static final Entry[] slots = new Entry[CAPACITY];
+    // A slot holds entry n once its sequence is n + 1
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static volatile long head = 0;
+    private static final LongAdder dropped = new LongAdder();
+
+    private static volatile Level level = parseLevel(System.getProperty("ptyxes.logLevel"));
+    private static volatile Path requestedFile = null;
+    private static volatile boolean stopping = false;
+    private static final Thread writer;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            slots[i] = new Entry();
+        }
+        writer = new Thread(Log::drain, "ptyxes-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::shutdown, "ptyxes-log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Checks whether entries of a level are kept, to skip building fields that would be thrown away
+     *
+     * @param entryLevel The level
+     * @return true if entries of the level are logged
+     */
+    public static boolean isEnabled(Level entryLevel) {
+        return entryLevel.ordinal() >= level.ordinal();
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Starts writing entries to a file instead of the console, appending to it if it
+     * exists. Warnings and errors still go to the console as well.
+     *
+     * @param file The log file
+     */
+    public static void setFile(Path file) {
+        requestedFile = file;
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Gets the number of entries lost because the buffer was full
+     *
+     * @return The number of dropped entries
+     */
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null, null, null, null, null, null, null);
+    }
+
+    public static void debug(String message, String key, Object value) {
+        log(Level.DEBUG, message, null, key, value, null, null, null, null);
+    }
+
+    public static void debug(String message, String key1, Object value1, String key2, Object value2) {
+        log(Level.DEBUG, message, null, key1, value1, key2, value2, null, null);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, null, null, null, null, null, null, null);
+    }
+
+    public static void info(String message, String key, Object value) {
+        log(Level.INFO, message, null, key, value, null, null, null, null);
+    }
+
+    public static void info(String message, String key1, Object value1, String key2, Object value2) {
+        log(Level.INFO, message, null, key1, value1, key2, value2, null, null);
+    }
+
+    public static void info(String message, String key1, Object value1, String key2, Object value2,
+                            String key3, Object value3) {
+        log(Level.INFO, message, null, key1, value1, key2, value2, key3, value3);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null, null, null, null, null, null, null);
+    }
+
+    public static void warn(String message, String key, Object value) {
+        log(Level.WARN, message, null, key, value, null, null, null, null);
+    }
+
+    public static void warn(String message, Throwable error) {
+        log(Level.WARN, message, error, null, null, null, null, null, null);
+    }
+
+    public static void warn(String message, Throwable error, String key, Object value) {
+        log(Level.WARN, message, error, key, value, null, null, null, null);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message, null, null, null, null, null, null, null);
+    }
+
+    public static void error(String message, Throwable error) {
+        log(Level.ERROR, message, error, null, null, null, null, null, null);
+    }
+
+    public static void error(String message, Throwable error, String key, Object value) {
+        log(Level.ERROR, message, error, key, value, null, null, null, null);
+    }
+
+    public static void error(String message, Throwable error, String key1, Object value1, String key2,
+                             Object value2) {
+        log(Level.ERROR, message, error, key1, value1, key2, value2, null, null);
+    }
+
+    /**
+     * Writes every entry logged so far, then stops the writer. Entries logged afterwards
+     * are dropped.
+     */
+    public static void shutdown() {
+        stopping = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void log(Level entryLevel, String message, Throwable error, String key1, Object value1,
+                            String key2, Object value2, String key3, Object value3) {
+        if (entryLevel.ordinal() < level.ordinal()) {
+            return;
+        }
+        long claim;
+        do {
+            claim = tail.get();
+            if (stopping || claim - head >= CAPACITY) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(claim, claim + 1));
+
+        int index = (int) (claim & MASK);
+        Entry entry = slots[index];
+        entry.level = entryLevel;
+        entry.timeMillis = System.currentTimeMillis();
+        entry.thread = Thread.currentThread().getName();
+        entry.message = message;
+        entry.error = error;
+        entry.key1 = key1;
+        entry.value1 = value1;
+        entry.key2 = key2;
+        entry.value2 = value2;
+        entry.key3 = key3;
+        entry.value3 = value3;
+        sequences.set(index, claim + 1);
+        // The writer may be asleep only if it had caught up to this entry; head is read after
+        // publishing, so either this sees the writer's head or the writer sees the entry
+        if (claim == head) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    // Runs on the writer thread for the life of the JVM
+    private static void drain() {
+        Output output = new Output();
+        StringBuilder line = new StringBuilder(256);
+        long reportedDrops = 0;
+        while (true) {
+            Path file = requestedFile;
+            if (file != null) {
+                requestedFile = null;
+                output.open(file);
+            }
+
+            long next = head;
+            int index = (int) (next & MASK);
+            if (sequences.get(index) != next + 1) {
+                long drops = dropped.sum();
+                if (drops > reportedDrops) {
+                    line.setLength(0);
+                    line.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(System.currentTimeMillis()),
+                                    ZoneId.systemDefault()))
+                            .append(" WARN  [ptyxes-log] Log buffer was full; dropped=")
+                            .append(drops - reportedDrops).append('\n');
+                    output.write(Level.WARN, line);
+                    reportedDrops = drops;
+                }
+                output.flush();
+                if (stopping) {
+                    output.close();
+                    return;
+                }
+                LockSupport.park();
+                continue;
+            }
+
+            Entry entry = slots[index];
+            Level entryLevel = entry.level;
+            format(entry, line);
+            entry.clear();
+            head = next + 1;
+            output.write(entryLevel, line);
+        }
+    }
+
+    private static void format(Entry entry, StringBuilder line) {
+        line.setLength(0);
+        line.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timeMillis), ZoneId.systemDefault()))
+                .append(' ').append(entry.level.name());
+        // Pads the level to the width of the longest name, so messages line up
+        for (int i = entry.level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(" [").append(entry.thread).append("] ").append(entry.message);
+        appendField(line, entry.key1, entry.value1);
+        appendField(line, entry.key2, entry.value2);
+        appendField(line, entry.key3, entry.value3);
+        if (entry.error != null) {
+            appendField(line, "error", entry.error.toString());
+            line.append('\n');
+            StringWriter trace = new StringWriter();
+            entry.error.printStackTrace(new PrintWriter(trace));
+            line.append(trace.toString().stripTrailing().indent(4).stripTrailing());
+        }
+        line.append('\n');
+    }
+
+    // Values with spaces or quotes are quoted, so fields can be split apart again
+    private static void appendField(StringBuilder line, String key, Object value) {
+        if (key == null) {
+            return;
+        }
+        String text = String.valueOf(value);
+        line.append(' ').append(key).append('=');
+        if (text.isEmpty() || text.indexOf(' ') >= 0 || text.indexOf('"') >= 0 || text.indexOf('=') >= 0) {
+            line.append('"').append(text.replace("\\", "\\\\").replace("\"", "\\\"")
+                    .replace("\n", "\\n")).append('"');
+        } else {
+            line.append(text);
+        }
+    }
+
+    private static Level parseLevel(String name) {
+        if (name == null) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    /** One slot of the ring buffer, filled by a logging thread and read by the writer */
+    private static final class Entry {
+        private Level level;
+        private long timeMillis;
+        private String thread;
+        private String message;
+        private Throwable error;
+        private String key1;
+        private Object value1;
+        private String key2;
+        private Object value2;
+        private String key3;
+        private Object value3;
+
+        // Drops the references, so logged values can be collected while the slot waits for reuse
+        private void clear() {
+            thread = null;
+            message = null;
+            error = null;
+            key1 = null;
+            value1 = null;
+            key2 = null;
+            value2 = null;
+            key3 = null;
+            value3 = null;
+        }
+    }
+
+    /** Where the writer thread puts formatted entries; used by that thread only */
+    private static final class Output {
+        private Path file = null;
+        private BufferedWriter fileWriter = null;
+        private long fileBytes = 0;
+
+        private void open(Path newFile) {
+            close();
+            file = newFile;
+            try {
+                fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+                fileBytes = Files.size(file);
+            } catch (IOException e) {
+                System.err.println("Could not open log file " + file + ": " + e.getMessage());
+                fileWriter = null;
+            }
+        }
+
+        private void write(Level entryLevel, StringBuilder line) {
+            if (fileWriter == null || entryLevel.compareTo(Level.WARN) >= 0) {
+                PrintStream console = entryLevel.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+                console.print(line);
+            }
+            if (fileWriter == null) {
+                return;
+            }
+            try {
+                if (fileBytes > MAX_FILE_BYTES) {
+                    rotate();
+                }
+                fileWriter.append(line);
+                // Close enough for deciding when to rotate; entries are mostly ASCII
+                fileBytes += line.length();
+            } catch (IOException e) {
+                System.err.println("Error writing log file: " + e.getMessage());
+            }
+        }
+
+        // file.1 is the newest older file
+        private void rotate() throws IOException {
+            fileWriter.close();
+            for (int i = ROTATED_FILES - 1; i >= 1; i--) {
+                Path older = file.resolveSibling(file.getFileName() + "." + i);
+                if (Files.exists(older)) {
+                    Files.move(older, file.resolveSibling(file.getFileName() + "." + (i + 1)),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            fileBytes = 0;
+        }
+
+        private void flush() {
+            System.out.flush();
+            if (fileWriter != null) {
+                try {
+                    fileWriter.flush();
+                } catch (IOException e) {
+                    System.err.println("Error writing log file: " + e.getMessage());
+                }
+            }
+        }
+
+        private void close() {
+            if (fileWriter != null) {
+                try {
+                    fileWriter.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing log file: " + e.getMessage());
+                }
+                fileWriter = null;
+            }
+        }
+    }
+}
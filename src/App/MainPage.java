@@ -1,5 +1,7 @@
 package App;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -10,10 +12,24 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The MainPage class displays meal posts after successful user login.
@@ -27,18 +43,46 @@ public class MainPage {
     private int currentPage = 0;
     private static final int PAGE_SIZE = 5;
     private String currentSearchQuery = "";
-    private String currentDifficulty = "All";
+    private Difficulty currentDifficulty = null; // null means all difficulties
     private String currentTimeFilter = "All";
-    private String currentDietaryFilter = "All";
+    private DietaryType currentDietaryFilter = null; // null means all dietary types
     private String currentSortMode = "Date"; // Default sort by date
+    private boolean semanticMode = false; // Search by meaning instead of keywords
+    private static final int SEMANTIC_RESULTS = 20;
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> DatabaseHelper.newBackgroundThread(runnable, "ptyxes-search"));
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> DatabaseHelper.newBackgroundThread(runnable, "ptyxes-prefetch"));
+    private final AtomicLong searchGeneration = new AtomicLong();
+    private final PauseTransition searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
     private VBox postsContainer;
+    private TextField searchField;
     private Text pageText;
     private Button prevButton;
     private Button nextButton;
+    private final List<RadioButton> difficultyOptions = new ArrayList<>();
+    private final List<RadioButton> timeOptions = new ArrayList<>();
+    private final List<RadioButton> dietaryOptions = new ArrayList<>();
+    private final Map<RadioButton, String> optionLabels = new HashMap<>();
+    private final Map<Integer, Integer> shoppingSelection; // meal post ID -> servings wanted
+    private Button shoppingListButton;
     
     public MainPage(DatabaseHelper databaseHelper, User currentUser) {
+        this(databaseHelper, currentUser, new LinkedHashMap<>());
+    }
+
+    /**
+     * Creates the main page, keeping the recipes already selected for the shopping list
+     *
+     * @param databaseHelper the database helper
+     * @param currentUser the logged in user
+     * @param shoppingSelection the selected meal post IDs, each with the number of servings wanted
+     */
+    public MainPage(DatabaseHelper databaseHelper, User currentUser, Map<Integer, Integer> shoppingSelection) {
         this.databaseHelper = databaseHelper;
         this.currentUser = currentUser;
+        this.shoppingSelection = shoppingSelection;
     }
 
     public void show(Stage primaryStage) {
@@ -55,6 +99,7 @@ public class MainPage {
         // Create sidebar for filtering and options
         VBox sidebar = createSidebar(primaryStage);
         root.setLeft(sidebar);
+        updateFacetCounts();
         
         // Create main content area for meal posts
         ScrollPane contentArea = new ScrollPane();
@@ -103,13 +148,29 @@ public class MainPage {
         appTitle.setFill(Color.web(DarkTheme.TEXT_COLOR));
         
         // Search field
-        TextField searchField = new TextField();
+        searchField = new TextField();
         searchField.setPromptText("Search recipes...");
         searchField.setStyle(DarkTheme.CSS_FIELD);
         searchField.setPrefWidth(300);
         
         Button searchButton = new Button("Search");
         searchButton.setStyle(DarkTheme.CSS_BUTTON);
+
+        // Alternate search mode, shown once the database helper's vector index is ready
+        CheckBox semanticCheckBox = new CheckBox("By meaning");
+        semanticCheckBox.setStyle(DarkTheme.CSS_LABEL);
+        semanticCheckBox.setSelected(semanticMode);
+        semanticCheckBox.setVisible(databaseHelper.isSemanticSearchEnabled());
+        semanticCheckBox.setManaged(databaseHelper.isSemanticSearchEnabled());
+        databaseHelper.onSemanticSearchReady(() -> Platform.runLater(() -> {
+            semanticCheckBox.setVisible(true);
+            semanticCheckBox.setManaged(true);
+        }));
+        semanticCheckBox.setOnAction(e -> {
+            semanticMode = semanticCheckBox.isSelected();
+            searchDebounce.stop();
+            runSearch(searchField.getText().trim());
+        });
         
         // Sort dropdown
         Label sortLabel = new Label("Sort by:");
@@ -130,22 +191,24 @@ public class MainPage {
         
         // Search functionality
         searchButton.setOnAction(e -> {
-            currentSearchQuery = searchField.getText().trim();
-            currentPage = 0;
-            loadMealPosts();
-            updatePaginationButtons();
+            searchDebounce.stop();
+            runSearch(searchField.getText().trim());
         });
         
         // Search on Enter key
         searchField.setOnKeyPressed(e -> {
             if (e.getCode() == KeyCode.ENTER) {
-                currentSearchQuery = searchField.getText().trim();
-                currentPage = 0;
-                loadMealPosts();
-                updatePaginationButtons();
+                searchDebounce.stop();
+                runSearch(searchField.getText().trim());
             }
         });
         
+        // Search as the user types, once they pause
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> {
+            searchDebounce.setOnFinished(e -> runSearch(newValue.trim()));
+            searchDebounce.playFromStart();
+        });
+        
         // Add hover effect
         searchButton.setOnMouseEntered(e -> searchButton.setStyle(DarkTheme.CSS_BUTTON + DarkTheme.CSS_BUTTON_HOVER));
         searchButton.setOnMouseExited(e -> searchButton.setStyle(DarkTheme.CSS_BUTTON));
@@ -178,7 +241,8 @@ public class MainPage {
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
         // Add all components to the top bar
-        topBar.getChildren().addAll(appTitle, searchField, searchButton, sortLabel, sortComboBox, spacer, userSection);
+        topBar.getChildren().addAll(appTitle, searchField, searchButton, semanticCheckBox, sortLabel, sortComboBox,
+                spacer, userSection);
         
         return topBar;
     }
@@ -208,31 +272,21 @@ public class MainPage {
         
         ToggleGroup difficultyGroup = new ToggleGroup();
         
-        RadioButton easyOption = new RadioButton("Easy");
-        easyOption.setStyle(DarkTheme.CSS_LABEL);
-        easyOption.setToggleGroup(difficultyGroup);
-        
-        RadioButton mediumOption = new RadioButton("Medium");
-        mediumOption.setStyle(DarkTheme.CSS_LABEL);
-        mediumOption.setToggleGroup(difficultyGroup);
-        
-        RadioButton hardOption = new RadioButton("Hard");
-        hardOption.setStyle(DarkTheme.CSS_LABEL);
-        hardOption.setToggleGroup(difficultyGroup);
-        
-        RadioButton allOption = new RadioButton("All");
-        allOption.setStyle(DarkTheme.CSS_LABEL);
-        allOption.setToggleGroup(difficultyGroup);
+        RadioButton easyOption = createFilterOption("Easy", Difficulty.EASY, difficultyGroup, difficultyOptions);
+        RadioButton mediumOption = createFilterOption("Medium", Difficulty.MEDIUM, difficultyGroup, difficultyOptions);
+        RadioButton hardOption = createFilterOption("Hard", Difficulty.HARD, difficultyGroup, difficultyOptions);
+        RadioButton allOption = createFilterOption("All", null, difficultyGroup, difficultyOptions);
         allOption.setSelected(true);
         
         // Add filter change listeners
         difficultyGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> {
             if (newValue != null) {
                 RadioButton selected = (RadioButton) newValue;
-                currentDifficulty = selected.getText();
+                currentDifficulty = (Difficulty) selected.getUserData();
                 currentPage = 0;
                 loadMealPosts();
                 updatePaginationButtons();
+                updateFacetCounts();
             }
         });
         
@@ -245,30 +299,20 @@ public class MainPage {
         
         ToggleGroup timeGroup = new ToggleGroup();
         
-        RadioButton quick = new RadioButton("Quick (<30 min)");
-        quick.setStyle(DarkTheme.CSS_LABEL);
-        quick.setToggleGroup(timeGroup);
-        
-        RadioButton medium = new RadioButton("Medium (30-60 min)");
-        medium.setStyle(DarkTheme.CSS_LABEL);
-        medium.setToggleGroup(timeGroup);
-        
-        RadioButton long_ = new RadioButton("Long (>60 min)");
-        long_.setStyle(DarkTheme.CSS_LABEL);
-        long_.setToggleGroup(timeGroup);
-        
-        RadioButton allTimes = new RadioButton("All");
-        allTimes.setStyle(DarkTheme.CSS_LABEL);
-        allTimes.setToggleGroup(timeGroup);
+        RadioButton quick = createFilterOption("Quick (<30 min)", "Quick", timeGroup, timeOptions);
+        RadioButton medium = createFilterOption("Medium (30-60 min)", "Medium", timeGroup, timeOptions);
+        RadioButton long_ = createFilterOption("Long (>60 min)", "Long", timeGroup, timeOptions);
+        RadioButton allTimes = createFilterOption("All", "All", timeGroup, timeOptions);
         allTimes.setSelected(true);
         
         timeGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> {
             if (newValue != null) {
                 RadioButton selected = (RadioButton) newValue;
-                currentTimeFilter = selected.getText().split(" ")[0]; // Get just the first word (Quick, Medium, Long, All)
+                currentTimeFilter = (String) selected.getUserData();
                 currentPage = 0;
                 loadMealPosts();
                 updatePaginationButtons();
+                updateFacetCounts();
             }
         });
         
@@ -281,30 +325,20 @@ public class MainPage {
 
         ToggleGroup dietaryGroup = new ToggleGroup();
 
-        RadioButton veganOption = new RadioButton("Vegan");
-        veganOption.setStyle(DarkTheme.CSS_LABEL);
-        veganOption.setToggleGroup(dietaryGroup);
-
-        RadioButton vegetarianOption = new RadioButton("Vegetarian");
-        vegetarianOption.setStyle(DarkTheme.CSS_LABEL);
-        vegetarianOption.setToggleGroup(dietaryGroup);
-
-        RadioButton noneOption = new RadioButton("None");
-        noneOption.setStyle(DarkTheme.CSS_LABEL);
-        noneOption.setToggleGroup(dietaryGroup);
-
-        RadioButton allDietaryOption = new RadioButton("All");
-        allDietaryOption.setStyle(DarkTheme.CSS_LABEL);
-        allDietaryOption.setToggleGroup(dietaryGroup);
+        RadioButton veganOption = createFilterOption("Vegan", DietaryType.VEGAN, dietaryGroup, dietaryOptions);
+        RadioButton vegetarianOption = createFilterOption("Vegetarian", DietaryType.VEGETARIAN, dietaryGroup, dietaryOptions);
+        RadioButton noneOption = createFilterOption("None", DietaryType.NONE, dietaryGroup, dietaryOptions);
+        RadioButton allDietaryOption = createFilterOption("All", null, dietaryGroup, dietaryOptions);
         allDietaryOption.setSelected(true);
 
         dietaryGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> {
             if (newValue != null) {
                 RadioButton selected = (RadioButton) newValue;
-                currentDietaryFilter = selected.getText();
+                currentDietaryFilter = (DietaryType) selected.getUserData();
                 currentPage = 0;
                 loadMealPosts();
                 updatePaginationButtons();
+                updateFacetCounts();
             }
         });
 
@@ -327,7 +361,72 @@ public class MainPage {
         newPostButton.setOnMouseEntered(e -> newPostButton.setStyle(DarkTheme.CSS_BUTTON + DarkTheme.CSS_BUTTON_HOVER));
         newPostButton.setOnMouseExited(e -> newPostButton.setStyle(DarkTheme.CSS_BUTTON));
         
-        userActions.getChildren().add(newPostButton);
+        shoppingListButton = new Button();
+        shoppingListButton.setStyle(DarkTheme.CSS_BUTTON);
+        shoppingListButton.setMaxWidth(Double.MAX_VALUE);
+        updateShoppingListButton();
+
+        shoppingListButton.setOnAction(e -> {
+            ShoppingListPage shoppingListPage = new ShoppingListPage(databaseHelper, currentUser, shoppingSelection);
+            shoppingListPage.show(primaryStage);
+        });
+
+        shoppingListButton.setOnMouseEntered(e -> shoppingListButton.setStyle(DarkTheme.CSS_BUTTON + DarkTheme.CSS_BUTTON_HOVER));
+        shoppingListButton.setOnMouseExited(e -> shoppingListButton.setStyle(DarkTheme.CSS_BUTTON));
+
+        Button mealPlannerButton = new Button("Meal Planner");
+        mealPlannerButton.setStyle(DarkTheme.CSS_BUTTON);
+        mealPlannerButton.setMaxWidth(Double.MAX_VALUE);
+
+        mealPlannerButton.setOnAction(e -> {
+            MealPlannerPage mealPlannerPage = new MealPlannerPage(databaseHelper, currentUser);
+            mealPlannerPage.show(primaryStage);
+        });
+
+        mealPlannerButton.setOnMouseEntered(e -> mealPlannerButton.setStyle(DarkTheme.CSS_BUTTON + DarkTheme.CSS_BUTTON_HOVER));
+        mealPlannerButton.setOnMouseExited(e -> mealPlannerButton.setStyle(DarkTheme.CSS_BUTTON));
+
+        Button exportButton = new Button("Export Results (CSV)");
+        exportButton.setStyle(DarkTheme.CSS_BUTTON);
+        exportButton.setMaxWidth(Double.MAX_VALUE);
+
+        exportButton.setOnAction(e -> exportResults(primaryStage));
+
+        exportButton.setOnMouseEntered(e -> exportButton.setStyle(DarkTheme.CSS_BUTTON + DarkTheme.CSS_BUTTON_HOVER));
+        exportButton.setOnMouseExited(e -> exportButton.setStyle(DarkTheme.CSS_BUTTON));
+
+        userActions.getChildren().addAll(newPostButton, shoppingListButton, mealPlannerButton, exportButton);
+
+        // Moderation tools
+        if (currentUser.isAdmin()) {
+            Button duplicateReportButton = new Button("Near-Duplicate Report");
+            duplicateReportButton.setStyle(DarkTheme.CSS_BUTTON);
+            duplicateReportButton.setMaxWidth(Double.MAX_VALUE);
+
+            duplicateReportButton.setOnAction(e -> {
+                NearDuplicateReportPage reportPage = new NearDuplicateReportPage(databaseHelper, currentUser);
+                reportPage.show(primaryStage);
+            });
+
+            duplicateReportButton.setOnMouseEntered(e -> duplicateReportButton.setStyle(DarkTheme.CSS_BUTTON + DarkTheme.CSS_BUTTON_HOVER));
+            duplicateReportButton.setOnMouseExited(e -> duplicateReportButton.setStyle(DarkTheme.CSS_BUTTON));
+
+            userActions.getChildren().add(duplicateReportButton);
+
+            Button diagnosticsButton = new Button("Diagnostics");
+            diagnosticsButton.setStyle(DarkTheme.CSS_BUTTON);
+            diagnosticsButton.setMaxWidth(Double.MAX_VALUE);
+
+            diagnosticsButton.setOnAction(e -> {
+                DiagnosticsPage diagnosticsPage = new DiagnosticsPage(databaseHelper, currentUser);
+                diagnosticsPage.show(primaryStage);
+            });
+
+            diagnosticsButton.setOnMouseEntered(e -> diagnosticsButton.setStyle(DarkTheme.CSS_BUTTON + DarkTheme.CSS_BUTTON_HOVER));
+            diagnosticsButton.setOnMouseExited(e -> diagnosticsButton.setStyle(DarkTheme.CSS_BUTTON));
+
+            userActions.getChildren().add(diagnosticsButton);
+        }
         
         // Add all components to the sidebar
         sidebar.getChildren().addAll(filterTitle, difficultyFilter, timeFilter, dietaryFilter, userActions);
@@ -335,6 +434,110 @@ public class MainPage {
         return sidebar;
     }
 
+    /**
+     * Creates a sidebar filter radio button. The filter value is kept as the button's
+     * user data so the label can show a live result count next to it.
+     *
+     * @param label the label shown next to the button
+     * @param value the filter value selected by the button (null means no filter)
+     * @param group the toggle group the button belongs to
+     * @param options the list of buttons of the same filter, used for updating counts
+     * @return the configured RadioButton
+     */
+    private RadioButton createFilterOption(String label, Object value, ToggleGroup group, List<RadioButton> options) {
+        RadioButton option = new RadioButton(label);
+        option.setStyle(DarkTheme.CSS_LABEL);
+        option.setToggleGroup(group);
+        option.setUserData(value);
+        optionLabels.put(option, label);
+        options.add(option);
+        return option;
+    }
+
+    /**
+     * Updates the result counts shown next to each sidebar filter choice for the
+     * current search text and filters.
+     */
+    private void updateFacetCounts() {
+        long generation = searchGeneration.get();
+        String query = currentSearchQuery;
+        Difficulty difficulty = currentDifficulty;
+        String timeFilter = currentTimeFilter;
+        DietaryType dietaryFilter = currentDietaryFilter;
+
+        SEARCH_EXECUTOR.execute(() -> {
+            if (generation != searchGeneration.get()) {
+                return; // Superseded while waiting in the queue
+            }
+            try {
+                FacetCounts counts = databaseHelper.getFacetCounts(query, difficulty, timeFilter, dietaryFilter);
+                Platform.runLater(() -> {
+                    if (generation == searchGeneration.get()) {
+                        showFacetCounts(counts);
+                    }
+                });
+            } catch (SQLException e) {
+                if (generation == searchGeneration.get()) {
+                    Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Error",
+                            "Could not update filter counts: " + e.getMessage()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes every post matching the current search text, filters and sort order to a
+     * CSV file chosen by the user. The export runs in the background.
+     *
+     * @param primaryStage the stage the file dialog belongs to
+     */
+    private void exportResults(Stage primaryStage) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Results");
+        fileChooser.setInitialFileName("ptyxes-recipes.csv");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = fileChooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+
+        MealPostQuery spec = MealPostQuery.forFeed(currentFeedQuery());
+        SEARCH_EXECUTOR.execute(() -> {
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                int rows = databaseHelper.exportMealPosts(spec, writer);
+                Platform.runLater(() -> showAlert(Alert.AlertType.INFORMATION, "Export Complete",
+                        "Exported " + rows + " recipes to " + file.getName() + "."));
+            } catch (SQLException | IOException e) {
+                Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Error",
+                        "Could not export results: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Shows the given result counts next to each sidebar filter choice.
+     *
+     * @param counts the facet counts, or null to leave the labels unchanged
+     */
+    private void showFacetCounts(FacetCounts counts) {
+        if (counts == null) {
+            return;
+        }
+
+        for (RadioButton option : difficultyOptions) {
+            int count = counts.getDifficultyCount((Difficulty) option.getUserData());
+            option.setText(optionLabels.get(option) + " (" + count + ")");
+        }
+        for (RadioButton option : timeOptions) {
+            int count = counts.getTimeCount((String) option.getUserData());
+            option.setText(optionLabels.get(option) + " (" + count + ")");
+        }
+        for (RadioButton option : dietaryOptions) {
+            int count = counts.getDietaryCount((DietaryType) option.getUserData());
+            option.setText(optionLabels.get(option) + " (" + count + ")");
+        }
+    }
+
     /**
      * Creates an "at-a-glance" card representation of a meal post as a VBox UI element.
      * The card includes sections such as the title, metadata, description,
@@ -344,6 +547,7 @@ public class MainPage {
      * @return a VBox representing the complete layout of the card UI component
      */
     private VBox createPostCard(MealPost post) {
+        UiBuildEvent event = UiBuildEvent.start("MainPage", "createPostCard");
         VBox postCard = new VBox(10);
         postCard.setStyle("-fx-background-color: " + DarkTheme.SECONDARY_COLOR +
                 "; -fx-padding: 15; -fx-background-radius: 5;");
@@ -390,7 +594,7 @@ public class MainPage {
         servings.setStyle(DarkTheme.CSS_LABEL);
 
         // Add dietary type label with specific colors
-        Label dietaryType = new Label(post.getDietaryType());
+        Label dietaryType = new Label(post.getDietaryType().getLabel());
         dietaryType.setStyle(DarkTheme.CSS_LABEL);
 
         metadata.getChildren().addAll(prepTime, cookTime, difficulty, servings, dietaryType);
@@ -419,6 +623,21 @@ public class MainPage {
 
         buttonContainer.getChildren().add(viewRecipeButton);
 
+        // Select the recipe for the consolidated shopping list
+        CheckBox shoppingListCheckBox = new CheckBox("Add to Shopping List");
+        shoppingListCheckBox.setStyle(DarkTheme.CSS_LABEL);
+        shoppingListCheckBox.setSelected(shoppingSelection.containsKey(post.getId()));
+        shoppingListCheckBox.setOnAction(e -> {
+            if (shoppingListCheckBox.isSelected()) {
+                shoppingSelection.put(post.getId(), Math.max(1, post.getServings()));
+            } else {
+                shoppingSelection.remove(post.getId());
+            }
+            updateShoppingListButton();
+        });
+
+        buttonContainer.getChildren().add(shoppingListCheckBox);
+
         // Add delete button if the post belongs to the current user or if the user is an administrator
         if (post.getUserId() == currentUser.getId() || currentUser.isAdmin()) {
             Button deleteButton = new Button("Delete Post");
@@ -447,6 +666,8 @@ public class MainPage {
                             if (success) {
                                 // Refresh the posts list
                                 loadMealPosts();
+                                updatePaginationButtons();
+                                updateFacetCounts();
                                 showAlert(Alert.AlertType.INFORMATION, "Success", "Post deleted successfully.");
                             } else {
                                 showAlert(Alert.AlertType.ERROR, "Error", "Failed to delete the post.");
@@ -507,6 +728,7 @@ public class MainPage {
             }
         });
 
+        event.finish(1);
         return postCard;
     }
 
@@ -585,57 +807,266 @@ public class MainPage {
     }
 
     private void loadMealPosts() {
-        postsContainer.getChildren().clear();
-        
-        try {
-            List<MealPost> posts = databaseHelper.searchAndFilterMealPosts(
-                currentSearchQuery,
-                currentDifficulty,
-                currentTimeFilter,
-                currentDietaryFilter,
-                currentSortMode, // Pass the sort mode to the database helper
-                currentPage,
-                PAGE_SIZE
-            );
-            
-            if (posts.isEmpty()) {
-                Text noPostsText = new Text("No meal posts found.");
-                noPostsText.setFill(Color.web(DarkTheme.TEXT_COLOR));
-                postsContainer.getChildren().add(noPostsText);
-                return;
+        if (isSemanticSearchActive()) {
+            runSearch(currentSearchQuery);
+            return;
+        }
+
+        // Any search still running in the background is now stale
+        long generation = searchGeneration.incrementAndGet();
+        databaseHelper.cancelSearch();
+
+        FeedQuery feedQuery = currentFeedQuery();
+        int page = currentPage;
+
+        SEARCH_EXECUTOR.execute(() -> {
+            if (generation != searchGeneration.get()) {
+                return; // Superseded while waiting in the queue
             }
-            
-            for (MealPost post : posts) {
-                VBox postCard = createPostCard(post);
-                postsContainer.getChildren().add(postCard);
+            databaseHelper.beginCancellableSearch();
+            try {
+                List<MealPost> posts = databaseHelper.getFeedPage(feedQuery, page);
+
+                Platform.runLater(() -> {
+                    if (generation != searchGeneration.get()) {
+                        return;
+                    }
+                    UiBuildEvent event = UiBuildEvent.start("MainPage", "loadMealPosts");
+                    try {
+                        showMealPosts(posts);
+                        prefetchAdjacentPages(feedQuery, page, generation);
+                    } finally {
+                        event.finish(posts.size());
+                    }
+                });
+            } catch (SQLException e) {
+                // A superseded load fails when its statement is cancelled; only report current ones
+                if (generation == searchGeneration.get()) {
+                    Platform.runLater(() -> showLoadError(e));
+                }
+            } finally {
+                databaseHelper.endCancellableSearch();
             }
-            
-        } catch (SQLException e) {
-            Text errorText = new Text("Error loading posts: " + e.getMessage());
-            errorText.setFill(Color.web(DarkTheme.ERROR_COLOR));
-            postsContainer.getChildren().add(errorText);
+        });
+    }
+
+    private void updateShoppingListButton() {
+        shoppingListButton.setText("Shopping List (" + shoppingSelection.size() + ")");
+    }
+
+    private FeedQuery currentFeedQuery() {
+        return new FeedQuery(currentSearchQuery, currentDifficulty, currentTimeFilter,
+                currentDietaryFilter, currentSortMode, PAGE_SIZE);
+    }
+
+    /**
+     * Loads the pages before and after the shown one on a background thread, so the
+     * next page turn is served from the page cache. Skipped once the user has moved
+     * on to another page or changed the filters.
+     *
+     * @param feedQuery the feed query being shown
+     * @param page the page being shown
+     * @param generation the search generation the page was shown under
+     */
+    private void prefetchAdjacentPages(FeedQuery feedQuery, int page, long generation) {
+        PREFETCH_EXECUTOR.execute(() -> {
+            try {
+                for (int adjacentPage : new int[] { page + 1, page - 1 }) {
+                    if (generation != searchGeneration.get()) {
+                        return;
+                    }
+                    databaseHelper.prefetchFeedPage(feedQuery, adjacentPage);
+                }
+            } catch (SQLException e) {
+                // Only report failures for the feed still being shown
+                if (generation == searchGeneration.get()) {
+                    Log.warn("Error prefetching feed pages", "error", e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the displayed posts with the given page of posts.
+     *
+     * @param posts the meal posts to display
+     */
+    private void showMealPosts(List<MealPost> posts) {
+        postsContainer.getChildren().clear();
+
+        if (posts.isEmpty()) {
+            Text noPostsText = new Text("No meal posts found.");
+            noPostsText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+            postsContainer.getChildren().add(noPostsText);
+            return;
+        }
+
+        for (MealPost post : posts) {
+            VBox postCard = createPostCard(post);
+            postsContainer.getChildren().add(postCard);
         }
     }
 
+    /**
+     * Shows a "did you mean" link above the results when the search text has
+     * misspelled words. Following the link searches for the corrected text.
+     *
+     * @param correction the corrected search text, or null to show nothing
+     */
+    private void showSearchCorrection(String correction) {
+        if (correction == null) {
+            return;
+        }
+        HBox correctionBox = new HBox(5);
+        correctionBox.setAlignment(Pos.CENTER_LEFT);
+
+        Text didYouMeanText = new Text("Did you mean:");
+        didYouMeanText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        Hyperlink correctionLink = new Hyperlink(correction);
+        correctionLink.setStyle("-fx-text-fill: " + DarkTheme.ACCENT_COLOR + ";");
+        correctionLink.setOnAction(e -> {
+            searchField.setText(correction);
+            searchDebounce.stop();
+            runSearch(correction);
+        });
+
+        correctionBox.getChildren().addAll(didYouMeanText, correctionLink);
+        postsContainer.getChildren().add(0, correctionBox);
+    }
+
+    private void showLoadError(SQLException e) {
+        postsContainer.getChildren().clear();
+        Text errorText = new Text("Error loading posts: " + e.getMessage());
+        errorText.setFill(Color.web(DarkTheme.ERROR_COLOR));
+        postsContainer.getChildren().add(errorText);
+    }
+
+    /**
+     * Runs a search for the given text on a background thread and shows the first page
+     * of results when it completes. Only the most recent search matters: starting a new
+     * one cancels the query of the previous one, and results that arrive after being
+     * superseded are dropped.
+     *
+     * @param query the search text
+     */
+    private void runSearch(String query) {
+        currentSearchQuery = query;
+        currentPage = 0;
+
+        long generation = searchGeneration.incrementAndGet();
+        databaseHelper.cancelSearch();
+
+        if (isSemanticSearchActive()) {
+            runSemanticSearch(query, generation);
+            return;
+        }
+
+        FeedQuery feedQuery = currentFeedQuery();
+
+        SEARCH_EXECUTOR.execute(() -> {
+            if (generation != searchGeneration.get()) {
+                return; // Superseded while waiting in the queue
+            }
+            databaseHelper.beginCancellableSearch();
+            try {
+                List<MealPost> posts = databaseHelper.getFeedPage(feedQuery, 0);
+                int totalPosts = databaseHelper.getFeedCount(feedQuery);
+                FacetCounts counts = databaseHelper.getFacetCounts(query, feedQuery.getDifficulty(),
+                        feedQuery.getTimeFilter(), feedQuery.getDietaryFilter());
+                String correction = databaseHelper.suggestSearchCorrection(query);
+
+                Platform.runLater(() -> {
+                    if (generation == searchGeneration.get()) {
+                        showMealPosts(posts);
+                        showSearchCorrection(correction);
+                        showPagination(totalPosts);
+                        showFacetCounts(counts);
+                        prefetchAdjacentPages(feedQuery, 0, generation);
+                    }
+                });
+            } catch (SQLException e) {
+                // A superseded search fails when its statement is cancelled; only report current ones
+                if (generation == searchGeneration.get()) {
+                    Platform.runLater(() -> showLoadError(e));
+                }
+            } finally {
+                databaseHelper.endCancellableSearch();
+            }
+        });
+    }
+
+    private boolean isSemanticSearchActive() {
+        return semanticMode && !currentSearchQuery.isEmpty();
+    }
+
+    /**
+     * Runs a search by meaning on a background thread and shows the closest recipes
+     * on a single page. Filters and sorting don't apply to these results.
+     *
+     * @param query the description to search for
+     * @param generation the search generation the search was started under
+     */
+    private void runSemanticSearch(String query, long generation) {
+        SEARCH_EXECUTOR.execute(() -> {
+            if (generation != searchGeneration.get()) {
+                return; // Superseded while waiting in the queue
+            }
+            try {
+                List<MealPost> posts = databaseHelper.semanticSearchMealPosts(query, SEMANTIC_RESULTS);
+
+                Platform.runLater(() -> {
+                    if (generation == searchGeneration.get()) {
+                        showMealPosts(posts);
+                        prevButton.setDisable(true);
+                        nextButton.setDisable(true);
+                        pageText.setText("Closest matches");
+                    }
+                });
+            } catch (SQLException e) {
+                if (generation == searchGeneration.get()) {
+                    Platform.runLater(() -> showLoadError(e));
+                }
+            }
+        });
+    }
+
     /**
      * Updates the state of the pagination buttons and page text based on the current page
      * and the total number of posts available after applying filters.
      */
     private void updatePaginationButtons() {
-        try {
-            int totalPosts = databaseHelper.getFilteredPostsCount(
-                    currentSearchQuery,
-                    currentDifficulty,
-                    currentTimeFilter,
-                    currentDietaryFilter
-            );
-            int totalPages = (int) Math.ceil((double) totalPosts / PAGE_SIZE);
-
-            prevButton.setDisable(currentPage == 0);
-            nextButton.setDisable(currentPage >= totalPages - 1);
-            pageText.setText("Page " + (currentPage + 1));
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Error", "Could not update pagination buttons: " + e.getMessage());
+        if (isSemanticSearchActive()) {
+            return; // The semantic search shows its own single page
         }
+        long generation = searchGeneration.get();
+        FeedQuery feedQuery = currentFeedQuery();
+
+        SEARCH_EXECUTOR.execute(() -> {
+            if (generation != searchGeneration.get()) {
+                return; // Superseded while waiting in the queue
+            }
+            try {
+                int totalPosts = databaseHelper.getFeedCount(feedQuery);
+                Platform.runLater(() -> {
+                    if (generation == searchGeneration.get()) {
+                        showPagination(totalPosts);
+                    }
+                });
+            } catch (SQLException e) {
+                if (generation == searchGeneration.get()) {
+                    Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Error",
+                            "Could not update pagination buttons: " + e.getMessage()));
+                }
+            }
+        });
+    }
+
+    private void showPagination(int totalPosts) {
+        int totalPages = (int) Math.ceil((double) totalPosts / PAGE_SIZE);
+
+        prevButton.setDisable(currentPage == 0);
+        nextButton.setDisable(currentPage >= totalPages - 1);
+        pageText.setText("Page " + (currentPage + 1));
     }
 }
\ No newline at end of file
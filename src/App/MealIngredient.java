@@ -7,29 +7,29 @@ package App;
 public class MealIngredient {
     private int id;
     private String name;
-    private String category;
+    private IngredientCategory category;
     private float quantity;
-    private String unit;
+    private Unit unit = Unit.NONE;
     
     // Constructor
     public MealIngredient() {
     }
     
     // Full constructor
-    public MealIngredient(int id, String name, String category, float quantity, String unit) {
+    public MealIngredient(int id, String name, IngredientCategory category, float quantity, Unit unit) {
         this.id = id;
         this.name = name;
         this.category = category;
         this.quantity = quantity;
-        this.unit = unit;
+        this.unit = unit != null ? unit : Unit.NONE;
     }
 
     // Constructor without ID (for new ingredients)
-    public MealIngredient(String name, String category, float quantity, String unit) {
+    public MealIngredient(String name, IngredientCategory category, float quantity, Unit unit) {
         this.name = name;
         this.category = category;
         this.quantity = quantity;
-        this.unit = unit;
+        this.unit = unit != null ? unit : Unit.NONE;
     }
 
     // Getters and Setters
@@ -49,11 +49,11 @@ public class MealIngredient {
         this.name = name;
     }
     
-    public String getCategory() {
+    public IngredientCategory getCategory() {
         return category;
     }
     
-    public void setCategory(String category) {
+    public void setCategory(IngredientCategory category) {
         this.category = category;
     }
     
@@ -65,12 +65,12 @@ public class MealIngredient {
         this.quantity = quantity;
     }
     
-    public String getUnit() {
+    public Unit getUnit() {
         return unit;
     }
     
-    public void setUnit(String unit) {
-        this.unit = unit;
+    public void setUnit(Unit unit) {
+        this.unit = unit != null ? unit : Unit.NONE;
     }
     
     /**
@@ -84,7 +84,7 @@ public class MealIngredient {
             return "to taste";
         }
         
-        if (unit == null || unit.isEmpty()) {
+        if (unit.isNone()) {
             if (quantity == 1) {
                 return String.format("%.0f", quantity);
             } else {
@@ -96,13 +96,12 @@ public class MealIngredient {
         String quantityStr = getQuantityStr();
 
         // Handle plural for units if necessary
-        String unitStr = unit;
+        String unitStr = unit.getName();
         if (quantity > 1 && 
-            !unit.equalsIgnoreCase("pinch") && 
-            !unit.endsWith("s") && 
-            !unit.equalsIgnoreCase("oz") && 
-            !unit.equalsIgnoreCase("lb")) {
-            unitStr = unit + "s";
+            !unit.isAbbreviation() && 
+            !unitStr.equals("pinch") && 
+            !unitStr.endsWith("s")) {
+            unitStr = unitStr + "s";
         }
         
         return quantityStr + " " + unitStr;
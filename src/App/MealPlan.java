@@ -0,0 +1,111 @@
+package App;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MealPlan class represents a user's plan of meals for one week, starting on a Monday.
+ * Besides its entries, a plan carries the aggregates for each day and for the whole week.
+ */
+public class MealPlan {
+    /** Number of days in a plan */
+    public static final int DAYS = 7;
+
+    private int id;
+    private int userId;
+    private String name;
+    private LocalDate weekStart;
+    private MealPlanTotals weekTotals = new MealPlanTotals();
+    private final MealPlanTotals[] dayTotals = new MealPlanTotals[DAYS];
+    private final List<MealPlanEntry> entries = new ArrayList<>();
+
+    // Constructor
+    public MealPlan() {
+        for (int day = 0; day < DAYS; day++) {
+            dayTotals[day] = new MealPlanTotals();
+        }
+    }
+
+    // Full constructor
+    public MealPlan(int id, int userId, String name, LocalDate weekStart) {
+        this();
+        this.id = id;
+        this.userId = userId;
+        this.name = name;
+        this.weekStart = weekStart;
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDate getWeekStart() {
+        return weekStart;
+    }
+
+    public MealPlanTotals getWeekTotals() {
+        return weekTotals;
+    }
+
+    public void setWeekTotals(MealPlanTotals weekTotals) {
+        this.weekTotals = weekTotals;
+    }
+
+    /**
+     * Gets the aggregates of one day of the plan
+     *
+     * @param dayOfWeek 0 for Monday through 6 for Sunday
+     * @return The day's totals
+     */
+    public MealPlanTotals getDayTotals(int dayOfWeek) {
+        return dayTotals[dayOfWeek];
+    }
+
+    public void setDayTotals(int dayOfWeek, MealPlanTotals totals) {
+        dayTotals[dayOfWeek] = totals;
+    }
+
+    public List<MealPlanEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the entries planned for a day and meal slot
+     *
+     * @param dayOfWeek 0 for Monday through 6 for Sunday
+     * @param slot The meal slot
+     * @return The matching entries
+     */
+    public List<MealPlanEntry> getEntries(int dayOfWeek, MealSlot slot) {
+        List<MealPlanEntry> result = new ArrayList<>();
+        for (MealPlanEntry entry : entries) {
+            if (entry.getDayOfWeek() == dayOfWeek && entry.getSlot() == slot) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (week of " + weekStart + ")";
+    }
+}
@@ -0,0 +1,167 @@
+package App;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The MealPlanCandidates class is the recipe corpus the meal plan optimizer searches,
+ * in primitive arrays. Each recipe's ingredients are a sorted set of dense ingredient
+ * indexes, stored back to back in one array with an offset per recipe, and an inverted
+ * index lists the recipes using each ingredient.
+ *
+ * Recipes are added one at a time, each followed by its ingredients, and the set must
+ * be finished before it is searched.
+ */
+public class MealPlanCandidates {
+    private int size = 0;
+    private int[] mealIds = new int[64];
+    private int[] totalTimes = new int[64];
+    private double[] popularity = new double[64];
+    private int[] ingredientStart = new int[65];
+    private int[] ingredients = new int[256];
+    private int ingredientEntries = 0;
+    private final Map<Integer, Integer> ingredientIndexes = new HashMap<>();
+
+    // Inverted index, built when finished
+    private int[] recipeStart;
+    private int[] recipesByIngredient;
+    private boolean finished = false;
+
+    /**
+     * Adds a recipe; the ingredients added next belong to it
+     *
+     * @param mealId The meal post ID
+     * @param totalTime Preparation plus cooking time in minutes
+     * @param upvotes The number of upvotes
+     */
+    public void addRecipe(int mealId, int totalTime, int upvotes) {
+        if (finished) {
+            throw new IllegalStateException("Candidates are already finished");
+        }
+        if (size == mealIds.length) {
+            int capacity = size * 2;
+            mealIds = Arrays.copyOf(mealIds, capacity);
+            totalTimes = Arrays.copyOf(totalTimes, capacity);
+            popularity = Arrays.copyOf(popularity, capacity);
+            ingredientStart = Arrays.copyOf(ingredientStart, capacity + 1);
+        }
+        mealIds[size] = mealId;
+        totalTimes[size] = Math.max(0, totalTime);
+        popularity[size] = Math.log1p(Math.max(0, upvotes));
+        size++;
+        ingredientStart[size] = ingredientEntries;
+    }
+
+    /**
+     * Adds an ingredient to the most recently added recipe
+     *
+     * @param ingredientId The ingredient ID
+     */
+    public void addIngredient(int ingredientId) {
+        if (size == 0) {
+            throw new IllegalStateException("No recipe to add the ingredient to");
+        }
+        int index = ingredientIndexes.computeIfAbsent(ingredientId, id -> ingredientIndexes.size());
+
+        // Keep each recipe's ingredients sorted and without duplicates
+        int from = ingredientStart[size - 1];
+        int position = Arrays.binarySearch(ingredients, from, ingredientEntries, index);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (ingredientEntries == ingredients.length) {
+            ingredients = Arrays.copyOf(ingredients, ingredientEntries * 2);
+        }
+        System.arraycopy(ingredients, position, ingredients, position + 1, ingredientEntries - position);
+        ingredients[position] = index;
+        ingredientEntries++;
+        ingredientStart[size] = ingredientEntries;
+    }
+
+    /**
+     * Builds the inverted index; no more recipes can be added afterwards
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        int ingredientCount = ingredientIndexes.size();
+        recipeStart = new int[ingredientCount + 1];
+        for (int i = 0; i < ingredientEntries; i++) {
+            recipeStart[ingredients[i] + 1]++;
+        }
+        for (int i = 0; i < ingredientCount; i++) {
+            recipeStart[i + 1] += recipeStart[i];
+        }
+        recipesByIngredient = new int[ingredientEntries];
+        int[] next = Arrays.copyOf(recipeStart, ingredientCount);
+        for (int recipe = 0; recipe < size; recipe++) {
+            for (int i = ingredientStart[recipe]; i < ingredientStart[recipe + 1]; i++) {
+                recipesByIngredient[next[ingredients[i]]++] = recipe;
+            }
+        }
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of distinct ingredients over all recipes
+     *
+     * @return The number of dense ingredient indexes
+     */
+    public int getIngredientCount() {
+        return ingredientIndexes.size();
+    }
+
+    public int getMealId(int recipe) {
+        return mealIds[recipe];
+    }
+
+    public int getTotalTime(int recipe) {
+        return totalTimes[recipe];
+    }
+
+    /**
+     * Gets how popular a recipe is, as log(1 + upvotes) so one viral recipe
+     * doesn't outweigh a plan of well-liked ones
+     *
+     * @param recipe The recipe index
+     * @return The popularity score
+     */
+    public double getPopularity(int recipe) {
+        return popularity[recipe];
+    }
+
+    int ingredientsFrom(int recipe) {
+        return ingredientStart[recipe];
+    }
+
+    int ingredientsTo(int recipe) {
+        return ingredientStart[recipe + 1];
+    }
+
+    int ingredientAt(int position) {
+        return ingredients[position];
+    }
+
+    int recipesFrom(int ingredient) {
+        return recipeStart[ingredient];
+    }
+
+    int recipesTo(int ingredient) {
+        return recipeStart[ingredient + 1];
+    }
+
+    int recipeAt(int position) {
+        return recipesByIngredient[position];
+    }
+}
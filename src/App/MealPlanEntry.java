@@ -0,0 +1,83 @@
+package App;
+
+/**
+ * The MealPlanEntry class represents one meal post planned for a day and meal slot
+ * of a meal plan. It keeps the meal's title and a snapshot of the values counted in
+ * the plan's aggregates, so the planner can be shown without loading each meal post.
+ */
+public class MealPlanEntry {
+    private int id;
+    private int planId;
+    private int mealId;
+    private String mealTitle;
+    private int dayOfWeek;
+    private MealSlot slot;
+    private int servings;
+    private int totalTime;
+    private int ingredientCount;
+
+    // Constructor
+    public MealPlanEntry() {
+    }
+
+    // Full constructor
+    public MealPlanEntry(int id, int planId, int mealId, String mealTitle, int dayOfWeek, MealSlot slot,
+                         int servings, int totalTime, int ingredientCount) {
+        this.id = id;
+        this.planId = planId;
+        this.mealId = mealId;
+        this.mealTitle = mealTitle;
+        this.dayOfWeek = dayOfWeek;
+        this.slot = slot;
+        this.servings = servings;
+        this.totalTime = totalTime;
+        this.ingredientCount = ingredientCount;
+    }
+
+    // Getters
+    public int getId() {
+        return id;
+    }
+
+    public int getPlanId() {
+        return planId;
+    }
+
+    public int getMealId() {
+        return mealId;
+    }
+
+    public String getMealTitle() {
+        return mealTitle;
+    }
+
+    /**
+     * Gets the day of the week the meal is planned for
+     *
+     * @return 0 for Monday through 6 for Sunday
+     */
+    public int getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    public MealSlot getSlot() {
+        return slot;
+    }
+
+    public int getServings() {
+        return servings;
+    }
+
+    /**
+     * Gets the meal's preparation plus cooking time when it was planned
+     *
+     * @return The total time in minutes
+     */
+    public int getTotalTime() {
+        return totalTime;
+    }
+
+    public int getIngredientCount() {
+        return ingredientCount;
+    }
+}
@@ -0,0 +1,284 @@
+package App;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The MealPlanOptimizer class proposes a set of recipes for a meal plan. It looks for
+ * the most popular combination of distinct recipes that fits a weekly time budget and,
+ * when asked to, reuses ingredients so the shopping list stays short.
+ *
+ * The search is a local search with simulated annealing: starting from a random plan,
+ * it repeatedly swaps one recipe for another and keeps swaps that improve the plan,
+ * along with a shrinking share of those that don't. Replacement recipes are mostly
+ * drawn from recipes sharing an ingredient with the current plan. One search runs per
+ * core in a fork-join pool, each from its own random start, until the time budget
+ * runs out, and the best plan found by any of them wins.
+ */
+public class MealPlanOptimizer {
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // Score lost per minute over the weekly time budget
+    private static final double OVERTIME_PENALTY = 1.0;
+    private static final double START_TEMPERATURE = 1.0;
+    private static final double END_TEMPERATURE = 0.01;
+
+    private final MealPlanCandidates candidates;
+
+    public MealPlanOptimizer(MealPlanCandidates candidates) {
+        candidates.finish();
+        this.candidates = candidates;
+    }
+
+    /**
+     * Searches for the best plan within the given time
+     *
+     * @param mealCount The number of recipes to plan
+     * @param weeklyTimeBudget The most preparation plus cooking minutes for all meals, or 0 for no limit
+     * @param reuseWeight How much each extra distinct ingredient counts against a plan; 0 ignores shopping
+     * @param timeBudgetMillis How long to search, in milliseconds
+     * @return The best plan found
+     */
+    public Proposal optimize(int mealCount, int weeklyTimeBudget, double reuseWeight, long timeBudgetMillis) {
+        int count = Math.min(mealCount, candidates.size());
+        if (count <= 0) {
+            return new Proposal(new int[0], 0, 0);
+        }
+
+        long deadline = System.nanoTime() + Math.max(1, timeBudgetMillis) * 1_000_000L;
+        long seed = System.nanoTime();
+        Search best = POOL.invoke(new Restarts(0, POOL.getParallelism(), seed,
+                count, weeklyTimeBudget, reuseWeight, deadline));
+
+        // Show the most popular recipes first
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = best.bestPlan[i];
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(candidates.getPopularity(b), candidates.getPopularity(a)));
+        int[] mealIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            mealIds[i] = candidates.getMealId(order[i]);
+        }
+        return new Proposal(mealIds, best.bestTotalTime, best.bestDistinctIngredients);
+    }
+
+    // Splits the independent searches across the pool and keeps the best result
+    private class Restarts extends RecursiveTask<Search> {
+        // Tasks are only ever run in this JVM, never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final long seed;
+        private final int count;
+        private final int weeklyTimeBudget;
+        private final double reuseWeight;
+        private final long deadline;
+
+        Restarts(int from, int to, long seed, int count, int weeklyTimeBudget, double reuseWeight, long deadline) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+            this.count = count;
+            this.weeklyTimeBudget = weeklyTimeBudget;
+            this.reuseWeight = reuseWeight;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Search compute() {
+            if (to - from <= 1) {
+                Search search = new Search(new SplittableRandom(seed + from * 0x9E3779B97F4A7C15L),
+                        count, weeklyTimeBudget, reuseWeight);
+                search.run(deadline);
+                return search;
+            }
+            int middle = (from + to) >>> 1;
+            Restarts left = new Restarts(from, middle, seed, count, weeklyTimeBudget, reuseWeight, deadline);
+            Restarts right = new Restarts(middle, to, seed, count, weeklyTimeBudget, reuseWeight, deadline);
+            left.fork();
+            Search rightResult = right.compute();
+            Search leftResult = left.join();
+            return leftResult.bestScore >= rightResult.bestScore ? leftResult : rightResult;
+        }
+    }
+
+    // One annealing run, keeping its own plan state
+    private class Search {
+        private final SplittableRandom random;
+        private final int count;
+        private final int weeklyTimeBudget;
+        private final double reuseWeight;
+
+        private final int[] plan;
+        private final boolean[] inPlan;
+        private final int[] ingredientUses;
+        private int totalTime = 0;
+        private double popularity = 0;
+        private int distinctIngredients = 0;
+
+        private int[] bestPlan;
+        private double bestScore = Double.NEGATIVE_INFINITY;
+        private int bestTotalTime;
+        private int bestDistinctIngredients;
+
+        Search(SplittableRandom random, int count, int weeklyTimeBudget, double reuseWeight) {
+            this.random = random;
+            this.count = count;
+            this.weeklyTimeBudget = weeklyTimeBudget;
+            this.reuseWeight = reuseWeight;
+            this.plan = new int[count];
+            this.inPlan = new boolean[candidates.size()];
+            this.ingredientUses = new int[candidates.getIngredientCount()];
+        }
+
+        void run(long deadline) {
+            start();
+            double score = score();
+            remember(score);
+
+            long startTime = System.nanoTime();
+            double duration = Math.max(1, deadline - startTime);
+            double temperature = START_TEMPERATURE;
+            for (long iteration = 0; ; iteration++) {
+                if ((iteration & 255) == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline) {
+                        return;
+                    }
+                    // Cool down geometrically over the time budget
+                    double progress = (now - startTime) / duration;
+                    temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+                }
+
+                int position = random.nextInt(count);
+                int replacement = pickReplacement();
+                if (replacement < 0 || inPlan[replacement]) {
+                    continue;
+                }
+
+                int previous = plan[position];
+                swap(position, replacement);
+                double newScore = score();
+                if (newScore >= score || random.nextDouble() < Math.exp((newScore - score) / temperature)) {
+                    score = newScore;
+                    if (score > bestScore) {
+                        remember(score);
+                    }
+                } else {
+                    swap(position, previous);
+                }
+            }
+        }
+
+        // Random distinct recipes, preferring ones that fit an even share of the time budget
+        private void start() {
+            int share = weeklyTimeBudget > 0 ? weeklyTimeBudget / count : Integer.MAX_VALUE;
+            for (int position = 0; position < count; position++) {
+                int recipe;
+                int attempts = 0;
+                do {
+                    recipe = random.nextInt(candidates.size());
+                    attempts++;
+                } while ((inPlan[recipe] || (candidates.getTotalTime(recipe) > share && attempts < 32))
+                        && attempts < 1024);
+                while (inPlan[recipe]) {
+                    recipe = (recipe + 1) % candidates.size();
+                }
+                plan[position] = recipe;
+                add(recipe);
+            }
+        }
+
+        // Mostly a recipe sharing an ingredient with the plan, otherwise any recipe
+        private int pickReplacement() {
+            if (random.nextBoolean()) {
+                int source = plan[random.nextInt(count)];
+                int from = candidates.ingredientsFrom(source);
+                int to = candidates.ingredientsTo(source);
+                if (to > from) {
+                    int ingredient = candidates.ingredientAt(from + random.nextInt(to - from));
+                    int recipesFrom = candidates.recipesFrom(ingredient);
+                    int recipesTo = candidates.recipesTo(ingredient);
+                    return candidates.recipeAt(recipesFrom + random.nextInt(recipesTo - recipesFrom));
+                }
+            }
+            return random.nextInt(candidates.size());
+        }
+
+        private void swap(int position, int replacement) {
+            remove(plan[position]);
+            plan[position] = replacement;
+            add(replacement);
+        }
+
+        private void add(int recipe) {
+            inPlan[recipe] = true;
+            totalTime += candidates.getTotalTime(recipe);
+            popularity += candidates.getPopularity(recipe);
+            for (int i = candidates.ingredientsFrom(recipe); i < candidates.ingredientsTo(recipe); i++) {
+                if (ingredientUses[candidates.ingredientAt(i)]++ == 0) {
+                    distinctIngredients++;
+                }
+            }
+        }
+
+        private void remove(int recipe) {
+            inPlan[recipe] = false;
+            totalTime -= candidates.getTotalTime(recipe);
+            popularity -= candidates.getPopularity(recipe);
+            for (int i = candidates.ingredientsFrom(recipe); i < candidates.ingredientsTo(recipe); i++) {
+                if (--ingredientUses[candidates.ingredientAt(i)] == 0) {
+                    distinctIngredients--;
+                }
+            }
+        }
+
+        private double score() {
+            int overtime = weeklyTimeBudget > 0 ? Math.max(0, totalTime - weeklyTimeBudget) : 0;
+            return popularity - reuseWeight * distinctIngredients - OVERTIME_PENALTY * overtime;
+        }
+
+        private void remember(double score) {
+            bestScore = score;
+            bestPlan = plan.clone();
+            bestTotalTime = totalTime;
+            bestDistinctIngredients = distinctIngredients;
+        }
+    }
+
+    /**
+     * A proposed plan with the totals it was scored on
+     */
+    public static class Proposal {
+        private final int[] mealIds;
+        private final int totalTime;
+        private final int distinctIngredients;
+
+        Proposal(int[] mealIds, int totalTime, int distinctIngredients) {
+            this.mealIds = mealIds;
+            this.totalTime = totalTime;
+            this.distinctIngredients = distinctIngredients;
+        }
+
+        /**
+         * Gets the proposed meal post IDs, most popular first
+         *
+         * @return The meal post IDs
+         */
+        public int[] getMealIds() {
+            return mealIds;
+        }
+
+        public int getTotalTime() {
+            return totalTime;
+        }
+
+        public int getDistinctIngredients() {
+            return distinctIngredients;
+        }
+    }
+}
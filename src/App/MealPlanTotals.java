@@ -0,0 +1,49 @@
+package App;
+
+/**
+ * The MealPlanTotals class holds the aggregates of a meal plan day or week: the number
+ * of meals, their total preparation plus cooking time, servings and ingredient count.
+ * They are stored in the database and adjusted whenever an entry is added or removed,
+ * so showing a plan never needs to reread its meal posts.
+ */
+public class MealPlanTotals {
+    private int mealCount;
+    private int totalTime;
+    private int servings;
+    private int ingredientCount;
+
+    // Constructor
+    public MealPlanTotals() {
+    }
+
+    // Full constructor
+    public MealPlanTotals(int mealCount, int totalTime, int servings, int ingredientCount) {
+        this.mealCount = mealCount;
+        this.totalTime = totalTime;
+        this.servings = servings;
+        this.ingredientCount = ingredientCount;
+    }
+
+    public int getMealCount() {
+        return mealCount;
+    }
+
+    public int getTotalTime() {
+        return totalTime;
+    }
+
+    public int getServings() {
+        return servings;
+    }
+
+    public int getIngredientCount() {
+        return ingredientCount;
+    }
+
+    @Override
+    public String toString() {
+        return mealCount + " meal" + (mealCount != 1 ? "s" : "") + ", " + totalTime + " min, "
+                + servings + " serving" + (servings != 1 ? "s" : "") + ", "
+                + ingredientCount + " ingredient" + (ingredientCount != 1 ? "s" : "");
+    }
+}
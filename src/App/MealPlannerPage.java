@@ -0,0 +1,486 @@
+package App;
+
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The MealPlannerPage class displays a user's weekly meal plans as a grid of days and
+ * meal slots. Day and week totals are read from the aggregates the database keeps up
+ * to date, so the page never loads the planned meal posts one by one.
+ */
+public class MealPlannerPage {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MMM d");
+    // Runs one meal suggestion search at a time, reading candidates on the background connection
+    private static final ExecutorService OPTIMIZER_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> DatabaseHelper.newBackgroundThread(runnable, "ptyxes-optimizer"));
+
+    private final DatabaseHelper databaseHelper;
+    private final User currentUser;
+    private ComboBox<MealPlan> planComboBox;
+    private Text weekTotalsText;
+    private GridPane planGrid;
+    private MealPlan currentPlan;
+    private boolean updatingPlans = false;
+    // Only the most recent meal suggestion request is run and applied
+    private final AtomicLong optimizerGeneration = new AtomicLong();
+
+    public MealPlannerPage(DatabaseHelper databaseHelper, User currentUser) {
+        this.databaseHelper = databaseHelper;
+        this.currentUser = currentUser;
+    }
+
+    public void show(Stage primaryStage) {
+        primaryStage.setTitle("Meal Planner - Ptyxes");
+
+        ScrollPane scrollPane = new ScrollPane();
+        scrollPane.setFitToWidth(true);
+        scrollPane.setStyle("-fx-background: " + DarkTheme.BACKGROUND_COLOR + ";");
+
+        VBox mainContainer = new VBox(20);
+        mainContainer.setPadding(new Insets(30));
+        mainContainer.setStyle(DarkTheme.CSS_BACKGROUND);
+
+        // Top navigation and plan selection
+        HBox topBar = new HBox(15);
+        topBar.setAlignment(Pos.CENTER_LEFT);
+
+        Button backButton = new Button("← Back to Recipes");
+        backButton.setStyle(DarkTheme.CSS_BUTTON);
+        backButton.setOnAction(e -> {
+            MainPage mainPage = new MainPage(databaseHelper, currentUser);
+            mainPage.show(primaryStage);
+        });
+
+        planComboBox = new ComboBox<>();
+        planComboBox.setStyle(DarkTheme.CSS_FIELD);
+        planComboBox.setPromptText("Select a plan");
+        planComboBox.setOnAction(e -> {
+            if (updatingPlans) {
+                return;
+            }
+            MealPlan selected = planComboBox.getValue();
+            loadPlan(selected != null ? selected.getId() : -1);
+        });
+
+        Button newPlanButton = new Button("New Plan");
+        newPlanButton.setStyle(DarkTheme.CSS_BUTTON);
+        newPlanButton.setOnAction(e -> createPlan());
+
+        Button deletePlanButton = new Button("Delete Plan");
+        deletePlanButton.setStyle(DarkTheme.CSS_BUTTON + "-fx-background-color: #a02020;");
+        deletePlanButton.setOnAction(e -> deletePlan());
+
+        Button shoppingListButton = new Button("Shopping List");
+        shoppingListButton.setStyle(DarkTheme.CSS_BUTTON);
+        shoppingListButton.setOnAction(e -> {
+            if (currentPlan == null) {
+                return;
+            }
+            // A meal planned more than once is bought for all of its servings
+            Map<Integer, Integer> selection = new LinkedHashMap<>();
+            for (MealPlanEntry entry : currentPlan.getEntries()) {
+                selection.merge(entry.getMealId(), entry.getServings(), Integer::sum);
+            }
+            ShoppingListPage shoppingListPage = new ShoppingListPage(databaseHelper, currentUser, selection);
+            shoppingListPage.show(primaryStage);
+        });
+
+        Button suggestButton = new Button("Suggest Meals");
+        suggestButton.setStyle(DarkTheme.CSS_BUTTON);
+        suggestButton.setOnAction(e -> suggestMeals());
+
+        topBar.getChildren().addAll(backButton, planComboBox, newPlanButton, deletePlanButton, suggestButton,
+                shoppingListButton);
+
+        Text titleText = new Text("Meal Planner");
+        titleText.setFont(Font.font("System", FontWeight.BOLD, 28));
+        titleText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        weekTotalsText = new Text();
+        weekTotalsText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        planGrid = new GridPane();
+        planGrid.setHgap(10);
+        planGrid.setVgap(10);
+
+        mainContainer.getChildren().addAll(topBar, titleText, weekTotalsText, planGrid);
+
+        loadPlans(-1);
+
+        scrollPane.setContent(mainContainer);
+        Scene scene = new Scene(scrollPane, 1200, 700);
+        DarkTheme.applyTheme(scene);
+
+        primaryStage.setScene(scene);
+        primaryStage.show();
+    }
+
+    /**
+     * Loads the user's plans into the selector and shows one of them.
+     *
+     * @param selectPlanId the plan to show, or -1 for the most recent one
+     */
+    private void loadPlans(int selectPlanId) {
+        try {
+            List<MealPlan> plans = databaseHelper.getMealPlansForUser(currentUser.getId());
+            MealPlan selected = plans.isEmpty() ? null : plans.get(0);
+            for (MealPlan plan : plans) {
+                if (plan.getId() == selectPlanId) {
+                    selected = plan;
+                }
+            }
+
+            // Refill the selector without each change reloading a plan
+            updatingPlans = true;
+            try {
+                planComboBox.getItems().setAll(plans);
+                planComboBox.setValue(selected);
+            } finally {
+                updatingPlans = false;
+            }
+            loadPlan(selected != null ? selected.getId() : -1);
+        } catch (SQLException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not load meal plans: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads a plan with its entries and totals and rebuilds the grid.
+     *
+     * @param planId the plan ID, or -1 to show no plan
+     */
+    private void loadPlan(int planId) {
+        try {
+            currentPlan = planId >= 0 ? databaseHelper.getMealPlan(planId) : null;
+        } catch (SQLException e) {
+            currentPlan = null;
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not load the meal plan: " + e.getMessage());
+        }
+        showPlan();
+    }
+
+    private void showPlan() {
+        planGrid.getChildren().clear();
+
+        if (currentPlan == null) {
+            weekTotalsText.setText("No meal plan selected. Create one with \"New Plan\".");
+            return;
+        }
+
+        weekTotalsText.setText("Week of " + currentPlan.getWeekStart() + ": " + currentPlan.getWeekTotals());
+
+        // Slot labels in the first column
+        MealSlot[] slots = MealSlot.values();
+        for (int row = 0; row < slots.length; row++) {
+            Label slotLabel = new Label(slots[row].getLabel());
+            slotLabel.setStyle(DarkTheme.CSS_LABEL + "-fx-font-weight: bold;");
+            planGrid.add(slotLabel, 0, row + 1);
+        }
+
+        for (int day = 0; day < MealPlan.DAYS; day++) {
+            planGrid.add(createDayHeader(day), day + 1, 0);
+            for (int row = 0; row < slots.length; row++) {
+                planGrid.add(createSlotCell(day, slots[row]), day + 1, row + 1);
+            }
+        }
+    }
+
+    private VBox createDayHeader(int day) {
+        VBox header = new VBox(3);
+        header.setPrefWidth(140);
+
+        LocalDate date = currentPlan.getWeekStart().plusDays(day);
+        Text dayText = new Text(date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.getDefault())
+                + ", " + date.format(DAY_FORMAT));
+        dayText.setFont(Font.font("System", FontWeight.BOLD, 14));
+        dayText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        MealPlanTotals totals = currentPlan.getDayTotals(day);
+        Text totalsText = new Text(totals.getTotalTime() + " min, " + totals.getServings() + " servings\n"
+                + totals.getIngredientCount() + " ingredients");
+        totalsText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+        totalsText.setFont(Font.font("System", 11));
+
+        header.getChildren().addAll(dayText, totalsText);
+        return header;
+    }
+
+    private VBox createSlotCell(int day, MealSlot slot) {
+        VBox cell = new VBox(5);
+        cell.setPadding(new Insets(8));
+        cell.setPrefWidth(140);
+        cell.setStyle("-fx-background-color: " + DarkTheme.SECONDARY_COLOR + "; -fx-background-radius: 5;");
+
+        for (MealPlanEntry entry : currentPlan.getEntries(day, slot)) {
+            HBox entryRow = new HBox(5);
+            entryRow.setAlignment(Pos.CENTER_LEFT);
+
+            Label entryLabel = new Label(entry.getMealTitle() + " (" + entry.getServings() + ")");
+            entryLabel.setStyle(DarkTheme.CSS_LABEL);
+            entryLabel.setWrapText(true);
+            HBox.setHgrow(entryLabel, Priority.ALWAYS);
+
+            Button removeButton = new Button("×");
+            removeButton.setStyle(DarkTheme.CSS_BUTTON);
+            removeButton.setOnAction(e -> {
+                try {
+                    databaseHelper.removeMealPlanEntry(entry.getId());
+                    loadPlan(currentPlan.getId());
+                } catch (SQLException ex) {
+                    showAlert(Alert.AlertType.ERROR, "Error", "Could not remove the meal: " + ex.getMessage());
+                }
+            });
+
+            entryRow.getChildren().addAll(entryLabel, removeButton);
+            cell.getChildren().add(entryRow);
+        }
+
+        Button addButton = new Button("+ Add");
+        addButton.setStyle(DarkTheme.CSS_BUTTON);
+        addButton.setOnAction(e -> addMeal(day, slot));
+        cell.getChildren().add(addButton);
+
+        return cell;
+    }
+
+    /**
+     * Asks for a recipe to plan for the given day and slot, by searching for it.
+     */
+    private void addMeal(int day, MealSlot slot) {
+        TextInputDialog searchDialog = new TextInputDialog();
+        searchDialog.setTitle("Add Meal");
+        searchDialog.setHeaderText("Search for a recipe to plan for " + slot.getLabel().toLowerCase());
+        searchDialog.setContentText("Recipe:");
+        DarkTheme.applyTheme(searchDialog.getDialogPane().getScene());
+
+        Optional<String> searchText = searchDialog.showAndWait();
+        if (searchText.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<MealPost> results = databaseHelper.searchAndFilterMealPosts(
+                    searchText.get().trim(), null, "All", null, "Date", 0, 20);
+            if (results.isEmpty()) {
+                showAlert(Alert.AlertType.INFORMATION, "Add Meal", "No recipes found.");
+                return;
+            }
+
+            Map<String, MealPost> choices = new LinkedHashMap<>();
+            for (MealPost post : results) {
+                choices.putIfAbsent(post.getTitle(), post);
+            }
+            ChoiceDialog<String> choiceDialog = new ChoiceDialog<>(results.get(0).getTitle(), choices.keySet());
+            choiceDialog.setTitle("Add Meal");
+            choiceDialog.setHeaderText("Choose a recipe");
+            choiceDialog.setContentText("Recipe:");
+            DarkTheme.applyTheme(choiceDialog.getDialogPane().getScene());
+
+            Optional<String> choice = choiceDialog.showAndWait();
+            if (choice.isEmpty()) {
+                return;
+            }
+
+            MealPost post = choices.get(choice.get());
+            databaseHelper.addMealPlanEntry(currentPlan.getId(), post.getId(), day, slot, Math.max(1, post.getServings()));
+            loadPlan(currentPlan.getId());
+        } catch (SQLException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not add the meal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Asks for the plan constraints, runs the optimizer on a background thread and
+     * fills the current plan with the proposed recipes.
+     */
+    private void suggestMeals() {
+        if (currentPlan == null) {
+            showAlert(Alert.AlertType.INFORMATION, "Suggest Meals", "Create or select a meal plan first.");
+            return;
+        }
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Suggest Meals");
+        dialog.setHeaderText("Let Ptyxes propose recipes for \"" + currentPlan.getName() + "\"");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        DarkTheme.applyTheme(dialog.getDialogPane().getScene());
+
+        Spinner<Integer> mealsSpinner = new Spinner<>(1, MealPlan.DAYS * MealSlot.values().length, MealPlan.DAYS);
+        Spinner<Integer> weeklyTimeSpinner = new Spinner<>(0, 10000, 420, 30);
+        ComboBox<String> dietaryCombo = new ComboBox<>();
+        dietaryCombo.getItems().addAll("Any", DietaryType.VEGAN.getLabel(), DietaryType.VEGETARIAN.getLabel());
+        dietaryCombo.setValue("Any");
+        CheckBox reuseCheckBox = new CheckBox("Reuse ingredients to keep the shopping list short");
+        reuseCheckBox.setSelected(true);
+        Spinner<Integer> searchSecondsSpinner = new Spinner<>(1, 60, 3);
+
+        GridPane form = new GridPane();
+        form.setHgap(10);
+        form.setVgap(10);
+        form.addRow(0, new Label("Number of meals:"), mealsSpinner);
+        form.addRow(1, new Label("Weekly time budget (min, 0 = none):"), weeklyTimeSpinner);
+        form.addRow(2, new Label("Dietary type:"), dietaryCombo);
+        form.add(reuseCheckBox, 0, 3, 2, 1);
+        form.addRow(4, new Label("Search time (s):"), searchSecondsSpinner);
+        dialog.getDialogPane().setContent(form);
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (result.isEmpty() || result.get() != ButtonType.OK) {
+            return;
+        }
+
+        int mealCount = mealsSpinner.getValue();
+        int weeklyTimeBudget = weeklyTimeSpinner.getValue();
+        DietaryType dietaryFilter = DietaryType.fromLabel(dietaryCombo.getValue());
+        double reuseWeight = reuseCheckBox.isSelected() ? 1.0 : 0.0;
+        long searchMillis = searchSecondsSpinner.getValue() * 1000L;
+        int planId = currentPlan.getId();
+        weekTotalsText.setText("Searching for a plan...");
+
+        long generation = optimizerGeneration.incrementAndGet();
+
+        OPTIMIZER_EXECUTOR.execute(() -> {
+            if (generation != optimizerGeneration.get()) {
+                return; // Superseded while waiting in the queue
+            }
+            try {
+                MealPlanCandidates candidates = databaseHelper.getMealPlanCandidates(dietaryFilter);
+                if (generation != optimizerGeneration.get()) {
+                    return; // Superseded while the candidates were loading
+                }
+                MealPlanOptimizer.Proposal proposal = new MealPlanOptimizer(candidates)
+                        .optimize(mealCount, weeklyTimeBudget, reuseWeight, searchMillis);
+                Platform.runLater(() -> {
+                    if (generation == optimizerGeneration.get()) {
+                        applyProposal(planId, proposal, weeklyTimeBudget);
+                    }
+                });
+            } catch (SQLException e) {
+                Platform.runLater(() -> {
+                    if (generation == optimizerGeneration.get()) {
+                        showPlan();
+                        showAlert(Alert.AlertType.ERROR, "Error", "Could not suggest meals: " + e.getMessage());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Adds the proposed recipes to a plan, filling dinners first, then lunches, then breakfasts.
+     */
+    private void applyProposal(int planId, MealPlanOptimizer.Proposal proposal, int weeklyTimeBudget) {
+        int[] mealIds = proposal.getMealIds();
+        if (mealIds.length == 0) {
+            showPlan();
+            showAlert(Alert.AlertType.INFORMATION, "Suggest Meals", "No recipes match these constraints.");
+            return;
+        }
+
+        MealSlot[] slotOrder = { MealSlot.DINNER, MealSlot.LUNCH, MealSlot.BREAKFAST };
+        try {
+            Map<Integer, MealPost> posts = new LinkedHashMap<>();
+            for (MealPost post : databaseHelper.getMealPostsByIds(mealIds)) {
+                posts.put(post.getId(), post);
+            }
+            for (int i = 0; i < mealIds.length; i++) {
+                MealPost post = posts.get(mealIds[i]);
+                if (post == null) {
+                    continue; // Deleted while the optimizer was running
+                }
+                MealSlot slot = slotOrder[(i / MealPlan.DAYS) % slotOrder.length];
+                databaseHelper.addMealPlanEntry(planId, post.getId(), i % MealPlan.DAYS, slot,
+                        Math.max(1, post.getServings()));
+            }
+        } catch (SQLException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not add the suggested meals: " + e.getMessage());
+        }
+
+        loadPlan(planId);
+        if (weeklyTimeBudget > 0 && proposal.getTotalTime() > weeklyTimeBudget) {
+            showAlert(Alert.AlertType.INFORMATION, "Suggest Meals", "No combination fit the time budget; "
+                    + "the closest one takes " + proposal.getTotalTime() + " minutes.");
+        }
+    }
+
+    /**
+     * Creates a plan for the current week.
+     */
+    private void createPlan() {
+        TextInputDialog nameDialog = new TextInputDialog("My Week");
+        nameDialog.setTitle("New Plan");
+        nameDialog.setHeaderText("Create a meal plan for this week");
+        nameDialog.setContentText("Name:");
+        DarkTheme.applyTheme(nameDialog.getDialogPane().getScene());
+
+        Optional<String> name = nameDialog.showAndWait();
+        if (name.isEmpty() || name.get().isBlank()) {
+            return;
+        }
+
+        try {
+            LocalDate weekStart = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            MealPlan plan = databaseHelper.createMealPlan(currentUser.getId(), name.get().trim(), weekStart);
+            loadPlans(plan.getId());
+        } catch (SQLException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not create the meal plan: " + e.getMessage());
+        }
+    }
+
+    private void deletePlan() {
+        if (currentPlan == null) {
+            return;
+        }
+
+        Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmDialog.setTitle("Delete Plan");
+        confirmDialog.setHeaderText("Are you sure you want to delete \"" + currentPlan.getName() + "\"?");
+        confirmDialog.setContentText("This action cannot be undone.");
+        DarkTheme.styleDialog(confirmDialog);
+
+        confirmDialog.showAndWait().ifPresent(result -> {
+            if (result == ButtonType.OK) {
+                try {
+                    databaseHelper.deleteMealPlan(currentPlan.getId());
+                    loadPlans(-1);
+                } catch (SQLException e) {
+                    showAlert(Alert.AlertType.ERROR, "Error", "Could not delete the meal plan: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void showAlert(Alert.AlertType alertType, String title, String message) {
+        Alert alert = new Alert(alertType);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        DarkTheme.styleDialog(alert);
+        alert.showAndWait();
+    }
+}
@@ -13,7 +13,7 @@ import java.util.List;
  * instructions, preparation and cooking times, ingredients, and upvotes.
  */
 public class MealPost {
-    private String dietaryType; // "Vegan", "Vegetarian", or "None"
+    private DietaryType dietaryType;
     private int id;
     private String title;
     private int userId;
@@ -22,7 +22,7 @@ public class MealPost {
     private int preparationTime; // in minutes
     private int cookingTime; // in minutes
     private int servings;
-    private String difficulty;
+    private Difficulty difficulty;
     private String imageUrl;
     private int upvotes;
     private LocalDateTime creationDate;
@@ -32,14 +32,14 @@ public class MealPost {
     public MealPost() {
         this.ingredients = new ArrayList<>();
         this.upvotes = 0;
-        this.dietaryType = "None"; // Default value
+        this.dietaryType = DietaryType.NONE; // Default value
     }
     
     // Full constructor
     public MealPost(int id, String title, int userId, String description, String instructions,
-                   int preparationTime, int cookingTime, int servings, String difficulty,
+                   int preparationTime, int cookingTime, int servings, Difficulty difficulty,
                    String imageUrl, int upvotes, LocalDateTime creationDate, LocalDateTime lastModified,
-                   String dietaryType) {
+                   DietaryType dietaryType) {
         this.id = id;
         this.title = title;
         this.userId = userId;
@@ -54,16 +54,16 @@ public class MealPost {
         this.creationDate = creationDate;
         this.lastModified = lastModified;
         this.ingredients = new ArrayList<>();
-        this.dietaryType = dietaryType != null ? dietaryType : "None";
+        this.dietaryType = dietaryType != null ? dietaryType : DietaryType.NONE;
     }
 
     // Getters and Setters
-    public String getDietaryType() {
+    public DietaryType getDietaryType() {
         return dietaryType;
     }
     
-    public void setDietaryType(String dietaryType) {
-        this.dietaryType = dietaryType;
+    public void setDietaryType(DietaryType dietaryType) {
+        this.dietaryType = dietaryType != null ? dietaryType : DietaryType.NONE;
     }
     
     public int getId() {
@@ -130,11 +130,11 @@ public class MealPost {
         this.servings = servings;
     }
     
-    public String getDifficulty() {
+    public Difficulty getDifficulty() {
         return difficulty;
     }
     
-    public void setDifficulty(String difficulty) {
+    public void setDifficulty(Difficulty difficulty) {
         this.difficulty = difficulty;
     }
     
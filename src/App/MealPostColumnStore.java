@@ -0,0 +1,383 @@
+package App;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The MealPostColumnStore class keeps an in-memory snapshot of the metadata of every
+ * meal post, laid out as one primitive array per column. It lets the main page's
+ * difficulty, time and dietary filters and its sort modes be evaluated with plain
+ * array loops instead of a SQL round trip. The snapshot is loaded by DatabaseHelper
+ * and kept current by its write methods.
+ *
+ * Rows are kept in creation order, so "newest first" is simply a reverse scan and
+ * the creation date tie-break of the other sort modes is a comparison of row numbers.
+ * Deleted posts are marked dead and compacted away once they pile up. A FacetIndex
+ * over the same rows is maintained alongside the columns for the sidebar counts.
+ */
+public class MealPostColumnStore {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final byte NO_DIFFICULTY = -1;
+
+    private int size = 0;
+    private int deadRows = 0;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] userIds = new int[INITIAL_CAPACITY];
+    private int[] preparationTimes = new int[INITIAL_CAPACITY];
+    private int[] cookingTimes = new int[INITIAL_CAPACITY];
+    private int[] totalTimes = new int[INITIAL_CAPACITY];
+    private int[] servings = new int[INITIAL_CAPACITY];
+    private byte[] difficultyCodes = new byte[INITIAL_CAPACITY];
+    private byte[] dietaryCodes = new byte[INITIAL_CAPACITY];
+    private int[] upvotes = new int[INITIAL_CAPACITY];
+    private long[] creationTimes = new long[INITIAL_CAPACITY];
+    private int[] authorReputations = new int[INITIAL_CAPACITY];
+    private boolean[] live = new boolean[INITIAL_CAPACITY];
+    private final Map<Integer, Integer> rowsById = new HashMap<>();
+    private final FacetIndex facetIndex = new FacetIndex(INITIAL_CAPACITY);
+
+    /**
+     * Appends a post to the snapshot. Posts must be appended in creation order.
+     *
+     * @param id The meal post ID
+     * @param userId The author's user ID
+     * @param preparationTime Preparation time in minutes
+     * @param cookingTime Cooking time in minutes
+     * @param servingCount Number of servings
+     * @param difficulty The difficulty, or null if unknown
+     * @param dietaryType The dietary type
+     * @param upvoteCount Number of upvotes
+     * @param creationTime Creation time in epoch milliseconds
+     * @param authorReputation The author's current reputation
+     */
+    public synchronized void append(int id, int userId, int preparationTime, int cookingTime, int servingCount,
+                                    Difficulty difficulty, DietaryType dietaryType, int upvoteCount,
+                                    long creationTime, int authorReputation) {
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size++;
+        ids[row] = id;
+        userIds[row] = userId;
+        upvotes[row] = upvoteCount;
+        creationTimes[row] = creationTime;
+        authorReputations[row] = authorReputation;
+        live[row] = true;
+        setMetadata(row, preparationTime, cookingTime, servingCount, difficulty, dietaryType);
+        rowsById.put(id, row);
+    }
+
+    /**
+     * Replaces the editable metadata of a post after it has been updated
+     *
+     * @param post The updated meal post
+     */
+    public synchronized void update(MealPost post) {
+        Integer row = rowsById.get(post.getId());
+        if (row != null) {
+            setMetadata(row, post.getPreparationTime(), post.getCookingTime(), post.getServings(),
+                    post.getDifficulty(), post.getDietaryType());
+        }
+    }
+
+    /**
+     * Removes a post from the snapshot
+     *
+     * @param id The meal post ID
+     */
+    public synchronized void remove(int id) {
+        Integer row = rowsById.remove(id);
+        if (row != null) {
+            markDead(row);
+        }
+    }
+
+    /**
+     * Removes every post written by a user
+     *
+     * @param userId The author's user ID
+     */
+    public synchronized void removeByUser(int userId) {
+        for (int row = 0; row < size; row++) {
+            if (live[row] && userIds[row] == userId) {
+                rowsById.remove(ids[row]);
+                markDead(row);
+            }
+        }
+    }
+
+    /**
+     * Applies a change to a post's upvote count
+     *
+     * @param id The meal post ID
+     * @param delta The change in upvotes
+     */
+    public synchronized void adjustUpvotes(int id, int delta) {
+        Integer row = rowsById.get(id);
+        if (row != null) {
+            upvotes[row] += delta;
+        }
+    }
+
+    /**
+     * Applies a change to an author's reputation on all of their posts
+     *
+     * @param userId The author's user ID
+     * @param delta The change in reputation
+     */
+    public synchronized void adjustReputation(int userId, int delta) {
+        for (int row = 0; row < size; row++) {
+            if (userIds[row] == userId) {
+                authorReputations[row] += delta;
+            }
+        }
+    }
+
+    /**
+     * Counts the posts matching the given filters
+     *
+     * @param searchIds IDs of the posts matching the search text, or null for no search
+     * @param difficulty The difficulty to match, or null for all
+     * @param timeFilter "Quick", "Medium", "Long" or "All"
+     * @param dietaryFilter The dietary type to match, or null for all
+     * @return The number of matching posts
+     */
+    public synchronized int count(int[] searchIds, Difficulty difficulty, String timeFilter, DietaryType dietaryFilter) {
+        long[] searchBits = toRowBits(searchIds);
+        int difficultyCode = difficulty != null ? difficulty.getCode() : NO_DIFFICULTY;
+        int dietaryMask = dietaryMask(dietaryFilter);
+        int minTime = minTotalTime(timeFilter);
+        int maxTime = maxTotalTime(timeFilter);
+
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches(row, searchBits, difficultyCode, dietaryMask, minTime, maxTime)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the IDs of one page of posts matching the given filters, in the given sort order
+     *
+     * @param searchIds IDs of the posts matching the search text, or null for no search
+     * @param difficulty The difficulty to match, or null for all
+     * @param timeFilter "Quick", "Medium", "Long" or "All"
+     * @param dietaryFilter The dietary type to match, or null for all
+     * @param sortMode "Date", "Reputation", "Preparation Time" or "Cooking Time"
+     * @param page The page number (0-based)
+     * @param pageSize The number of posts per page
+     * @return The meal post IDs on the requested page
+     */
+    public synchronized int[] query(int[] searchIds, Difficulty difficulty, String timeFilter,
+                                    DietaryType dietaryFilter, String sortMode, int page, int pageSize) {
+        long[] searchBits = toRowBits(searchIds);
+        int difficultyCode = difficulty != null ? difficulty.getCode() : NO_DIFFICULTY;
+        int dietaryMask = dietaryMask(dietaryFilter);
+        int minTime = minTotalTime(timeFilter);
+        int maxTime = maxTotalTime(timeFilter);
+        int offset = page * pageSize;
+
+        if (sortMode == null || sortMode.equals("Date")) {
+            // Newest first is a reverse scan, stopping once the page is filled
+            int[] pageIds = new int[pageSize];
+            int found = 0;
+            int skipped = 0;
+            for (int row = size - 1; row >= 0 && found < pageSize; row--) {
+                if (matches(row, searchBits, difficultyCode, dietaryMask, minTime, maxTime)) {
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        pageIds[found++] = ids[row];
+                    }
+                }
+            }
+            return Arrays.copyOf(pageIds, found);
+        }
+
+        int[] sortColumn = switch (sortMode) {
+            case "Reputation" -> authorReputations;
+            case "Preparation Time" -> preparationTimes;
+            case "Cooking Time" -> cookingTimes;
+            default -> null;
+        };
+        if (sortColumn == null) {
+            return query(searchIds, difficulty, timeFilter, dietaryFilter, "Date", page, pageSize);
+        }
+        boolean descending = sortMode.equals("Reputation");
+
+        // Pack each match into one sortable long: the sort value in the high bits and
+        // the inverted row number (newer rows first on ties) in the low 31 bits
+        long[] keys = new long[size];
+        int matched = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches(row, searchBits, difficultyCode, dietaryMask, minTime, maxTime)) {
+                int value = descending ? ~sortColumn[row] : sortColumn[row];
+                long unsignedValue = (value ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+                keys[matched++] = (unsignedValue << 31) | (Integer.MAX_VALUE - row);
+            }
+        }
+        Arrays.sort(keys, 0, matched);
+
+        int end = Math.min(matched, offset + pageSize);
+        if (offset >= end) {
+            return new int[0];
+        }
+        int[] pageIds = new int[end - offset];
+        for (int i = offset; i < end; i++) {
+            int row = Integer.MAX_VALUE - (int) (keys[i] & Integer.MAX_VALUE);
+            pageIds[i - offset] = ids[row];
+        }
+        return pageIds;
+    }
+
+    /**
+     * Counts the posts every sidebar filter choice would yield
+     *
+     * @param searchIds IDs of the posts matching the search text, or null for no search
+     * @param difficulty The selected difficulty, or null for all
+     * @param timeFilter The selected time filter
+     * @param dietaryFilter The selected dietary type, or null for all
+     * @return The counts for every facet value
+     */
+    public synchronized FacetCounts facetCounts(int[] searchIds, Difficulty difficulty, String timeFilter,
+                                                DietaryType dietaryFilter) {
+        return facetIndex.count(toRowBits(searchIds), difficulty, timeFilter, dietaryFilter);
+    }
+
+    /**
+     * Gets the number of posts currently in the snapshot
+     *
+     * @return The number of live posts
+     */
+    public synchronized int size() {
+        return size - deadRows;
+    }
+
+    // Converts post IDs into a bitmap of their rows
+    private long[] toRowBits(int[] ids) {
+        if (ids == null) {
+            return null;
+        }
+        long[] bits = new long[(size + 63) >>> 6];
+        for (int id : ids) {
+            Integer row = rowsById.get(id);
+            if (row != null) {
+                bits[row >>> 6] |= 1L << row;
+            }
+        }
+        return bits;
+    }
+
+    private boolean matches(int row, long[] searchBits, int difficultyCode, int dietaryMask, int minTime, int maxTime) {
+        return live[row]
+                && (searchBits == null || (searchBits[row >>> 6] & (1L << row)) != 0)
+                && (difficultyCode == NO_DIFFICULTY || difficultyCodes[row] == difficultyCode)
+                && ((dietaryMask >>> dietaryCodes[row]) & 1) != 0
+                && totalTimes[row] >= minTime
+                && totalTimes[row] <= maxTime;
+    }
+
+    private void setMetadata(int row, int preparationTime, int cookingTime, int servingCount,
+                             Difficulty difficulty, DietaryType dietaryType) {
+        preparationTimes[row] = preparationTime;
+        cookingTimes[row] = cookingTime;
+        totalTimes[row] = preparationTime + cookingTime;
+        servings[row] = servingCount;
+        difficultyCodes[row] = difficulty != null ? (byte) difficulty.getCode() : NO_DIFFICULTY;
+        dietaryCodes[row] = (byte) (dietaryType != null ? dietaryType : DietaryType.NONE).getCode();
+        facetIndex.set(row, difficultyCodes[row], totalTimes[row], dietaryCodes[row]);
+    }
+
+    private void markDead(int row) {
+        live[row] = false;
+        facetIndex.clear(row);
+        deadRows++;
+        if (deadRows > INITIAL_CAPACITY && deadRows > size / 4) {
+            compact();
+        }
+    }
+
+    // Squeezes out dead rows while preserving creation order
+    private void compact() {
+        int target = 0;
+        for (int row = 0; row < size; row++) {
+            if (!live[row]) {
+                continue;
+            }
+            if (target != row) {
+                ids[target] = ids[row];
+                userIds[target] = userIds[row];
+                preparationTimes[target] = preparationTimes[row];
+                cookingTimes[target] = cookingTimes[row];
+                totalTimes[target] = totalTimes[row];
+                servings[target] = servings[row];
+                difficultyCodes[target] = difficultyCodes[row];
+                dietaryCodes[target] = dietaryCodes[row];
+                upvotes[target] = upvotes[row];
+                creationTimes[target] = creationTimes[row];
+                authorReputations[target] = authorReputations[row];
+                live[target] = true;
+                rowsById.put(ids[target], target);
+                facetIndex.set(target, difficultyCodes[target], totalTimes[target], dietaryCodes[target]);
+            }
+            target++;
+        }
+        Arrays.fill(live, target, size, false);
+        facetIndex.truncate(target);
+        size = target;
+        deadRows = 0;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        preparationTimes = Arrays.copyOf(preparationTimes, capacity);
+        cookingTimes = Arrays.copyOf(cookingTimes, capacity);
+        totalTimes = Arrays.copyOf(totalTimes, capacity);
+        servings = Arrays.copyOf(servings, capacity);
+        difficultyCodes = Arrays.copyOf(difficultyCodes, capacity);
+        dietaryCodes = Arrays.copyOf(dietaryCodes, capacity);
+        upvotes = Arrays.copyOf(upvotes, capacity);
+        creationTimes = Arrays.copyOf(creationTimes, capacity);
+        authorReputations = Arrays.copyOf(authorReputations, capacity);
+        live = Arrays.copyOf(live, capacity);
+    }
+
+    // Bit mask of the dietary codes that pass the filter
+    private static int dietaryMask(DietaryType dietaryFilter) {
+        if (dietaryFilter == null) {
+            return -1;
+        }
+        int mask = 0;
+        for (DietaryType type : dietaryFilter.getMatchingTypes()) {
+            mask |= 1 << type.getCode();
+        }
+        return mask;
+    }
+
+    private static int minTotalTime(String timeFilter) {
+        if (timeFilter == null) {
+            return Integer.MIN_VALUE;
+        }
+        return switch (timeFilter) {
+            case "Medium" -> 30;
+            case "Long" -> 61;
+            default -> Integer.MIN_VALUE;
+        };
+    }
+
+    private static int maxTotalTime(String timeFilter) {
+        if (timeFilter == null) {
+            return Integer.MAX_VALUE;
+        }
+        return switch (timeFilter) {
+            case "Quick" -> 29;
+            case "Medium" -> 60;
+            default -> Integer.MAX_VALUE;
+        };
+    }
+}
@@ -0,0 +1,425 @@
+package App;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The MealPostQuery class is a typed description of which meal posts to fetch: search
+ * text, a set of difficulties, a total time range, a set of dietary types and a sort
+ * order. The same query drives the feed's list, count, facet and export statements,
+ * and the meal planner's candidate statement.
+ *
+ * A query compiles to SQL by its shape, meaning which of its clauses are present, its
+ * sort order and the kind of statement, never by its values: sets are bound as arrays
+ * and the search text as the array of matching post IDs. Every shape is compiled once
+ * and kept, so running a query only binds parameters to a statement that was already
+ * built (and, through the StatementCache, already prepared).
+ */
+public final class MealPostQuery {
+    /** The statements a query can be compiled to */
+    public enum Kind {
+        LIST, COUNT, EXPORT, FACET_DIFFICULTY, FACET_TIME, FACET_DIETARY, PLAN_CANDIDATES
+    }
+
+    /** A value the feed is ordered by, descending or ascending */
+    enum SortKey {
+        CREATION_DATE("p.creationDate", true),
+        REPUTATION("COALESCE(u.reputation, 0)", true),
+        PREPARATION_TIME("p.preparationTime", false),
+        COOKING_TIME("p.cookingTime", false),
+        ID("p.id", true);
+
+        private final String expression;
+        private final boolean descending;
+
+        SortKey(String expression, boolean descending) {
+            this.expression = expression;
+            this.descending = descending;
+        }
+    }
+
+    /**
+     * The sort orders offered by the feed. Each ends with the post ID, so the order is
+     * total and consecutive pages never share or skip a post.
+     */
+    public enum Sort {
+        DATE("Date", SortKey.CREATION_DATE, SortKey.ID),
+        REPUTATION("Reputation", SortKey.REPUTATION, SortKey.CREATION_DATE, SortKey.ID),
+        PREPARATION_TIME("Preparation Time", SortKey.PREPARATION_TIME, SortKey.CREATION_DATE, SortKey.ID),
+        COOKING_TIME("Cooking Time", SortKey.COOKING_TIME, SortKey.CREATION_DATE, SortKey.ID);
+
+        private final String label;
+        private final SortKey[] keys;
+
+        Sort(String label, SortKey... keys) {
+            this.label = label;
+            this.keys = keys;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Looks up a sort order by the label shown in the sort box
+         *
+         * @param label "Date", "Reputation", "Preparation Time" or "Cooking Time"
+         * @return The sort order, newest first for null or unknown labels
+         */
+        public static Sort fromLabel(String label) {
+            for (Sort sort : values()) {
+                if (sort.label.equals(label)) {
+                    return sort;
+                }
+            }
+            return DATE;
+        }
+    }
+
+    // Shape bits, one per optional clause
+    private static final int TEXT = 1;
+    private static final int DIFFICULTY = 1 << 1;
+    private static final int MIN_TIME = 1 << 2;
+    private static final int MAX_TIME = 1 << 3;
+    private static final int DIETARY = 1 << 4;
+    private static final int CLAUSE_BITS = 5;
+    private static final int SORT_BITS = 2;
+
+    private static final String TOTAL_TIME = "(p.preparationTime + p.cookingTime)";
+    private static final String TIME_BUCKET = "CASE WHEN " + TOTAL_TIME + " < 30 THEN 0 WHEN "
+            + TOTAL_TIME + " <= 60 THEN 1 ELSE 2 END";
+
+    // Compiled SQL by shape, filled in as shapes are first used
+    private static final AtomicReferenceArray<String> TEMPLATES =
+            new AtomicReferenceArray<>(Kind.values().length << (CLAUSE_BITS + SORT_BITS));
+
+    private final String text;
+    private final EnumSet<Difficulty> difficulties;
+    private final int minTotalTime;
+    private final int maxTotalTime;
+    private final EnumSet<DietaryType> dietaryTypes;
+    private final Sort sort;
+    private final int clauses;
+
+    // Array parameters, built once per query rather than on every run
+    private final Integer[] difficultyCodes;
+    private final Integer[] dietaryCodes;
+
+    private MealPostQuery(Builder builder) {
+        this.text = builder.text;
+        this.difficulties = EnumSet.copyOf(builder.difficulties);
+        this.minTotalTime = builder.minTotalTime;
+        this.maxTotalTime = builder.maxTotalTime;
+        this.dietaryTypes = EnumSet.copyOf(builder.dietaryTypes);
+        this.sort = builder.sort;
+
+        int shape = 0;
+        shape |= text != null ? TEXT : 0;
+        shape |= !difficulties.isEmpty() ? DIFFICULTY : 0;
+        shape |= minTotalTime != Integer.MIN_VALUE ? MIN_TIME : 0;
+        shape |= maxTotalTime != Integer.MAX_VALUE ? MAX_TIME : 0;
+        shape |= !dietaryTypes.isEmpty() ? DIETARY : 0;
+        this.clauses = shape;
+
+        this.difficultyCodes = difficulties.stream().map(Difficulty::getCode).toArray(Integer[]::new);
+        this.dietaryCodes = dietaryTypes.stream().map(DietaryType::getCode).toArray(Integer[]::new);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates the query for the feed's search text, sidebar filters and sort box
+     *
+     * @param query The search text, empty or null for none
+     * @param difficulty The selected difficulty, or null for all
+     * @param timeFilter "Quick", "Medium", "Long" or "All"
+     * @param dietaryFilter The selected dietary type, or null for all
+     * @param sortMode The label of the selected sort order
+     * @return The query
+     */
+    public static MealPostQuery forFeed(String query, Difficulty difficulty, String timeFilter,
+                                        DietaryType dietaryFilter, String sortMode) {
+        Builder builder = builder().text(query).sort(Sort.fromLabel(sortMode));
+        if (difficulty != null) {
+            builder.difficulties(EnumSet.of(difficulty));
+        }
+        if (dietaryFilter != null) {
+            builder.dietaryTypes(List.of(dietaryFilter.getMatchingTypes()));
+        }
+        if (timeFilter != null) {
+            switch (timeFilter) {
+                case "Quick" -> builder.totalTime(Integer.MIN_VALUE, 29);
+                case "Medium" -> builder.totalTime(30, 60);
+                case "Long" -> builder.totalTime(61, Integer.MAX_VALUE);
+                default -> { }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the query for what the main feed is showing
+     *
+     * @param feedQuery The feed's search text, filters and sort order
+     * @return The query
+     */
+    public static MealPostQuery forFeed(FeedQuery feedQuery) {
+        return forFeed(feedQuery.getSearchQuery(), feedQuery.getDifficulty(), feedQuery.getTimeFilter(),
+                feedQuery.getDietaryFilter(), feedQuery.getSortMode());
+    }
+
+    /**
+     * Creates the query for the recipes the meal planner may choose from
+     *
+     * @param dietaryFilter Only include recipes of this dietary type, or null for all
+     * @return The query
+     */
+    public static MealPostQuery forMealPlan(DietaryType dietaryFilter) {
+        Builder builder = builder();
+        if (dietaryFilter != null) {
+            builder.dietaryTypes(List.of(dietaryFilter.getMatchingTypes()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the search text
+     *
+     * @return The text, or null for no search
+     */
+    public String getText() {
+        return text;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Gets the SQL for one kind of statement over this query, compiling it the first
+     * time a query of the same shape asks for it
+     *
+     * @param kind The kind of statement
+     * @return The SQL, with parameters in the order bind sets them
+     */
+    public String sql(Kind kind) {
+        int shape = shape(kind);
+        String sql = TEMPLATES.get(shape);
+        if (sql == null) {
+            sql = compile(kind, clauses(kind), sort(kind));
+            if (!TEMPLATES.compareAndSet(shape, null, sql)) {
+                sql = TEMPLATES.get(shape);
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Binds this query's values to a statement prepared from sql(kind)
+     *
+     * @param pstmt The statement
+     * @param kind The kind of statement it was prepared for
+     * @param connection The connection, for creating array parameters
+     * @param searchIds The IDs of the posts matching the search text, if there is one
+     * @return The index of the next parameter, where LIST binds its limit and offset
+     */
+    public int bind(PreparedStatement pstmt, Kind kind, Connection connection, int[] searchIds)
+            throws SQLException {
+        int clauses = clauses(kind);
+        int index = 1;
+        if ((clauses & TEXT) != 0) {
+            Integer[] ids = new Integer[searchIds.length];
+            for (int i = 0; i < searchIds.length; i++) {
+                ids[i] = searchIds[i];
+            }
+            pstmt.setArray(index++, connection.createArrayOf("INTEGER", ids));
+        }
+        if ((clauses & DIFFICULTY) != 0) {
+            pstmt.setArray(index++, connection.createArrayOf("INTEGER", difficultyCodes));
+        }
+        if ((clauses & MIN_TIME) != 0) {
+            pstmt.setInt(index++, minTotalTime);
+        }
+        if ((clauses & MAX_TIME) != 0) {
+            pstmt.setInt(index++, maxTotalTime);
+        }
+        if ((clauses & DIETARY) != 0) {
+            pstmt.setArray(index++, connection.createArrayOf("INTEGER", dietaryCodes));
+        }
+        return index;
+    }
+
+    // The clauses a kind of statement uses: a facet counts its own dimension under
+    // every choice, so it drops that filter
+    private int clauses(Kind kind) {
+        return switch (kind) {
+            case LIST, COUNT, EXPORT, PLAN_CANDIDATES -> clauses;
+            case FACET_DIFFICULTY -> clauses & ~DIFFICULTY;
+            case FACET_TIME -> clauses & ~(MIN_TIME | MAX_TIME);
+            case FACET_DIETARY -> clauses & ~DIETARY;
+        };
+    }
+
+    // Counts and plan candidates don't depend on the sort order, so they share one shape for every sort
+    private Sort sort(Kind kind) {
+        return kind == Kind.LIST || kind == Kind.EXPORT ? sort : Sort.DATE;
+    }
+
+    private int shape(Kind kind) {
+        return (((kind.ordinal() << SORT_BITS) | sort(kind).ordinal()) << CLAUSE_BITS) | clauses(kind);
+    }
+
+    private static String compile(Kind kind, int clauses, Sort sort) {
+        StringBuilder sql = new StringBuilder();
+        switch (kind) {
+            case LIST -> sql.append("SELECT p.*, COALESCE(u.reputation, 0) AS authorReputation FROM meal_posts p ")
+                    .append("LEFT JOIN users u ON p.userId = u.id ");
+            case EXPORT -> sql.append("SELECT p.id, p.title, u.username, p.difficultyCode, p.dietaryCode, ")
+                    .append("p.preparationTime, p.cookingTime, p.servings, p.upvotes, p.creationDate ")
+                    .append("FROM meal_posts p LEFT JOIN users u ON p.userId = u.id ");
+            case COUNT -> sql.append("SELECT COUNT(*) FROM meal_posts p ");
+            case FACET_DIFFICULTY -> sql.append("SELECT p.difficultyCode, COUNT(*) FROM meal_posts p ");
+            case FACET_TIME -> sql.append("SELECT ").append(TIME_BUCKET).append(", COUNT(*) FROM meal_posts p ");
+            case FACET_DIETARY -> sql.append("SELECT p.dietaryCode, COUNT(*) FROM meal_posts p ");
+            case PLAN_CANDIDATES -> sql.append("SELECT p.id, ").append(TOTAL_TIME).append(" AS totalTime, ")
+                    .append("p.upvotes, mi.ingredientId FROM meal_posts p ")
+                    .append("LEFT JOIN meal_ingredients mi ON mi.mealId = p.id ");
+        }
+        sql.append("WHERE 1=1 ");
+
+        if ((clauses & TEXT) != 0) {
+            sql.append("AND p.id = ANY(?) ");
+        }
+        if ((clauses & DIFFICULTY) != 0) {
+            sql.append("AND p.difficultyCode = ANY(?) ");
+        }
+        if ((clauses & MIN_TIME) != 0) {
+            sql.append("AND ").append(TOTAL_TIME).append(" >= ? ");
+        }
+        if ((clauses & MAX_TIME) != 0) {
+            sql.append("AND ").append(TOTAL_TIME).append(" <= ? ");
+        }
+        if ((clauses & DIETARY) != 0) {
+            sql.append("AND p.dietaryCode = ANY(?) ");
+        }
+
+        switch (kind) {
+            case LIST, EXPORT -> {
+                sql.append("ORDER BY ");
+                for (int i = 0; i < sort.keys.length; i++) {
+                    SortKey key = sort.keys[i];
+                    sql.append(i == 0 ? "" : ", ").append(key.expression).append(key.descending ? " DESC" : " ASC");
+                }
+                if (kind == Kind.LIST) {
+                    sql.append(" LIMIT ? OFFSET ?");
+                }
+            }
+            case FACET_DIFFICULTY -> sql.append("GROUP BY p.difficultyCode");
+            case FACET_TIME -> sql.append("GROUP BY ").append(TIME_BUCKET);
+            case FACET_DIETARY -> sql.append("GROUP BY p.dietaryCode");
+            case PLAN_CANDIDATES -> sql.append("ORDER BY p.id"); // Each recipe's ingredient rows together
+            case COUNT -> { }
+        }
+        return sql.toString().trim();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MealPostQuery)) {
+            return false;
+        }
+        MealPostQuery other = (MealPostQuery) o;
+        return minTotalTime == other.minTotalTime
+                && maxTotalTime == other.maxTotalTime
+                && Objects.equals(text, other.text)
+                && difficulties.equals(other.difficulties)
+                && dietaryTypes.equals(other.dietaryTypes)
+                && sort == other.sort;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(text, difficulties, minTotalTime, maxTotalTime, dietaryTypes, sort);
+    }
+
+    /** Builds a MealPostQuery; every filter starts out unset and the sort newest first */
+    public static final class Builder {
+        private String text = null;
+        private EnumSet<Difficulty> difficulties = EnumSet.noneOf(Difficulty.class);
+        private int minTotalTime = Integer.MIN_VALUE;
+        private int maxTotalTime = Integer.MAX_VALUE;
+        private EnumSet<DietaryType> dietaryTypes = EnumSet.noneOf(DietaryType.class);
+        private Sort sort = Sort.DATE;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the search text matched against titles, descriptions and ingredient names
+         *
+         * @param text The text; null or empty for no search
+         * @return This builder
+         */
+        public Builder text(String text) {
+            this.text = text != null && !text.isEmpty() ? text : null;
+            return this;
+        }
+
+        /**
+         * Limits the posts to some difficulties
+         *
+         * @param difficulties The difficulties; empty for all
+         * @return This builder
+         */
+        public Builder difficulties(Collection<Difficulty> difficulties) {
+            this.difficulties = difficulties.isEmpty()
+                    ? EnumSet.noneOf(Difficulty.class) : EnumSet.copyOf(difficulties);
+            return this;
+        }
+
+        /**
+         * Limits the posts to a range of preparation plus cooking time
+         *
+         * @param minMinutes The shortest total time, or Integer.MIN_VALUE for no minimum
+         * @param maxMinutes The longest total time, or Integer.MAX_VALUE for no maximum
+         * @return This builder
+         */
+        public Builder totalTime(int minMinutes, int maxMinutes) {
+            this.minTotalTime = minMinutes;
+            this.maxTotalTime = maxMinutes;
+            return this;
+        }
+
+        /**
+         * Limits the posts to some dietary types
+         *
+         * @param dietaryTypes The dietary types; empty for all
+         * @return This builder
+         */
+        public Builder dietaryTypes(Collection<DietaryType> dietaryTypes) {
+            this.dietaryTypes = dietaryTypes.isEmpty()
+                    ? EnumSet.noneOf(DietaryType.class) : EnumSet.copyOf(dietaryTypes);
+            return this;
+        }
+
+        public Builder sort(Sort sort) {
+            this.sort = sort != null ? sort : Sort.DATE;
+            return this;
+        }
+
+        public MealPostQuery build() {
+            return new MealPostQuery(this);
+        }
+    }
+}
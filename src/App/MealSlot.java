@@ -0,0 +1,53 @@
+package App;
+
+/**
+ * The MealSlot enum represents the meal of the day a meal plan entry is planned for.
+ * Each value is stored in the database as a compact numeric code.
+ */
+public enum MealSlot {
+    BREAKFAST(0, "Breakfast"),
+    LUNCH(1, "Lunch"),
+    DINNER(2, "Dinner");
+
+    private static final MealSlot[] BY_CODE = new MealSlot[values().length];
+
+    static {
+        for (MealSlot slot : values()) {
+            BY_CODE[slot.code] = slot;
+        }
+    }
+
+    private final int code;
+    private final String label;
+
+    MealSlot(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Looks up a meal slot by its database code
+     *
+     * @param code The stored code
+     * @return The matching MealSlot, or DINNER if the code is unknown
+     */
+    public static MealSlot fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            return DINNER;
+        }
+        return BY_CODE[code];
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
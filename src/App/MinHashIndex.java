@@ -0,0 +1,246 @@
+package App;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The MinHashIndex class finds meal posts with similar ingredient sets without comparing
+ * every pair of posts. Each post's set of ingredient IDs is summarized by a MinHash
+ * signature: for each of several hash functions, the smallest hash over the set. Two
+ * signatures agree in a position with probability equal to the Jaccard similarity of
+ * the sets. Signatures are split into bands, and posts sharing all values of any band
+ * land in the same bucket (locality-sensitive hashing), so only posts sharing a bucket
+ * are compared exactly.
+ *
+ * With 16 bands of 4 rows, sets with a Jaccard similarity of 0.5 share a bucket about
+ * 65% of the time, and sets at 0.8 over 99% of the time.
+ */
+public class MinHashIndex {
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+
+    // Fixed hash parameters, so signatures don't depend on when the index was built
+    private static final long[] MULTIPLIERS = new long[HASHES];
+    private static final long[] OFFSETS = new long[HASHES];
+
+    static {
+        long state = 0x5DEECE66DL;
+        for (int i = 0; i < HASHES; i++) {
+            state = mix(state + 0x9E3779B97F4A7C15L);
+            MULTIPLIERS[i] = state | 1;
+            state = mix(state + 0x9E3779B97F4A7C15L);
+            OFFSETS[i] = state;
+        }
+    }
+
+    private final Map<Integer, int[]> ingredientSets = new HashMap<>();
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final List<Map<Long, Set<Integer>>> buckets = new ArrayList<>();
+
+    /**
+     * A pair of meal posts whose ingredient sets are similar
+     */
+    public static class SimilarPair {
+        private final int firstMealId;
+        private final int secondMealId;
+        private final double similarity;
+
+        SimilarPair(int firstMealId, int secondMealId, double similarity) {
+            this.firstMealId = firstMealId;
+            this.secondMealId = secondMealId;
+            this.similarity = similarity;
+        }
+
+        public int getFirstMealId() {
+            return firstMealId;
+        }
+
+        public int getSecondMealId() {
+            return secondMealId;
+        }
+
+        /**
+         * Gets the exact Jaccard similarity of the two ingredient sets
+         *
+         * @return Shared ingredients divided by all distinct ingredients of both posts
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    public MinHashIndex() {
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Adds or replaces the ingredient set of a meal post
+     *
+     * @param mealId The meal post ID
+     * @param ingredientIds The IDs of the ingredients the post uses
+     */
+    public synchronized void put(int mealId, int[] ingredientIds) {
+        remove(mealId);
+        int[] set = Arrays.stream(ingredientIds).sorted().distinct().toArray();
+        if (set.length == 0) {
+            return; // Nothing to compare a post without ingredients on
+        }
+
+        int[] signature = signature(set);
+        ingredientSets.put(mealId, set);
+        signatures.put(mealId, signature);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.get(band).computeIfAbsent(bandKey(signature, band), key -> new HashSet<>()).add(mealId);
+        }
+    }
+
+    /**
+     * Removes a meal post from the index
+     *
+     * @param mealId The meal post ID
+     */
+    public synchronized void remove(int mealId) {
+        int[] signature = signatures.remove(mealId);
+        if (signature == null) {
+            return;
+        }
+        ingredientSets.remove(mealId);
+        for (int band = 0; band < BANDS; band++) {
+            Long key = bandKey(signature, band);
+            Set<Integer> bucket = buckets.get(band).get(key);
+            bucket.remove(mealId);
+            if (bucket.isEmpty()) {
+                buckets.get(band).remove(key);
+            }
+        }
+    }
+
+    /**
+     * Finds the meal posts whose ingredients are most similar to a post's
+     *
+     * @param mealId The meal post ID
+     * @param limit The maximum number of results
+     * @param minSimilarity The lowest Jaccard similarity to include
+     * @return The similar posts, most similar first
+     */
+    public synchronized List<SimilarPair> findSimilar(int mealId, int limit, double minSimilarity) {
+        List<SimilarPair> similar = new ArrayList<>();
+        int[] signature = signatures.get(mealId);
+        if (signature == null) {
+            return similar;
+        }
+
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            candidates.addAll(buckets.get(band).getOrDefault(bandKey(signature, band), Set.of()));
+        }
+        candidates.remove(mealId);
+
+        int[] set = ingredientSets.get(mealId);
+        for (Integer candidate : candidates) {
+            double similarity = jaccard(set, ingredientSets.get(candidate));
+            if (similarity >= minSimilarity) {
+                similar.add(new SimilarPair(mealId, candidate, similarity));
+            }
+        }
+        similar.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        return similar.size() > limit ? new ArrayList<>(similar.subList(0, limit)) : similar;
+    }
+
+    /**
+     * Finds all pairs of meal posts with nearly the same ingredients. Only posts sharing
+     * a bucket are compared, so very similar pairs are found with high probability
+     * without comparing every pair.
+     *
+     * @param minSimilarity The lowest Jaccard similarity to report
+     * @return The pairs, most similar first
+     */
+    public synchronized List<SimilarPair> findNearDuplicates(double minSimilarity) {
+        List<SimilarPair> pairs = new ArrayList<>();
+        Set<Long> compared = new HashSet<>();
+        for (Map<Long, Set<Integer>> bandBuckets : buckets) {
+            for (Set<Integer> bucket : bandBuckets.values()) {
+                if (bucket.size() < 2) {
+                    continue;
+                }
+                Integer[] members = bucket.toArray(new Integer[0]);
+                for (int i = 0; i < members.length; i++) {
+                    for (int j = i + 1; j < members.length; j++) {
+                        int first = Math.min(members[i], members[j]);
+                        int second = Math.max(members[i], members[j]);
+                        if (!compared.add(((long) first << 32) | second)) {
+                            continue;
+                        }
+                        double similarity = jaccard(ingredientSets.get(first), ingredientSets.get(second));
+                        if (similarity >= minSimilarity) {
+                            pairs.add(new SimilarPair(first, second, similarity));
+                        }
+                    }
+                }
+            }
+        }
+        pairs.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        return pairs;
+    }
+
+    public synchronized int size() {
+        return signatures.size();
+    }
+
+    private static int[] signature(int[] set) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int ingredientId : set) {
+            for (int i = 0; i < HASHES; i++) {
+                int hash = (int) (mix(ingredientId * MULTIPLIERS[i] + OFFSETS[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = 0; row < ROWS; row++) {
+            key = key * 0x100000001B3L + signature[band * ROWS + row];
+        }
+        return mix(key);
+    }
+
+    // Jaccard similarity of two sorted sets
+    private static double jaccard(int[] a, int[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    // Final mixing step of the SplitMix64 generator
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
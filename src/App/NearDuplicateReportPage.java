@@ -0,0 +1,168 @@
+package App;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The NearDuplicateReportPage class lists pairs of meal posts with nearly the same
+ * ingredients so an admin can spot reposted recipes. Pairs are found through the
+ * MinHash index rather than by comparing every pair of posts.
+ */
+public class NearDuplicateReportPage {
+    // Pairs shown at once, so a low threshold on a large corpus stays readable
+    private static final int MAX_PAIRS = 100;
+
+    private final DatabaseHelper databaseHelper;
+    private final User currentUser;
+    private Stage primaryStage;
+    private VBox pairsContainer;
+
+    public NearDuplicateReportPage(DatabaseHelper databaseHelper, User currentUser) {
+        this.databaseHelper = databaseHelper;
+        this.currentUser = currentUser;
+    }
+
+    public void show(Stage primaryStage) {
+        this.primaryStage = primaryStage;
+        primaryStage.setTitle("Near-Duplicate Report - Ptyxes");
+
+        ScrollPane scrollPane = new ScrollPane();
+        scrollPane.setFitToWidth(true);
+        scrollPane.setStyle("-fx-background: " + DarkTheme.BACKGROUND_COLOR + ";");
+
+        VBox mainContainer = new VBox(25);
+        mainContainer.setPadding(new Insets(30));
+        mainContainer.setStyle(DarkTheme.CSS_BACKGROUND);
+
+        // Top navigation and back button
+        HBox topBar = new HBox(15);
+        topBar.setAlignment(Pos.CENTER_LEFT);
+
+        Button backButton = new Button("← Back to Recipes");
+        backButton.setStyle(DarkTheme.CSS_BUTTON);
+
+        backButton.setOnAction(e -> {
+            MainPage mainPage = new MainPage(databaseHelper, currentUser);
+            mainPage.show(primaryStage);
+        });
+
+        Label thresholdLabel = new Label("Shared ingredients at least:");
+        thresholdLabel.setStyle(DarkTheme.CSS_LABEL);
+
+        ComboBox<Integer> thresholdBox = new ComboBox<>();
+        thresholdBox.getItems().addAll(50, 60, 70, 80, 90, 100);
+        thresholdBox.setValue(80);
+        thresholdBox.setOnAction(e -> loadPairs(thresholdBox.getValue() / 100.0));
+
+        Label percentLabel = new Label("%");
+        percentLabel.setStyle(DarkTheme.CSS_LABEL);
+
+        topBar.getChildren().addAll(backButton, thresholdLabel, thresholdBox, percentLabel);
+
+        Text titleText = new Text("Near-Duplicate Recipes");
+        titleText.setFont(Font.font("System", FontWeight.BOLD, 28));
+        titleText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        pairsContainer = new VBox(10);
+        loadPairs(thresholdBox.getValue() / 100.0);
+
+        mainContainer.getChildren().addAll(topBar, titleText, pairsContainer);
+
+        scrollPane.setContent(mainContainer);
+        Scene scene = new Scene(scrollPane, 800, 700);
+        DarkTheme.applyTheme(scene);
+
+        primaryStage.setScene(scene);
+        primaryStage.show();
+    }
+
+    /**
+     * Loads the pairs at or above the given similarity, most similar first.
+     *
+     * @param minSimilarity the lowest share of ingredients in common
+     */
+    private void loadPairs(double minSimilarity) {
+        pairsContainer.getChildren().clear();
+
+        if (!databaseHelper.isSimilarityIndexReady()) {
+            Text loadingText = new Text("The similarity index is still being built; try again in a moment.");
+            loadingText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+            pairsContainer.getChildren().add(loadingText);
+            return;
+        }
+
+        try {
+            List<MinHashIndex.SimilarPair> pairs = databaseHelper.getNearDuplicatePairs(minSimilarity);
+            if (pairs.isEmpty()) {
+                Text emptyText = new Text("No near-duplicate recipes found.");
+                emptyText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+                pairsContainer.getChildren().add(emptyText);
+                return;
+            }
+            if (pairs.size() > MAX_PAIRS) {
+                Text countText = new Text("Showing the " + MAX_PAIRS + " most similar of " + pairs.size() + " pairs.");
+                countText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+                pairsContainer.getChildren().add(countText);
+                pairs = pairs.subList(0, MAX_PAIRS);
+            }
+
+            // Load every post in the report at once
+            Set<Integer> mealIds = new LinkedHashSet<>();
+            for (MinHashIndex.SimilarPair pair : pairs) {
+                mealIds.add(pair.getFirstMealId());
+                mealIds.add(pair.getSecondMealId());
+            }
+            Map<Integer, MealPost> postsById = new HashMap<>();
+            for (MealPost post : databaseHelper.getMealPostsByIds(mealIds.stream().mapToInt(Integer::intValue).toArray())) {
+                postsById.put(post.getId(), post);
+            }
+
+            for (MinHashIndex.SimilarPair pair : pairs) {
+                MealPost first = postsById.get(pair.getFirstMealId());
+                MealPost second = postsById.get(pair.getSecondMealId());
+                if (first == null || second == null) {
+                    continue;
+                }
+
+                HBox pairRow = new HBox(10);
+                pairRow.setAlignment(Pos.CENTER_LEFT);
+
+                Label similarityLabel = new Label(Math.round(pair.getSimilarity() * 100) + "%");
+                similarityLabel.setStyle(DarkTheme.CSS_LABEL);
+                similarityLabel.setPrefWidth(50);
+
+                Label andLabel = new Label("and");
+                andLabel.setStyle(DarkTheme.CSS_LABEL);
+
+                pairRow.getChildren().addAll(similarityLabel, createPostLink(first), andLabel, createPostLink(second));
+                pairsContainer.getChildren().add(pairRow);
+            }
+        } catch (SQLException e) {
+            Text errorText = new Text("Error loading near-duplicate recipes: " + e.getMessage());
+            errorText.setFill(Color.web(DarkTheme.ERROR_COLOR));
+            pairsContainer.getChildren().add(errorText);
+        }
+    }
+
+    private Hyperlink createPostLink(MealPost post) {
+        Hyperlink link = new Hyperlink(post.getTitle() + " (#" + post.getId() + ")");
+        link.setStyle("-fx-text-fill: " + DarkTheme.ACCENT_COLOR + ";");
+        link.setOnAction(e -> new RecipeDetailPage(databaseHelper, currentUser, post).show(primaryStage));
+        return link;
+    }
+}
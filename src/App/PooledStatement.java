@@ -0,0 +1,1008 @@
+package App;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import jdk.jfr.EventType;
+
+/**
+ * The PooledStatement class is the statement StatementCache hands out for a cached
+ * prepared statement. Every call reads through to the real statement except close,
+ * which gives it back to the cache instead. The execute methods time the call and
+ * record it with QueryMetrics, Java Flight Recorder and the slow query log, and the
+ * setters remember their values while a slow query log is set. All of it is plain
+ * calls, so running a cached query allocates no more than the driver does.
+ */
+final class PooledStatement implements PreparedStatement {
+    private static final EventType STATEMENT_EVENT = EventType.getEventType(SqlStatementEvent.class);
+    // Stands in for the value of a stream parameter, which can only be read once
+    private static final Object STREAM = new Object();
+
+    private final StatementCache cache;
+    private final StatementCache.Key key;
+    private final PreparedStatement statement;
+    private final QueryMetrics metrics;
+    private final QueryMetrics.Metric metric;
+    private final boolean cached;
+    private volatile boolean checkedOut = false;
+    private ResultSet lastResult = null;
+    // Reads through to lastResult, counting rows; a statement has one open result at a time
+    private CountingResultSet countingResult = null;
+    private boolean countingRows = false;
+
+    // Whether a caller set a query timeout, since H2 runs a command on the session to reset it
+    private boolean timeoutSet = false;
+
+    // The execution not recorded yet, while its result may still be read
+    private long executionNanos = -1;
+    private long executionRows = 0;
+    private SqlStatementEvent executionEvent = null;
+
+    // The value, or the SQL type of a NULL, bound to each parameter since the statement was
+    // checked out, while a slow query log is set. The arrays are reused, and only turned
+    // into BoundParameters for an execution that turns out to be slow.
+    private Object[] values = null;
+    private int[] nullTypes = null;
+    private boolean[] bound = null;
+    private int boundUpTo = 0;
+
+    PooledStatement(StatementCache cache, StatementCache.Key key, PreparedStatement statement, boolean cached,
+                    QueryMetrics metrics) {
+        this.cache = cache;
+        this.key = key;
+        this.statement = statement;
+        this.cached = cached;
+        this.metrics = metrics;
+        this.metric = metrics != null ? metrics.statement(key.getSql()) : null;
+    }
+
+    StatementCache.Key getKey() {
+        return key;
+    }
+
+    /**
+     * Hands the statement out until it is closed
+     *
+     * @return This statement
+     */
+    PreparedStatement checkOut() {
+        checkedOut = true;
+        return this;
+    }
+
+    /**
+     * Records the last execution and resets the statement for its next user
+     *
+     * @return true if the statement can be cached again
+     */
+    boolean reset() {
+        finishExecution();
+        clearBound();
+        ResultSet result = lastResult;
+        lastResult = null;
+        try {
+            if (result != null) {
+                result.close();
+            }
+            if (!cached || statement.isClosed()) {
+                return false;
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            if (timeoutSet) {
+                statement.setQueryTimeout(0);
+                timeoutSet = false;
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes the underlying statement, for when the cache drops it
+     */
+    void closeStatement() {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            Log.warn("Could not close cached statement", e);
+        }
+    }
+
+    // The statement to read through to, as long as it is checked out
+    private PreparedStatement open() throws SQLException {
+        if (!checkedOut) {
+            throw new SQLException("Statement is closed");
+        }
+        return statement;
+    }
+
+    private void finishExecution() {
+        if (executionNanos >= 0) {
+            long rows = countingRows ? countingResult.getRows() : executionRows;
+            commitEvent(rows, false);
+            metrics.recordStatement(metric, executionNanos, rows, false);
+            executionNanos = -1;
+        }
+        if (countingRows) {
+            countingResult.readFrom(null);
+            countingRows = false;
+        }
+    }
+
+    private void commitEvent(long rows, boolean failed) {
+        if (executionEvent != null && executionEvent.shouldCommit()) {
+            executionEvent.method = metrics.currentMethod();
+            executionEvent.sqlHash = key.getSql().hashCode();
+            executionEvent.sql = key.getSql();
+            executionEvent.rows = rows;
+            executionEvent.failed = failed;
+            executionEvent.commit();
+        }
+        executionEvent = null;
+    }
+
+    // Records the previous execution and starts timing a new one
+    private long beginExecution() throws SQLException {
+        open();
+        if (metric != null) {
+            finishExecution();
+            if (STATEMENT_EVENT.isEnabled()) {
+                executionEvent = new SqlStatementEvent();
+                executionEvent.begin();
+            }
+        }
+        return System.nanoTime();
+    }
+
+    // The rows of a query are only known once read, so its execution is recorded later
+    private void endExecution(long start, long rows) {
+        long elapsed = System.nanoTime() - start;
+        logIfSlow(elapsed);
+        if (metric != null) {
+            executionNanos = elapsed;
+            // The event lasts as long as the execute call; its rows are filled in once read
+            if (executionEvent != null) {
+                executionEvent.end();
+            }
+            executionRows = rows;
+        }
+    }
+
+    private void failExecution(long start) {
+        long elapsed = System.nanoTime() - start;
+        logIfSlow(elapsed);
+        if (metric != null) {
+            if (executionEvent != null) {
+                executionEvent.end();
+            }
+            commitEvent(0, true);
+            metrics.recordStatement(metric, elapsed, 0, true);
+        }
+    }
+
+    private void logIfSlow(long elapsed) {
+        SlowQueryLog slowLog = cache.getSlowQueryLog();
+        if (slowLog != null && elapsed >= slowLog.getThresholdNanos()) {
+            slowLog.record(key.getSql(), boundParameters(), elapsed, metrics != null ? metrics.currentMethod() : null);
+        }
+    }
+
+    // Keeps a new result to close on release and, while recording, counts its rows
+    private ResultSet result(ResultSet result) {
+        if (result == null) {
+            return null;
+        }
+        lastResult = result;
+        if (metric == null) {
+            return result;
+        }
+        // Created once per statement and reused for each of its results
+        if (countingResult == null) {
+            countingResult = new CountingResultSet();
+        }
+        countingResult.readFrom(result);
+        countingRows = true;
+        return countingResult;
+    }
+
+    private static long sum(int[] counts) {
+        long rows = 0;
+        for (int count : counts) {
+            rows += Math.max(0, count);
+        }
+        return rows;
+    }
+
+    private static long sum(long[] counts) {
+        long rows = 0;
+        for (long count : counts) {
+            rows += Math.max(0, count);
+        }
+        return rows;
+    }
+
+    // Remembers what was bound to a parameter, if a slow query log may need it
+    private void remember(int parameterIndex, Object value, int nullType) {
+        if (parameterIndex < 1 || cache.getSlowQueryLog() == null) {
+            return;
+        }
+        if (bound == null || bound.length < parameterIndex) {
+            int length = Math.max(parameterIndex, 8);
+            values = values != null ? Arrays.copyOf(values, length) : new Object[length];
+            nullTypes = nullTypes != null ? Arrays.copyOf(nullTypes, length) : new int[length];
+            bound = bound != null ? Arrays.copyOf(bound, length) : new boolean[length];
+        }
+        values[parameterIndex - 1] = value;
+        nullTypes[parameterIndex - 1] = nullType;
+        bound[parameterIndex - 1] = true;
+        boundUpTo = Math.max(boundUpTo, parameterIndex);
+    }
+
+    private void bound(int parameterIndex, Object value) {
+        remember(parameterIndex, value, Types.NULL);
+    }
+
+    private void bound(int parameterIndex, Object value, int sqlType) {
+        remember(parameterIndex, value, sqlType);
+    }
+
+    // Primitives are only boxed while a slow query log is set
+    private void bound(int parameterIndex, boolean value) {
+        if (cache.getSlowQueryLog() != null) {
+            remember(parameterIndex, value, Types.NULL);
+        }
+    }
+
+    private void bound(int parameterIndex, byte value) {
+        if (cache.getSlowQueryLog() != null) {
+            remember(parameterIndex, value, Types.NULL);
+        }
+    }
+
+    private void bound(int parameterIndex, short value) {
+        if (cache.getSlowQueryLog() != null) {
+            remember(parameterIndex, value, Types.NULL);
+        }
+    }
+
+    private void bound(int parameterIndex, int value) {
+        if (cache.getSlowQueryLog() != null) {
+            remember(parameterIndex, value, Types.NULL);
+        }
+    }
+
+    private void bound(int parameterIndex, long value) {
+        if (cache.getSlowQueryLog() != null) {
+            remember(parameterIndex, value, Types.NULL);
+        }
+    }
+
+    private void bound(int parameterIndex, float value) {
+        if (cache.getSlowQueryLog() != null) {
+            remember(parameterIndex, value, Types.NULL);
+        }
+    }
+
+    private void bound(int parameterIndex, double value) {
+        if (cache.getSlowQueryLog() != null) {
+            remember(parameterIndex, value, Types.NULL);
+        }
+    }
+
+    private void boundNull(int parameterIndex, int sqlType) {
+        remember(parameterIndex, null, sqlType);
+    }
+
+    private void boundStream(int parameterIndex) {
+        remember(parameterIndex, STREAM, Types.NULL);
+    }
+
+    // Drops the references, so bound values can be collected while the statement is idle
+    private void clearBound() {
+        if (boundUpTo > 0) {
+            Arrays.fill(values, 0, boundUpTo, null);
+            Arrays.fill(bound, 0, boundUpTo, false);
+            boundUpTo = 0;
+        }
+    }
+
+    private List<SlowQueryLog.BoundParameter> boundParameters() {
+        List<SlowQueryLog.BoundParameter> parameters = new ArrayList<>();
+        for (int i = 0; i < boundUpTo; i++) {
+            if (bound[i]) {
+                parameters.add(values[i] == STREAM ? SlowQueryLog.BoundParameter.stream(i + 1)
+                        : new SlowQueryLog.BoundParameter(i + 1, values[i], nullTypes[i]));
+            }
+        }
+        return parameters;
+    }
+
+    @Override
+    public void close() {
+        if (checkedOut) {
+            checkedOut = false;
+            cache.release(this);
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return !checkedOut || statement.isClosed();
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        long start = beginExecution();
+        try {
+            ResultSet result = statement.executeQuery();
+            endExecution(start, 0);
+            return result(result);
+        } catch (SQLException e) {
+            failExecution(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        long start = beginExecution();
+        try {
+            int rows = statement.executeUpdate();
+            endExecution(start, Math.max(0, rows));
+            return rows;
+        } catch (SQLException e) {
+            failExecution(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        long start = beginExecution();
+        try {
+            long rows = statement.executeLargeUpdate();
+            endExecution(start, Math.max(0, rows));
+            return rows;
+        } catch (SQLException e) {
+            failExecution(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        long start = beginExecution();
+        try {
+            boolean hasResult = statement.execute();
+            endExecution(start, 0);
+            return hasResult;
+        } catch (SQLException e) {
+            failExecution(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long start = beginExecution();
+        try {
+            int[] counts = statement.executeBatch();
+            endExecution(start, sum(counts));
+            return counts;
+        } catch (SQLException e) {
+            failExecution(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        long start = beginExecution();
+        try {
+            long[] counts = statement.executeLargeBatch();
+            endExecution(start, sum(counts));
+            return counts;
+        } catch (SQLException e) {
+            failExecution(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return result(open().getResultSet());
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        ResultSet keys = open().getGeneratedKeys();
+        if (keys != null) {
+            lastResult = keys;
+        }
+        return keys;
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        open().clearParameters();
+        clearBound();
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        open().setNull(parameterIndex, sqlType);
+        boundNull(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        open().setBoolean(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        open().setByte(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        open().setShort(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        open().setInt(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        open().setLong(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        open().setFloat(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        open().setDouble(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        open().setBigDecimal(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        open().setString(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        open().setBytes(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        open().setDate(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        open().setTime(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        open().setTimestamp(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        open().setAsciiStream(parameterIndex, x, length);
+        boundStream(parameterIndex);
+    }
+
+    @Deprecated
+    @Override
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        open().setUnicodeStream(parameterIndex, x, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        open().setBinaryStream(parameterIndex, x, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        open().setObject(parameterIndex, x, targetSqlType);
+        bound(parameterIndex, x, targetSqlType);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        open().setObject(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        open().setCharacterStream(parameterIndex, reader, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        open().setRef(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        open().setBlob(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        open().setClob(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        open().setArray(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+        open().setDate(parameterIndex, x, cal);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+        open().setTime(parameterIndex, x, cal);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+        open().setTimestamp(parameterIndex, x, cal);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        open().setNull(parameterIndex, sqlType, typeName);
+        boundNull(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        open().setURL(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        open().setRowId(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        open().setNString(parameterIndex, value);
+        bound(parameterIndex, value);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+        open().setNCharacterStream(parameterIndex, value, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        open().setNClob(parameterIndex, value);
+        bound(parameterIndex, value);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        open().setClob(parameterIndex, reader, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+        open().setBlob(parameterIndex, inputStream, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        open().setNClob(parameterIndex, reader, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        open().setSQLXML(parameterIndex, xmlObject);
+        bound(parameterIndex, xmlObject);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        open().setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        bound(parameterIndex, x, targetSqlType);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        open().setAsciiStream(parameterIndex, x, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        open().setBinaryStream(parameterIndex, x, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        open().setCharacterStream(parameterIndex, reader, length);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        open().setAsciiStream(parameterIndex, x);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        open().setBinaryStream(parameterIndex, x);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        open().setCharacterStream(parameterIndex, reader);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+        open().setNCharacterStream(parameterIndex, value);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        open().setClob(parameterIndex, reader);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+        open().setBlob(parameterIndex, inputStream);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        open().setNClob(parameterIndex, reader);
+        boundStream(parameterIndex);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+        open().setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+        open().setObject(parameterIndex, x, targetSqlType);
+        bound(parameterIndex, x);
+    }
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return open().getMetaData();
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return open().getParameterMetaData();
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        open().addBatch();
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        open().clearBatch();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return open().getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        open().setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return open().getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        open().setMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return open().getLargeMaxRows();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        open().setLargeMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        open().setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return open().getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        open().setQueryTimeout(seconds);
+        timeoutSet = true;
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        open().cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return open().getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        open().clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        open().setCursorName(name);
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return open().getUpdateCount();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return open().getLargeUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return open().getMoreResults();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return open().getMoreResults(current);
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        open().setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return open().getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        open().setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return open().getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return open().getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return open().getResultSetType();
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return open().getResultSetHoldability();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return open().getConnection();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        open().setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return open().isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        open().closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return open().isCloseOnCompletion();
+    }
+
+    // Statement's executions of SQL text, which a prepared statement rejects
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return open().executeQuery(sql);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return open().executeUpdate(sql);
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return open().executeUpdate(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return open().executeUpdate(sql, columnIndexes);
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return open().executeUpdate(sql, columnNames);
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return open().executeLargeUpdate(sql);
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return open().executeLargeUpdate(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return open().executeLargeUpdate(sql, columnIndexes);
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return open().executeLargeUpdate(sql, columnNames);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return open().execute(sql);
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return open().execute(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return open().execute(sql, columnIndexes);
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return open().execute(sql, columnNames);
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        open().addBatch(sql);
+    }
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return open().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return open().isWrapperFor(iface);
+    }
+
+    @Override
+    public String toString() {
+        return statement.toString();
+    }
+}
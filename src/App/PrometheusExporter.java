@@ -0,0 +1,258 @@
+package App;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The PrometheusExporter class serves the app's metrics at /metrics in the Prometheus
+ * text exposition format, from the JDK's built-in HTTP server, so a Prometheus server
+ * can scrape every running copy of the app.
+ *
+ * It exports each data access method's calls, errors, rows and latency histogram, the
+ * statement, search and feed cache counters, the prepared statements in use and idle
+ * on the connection, FX stalls, and JVM memory and garbage collection. Everything is
+ * read from lock-free counters (LongAdders, atomics and volatile fields), so a scrape
+ * never waits on, or holds up, a query. Nothing is queried from the database.
+ *
+ * Requests are handled one at a time on a single daemon thread.
+ */
+public class PrometheusExporter {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    // Histogram bucket bounds in seconds, from a cached lookup to a full table scan
+    private static final double[] BUCKETS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final DatabaseHelper databaseHelper;
+    private HttpServer server = null;
+    private ExecutorService executor = null;
+
+    public PrometheusExporter(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Starts serving the metrics
+     *
+     * @param host The address to listen on, such as 127.0.0.1 to only allow local scrapes
+     * @param port The port to listen on
+     */
+    public synchronized void start(String host, int port) throws IOException {
+        stop();
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ptyxes-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stops serving, letting a scrape in progress finish first
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(1);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * Gets the port the server listens on, which is only chosen by the system when 0 was asked for
+     *
+     * @return The port, or -1 when not started
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!exchange.getRequestURI().getPath().equals("/metrics")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format
+     *
+     * @return The exposition text
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        writeMethods(out);
+        writeCaches(out);
+        writeStalls(out);
+        writeJvm(out);
+        return out.toString();
+    }
+
+    private void writeMethods(StringBuilder out) {
+        List<QueryMetrics.Statistics> methods = databaseHelper.getQueryMetrics().getMethodStatistics();
+        header(out, "ptyxes_db_calls_total", "counter", "Data access method calls");
+        for (QueryMetrics.Statistics method : methods) {
+            sample(out, "ptyxes_db_calls_total", "method", method.getName(), method.getCalls());
+        }
+        header(out, "ptyxes_db_errors_total", "counter", "Data access method calls in which a statement failed");
+        for (QueryMetrics.Statistics method : methods) {
+            sample(out, "ptyxes_db_errors_total", "method", method.getName(), method.getErrors());
+        }
+        header(out, "ptyxes_db_rows_total", "counter", "Rows returned or changed by data access methods");
+        for (QueryMetrics.Statistics method : methods) {
+            sample(out, "ptyxes_db_rows_total", "method", method.getName(), method.getRows());
+        }
+
+        header(out, "ptyxes_db_call_duration_seconds", "histogram", "Data access method latency");
+        for (QueryMetrics.Statistics method : methods) {
+            LatencyHistogram.Snapshot latency = method.getLatency();
+            String labels = "method=\"" + escape(method.getName()) + "\"";
+            for (double bound : BUCKETS) {
+                out.append("ptyxes_db_call_duration_seconds_bucket{").append(labels).append(",le=\"")
+                        .append(BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString()).append("\"} ")
+                        .append(latency.getCountAtOrBelow((long) (bound * 1e9))).append('\n');
+            }
+            out.append("ptyxes_db_call_duration_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                    .append(latency.getCount()).append('\n');
+            out.append("ptyxes_db_call_duration_seconds_sum{").append(labels).append("} ")
+                    .append(format(latency.getTotalNanos() / 1e9)).append('\n');
+            out.append("ptyxes_db_call_duration_seconds_count{").append(labels).append("} ")
+                    .append(latency.getCount()).append('\n');
+        }
+    }
+
+    private void writeCaches(StringBuilder out) {
+        StatementCache statements = databaseHelper.getStatementCache();
+        if (statements != null) {
+            header(out, "ptyxes_db_statements", "gauge", "Prepared statements on the connection, by state");
+            sample(out, "ptyxes_db_statements", "state", "in_use", statements.getStatementsInUse());
+            sample(out, "ptyxes_db_statements", "state", "idle", statements.size());
+            header(out, "ptyxes_db_statement_prepare_seconds_total", "counter",
+                    "Time spent preparing statements that weren't cached");
+            sample(out, "ptyxes_db_statement_prepare_seconds_total", null, null,
+                    statements.getPrepareNanos() / 1e9);
+        }
+
+        long[] search = databaseHelper.getSearchCacheCounts();
+        long[] feed = databaseHelper.getFeedCacheCounts();
+        header(out, "ptyxes_cache_hits_total", "counter", "Lookups answered from a cache");
+        if (statements != null) {
+            sample(out, "ptyxes_cache_hits_total", "cache", "statement", statements.getHitCount());
+        }
+        sample(out, "ptyxes_cache_hits_total", "cache", "search", search[0]);
+        sample(out, "ptyxes_cache_hits_total", "cache", "feed", feed[0]);
+        header(out, "ptyxes_cache_misses_total", "counter", "Lookups a cache couldn't answer");
+        if (statements != null) {
+            sample(out, "ptyxes_cache_misses_total", "cache", "statement", statements.getMissCount());
+        }
+        sample(out, "ptyxes_cache_misses_total", "cache", "search", search[1]);
+        sample(out, "ptyxes_cache_misses_total", "cache", "feed", feed[1]);
+        if (statements != null) {
+            header(out, "ptyxes_cache_evictions_total", "counter", "Entries evicted from a cache to make room");
+            sample(out, "ptyxes_cache_evictions_total", "cache", "statement", statements.getEvictionCount());
+        }
+    }
+
+    private void writeStalls(StringBuilder out) {
+        FxStallMonitor monitor = FxStallMonitor.getRunning();
+        if (monitor == null) {
+            return;
+        }
+        header(out, "ptyxes_fx_stalls_total", "counter", "FX Application Thread stalls over the threshold, by page");
+        for (Map.Entry<String, Long> entry : monitor.getStallCountsByPage().entrySet()) {
+            sample(out, "ptyxes_fx_stalls_total", "page", entry.getKey(), entry.getValue());
+        }
+        LatencyHistogram.Snapshot stalls = monitor.getStallLatency();
+        header(out, "ptyxes_fx_stall_seconds_total", "counter", "Time the FX Application Thread spent stalled");
+        sample(out, "ptyxes_fx_stall_seconds_total", null, null, stalls.getTotalNanos() / 1e9);
+        header(out, "ptyxes_fx_stall_seconds_max", "gauge", "Longest FX Application Thread stall");
+        sample(out, "ptyxes_fx_stall_seconds_max", null, null, stalls.getMaxNanos() / 1e9);
+    }
+
+    private void writeJvm(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        header(out, "jvm_memory_bytes_used", "gauge", "Used bytes of a memory area");
+        sample(out, "jvm_memory_bytes_used", "area", "heap", heap.getUsed());
+        sample(out, "jvm_memory_bytes_used", "area", "nonheap", nonHeap.getUsed());
+        header(out, "jvm_memory_bytes_committed", "gauge", "Committed bytes of a memory area");
+        sample(out, "jvm_memory_bytes_committed", "area", "heap", heap.getCommitted());
+        sample(out, "jvm_memory_bytes_committed", "area", "nonheap", nonHeap.getCommitted());
+        header(out, "jvm_memory_bytes_max", "gauge", "Maximum bytes of a memory area, or -1 if unbounded");
+        sample(out, "jvm_memory_bytes_max", "area", "heap", heap.getMax());
+        sample(out, "jvm_memory_bytes_max", "area", "nonheap", nonHeap.getMax());
+
+        header(out, "jvm_gc_collections_total", "counter", "Collections done by a garbage collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collections_total", "gc", gc.getName(), Math.max(0, gc.getCollectionCount()));
+        }
+        header(out, "jvm_gc_collection_seconds_total", "counter", "Time spent in a garbage collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collection_seconds_total", "gc", gc.getName(),
+                    Math.max(0, gc.getCollectionTime()) / 1e3);
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, double number) {
+        out.append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"").append(escape(value)).append("\"}");
+        }
+        out.append(' ').append(format(number)).append('\n');
+    }
+
+    private static String format(double number) {
+        if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+            return Long.toString((long) number);
+        }
+        return Double.toString(number);
+    }
+
+    // Label values escape backslashes, double quotes and line feeds
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,380 @@
+package App;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.EventType;
+
+/**
+ * The QueryMetrics class records how often each data access method and each SQL
+ * statement runs, how many rows it returns and how long it takes, with a latency
+ * histogram per method and per statement.
+ *
+ * A method is timed from startCall to closing the returned Call, which is meant to be
+ * used in try-with-resources around the method body. Statements are recorded by the
+ * statement cache, which counts the rows an update changed or a query's result
+ * returned, and credits them to the method running on the same thread. A method that
+ * calls another is counted under both, and its rows include those of the inner call.
+ * A method call counts as an error when one of its statements failed. Each call is also
+ * a DatabaseCallEvent, for Java Flight Recorder recordings that enable it.
+ *
+ * Recording takes no locks: counters are LongAdders and histograms are lock-free, so
+ * the metrics can stay on in normal use. They can be read at any time, and optionally
+ * written to a file every so often for looking at after the fact.
+ */
+public class QueryMetrics {
+    // Statements are keyed by their SQL; past this many, new ones are counted together
+    private static final int MAX_STATEMENTS = 500;
+    private static final String OTHER_STATEMENTS = "(other statements)";
+    // Checked before creating an event, since a Call outlives the JIT's escape analysis
+    private static final EventType CALL_EVENT = EventType.getEventType(DatabaseCallEvent.class);
+
+    private final Map<String, Metric> methods = new ConcurrentHashMap<>();
+    private final Map<String, Metric> statements = new ConcurrentHashMap<>();
+    private final ThreadLocal<Call> currentCall = new ThreadLocal<>();
+    private volatile LocalDateTime resetAt = LocalDateTime.now();
+
+    private ScheduledExecutorService dumper = null;
+    private Path dumpFile = null;
+
+    /**
+     * Starts timing a data access method
+     *
+     * @param method The method name
+     * @return The running call, to be closed when the method returns
+     */
+    public Call startCall(String method) {
+        Metric metric = methods.get(method);
+        if (metric == null) {
+            metric = methods.computeIfAbsent(method, Metric::new);
+        }
+        Call call = new Call(metric, currentCall.get());
+        currentCall.set(call);
+        return call;
+    }
+
+    /**
+     * Gets the metric of a statement, to be held on to by whatever executes it
+     *
+     * @param sql The statement's SQL
+     * @return The metric all executions of the SQL are recorded in
+     */
+    public Metric statement(String sql) {
+        Metric metric = statements.get(sql);
+        if (metric != null) {
+            return metric;
+        }
+        if (statements.size() >= MAX_STATEMENTS) {
+            return statements.computeIfAbsent(OTHER_STATEMENTS, Metric::new);
+        }
+        return statements.computeIfAbsent(sql, Metric::new);
+    }
+
+    /**
+     * Records one execution of a statement and credits its rows to the running method
+     *
+     * @param statement The statement's metric
+     * @param nanos How long it ran
+     * @param rows The rows it returned or changed
+     * @param failed Whether it threw
+     */
+    public void recordStatement(Metric statement, long nanos, long rows, boolean failed) {
+        statement.record(nanos, rows, failed);
+        Call call = currentCall.get();
+        if (call != null) {
+            call.rows += rows;
+            call.failed |= failed;
+        }
+    }
+
+    /**
+     * Gets the data access method running on this thread
+     *
+     * @return The innermost running method's name, or null outside of one
+     */
+    String currentMethod() {
+        Call call = currentCall.get();
+        return call != null ? call.metric.name : null;
+    }
+
+    /**
+     * Gets the totals of every data access method called so far
+     *
+     * @return One entry per method, the most total time first
+     */
+    public List<Statistics> getMethodStatistics() {
+        return statisticsOf(methods);
+    }
+
+    /**
+     * Gets the totals of every SQL statement executed so far
+     *
+     * @return One entry per statement, the most total time first
+     */
+    public List<Statistics> getStatementStatistics() {
+        return statisticsOf(statements);
+    }
+
+    /**
+     * Clears every count, so the metrics cover only what happens from now on
+     */
+    public void reset() {
+        for (Metric metric : methods.values()) {
+            metric.reset();
+        }
+        for (Metric metric : statements.values()) {
+            metric.reset();
+        }
+        resetAt = LocalDateTime.now();
+    }
+
+    /**
+     * Writes the method and statement tables as text
+     *
+     * @param out Where to write them
+     */
+    public void writeReport(Appendable out) throws IOException {
+        out.append("Query metrics from ").append(resetAt.toString()).append(" to ")
+                .append(LocalDateTime.now().toString()).append('\n');
+        out.append("\nMethods\n");
+        writeTable(out, getMethodStatistics());
+        out.append("\nStatements\n");
+        writeTable(out, getStatementStatistics());
+    }
+
+    /**
+     * Starts writing the report to a file at a fixed interval, replacing the previous
+     * one each time, on a background thread
+     *
+     * @param file The file to write
+     * @param intervalMillis How long to wait between writes
+     */
+    public synchronized void startDumping(Path file, long intervalMillis) {
+        stopDumping();
+        dumpFile = file;
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ptyxes-query-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(this::dump, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic writes, writing the report one last time
+     */
+    public synchronized void stopDumping() {
+        if (dumper == null) {
+            return;
+        }
+        dumper.shutdownNow();
+        try {
+            dumper.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dumper = null;
+        dump();
+    }
+
+    // Written next to the file first, so a reader never sees half a report
+    private void dump() {
+        Path file = dumpFile;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writeReport(writer);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.error("Error writing query metrics", e, "file", file);
+        }
+    }
+
+    private static List<Statistics> statisticsOf(Map<String, Metric> metrics) {
+        List<Statistics> statistics = new ArrayList<>();
+        for (Metric metric : metrics.values()) {
+            Statistics entry = metric.getStatistics();
+            if (entry.getCalls() > 0) {
+                statistics.add(entry);
+            }
+        }
+        statistics.sort(Comparator.comparingLong(Statistics::getTotalNanos).reversed());
+        return statistics;
+    }
+
+    private static void writeTable(Appendable out, List<Statistics> statistics) throws IOException {
+        out.append(String.format("%10s %7s %11s %11s %9s %9s %9s %9s %9s  %s%n", "calls", "errors", "rows",
+                "total ms", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "name"));
+        for (Statistics entry : statistics) {
+            out.append(String.format(Locale.ROOT, "%10d %7d %11d %11.1f %9.3f %9.3f %9.3f %9.3f %9.3f  %s%n",
+                    entry.getCalls(), entry.getErrors(), entry.getRows(), entry.getTotalNanos() / 1e6,
+                    entry.getMeanNanos() / 1e6, entry.getP50Nanos() / 1e6, entry.getP95Nanos() / 1e6,
+                    entry.getP99Nanos() / 1e6, entry.getMaxNanos() / 1e6,
+                    entry.getName().replaceAll("\\s+", " ")));
+        }
+    }
+
+    /**
+     * The counters and latency histogram of one method or statement
+     */
+    public static final class Metric {
+        private final String name;
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Metric(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private void record(long nanos, long rowCount, boolean failed) {
+            latency.record(nanos);
+            rows.add(rowCount);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        private void reset() {
+            latency.reset();
+            rows.reset();
+            errors.reset();
+        }
+
+        private Statistics getStatistics() {
+            return new Statistics(name, rows.sum(), errors.sum(), latency.snapshot());
+        }
+    }
+
+    /**
+     * A running method call; closing it records it
+     */
+    public final class Call implements AutoCloseable {
+        private final Metric metric;
+        private final Call parent;
+        private final long start = System.nanoTime();
+        private final DatabaseCallEvent event = CALL_EVENT.isEnabled() ? new DatabaseCallEvent() : null;
+        private long rows = 0;
+        private boolean failed = false;
+
+        private Call(Metric metric, Call parent) {
+            this.metric = metric;
+            this.parent = parent;
+            if (event != null) {
+                event.begin();
+            }
+        }
+
+        @Override
+        public void close() {
+            metric.record(System.nanoTime() - start, rows, failed);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.method = metric.name;
+                    event.rows = rows;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+            if (parent != null) {
+                parent.rows += rows;
+                parent.failed |= failed;
+                currentCall.set(parent);
+            } else {
+                currentCall.remove();
+            }
+        }
+    }
+
+    /**
+     * The totals of one method or statement at one moment
+     */
+    public static final class Statistics {
+        private final String name;
+        private final long rows;
+        private final long errors;
+        private final LatencyHistogram.Snapshot latency;
+
+        private Statistics(String name, long rows, long errors, LatencyHistogram.Snapshot latency) {
+            this.name = name;
+            this.rows = rows;
+            this.errors = errors;
+            this.latency = latency;
+        }
+
+        /**
+         * Gets the method name or the statement's SQL
+         *
+         * @return The name
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getTotalNanos() {
+            return latency.getTotalNanos();
+        }
+
+        public long getMeanNanos() {
+            return latency.getMeanNanos();
+        }
+
+        public long getP50Nanos() {
+            return latency.getValueAtPercentile(0.50);
+        }
+
+        public long getP95Nanos() {
+            return latency.getValueAtPercentile(0.95);
+        }
+
+        public long getP99Nanos() {
+            return latency.getValueAtPercentile(0.99);
+        }
+
+        public long getMaxNanos() {
+            return latency.getMaxNanos();
+        }
+
+        /**
+         * Gets the full latency distribution
+         *
+         * @return The histogram snapshot the other latencies were read from
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class RecipeDetailPage {
     }
     
     public void show(Stage primaryStage) {
+        UiBuildEvent event = UiBuildEvent.start("RecipeDetailPage", "show");
         primaryStage.setTitle(mealPost.getTitle() + " - Ptyxes");
         
         // Create the main scroll pane for the page content
@@ -82,13 +83,13 @@ public class RecipeDetailPage {
         Label servings = new Label("Servings: " + mealPost.getServings());
         servings.setStyle(DarkTheme.CSS_LABEL);
         
-        Label dietaryType = new Label(mealPost.getDietaryType());
+        Label dietaryType = new Label(mealPost.getDietaryType().getLabel());
         dietaryType.setStyle(DarkTheme.CSS_LABEL);
         
         // Add color coding for dietary types
-        if ("Vegan".equals(mealPost.getDietaryType())) {
+        if (mealPost.getDietaryType() == DietaryType.VEGAN) {
             dietaryType.setTextFill(Color.web("#4CAF50")); // Green for vegan
-        } else if ("Vegetarian".equals(mealPost.getDietaryType())) {
+        } else if (mealPost.getDietaryType() == DietaryType.VEGETARIAN) {
             dietaryType.setTextFill(Color.web("#8BC34A")); // Light green for vegetarian
         }
         
@@ -125,7 +126,7 @@ public class RecipeDetailPage {
                 ingredientsList.getChildren().add(noIngredientsText);
             } else {
                 for (MealIngredient ingredient : ingredients) {
-                    Text ingredientText = ingredient.getUnit().isEmpty() ?
+                    Text ingredientText = ingredient.getUnit().isNone() ?
                             new Text("• " + ingredient.getQuantity() + " " + ingredient.getName()) :
                             new Text("• " + ingredient.getQuantity() + " " + ingredient.getUnit() + " " + ingredient.getName());
                     ingredientText.setFill(Color.web(DarkTheme.TEXT_COLOR));
@@ -153,6 +154,12 @@ public class RecipeDetailPage {
         
         instructionsBox.getChildren().addAll(instructionsTitle, instructionsText);
         
+        // Recommendations from other users' upvotes
+        VBox recommendationsBox = createRecommendationsBox(primaryStage);
+
+        // Recipes with nearly the same ingredients
+        VBox similarRecipesBox = createSimilarRecipesBox(primaryStage);
+        
         // Comments section
         VBox commentsSection = new VBox(15);
         
@@ -201,6 +208,8 @@ public class RecipeDetailPage {
             descriptionBox,
             ingredientsBox,
             instructionsBox,
+            recommendationsBox,
+            similarRecipesBox,
             commentsSection
         );
         
@@ -210,16 +219,90 @@ public class RecipeDetailPage {
         
         primaryStage.setScene(scene);
         primaryStage.show();
+        event.finish(1);
     }
     
+    /**
+     * Creates the "people who upvoted this also upvoted" section. It is left empty
+     * when there are no recommendations for this recipe yet.
+     *
+     * @param primaryStage the stage to open a recommended recipe in
+     * @return a VBox with links to the recommended recipes
+     */
+    private VBox createRecommendationsBox(Stage primaryStage) {
+        try {
+            return createRelatedRecipesBox("People who upvoted this also upvoted",
+                    databaseHelper.getRecommendedMealPosts(mealPost.getId(), 5), primaryStage);
+        } catch (SQLException e) {
+            return createRelatedRecipesError("Error loading recommendations: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the "similar recipes" section, listing recipes that share most of this
+     * recipe's ingredients. It is left empty when no recipe is similar enough.
+     *
+     * @param primaryStage the stage to open a similar recipe in
+     * @return a VBox with links to the similar recipes
+     */
+    private VBox createSimilarRecipesBox(Stage primaryStage) {
+        try {
+            return createRelatedRecipesBox("Similar recipes",
+                    databaseHelper.getSimilarMealPosts(mealPost.getId(), 5), primaryStage);
+        } catch (SQLException e) {
+            return createRelatedRecipesError("Error loading similar recipes: " + e.getMessage());
+        }
+    }
+
+    // A titled list of links to other recipes, or an empty box if there are none
+    private VBox createRelatedRecipesBox(String title, List<MealPost> posts, Stage primaryStage) {
+        VBox relatedBox = new VBox(10);
+        if (posts.isEmpty()) {
+            return relatedBox;
+        }
+
+        Text relatedTitle = new Text(title);
+        relatedTitle.setFont(Font.font("System", FontWeight.BOLD, 18));
+        relatedTitle.setFill(Color.web(DarkTheme.TEXT_COLOR));
+        relatedBox.getChildren().add(relatedTitle);
+
+        for (MealPost post : posts) {
+            Hyperlink link = new Hyperlink(post.getTitle() + " (" + post.getUpvotes() + " upvotes)");
+            link.setStyle("-fx-text-fill: " + DarkTheme.ACCENT_COLOR + ";");
+            link.setOnAction(e -> {
+                try {
+                    MealPost fullPost = databaseHelper.getMealPostById(post.getId());
+                    if (fullPost != null) {
+                        new RecipeDetailPage(databaseHelper, currentUser, fullPost).show(primaryStage);
+                    }
+                } catch (SQLException ex) {
+                    Log.error("Error opening related recipe", ex);
+                }
+            });
+            relatedBox.getChildren().add(link);
+        }
+        return relatedBox;
+    }
+
+    private VBox createRelatedRecipesError(String message) {
+        VBox relatedBox = new VBox(10);
+        Text errorText = new Text(message);
+        errorText.setFill(Color.web(DarkTheme.ERROR_COLOR));
+        relatedBox.getChildren().add(errorText);
+        return relatedBox;
+    }
+
     /**
      * Loads and displays the comments for the current meal post.
      */
     private void loadComments() {
         commentsContainer.getChildren().clear();
         
+        UiBuildEvent event = UiBuildEvent.start("RecipeDetailPage", "loadComments");
+        int shown = 0;
         try {
             List<Comment> comments = mealPost.getComments(databaseHelper);
+            shown = comments.size();
             
             if (comments.isEmpty()) {
                 Text noCommentsText = new Text("No comments yet. Be the first to comment!");
@@ -236,6 +319,8 @@ public class RecipeDetailPage {
             Text errorText = new Text("Error loading comments: " + e.getMessage());
             errorText.setFill(Color.web(DarkTheme.ERROR_COLOR));
             commentsContainer.getChildren().add(errorText);
+        } finally {
+            event.finish(shown);
         }
     }
     
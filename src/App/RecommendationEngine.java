@@ -0,0 +1,302 @@
+package App;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RecommendationEngine class maintains "people who upvoted this also upvoted"
+ * recommendations. It keeps a sparse co-occurrence model of the upvotes table in memory
+ * and stores the top neighbors of every meal post in the meal_recommendations table,
+ * so reading recommendations is a single indexed lookup.
+ *
+ * The model is built from the upvotes table once, then updated from upvote events.
+ * Events are queued by the thread making the change and applied on a background
+ * thread, which periodically rewrites the neighbor lists of the meals that changed.
+ * Applying an event is idempotent (upvoting an already upvoted meal changes nothing),
+ * so events that raced with the initial build are safe to apply again.
+ *
+ * The engine writes through its own connection, so it never joins a transaction
+ * running on the application's connection.
+ */
+public class RecommendationEngine {
+    /** Number of neighbors stored per meal post */
+    public static final int NEIGHBORS = 10;
+
+    private enum EventType { UPVOTE_ADDED, UPVOTE_REMOVED, USER_REMOVED, MEAL_REMOVED }
+
+    private static class Event {
+        final EventType type;
+        final int userId;
+        final int mealId;
+
+        Event(EventType type, int userId, int mealId) {
+            this.type = type;
+            this.userId = userId;
+            this.mealId = mealId;
+        }
+    }
+
+    private final Connection connection;
+    private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ptyxes-recommendations");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The model; only touched by the worker thread
+    private final Map<Integer, Set<Integer>> upvotesByUser = new HashMap<>();
+    private final Map<Integer, Set<Integer>> upvotersByMeal = new HashMap<>();
+    private final Map<Integer, Map<Integer, Integer>> coCounts = new HashMap<>();
+    private final Set<Integer> dirtyMeals = new HashSet<>();
+
+    /**
+     * Creates the engine
+     *
+     * @param connection A connection used only by this engine
+     */
+    public RecommendationEngine(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Builds the model in the background and starts applying events
+     *
+     * @param flushDelayMillis How long to wait between rewrites of changed neighbor lists
+     */
+    public void start(long flushDelayMillis) {
+        worker.execute(() -> {
+            try {
+                build();
+            } catch (SQLException e) {
+                Log.error("Error building recommendations", e);
+            }
+        });
+        worker.scheduleWithFixedDelay(this::flush, flushDelayMillis, flushDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread and closes the engine's connection
+     */
+    public void stop() {
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+            connection.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            Log.warn("Error closing recommendations connection", e);
+        }
+    }
+
+    public void upvoteAdded(int userId, int mealId) {
+        events.add(new Event(EventType.UPVOTE_ADDED, userId, mealId));
+    }
+
+    public void upvoteRemoved(int userId, int mealId) {
+        events.add(new Event(EventType.UPVOTE_REMOVED, userId, mealId));
+    }
+
+    public void userRemoved(int userId) {
+        events.add(new Event(EventType.USER_REMOVED, userId, 0));
+    }
+
+    public void mealRemoved(int mealId) {
+        events.add(new Event(EventType.MEAL_REMOVED, 0, mealId));
+    }
+
+    /**
+     * Applies queued events and rewrites the neighbor lists they changed. Runs on the
+     * worker thread; also callable directly once the worker is stopped, e.g., in tests.
+     */
+    public void flush() {
+        Event event;
+        while ((event = events.poll()) != null) {
+            apply(event);
+        }
+        if (dirtyMeals.isEmpty()) {
+            return;
+        }
+
+        List<Integer> meals = new ArrayList<>(dirtyMeals);
+        dirtyMeals.clear();
+        try {
+            writeNeighbors(meals, false);
+        } catch (SQLException e) {
+            // Try again on the next flush, e.g., after a meal deletion has been applied
+            dirtyMeals.addAll(meals);
+            Log.error("Error saving recommendations", e, "meals", meals.size());
+        }
+    }
+
+    // Loads every upvote and rewrites all neighbor lists
+    private void build() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT userId, mealId FROM upvotes")) {
+            while (rs.next()) {
+                addUpvote(rs.getInt("userId"), rs.getInt("mealId"));
+            }
+        }
+        List<Integer> meals = new ArrayList<>(upvotersByMeal.keySet());
+        dirtyMeals.clear();
+        writeNeighbors(meals, true);
+    }
+
+    private void apply(Event event) {
+        switch (event.type) {
+            case UPVOTE_ADDED:
+                addUpvote(event.userId, event.mealId);
+                break;
+            case UPVOTE_REMOVED:
+                removeUpvote(event.userId, event.mealId);
+                break;
+            case USER_REMOVED:
+                Set<Integer> userUpvotes = upvotesByUser.get(event.userId);
+                if (userUpvotes != null) {
+                    for (Integer mealId : new ArrayList<>(userUpvotes)) {
+                        removeUpvote(event.userId, mealId);
+                    }
+                }
+                break;
+            case MEAL_REMOVED:
+                Set<Integer> upvoters = upvotersByMeal.get(event.mealId);
+                if (upvoters != null) {
+                    for (Integer userId : new ArrayList<>(upvoters)) {
+                        removeUpvote(userId, event.mealId);
+                    }
+                }
+                // Its stored rows are removed by the foreign key cascade
+                dirtyMeals.remove(event.mealId);
+                break;
+        }
+    }
+
+    private void addUpvote(int userId, int mealId) {
+        Set<Integer> userUpvotes = upvotesByUser.computeIfAbsent(userId, id -> new HashSet<>());
+        if (!userUpvotes.add(mealId)) {
+            return;
+        }
+        upvotersByMeal.computeIfAbsent(mealId, id -> new HashSet<>()).add(userId);
+        dirtyMeals.add(mealId);
+        for (Integer other : userUpvotes) {
+            if (other != mealId) {
+                coCounts.computeIfAbsent(mealId, id -> new HashMap<>()).merge(other, 1, Integer::sum);
+                coCounts.computeIfAbsent(other, id -> new HashMap<>()).merge(mealId, 1, Integer::sum);
+                dirtyMeals.add(other);
+            }
+        }
+    }
+
+    private void removeUpvote(int userId, int mealId) {
+        Set<Integer> userUpvotes = upvotesByUser.get(userId);
+        if (userUpvotes == null || !userUpvotes.remove(mealId)) {
+            return;
+        }
+        if (userUpvotes.isEmpty()) {
+            upvotesByUser.remove(userId);
+        }
+        Set<Integer> upvoters = upvotersByMeal.get(mealId);
+        upvoters.remove(userId);
+        if (upvoters.isEmpty()) {
+            upvotersByMeal.remove(mealId);
+        }
+        dirtyMeals.add(mealId);
+        for (Integer other : userUpvotes) {
+            decrement(mealId, other);
+            decrement(other, mealId);
+            dirtyMeals.add(other);
+        }
+    }
+
+    private void decrement(int mealId, int other) {
+        Map<Integer, Integer> counts = coCounts.get(mealId);
+        if (counts == null) {
+            return;
+        }
+        counts.computeIfPresent(other, (id, count) -> count > 1 ? count - 1 : null);
+        if (counts.isEmpty()) {
+            coCounts.remove(mealId);
+        }
+    }
+
+    /**
+     * Gets the best neighbors of a meal, scored by cosine similarity of their upvoters:
+     * co-upvotes divided by the square root of the product of both meals' upvote counts
+     */
+    private List<double[]> topNeighbors(int mealId) {
+        List<double[]> neighbors = new ArrayList<>();
+        Map<Integer, Integer> counts = coCounts.get(mealId);
+        Set<Integer> upvoters = upvotersByMeal.get(mealId);
+        if (counts == null || upvoters == null) {
+            return neighbors;
+        }
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            Set<Integer> otherUpvoters = upvotersByMeal.get(entry.getKey());
+            if (otherUpvoters == null) {
+                continue;
+            }
+            double score = entry.getValue() / Math.sqrt((double) upvoters.size() * otherUpvoters.size());
+            neighbors.add(new double[] { entry.getKey(), score });
+        }
+        neighbors.sort((a, b) -> a[1] != b[1] ? Double.compare(b[1], a[1]) : Double.compare(a[0], b[0]));
+        return neighbors.size() > NEIGHBORS ? new ArrayList<>(neighbors.subList(0, NEIGHBORS)) : neighbors;
+    }
+
+    // Replaces the stored neighbor lists of the given meals in one transaction
+    private void writeNeighbors(List<Integer> meals, boolean replaceAll) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            if (replaceAll) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM meal_recommendations");
+                }
+            } else {
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "DELETE FROM meal_recommendations WHERE mealId = ?")) {
+                    for (Integer mealId : meals) {
+                        pstmt.setInt(1, mealId);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+            }
+
+            String insert = "INSERT INTO meal_recommendations (mealId, neighborId, score) VALUES (?, ?, ?)";
+            try (PreparedStatement pstmt = connection.prepareStatement(insert)) {
+                int batched = 0;
+                for (Integer mealId : meals) {
+                    for (double[] neighbor : topNeighbors(mealId)) {
+                        pstmt.setInt(1, mealId);
+                        pstmt.setInt(2, (int) neighbor[0]);
+                        pstmt.setDouble(3, neighbor[1]);
+                        pstmt.addBatch();
+                        if (++batched % 1000 == 0) {
+                            pstmt.executeBatch();
+                        }
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package App;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SearchResultCache class remembers which meal post IDs matched recent search texts.
+ * Because search is a substring match, the posts matching "past" are a subset of those
+ * matching "pas", so while the user types, each longer query only needs to re-check the
+ * posts that matched a shorter cached query instead of scanning every row.
+ * Entries are evicted least recently used first, and the whole cache is cleared
+ * whenever posts are written.
+ */
+public class SearchResultCache {
+    private final Map<String, int[]> entries;
+    // Lock-free, so reading them never waits on a lookup
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SearchResultCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached IDs for an exact search text
+     *
+     * @param query The normalized search text
+     * @return The matching IDs, or null if not cached
+     */
+    public synchronized int[] get(String query) {
+        int[] ids = entries.get(query);
+        if (ids != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the smallest cached result for a search text contained in the given one.
+     * Every post matching the given text is guaranteed to be in that result.
+     *
+     * @param query The normalized search text
+     * @return Candidate IDs, or null if no cached text is contained in the query
+     */
+    public synchronized int[] getCandidates(String query) {
+        int[] best = null;
+        for (Map.Entry<String, int[]> entry : entries.entrySet()) {
+            if (query.contains(entry.getKey()) && (best == null || entry.getValue().length < best.length)) {
+                best = entry.getValue();
+            }
+        }
+        return best;
+    }
+
+    public synchronized void put(String query, int[] ids) {
+        entries.put(query, ids);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,139 @@
+package App;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SearchTerms class is a search text checked against the search vocabulary. A
+ * text whose words are all known is matched as a plain substring, as before. When a
+ * word is unknown, the search also accepts posts containing, for every word, either
+ * the word itself or one of the known words a few edits away from it, and the text
+ * with each unknown word replaced by its closest known word is offered as a
+ * "did you mean" correction.
+ */
+public class SearchTerms {
+    // Alternatives tried per misspelled word
+    static final int MAX_ALTERNATIVES = 5;
+
+    private final String phrase;
+    private final List<List<String>> wordAlternatives;
+    private final String correction;
+
+    /**
+     * Checks a search text against the vocabulary
+     *
+     * @param query The search text
+     * @param vocabulary The known words of titles and ingredient names
+     */
+    public SearchTerms(String query, FuzzyTermIndex vocabulary) {
+        this.phrase = query.toLowerCase();
+
+        List<List<String>> alternatives = new ArrayList<>();
+        StringBuilder corrected = new StringBuilder();
+        boolean expanded = false;
+        for (String word : FuzzyTermIndex.words(query)) {
+            List<String> terms = new ArrayList<>();
+            terms.add(word);
+            String best = word;
+            if (!vocabulary.contains(word)) {
+                List<String> similar = vocabulary.similar(word, MAX_ALTERNATIVES);
+                if (!similar.isEmpty()) {
+                    terms.addAll(similar);
+                    best = similar.get(0);
+                    expanded = true;
+                }
+            }
+            alternatives.add(terms);
+            corrected.append(corrected.length() == 0 ? "" : " ").append(best);
+        }
+        this.wordAlternatives = expanded ? alternatives : List.of();
+        this.correction = expanded ? corrected.toString() : null;
+    }
+
+    /**
+     * Gets the lowercase search text
+     *
+     * @return The text matched as a substring
+     */
+    public String getPhrase() {
+        return phrase;
+    }
+
+    /**
+     * Tells whether the search was widened to words close to misspelled ones
+     *
+     * @return true if some word was unknown and has close known words
+     */
+    public boolean isExpanded() {
+        return correction != null;
+    }
+
+    /**
+     * Gets the search text with every misspelled word replaced by its closest known word
+     *
+     * @return The suggested text, or null if every word is known or has nothing close
+     */
+    public String getCorrection() {
+        return correction;
+    }
+
+    /**
+     * Appends the search condition, starting with AND. A term matches a row when any of
+     * the given predicates does; every place the vocabulary's words come from should
+     * be searched, so a suggested correction finds the rows its words came from.
+     *
+     * @param sql The query being built
+     * @param predicates The conditions to try for each term, each with one LIKE parameter,
+     *                   e.g., "LOWER(p.title) LIKE ?"
+     */
+    public void appendCondition(StringBuilder sql, String... predicates) {
+        sql.append("AND (");
+        appendAnyPredicate(sql, predicates);
+        for (int word = 0; word < wordAlternatives.size(); word++) {
+            List<String> terms = wordAlternatives.get(word);
+            sql.append(word == 0 ? " OR ((" : ") AND (");
+            for (int i = 0; i < terms.size(); i++) {
+                sql.append(i == 0 ? "" : " OR ");
+                appendAnyPredicate(sql, predicates);
+            }
+        }
+        sql.append(wordAlternatives.isEmpty() ? ") " : "))) ");
+    }
+
+    /**
+     * Binds the parameters of the condition appended by appendCondition
+     *
+     * @param pstmt The statement
+     * @param index The index of the first parameter
+     * @param predicateCount The number of predicates the condition was appended with
+     * @return The index of the next parameter
+     */
+    public int bind(PreparedStatement pstmt, int index, int predicateCount) throws SQLException {
+        index = bindLike(pstmt, index, predicateCount, phrase);
+        for (List<String> terms : wordAlternatives) {
+            for (String term : terms) {
+                index = bindLike(pstmt, index, predicateCount, term);
+            }
+        }
+        return index;
+    }
+
+    private static void appendAnyPredicate(StringBuilder sql, String[] predicates) {
+        sql.append("(");
+        for (int i = 0; i < predicates.length; i++) {
+            sql.append(i == 0 ? "" : " OR ").append(predicates[i]);
+        }
+        sql.append(")");
+    }
+
+    private static int bindLike(PreparedStatement pstmt, int index, int predicateCount, String text)
+            throws SQLException {
+        String likeParam = "%" + text + "%";
+        for (int i = 0; i < predicateCount; i++) {
+            pstmt.setString(index++, likeParam);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,205 @@
+package App;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ShoppingListPage class displays the recipes selected on the main page together
+ * with one consolidated shopping list for all of them. The number of servings can be
+ * changed per recipe, and the list is rebuilt from a single aggregation query.
+ */
+public class ShoppingListPage {
+
+    private final DatabaseHelper databaseHelper;
+    private final User currentUser;
+    private final Map<Integer, Integer> selection;
+    private VBox recipesContainer;
+    private VBox shoppingListContainer;
+
+    /**
+     * Creates the shopping list page
+     *
+     * @param databaseHelper the database helper
+     * @param currentUser the logged in user
+     * @param selection the selected meal post IDs, each with the number of servings wanted
+     */
+    public ShoppingListPage(DatabaseHelper databaseHelper, User currentUser, Map<Integer, Integer> selection) {
+        this.databaseHelper = databaseHelper;
+        this.currentUser = currentUser;
+        this.selection = selection;
+    }
+
+    public void show(Stage primaryStage) {
+        primaryStage.setTitle("Shopping List - Ptyxes");
+
+        ScrollPane scrollPane = new ScrollPane();
+        scrollPane.setFitToWidth(true);
+        scrollPane.setStyle("-fx-background: " + DarkTheme.BACKGROUND_COLOR + ";");
+
+        VBox mainContainer = new VBox(25);
+        mainContainer.setPadding(new Insets(30));
+        mainContainer.setStyle(DarkTheme.CSS_BACKGROUND);
+
+        // Top navigation and back button
+        HBox topBar = new HBox(15);
+        topBar.setAlignment(Pos.CENTER_LEFT);
+
+        Button backButton = new Button("← Back to Recipes");
+        backButton.setStyle(DarkTheme.CSS_BUTTON);
+
+        backButton.setOnAction(e -> {
+            MainPage mainPage = new MainPage(databaseHelper, currentUser, selection);
+            mainPage.show(primaryStage);
+        });
+
+        Button clearButton = new Button("Clear Selection");
+        clearButton.setStyle(DarkTheme.CSS_BUTTON);
+
+        clearButton.setOnAction(e -> {
+            selection.clear();
+            loadRecipes();
+            loadShoppingList();
+        });
+
+        topBar.getChildren().addAll(backButton, clearButton);
+
+        Text titleText = new Text("Shopping List");
+        titleText.setFont(Font.font("System", FontWeight.BOLD, 28));
+        titleText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        // Selected recipes with their servings
+        Text recipesTitle = new Text("Recipes");
+        recipesTitle.setFont(Font.font("System", FontWeight.BOLD, 18));
+        recipesTitle.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        recipesContainer = new VBox(10);
+        loadRecipes();
+
+        // Consolidated ingredients
+        Text shoppingListTitle = new Text("Ingredients");
+        shoppingListTitle.setFont(Font.font("System", FontWeight.BOLD, 18));
+        shoppingListTitle.setFill(Color.web(DarkTheme.TEXT_COLOR));
+
+        shoppingListContainer = new VBox(5);
+        loadShoppingList();
+
+        mainContainer.getChildren().addAll(
+            topBar,
+            titleText,
+            recipesTitle,
+            recipesContainer,
+            shoppingListTitle,
+            shoppingListContainer
+        );
+
+        scrollPane.setContent(mainContainer);
+        Scene scene = new Scene(scrollPane, 800, 700);
+        DarkTheme.applyTheme(scene);
+
+        primaryStage.setScene(scene);
+        primaryStage.show();
+    }
+
+    /**
+     * Loads the selected recipes, each with a servings spinner and a remove button.
+     */
+    private void loadRecipes() {
+        recipesContainer.getChildren().clear();
+
+        if (selection.isEmpty()) {
+            Text noRecipesText = new Text("No recipes selected. Use \"Add to Shopping List\" on the recipes page.");
+            noRecipesText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+            recipesContainer.getChildren().add(noRecipesText);
+            return;
+        }
+
+        try {
+            int[] mealIds = selection.keySet().stream().mapToInt(Integer::intValue).toArray();
+            for (MealPost post : databaseHelper.getMealPostsByIds(mealIds)) {
+                HBox recipeRow = new HBox(10);
+                recipeRow.setAlignment(Pos.CENTER_LEFT);
+
+                Label titleLabel = new Label(post.getTitle());
+                titleLabel.setStyle(DarkTheme.CSS_LABEL);
+                titleLabel.setPrefWidth(300);
+
+                Label servingsLabel = new Label("Servings:");
+                servingsLabel.setStyle(DarkTheme.CSS_LABEL);
+
+                Spinner<Integer> servingsSpinner = new Spinner<>(1, 100, selection.get(post.getId()));
+                servingsSpinner.setPrefWidth(80);
+                servingsSpinner.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    selection.put(post.getId(), newValue);
+                    loadShoppingList();
+                });
+
+                Button removeButton = new Button("Remove");
+                removeButton.setStyle(DarkTheme.CSS_BUTTON);
+                removeButton.setOnAction(e -> {
+                    selection.remove(post.getId());
+                    loadRecipes();
+                    loadShoppingList();
+                });
+
+                recipeRow.getChildren().addAll(titleLabel, servingsLabel, servingsSpinner, removeButton);
+                recipesContainer.getChildren().add(recipeRow);
+            }
+        } catch (SQLException e) {
+            Text errorText = new Text("Error loading recipes: " + e.getMessage());
+            errorText.setFill(Color.web(DarkTheme.ERROR_COLOR));
+            recipesContainer.getChildren().add(errorText);
+        }
+    }
+
+    /**
+     * Rebuilds the consolidated shopping list, grouped by ingredient category.
+     */
+    private void loadShoppingList() {
+        shoppingListContainer.getChildren().clear();
+
+        try {
+            List<MealIngredient> shoppingList = databaseHelper.getShoppingList(selection);
+
+            if (shoppingList.isEmpty()) {
+                Text emptyText = new Text("Nothing to buy.");
+                emptyText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+                shoppingListContainer.getChildren().add(emptyText);
+                return;
+            }
+
+            // The list is ordered by category, so start a heading whenever it changes
+            IngredientCategory lastCategory = null;
+            boolean first = true;
+            for (MealIngredient item : shoppingList) {
+                if (first || item.getCategory() != lastCategory) {
+                    Text categoryText = new Text(item.getCategory() != null ? item.getCategory().getLabel() : "Uncategorized");
+                    categoryText.setFont(Font.font("System", FontWeight.BOLD, 14));
+                    categoryText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+                    shoppingListContainer.getChildren().add(categoryText);
+                    lastCategory = item.getCategory();
+                    first = false;
+                }
+
+                Text itemText = new Text("• " + item);
+                itemText.setFill(Color.web(DarkTheme.TEXT_COLOR));
+                shoppingListContainer.getChildren().add(itemText);
+            }
+        } catch (SQLException e) {
+            Text errorText = new Text("Error building shopping list: " + e.getMessage());
+            errorText.setFill(Color.web(DarkTheme.ERROR_COLOR));
+            shoppingListContainer.getChildren().add(errorText);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package App;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The SlowQueryLog class writes every statement that ran longer than a threshold to a
+ * log file, with its bound parameters, how long it took, the DatabaseHelper method it
+ * ran in, and the plan H2 chose for it. Queries are explained with EXPLAIN ANALYZE,
+ * which runs them again and reports the rows each table step read; other statements
+ * get a plain EXPLAIN, which doesn't run them.
+ *
+ * Slow statements are also summarized by shape: the SQL with literals replaced by ?
+ * and whitespace collapsed. Every filter and sort combination of the feed query has
+ * its own shape, so the summary shows which combinations are slow and which tables
+ * their plans scan in full instead of reading through an index.
+ *
+ * The statement is only queued on the thread that ran it. Explaining and writing
+ * happen on a background thread with a connection of its own, so they never hold up
+ * the application or join its transactions. A shape is explained at most once a
+ * minute, and when more slow statements are waiting than MAX_PENDING the newest are
+ * counted but not written. The log is rotated once it grows past MAX_FILE_BYTES,
+ * keeping ROTATED_FILES older files next to it.
+ */
+public class SlowQueryLog {
+    private static final int MAX_PENDING = 100;
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024;
+    private static final int ROTATED_FILES = 3;
+    private static final long EXPLAIN_INTERVAL_MILLIS = 60_000;
+    private static final int EXPLAIN_TIMEOUT_SECONDS = 30;
+    // Longer arrays, such as candidate ID lists, are cut short in the log
+    private static final int MAX_ARRAY_VALUES = 20;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern VALUE_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.(\\w+)\\.tableScan");
+
+    private final Connection connection;
+    private final Path file;
+    private volatile long thresholdNanos;
+    private final Map<String, ShapeSummary> shapes = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final ThreadPoolExecutor worker;
+
+    /**
+     * Creates the log
+     *
+     * @param connection A connection used only for explaining statements; closed with the log
+     * @param file The log file, created if missing and appended to otherwise
+     * @param thresholdMillis How long a statement may take before it is logged
+     */
+    public SlowQueryLog(Connection connection, Path file, long thresholdMillis) {
+        this.connection = connection;
+        this.file = file;
+        setThresholdMillis(thresholdMillis);
+        this.worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ptyxes-slow-queries");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> dropped.increment());
+    }
+
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Changes the threshold; statements already running are judged by the new one
+     *
+     * @param thresholdMillis How long a statement may take before it is logged
+     */
+    public void setThresholdMillis(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * Queues a slow statement to be explained and written
+     *
+     * @param sql The statement's SQL
+     * @param parameters The parameters it ran with
+     * @param nanos How long it took
+     * @param method The DatabaseHelper method it ran in, or null
+     */
+    public void record(String sql, List<BoundParameter> parameters, long nanos, String method) {
+        String shape = normalize(sql);
+        ShapeSummary summary = shapes.computeIfAbsent(shape, ShapeSummary::new);
+        summary.add(nanos, method);
+        LocalDateTime at = LocalDateTime.now();
+        String thread = Thread.currentThread().getName();
+        worker.execute(() -> write(at, thread, sql, parameters, nanos, method, summary));
+    }
+
+    /**
+     * Gets the slow statements seen so far, grouped by shape
+     *
+     * @return One summary per shape, the most total time first
+     */
+    public List<ShapeSummary> getSummaries() {
+        List<ShapeSummary> summaries = new ArrayList<>(shapes.values());
+        summaries.sort(Comparator.comparingLong(ShapeSummary::getTotalNanos).reversed());
+        return summaries;
+    }
+
+    /**
+     * Gets the number of slow statements that weren't written because too many were waiting
+     *
+     * @return The number of statements dropped
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes the shape summaries as text
+     *
+     * @param out Where to write them
+     */
+    public void writeSummary(Appendable out) throws IOException {
+        out.append(String.format("Slow statements by shape, over %.1f ms (%d not written)%n",
+                thresholdNanos / 1e6, getDroppedCount()));
+        out.append(String.format("%8s %11s %9s %9s  %-24s %s%n", "count", "total ms", "mean ms", "max ms",
+                "full scans", "shape"));
+        for (ShapeSummary summary : getSummaries()) {
+            out.append(String.format(Locale.ROOT, "%8d %11.1f %9.3f %9.3f  %-24s %s%n", summary.getCount(),
+                    summary.getTotalNanos() / 1e6, summary.getTotalNanos() / 1e6 / summary.getCount(),
+                    summary.getMaxNanos() / 1e6, String.join(",", summary.getScannedTables()), summary.getShape()));
+            out.append("         in ").append(String.join(", ", summary.getMethods())).append('\n');
+        }
+    }
+
+    /**
+     * Finishes writing the queued statements, appends the summary to the log and
+     * closes the explain connection
+     */
+    public void close() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(EXPLAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            StringBuilder text = new StringBuilder();
+            writeSummary(text);
+            append(text.append('\n').toString());
+        } catch (IOException e) {
+            Log.error("Error writing slow query summary", e, "file", file);
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Log.warn("Error closing slow query log connection", e);
+        }
+    }
+
+    /**
+     * Reduces SQL to its shape: literals become ?, lists of values become a single (?)
+     * and runs of whitespace a single space
+     *
+     * @param sql The SQL
+     * @return The shape shared by every statement that differs only in its values
+     */
+    public static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = VALUE_LIST.matcher(shape).replaceAll("(?)");
+        return shape.replaceAll("\\s+", " ").trim();
+    }
+
+    // Runs on the worker thread
+    private void write(LocalDateTime at, String thread, String sql, List<BoundParameter> parameters, long nanos,
+                       String method, ShapeSummary summary) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(at).append(String.format(Locale.ROOT, " took %.1f ms", nanos / 1e6));
+        if (method != null) {
+            entry.append(" in ").append(method);
+        }
+        entry.append(" on ").append(thread).append('\n');
+        entry.append("SQL: ").append(sql.replaceAll("\\s+", " ").trim()).append('\n');
+        entry.append("Parameters: ").append(formatParameters(parameters)).append('\n');
+
+        if (summary.claimExplain(System.currentTimeMillis())) {
+            String plan = explain(sql, parameters);
+            summary.setPlan(plan, scannedTables(plan));
+            entry.append("Plan:\n").append(plan.indent(4));
+        } else {
+            entry.append("Plan: same shape explained less than a minute ago\n");
+        }
+
+        try {
+            append(entry.append('\n').toString());
+        } catch (IOException e) {
+            Log.error("Error writing slow query log", e, "file", file);
+        }
+    }
+
+    private String explain(String sql, List<BoundParameter> parameters) {
+        String trimmed = sql.stripLeading().toUpperCase(Locale.ROOT);
+        boolean query = trimmed.startsWith("SELECT") || trimmed.startsWith("WITH");
+        try (PreparedStatement pstmt = connection.prepareStatement((query ? "EXPLAIN ANALYZE " : "EXPLAIN ") + sql)) {
+            pstmt.setQueryTimeout(EXPLAIN_TIMEOUT_SECONDS);
+            for (BoundParameter parameter : parameters) {
+                parameter.bind(pstmt);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        } catch (SQLException | RuntimeException e) {
+            return "(could not explain: " + e + ")\n";
+        }
+    }
+
+    private static List<String> scannedTables(String plan) {
+        TreeSet<String> tables = new TreeSet<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(2));
+        }
+        return new ArrayList<>(tables);
+    }
+
+    private static String formatParameters(List<BoundParameter> parameters) {
+        if (parameters.isEmpty()) {
+            return "none";
+        }
+        StringBuilder text = new StringBuilder();
+        for (BoundParameter parameter : parameters) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(parameter.index).append('=');
+            Object value = parameter.value;
+            try {
+                if (value instanceof Array) {
+                    value = ((Array) value).getArray();
+                }
+            } catch (SQLException e) {
+                value = "(unreadable array)";
+            }
+            if (value instanceof Object[]) {
+                Object[] values = (Object[]) value;
+                if (values.length > MAX_ARRAY_VALUES) {
+                    String shown = Arrays.toString(Arrays.copyOf(values, MAX_ARRAY_VALUES));
+                    text.append(shown, 0, shown.length() - 1).append(", ... ").append(values.length).append(" values]");
+                } else {
+                    text.append(Arrays.toString(values));
+                }
+            } else if (value instanceof String) {
+                text.append('\'').append(value).append('\'');
+            } else if (parameter.stream) {
+                text.append("(stream)");
+            } else {
+                text.append(value == null ? "NULL" : String.valueOf(value));
+            }
+        }
+        return text.toString();
+    }
+
+    // Rotates first if the log has grown too large: file.1 is the newest old file
+    private void append(String text) throws IOException {
+        if (Files.exists(file) && Files.size(file) > MAX_FILE_BYTES) {
+            for (int i = ROTATED_FILES - 1; i >= 1; i--) {
+                Path older = file.resolveSibling(file.getFileName() + "." + i);
+                if (Files.exists(older)) {
+                    Files.move(older, file.resolveSibling(file.getFileName() + "." + (i + 1)),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * One parameter a statement was run with: its index and value, or the SQL type of a
+     * NULL. A stream can only be read once, so only the fact one was bound is kept.
+     */
+    public static final class BoundParameter {
+        private final int index;
+        private final Object value;
+        private final int nullType;
+        private final boolean stream;
+
+        /**
+         * Creates a parameter
+         *
+         * @param index The parameter index, starting at 1
+         * @param value The value, or null for NULL
+         * @param nullType The SQL type (from java.sql.Types) to bind a NULL as
+         */
+        public BoundParameter(int index, Object value, int nullType) {
+            this(index, value, nullType, false);
+        }
+
+        private BoundParameter(int index, Object value, int nullType, boolean stream) {
+            this.index = index;
+            this.value = value;
+            this.nullType = nullType;
+            this.stream = stream;
+        }
+
+        /**
+         * Creates a parameter that was bound from a stream, explained as NULL
+         *
+         * @param index The parameter index, starting at 1
+         * @return The parameter
+         */
+        public static BoundParameter stream(int index) {
+            return new BoundParameter(index, null, Types.NULL, true);
+        }
+
+        // Binds the same value to the statement being explained
+        private void bind(PreparedStatement pstmt) throws SQLException {
+            if (value == null) {
+                pstmt.setNull(index, nullType);
+            } else {
+                pstmt.setObject(index, value);
+            }
+        }
+    }
+
+    /**
+     * The slow statements of one shape
+     */
+    public static final class ShapeSummary {
+        private final String shape;
+        private long count = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+        private final TreeSet<String> methods = new TreeSet<>();
+        private long lastExplainMillis = Long.MIN_VALUE;
+        private String plan = null;
+        private List<String> scannedTables = List.of();
+
+        private ShapeSummary(String shape) {
+            this.shape = shape;
+        }
+
+        private synchronized void add(long nanos, String method) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            if (method != null) {
+                methods.add(method);
+            }
+        }
+
+        private synchronized boolean claimExplain(long nowMillis) {
+            if (plan != null && nowMillis - lastExplainMillis < EXPLAIN_INTERVAL_MILLIS) {
+                return false;
+            }
+            lastExplainMillis = nowMillis;
+            return true;
+        }
+
+        private synchronized void setPlan(String plan, List<String> scannedTables) {
+            this.plan = plan;
+            this.scannedTables = scannedTables;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public synchronized long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Gets the DatabaseHelper methods statements of this shape ran in
+         *
+         * @return The method names, sorted
+         */
+        public synchronized List<String> getMethods() {
+            return new ArrayList<>(methods);
+        }
+
+        /**
+         * Gets the latest plan of the shape
+         *
+         * @return The plan text, or null before the first one is captured
+         */
+        public synchronized String getPlan() {
+            return plan;
+        }
+
+        /**
+         * Gets the tables the latest plan read in full rather than through an index
+         *
+         * @return The table names, sorted; empty when every table was read through an index
+         */
+        public synchronized List<String> getScannedTables() {
+            return scannedTables;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package App;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The SqlStatementEvent class is the Java Flight Recorder event for one execution of a
+ * cached prepared statement. Its duration is the execute call; the rows are those the
+ * statement changed or its result returned. Stack traces are left out, since the
+ * enclosing DatabaseCallEvent already has one and statements run far more often.
+ *
+ * Turned off or thresholded in a recording's settings under "ptyxes.SqlStatement".
+ */
+@Name("ptyxes.SqlStatement")
+@Label("SQL Statement")
+@Category({ "Ptyxes", "Database" })
+@Description("An execution of a prepared SQL statement")
+@StackTrace(false)
+public class SqlStatementEvent extends jdk.jfr.Event {
+    @Label("Method")
+    @Description("The DatabaseHelper method the statement ran in, if any")
+    String method;
+
+    @Label("SQL Hash")
+    @Description("Hash of the SQL text, for grouping executions of the same statement")
+    int sqlHash;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -1,5 +1,7 @@
 package App;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 
 import javafx.application.Application;
@@ -7,6 +9,8 @@ import javafx.stage.Stage;
 
 public class StartPtyxes extends Application {
 	private static final DatabaseHelper databaseHelper = new DatabaseHelper();
+	private static FxStallMonitor stallMonitor = null;
+	private static PrometheusExporter metricsExporter = null;
 
 	public static void main(String[] args) {
 		launch(args);
@@ -14,11 +18,61 @@ public class StartPtyxes extends Application {
 
 	@Override
 	public void start(Stage primaryStage) {
+		// Diagnostics are written by a background thread, so the FX thread never waits on the console
+		Log.setFile(Paths.get(System.getProperty("ptyxes.logFile", "Ptyxes.log")));
 		try {
 			databaseHelper.connectToDatabase(); // Connect to the database
+			if (!"false".equals(System.getProperty("ptyxes.columnStore"))) {
+				databaseHelper.enableColumnStore(); // Filter and sort the feed in memory
+			}
+			if (!"false".equals(System.getProperty("ptyxes.recommendations"))) {
+				databaseHelper.enableRecommendations(); // Keep "also upvoted" lists current in the background
+			}
+			if (!"false".equals(System.getProperty("ptyxes.semanticSearch"))) {
+				// Search by meaning; the index is built in the background and saved next to the database
+				databaseHelper.enableSemanticSearch(Paths.get(System.getProperty("ptyxes.vectorIndex", "Ptyxes.vectors")));
+			}
+			if (!"false".equals(System.getProperty("ptyxes.queryMetrics"))) {
+				// Per-method and per-statement latencies, rewritten every minute for looking at later
+				databaseHelper.enableQueryMetricsDump(Paths.get(System.getProperty("ptyxes.queryMetricsFile", "Ptyxes.metrics.txt")));
+			}
+			if (!"false".equals(System.getProperty("ptyxes.slowQueryLog"))) {
+				// Statements over the threshold, with parameters and plans, and a summary by query shape on exit
+				databaseHelper.enableSlowQueryLog(Paths.get(System.getProperty("ptyxes.slowQueryLogFile", "Ptyxes.slow.log")),
+						Long.getLong("ptyxes.slowQueryMillis", 100));
+			}
+			if (!"false".equals(System.getProperty("ptyxes.fxStallMonitor"))) {
+				// Stack samples of the FX thread whenever the window stops responding, by page
+				stallMonitor = new FxStallMonitor(Paths.get(System.getProperty("ptyxes.fxStallLogFile", "Ptyxes.stalls.log")),
+						Long.getLong("ptyxes.fxStallMillis", 250));
+				stallMonitor.start(primaryStage);
+			}
+			String metricsPort = System.getProperty("ptyxes.metricsPort");
+			if (metricsPort != null) {
+				// Off unless a port is given; only local scrapes unless another address is given
+				metricsExporter = new PrometheusExporter(databaseHelper);
+				try {
+					metricsExporter.start(System.getProperty("ptyxes.metricsHost", "127.0.0.1"), Integer.parseInt(metricsPort));
+				} catch (IOException | NumberFormatException e) {
+					Log.error("Could not start the metrics endpoint", e, "port", metricsPort);
+					metricsExporter = null;
+				}
+			}
 			new FirstPage(databaseHelper).show(primaryStage);;
 		} catch (SQLException e) {
-			System.out.println(e.getMessage());
+			Log.error("Could not start Ptyxes", e);
 		}
 	}
+
+	@Override
+	public void stop() {
+		if (metricsExporter != null) {
+			metricsExporter.stop();
+		}
+		if (stallMonitor != null) {
+			stallMonitor.stop();
+		}
+		databaseHelper.closeConnection();
+		Log.shutdown();
+	}
 }
@@ -0,0 +1,419 @@
+package App;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The StatementCache class keeps prepared statements open on one connection, so a
+ * query that runs again reuses its parsed and planned statement instead of being
+ * prepared anew. A statement is checked out while in use, so two threads running the
+ * same query get separate statements, and closing it (as try-with-resources does)
+ * returns it to the cache along with closing its last result. Once more distinct
+ * queries are cached than the capacity allows, the least recently used are closed.
+ *
+ * The cache counts its hits and misses and times every prepare it has to do. Misses
+ * mostly happen while the JVM is still cold, so to estimate the parse and plan time the
+ * hits saved, one hit in every SAMPLE_INTERVAL also prepares its query a second time,
+ * timing that and throwing the statement away. The median of the recent samples is
+ * taken as the cost of every hit, so a sample that waited on a busy connection or a
+ * garbage collection doesn't inflate the estimate. Until the first sample the saving
+ * is unknown, since pricing hits at the cold misses would overstate it.
+ *
+ * The statements handed out are PooledStatements. Given a QueryMetrics, they record
+ * every execution: the time the execute call took and the rows it changed or, for a
+ * query, the rows read from its result before the statement was given back or executed
+ * again. Each of those executions is also a SqlStatementEvent, for Java Flight Recorder
+ * recordings that enable it.
+ *
+ * Given a SlowQueryLog, the statements remember the parameters bound to them and pass
+ * every execution that took longer than the log's threshold on to it.
+ */
+public class StatementCache implements AutoCloseable {
+    // Idle statements kept per query, enough for the feed, a prefetch and a background load at once
+    private static final int MAX_IDLE_PER_QUERY = 4;
+    private static final int SAMPLE_INTERVAL = 256;
+    private static final int MAX_SAMPLES = 63;
+
+    private final Connection connection;
+    private final int capacity;
+    private final QueryMetrics metrics;
+    private final LinkedHashMap<Key, ArrayDeque<PooledStatement>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed = false;
+    private volatile SlowQueryLog slowQueryLog = null;
+
+    // Written under the lock, but volatile so the counters can be read without it
+    private volatile long hits = 0;
+    private volatile long misses = 0;
+    private volatile long evictions = 0;
+    private volatile int inUse = 0;
+    private volatile int idleCount = 0;
+    private volatile long prepareNanos = 0;
+    private final long[] sampleNanos = new long[MAX_SAMPLES];
+    private long samples = 0;
+
+    /**
+     * Creates a statement cache
+     *
+     * @param connection The connection statements are prepared on
+     * @param capacity The maximum number of distinct queries kept
+     */
+    public StatementCache(Connection connection, int capacity) {
+        this(connection, capacity, null);
+    }
+
+    /**
+     * Creates a statement cache that records its statements' executions
+     *
+     * @param connection The connection statements are prepared on
+     * @param capacity The maximum number of distinct queries kept
+     * @param metrics Where executions are recorded, or null to not record them
+     */
+    public StatementCache(Connection connection, int capacity, QueryMetrics metrics) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Checks out a prepared statement for a query, preparing it only if no idle one is
+     * cached. Closing the returned statement gives it back.
+     *
+     * @param sql The query
+     * @return A statement with no parameters bound
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Checks out a prepared statement for a query, preparing it only if no idle one is
+     * cached. Closing the returned statement gives it back.
+     *
+     * @param sql The query
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return A statement with no parameters bound
+     */
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS);
+        PooledStatement pooled;
+        boolean sample = false;
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("Statement cache is closed");
+            }
+            ArrayDeque<PooledStatement> statements = idle.get(key);
+            pooled = statements != null ? statements.pollFirst() : null;
+            if (statements != null && statements.isEmpty()) {
+                idle.remove(key);
+            }
+            if (pooled != null) {
+                idleCount--;
+                hits++;
+                sample = hits % SAMPLE_INTERVAL == 0;
+            }
+            inUse++;
+        }
+        if (sample) {
+            samplePrepare(sql, autoGeneratedKeys);
+        }
+        if (pooled == null) {
+            // Prepared outside the lock so other threads aren't held up by the parse
+            long start = System.nanoTime();
+            PreparedStatement statement;
+            try {
+                statement = connection.prepareStatement(sql, autoGeneratedKeys);
+            } catch (SQLException e) {
+                synchronized (this) {
+                    inUse--;
+                }
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                misses++;
+                prepareNanos += elapsed;
+            }
+            pooled = new PooledStatement(this, key, statement, true, metrics);
+        }
+        return pooled.checkOut();
+    }
+
+    /**
+     * Prepares a statement that is closed rather than cached when it is closed, for
+     * queries whose text changes too often to be worth keeping. Its executions are
+     * recorded like those of cached statements.
+     *
+     * @param sql The query
+     * @return A statement with no parameters bound
+     */
+    public PreparedStatement prepareUncached(String sql) throws SQLException {
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("Statement cache is closed");
+            }
+            inUse++;
+        }
+        PooledStatement pooled;
+        try {
+            pooled = new PooledStatement(this, new Key(sql, false), connection.prepareStatement(sql), false, metrics);
+        } catch (SQLException e) {
+            synchronized (this) {
+                inUse--;
+            }
+            throw e;
+        }
+        return pooled.checkOut();
+    }
+
+    /**
+     * Sets where executions slower than a threshold are logged
+     *
+     * @param slowQueryLog The log, or null to stop logging
+     */
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    // Times what preparing a cached query would have cost now that it is warm; a failed
+    // sample is only logged, since the caller's statement is already checked out
+    private void samplePrepare(String sql, int autoGeneratedKeys) {
+        long start = System.nanoTime();
+        try {
+            connection.prepareStatement(sql, autoGeneratedKeys).close();
+        } catch (SQLException e) {
+            Log.warn("Could not sample prepare time", e);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            sampleNanos[(int) (samples++ % MAX_SAMPLES)] = elapsed;
+        }
+    }
+
+    /**
+     * Closes every idle statement. Statements checked out at the time are closed when
+     * they are given back after the cache itself is closed, and cached again otherwise.
+     */
+    public synchronized void clear() {
+        for (ArrayDeque<PooledStatement> statements : idle.values()) {
+            for (PooledStatement pooled : statements) {
+                pooled.closeStatement();
+            }
+        }
+        idle.clear();
+        idleCount = 0;
+    }
+
+    /**
+     * Gets the number of idle statements
+     *
+     * @return The number of statements ready for reuse
+     */
+    public int size() {
+        return idleCount;
+    }
+
+    /**
+     * Gets the number of statements checked out and not given back yet
+     *
+     * @return The number of statements in use
+     */
+    public int getStatementsInUse() {
+        return inUse;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Gets the time spent preparing statements that weren't cached
+     *
+     * @return The total prepare time in nanoseconds
+     */
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    /**
+     * Gets how often statements were reused and what preparing the others cost
+     *
+     * @return A snapshot of the counters
+     */
+    public synchronized Statistics getStatistics() {
+        long savedNanos = -1;
+        if (samples > 0) {
+            long[] recent = Arrays.copyOf(sampleNanos, (int) Math.min(samples, MAX_SAMPLES));
+            Arrays.sort(recent);
+            savedNanos = hits * recent[recent.length / 2];
+        }
+        return new Statistics(hits, misses, evictions, prepareNanos, savedNanos, size(), inUse);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        clear();
+    }
+
+    /**
+     * Gives a statement back when it is closed, caching it again unless the cache is
+     * closed or already keeps enough idle statements for its query
+     *
+     * @param pooled The statement
+     */
+    void release(PooledStatement pooled) {
+        boolean reusable = pooled.reset();
+
+        synchronized (this) {
+            inUse--;
+            ArrayDeque<PooledStatement> statements = closed || !reusable ? null
+                    : idle.computeIfAbsent(pooled.getKey(), key -> new ArrayDeque<>());
+            if (statements == null || statements.size() >= MAX_IDLE_PER_QUERY) {
+                pooled.closeStatement();
+                return;
+            }
+            statements.addFirst(pooled);
+            idleCount++;
+
+            Iterator<Map.Entry<Key, ArrayDeque<PooledStatement>>> eldest = idle.entrySet().iterator();
+            while (idle.size() > capacity) {
+                for (PooledStatement evicted : eldest.next().getValue()) {
+                    evicted.closeStatement();
+                    evictions++;
+                    idleCount--;
+                }
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * The hit and miss counters of a cache at one moment
+     */
+    public static final class Statistics {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long prepareNanos;
+        private final long savedNanos;
+        private final int idleStatements;
+        private final int statementsInUse;
+
+        private Statistics(long hits, long misses, long evictions, long prepareNanos, long savedNanos,
+                           int idleStatements, int statementsInUse) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.prepareNanos = prepareNanos;
+            this.savedNanos = savedNanos;
+            this.idleStatements = idleStatements;
+            this.statementsInUse = statementsInUse;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getIdleStatements() {
+            return idleStatements;
+        }
+
+        /**
+         * Gets the statements checked out and not given back yet
+         *
+         * @return The number of statements in use
+         */
+        public int getStatementsInUse() {
+            return statementsInUse;
+        }
+
+        /**
+         * Gets the time spent preparing statements that weren't cached
+         *
+         * @return The total prepare time in nanoseconds
+         */
+        public long getPrepareNanos() {
+            return prepareNanos;
+        }
+
+        /**
+         * Estimates the parse and plan time the cache saved, taking every hit to have
+         * cost the median sampled prepare
+         *
+         * @return The estimated saving in nanoseconds, or -1 before any hit was sampled
+         */
+        public long getSavedNanos() {
+            return savedNanos;
+        }
+
+        @Override
+        public String toString() {
+            long total = hits + misses;
+            String saved = savedNanos < 0 ? "saving not sampled yet"
+                    : String.format("about %.1f ms saved", savedNanos / 1e6);
+            return String.format("%d hits, %d misses (%.1f%% hit rate), %d evicted; %.1f ms preparing, %s",
+                    hits, misses, total == 0 ? 0.0 : 100.0 * hits / total, evictions,
+                    prepareNanos / 1e6, saved);
+        }
+    }
+
+    /** A query and whether its statement returns generated keys */
+    static final class Key {
+        private final String sql;
+        private final boolean generatedKeys;
+
+        private Key(String sql, boolean generatedKeys) {
+            this.sql = sql;
+            this.generatedKeys = generatedKeys;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return generatedKeys == other.generatedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return sql.hashCode() * 2 + (generatedKeys ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package App;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The TextEmbedder class turns recipe text into fixed-length vectors for semantic
+ * search, without a model or network access. It uses the hashing trick: every word,
+ * pair of adjacent words, and three-letter fragment of a word is hashed to one of the
+ * vector's dimensions with a random sign, and the vector is normalized to unit length.
+ * Texts sharing words, or words with a common stem ("tomato" and "tomatoes"), point in
+ * similar directions, so their dot product measures how alike they are.
+ *
+ * Title words count the most and instruction words the least, since a title says
+ * what a recipe is while instructions mostly say how to make it.
+ */
+public final class TextEmbedder {
+    /** Length of every vector */
+    public static final int DIMENSIONS = 128;
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.5f;
+    private static final float INSTRUCTIONS_WEIGHT = 0.5f;
+    private static final float BIGRAM_WEIGHT = 0.7f;
+    private static final float TRIGRAM_WEIGHT = 0.25f;
+
+    // Words that appear in nearly every recipe and say nothing about it
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "to", "in", "on", "with", "for", "or", "at", "by", "from",
+            "into", "is", "it", "this", "that", "until", "then", "add", "minutes", "minute", "about",
+            "some", "like", "my", "your", "be", "as", "up", "over", "all", "each", "i", "you");
+
+    private TextEmbedder() {
+    }
+
+    /**
+     * Embeds a recipe
+     *
+     * @param title The recipe title
+     * @param description The description, may be null
+     * @param instructions The instructions, may be null
+     * @return A unit-length vector, or all zeros if the text has no usable words
+     */
+    public static float[] embed(String title, String description, String instructions) {
+        float[] vector = new float[DIMENSIONS];
+        addText(vector, title, TITLE_WEIGHT);
+        addText(vector, description, DESCRIPTION_WEIGHT);
+        addText(vector, instructions, INSTRUCTIONS_WEIGHT);
+        normalize(vector);
+        return vector;
+    }
+
+    /**
+     * Embeds a search query, which is compared against recipes as if it were a title
+     *
+     * @param query The search text
+     * @return A unit-length vector, or all zeros if the query has no usable words
+     */
+    public static float[] embedQuery(String query) {
+        return embed(query, null, null);
+    }
+
+    private static void addText(float[] vector, String text, float weight) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String previous = null;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            addFeature(vector, word.hashCode(), weight);
+            if (previous != null) {
+                addFeature(vector, (previous + ' ' + word).hashCode(), weight * BIGRAM_WEIGHT);
+            }
+            String padded = '#' + word + '#';
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                addFeature(vector, padded.substring(i, i + 3).hashCode() * 31 + 7, weight * TRIGRAM_WEIGHT);
+            }
+            previous = word;
+        }
+    }
+
+    private static void addFeature(float[] vector, int hash, float weight) {
+        int mixed = hash * 0x9E3779B9;
+        mixed ^= mixed >>> 16;
+        int dimension = (mixed & 0x7FFFFFFF) % DIMENSIONS;
+        vector[dimension] += (mixed & 0x100) == 0 ? weight : -weight;
+    }
+
+    private static void normalize(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
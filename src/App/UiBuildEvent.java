@@ -0,0 +1,68 @@
+package App;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The UiBuildEvent class is the Java Flight Recorder event for a step in building a
+ * page, such as loading the feed or creating one post card. Steps nest: the cards
+ * built while loading the feed fall inside the loading step on the same thread.
+ *
+ * Turned off or thresholded in a recording's settings under "ptyxes.UiBuild".
+ */
+@Name("ptyxes.UiBuild")
+@Label("UI Build Step")
+@Category({ "Ptyxes", "UI" })
+@Description("A step in building a page")
+public class UiBuildEvent extends jdk.jfr.Event {
+    @Label("Page")
+    String page;
+
+    @Label("Step")
+    String step;
+
+    @Label("Items")
+    @Description("The posts, comments or other items the step showed")
+    int items;
+
+    private static final EventType TYPE = EventType.getEventType(UiBuildEvent.class);
+    // Handed out while no recording wants the event, so building a page allocates nothing for it
+    private static final UiBuildEvent DISABLED = new UiBuildEvent();
+
+    /**
+     * Starts timing a build step
+     *
+     * @param page The page being built
+     * @param step The method doing the step
+     * @return The running event, to be finished when the step is done
+     */
+    public static UiBuildEvent start(String page, String step) {
+        if (!TYPE.isEnabled()) {
+            return DISABLED;
+        }
+        UiBuildEvent event = new UiBuildEvent();
+        event.begin();
+        event.page = page;
+        event.step = step;
+        return event;
+    }
+
+    /**
+     * Ends the step and records it if a recording wants it
+     *
+     * @param items The number of items the step showed
+     */
+    public void finish(int items) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.items = items;
+            commit();
+        }
+    }
+}
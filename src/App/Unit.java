@@ -0,0 +1,199 @@
+package App;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Unit class represents a unit of measure for an ingredient quantity.
+ * Units are interned: every spelling of the same unit ("tablespoons", "Tbsp", "tbsp")
+ * resolves to one shared canonical instance, so ingredient rows never hold their own
+ * copy of the unit text. In the database, units live in a lookup table and
+ * meal_ingredients only references them by ID.
+ *
+ * Units of volume and mass also carry a factor to a base unit (milliliters or grams),
+ * so quantities in different units of the same dimension can be added together.
+ */
+public final class Unit {
+    private static final Map<String, Unit> CANONICAL = new ConcurrentHashMap<>();
+    private static final Map<String, String> ALIASES = new HashMap<>();
+    private static final List<Unit> MEASURED = new ArrayList<>();
+    private static final double TEASPOON_ML = 4.92892159375;
+    private static final double OUNCE_GRAMS = 28.349523125;
+    // Tolerance for rounding error when summed quantities land exactly on a larger unit
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * The physical dimensions convertible units measure, with their base unit
+     */
+    public enum Dimension {
+        VOLUME(0, "ml"),
+        MASS(1, "g");
+
+        private final int code;
+        private final String baseUnit;
+
+        Dimension(int code, String baseUnit) {
+            this.code = code;
+            this.baseUnit = baseUnit;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getBaseUnit() {
+            return baseUnit;
+        }
+    }
+
+    /** The empty unit, used for countable ingredients such as "2 eggs" */
+    public static final Unit NONE = new Unit("", false);
+
+    static {
+        CANONICAL.put("", NONE);
+        defineAbbreviation("tsp", "teaspoon", "teaspoons", "tsps", "tsp.");
+        defineAbbreviation("tbsp", "tablespoon", "tablespoons", "tbsps", "tbs", "tbsp.");
+        defineAbbreviation("oz", "ounce", "ounces", "oz.");
+        defineAbbreviation("lb", "pound", "pounds", "lbs", "lb.", "lbs.");
+        defineAbbreviation("g", "gram", "grams", "gr");
+        defineAbbreviation("kg", "kilogram", "kilograms", "kgs");
+        defineAbbreviation("ml", "milliliter", "milliliters", "millilitre", "millilitres");
+        defineAbbreviation("l", "liter", "liters", "litre", "litres");
+        defineUnit("cup", "cups");
+        defineUnit("pinch", "pinches");
+        defineUnit("clove", "cloves");
+
+        // Each group is one measuring system, from its smallest to its largest unit
+        defineMeasures(Dimension.VOLUME, new String[] { "tsp", "tbsp", "cup" }, TEASPOON_ML, 3 * TEASPOON_ML, 48 * TEASPOON_ML);
+        defineMeasures(Dimension.VOLUME, new String[] { "ml", "l" }, 1, 1000);
+        defineMeasures(Dimension.MASS, new String[] { "g", "kg" }, 1, 1000);
+        defineMeasures(Dimension.MASS, new String[] { "oz", "lb" }, OUNCE_GRAMS, 16 * OUNCE_GRAMS);
+    }
+
+    private final String name;
+    private final boolean abbreviation;
+    private Dimension dimension = null;
+    private double baseFactor = 1;
+    private Unit[] system = null;
+
+    private Unit(String name, boolean abbreviation) {
+        this.name = name;
+        this.abbreviation = abbreviation;
+    }
+
+    private static void defineAbbreviation(String name, String... aliases) {
+        define(new Unit(name, true), aliases);
+    }
+
+    private static void defineUnit(String name, String... aliases) {
+        define(new Unit(name, false), aliases);
+    }
+
+    private static void define(Unit unit, String... aliases) {
+        CANONICAL.put(unit.name, unit);
+        for (String alias : aliases) {
+            ALIASES.put(alias, unit.name);
+        }
+    }
+
+    private static void defineMeasures(Dimension dimension, String[] names, double... baseFactors) {
+        Unit[] system = new Unit[names.length];
+        for (int i = 0; i < names.length; i++) {
+            system[i] = CANONICAL.get(names[i]);
+            system[i].dimension = dimension;
+            system[i].baseFactor = baseFactors[i];
+            system[i].system = system;
+            MEASURED.add(system[i]);
+        }
+    }
+
+    /**
+     * Gets every unit that can be converted to a base unit
+     *
+     * @return The units of volume and mass
+     */
+    public static List<Unit> getMeasuredUnits() {
+        return Collections.unmodifiableList(MEASURED);
+    }
+
+    /**
+     * Gets the canonical instance for a unit name
+     *
+     * @param name The unit as typed by a user or stored in the database
+     * @return The shared Unit instance, or NONE for a null or blank name
+     */
+    public static Unit of(String name) {
+        if (name == null || name.isBlank()) {
+            return NONE;
+        }
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        key = ALIASES.getOrDefault(key, key);
+        return CANONICAL.computeIfAbsent(key, k -> new Unit(k, false));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isNone() {
+        return this == NONE;
+    }
+
+    /**
+     * Gets the dimension this unit measures
+     *
+     * @return The dimension, or null if the unit can't be converted (e.g., "clove")
+     */
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Gets how many base units (milliliters or grams) one of this unit is
+     *
+     * @return The conversion factor, 1 for units without a dimension
+     */
+    public double getBaseFactor() {
+        return baseFactor;
+    }
+
+    /**
+     * Picks the unit of this unit's measuring system that reads best for a quantity:
+     * the largest one in which the quantity is still at least 1 (e.g., 6 tsp as 2 tbsp)
+     *
+     * @param baseQuantity The quantity in base units
+     * @return The unit to show the quantity in
+     */
+    public Unit bestUnitFor(double baseQuantity) {
+        if (system == null) {
+            return this;
+        }
+        Unit best = system[0];
+        for (Unit candidate : system) {
+            if (baseQuantity / candidate.baseFactor >= 1 - EPSILON) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks if this unit is written as an abbreviation (e.g., "tbsp", "oz"),
+     * which is never pluralized
+     *
+     * @return true if the unit is an abbreviation
+     */
+    public boolean isAbbreviation() {
+        return abbreviation;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -146,7 +146,7 @@ public class User {
      * @param preparationTime Preparation time in minutes
      * @param cookingTime Cooking time in minutes
      * @param servings Number of servings
-     * @param difficulty Difficulty level (e.g., "Easy", "Medium", "Hard")
+     * @param difficulty Difficulty level
      * @param ingredients List of ingredients
      * @return The created MealPost object, or null if creation failed
      */
@@ -158,7 +158,7 @@ public class User {
             int preparationTime,
             int cookingTime,
             int servings,
-            String difficulty,
+            Difficulty difficulty,
             List<MealIngredient> ingredients) throws SQLException {
         
         MealPost post = new MealPost();
@@ -0,0 +1,468 @@
+package App;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * The VectorIndex class is an approximate nearest neighbor index over unit-length
+ * vectors, scored by dot product. It is an inverted file (IVF) index: the vectors are
+ * clustered around centroids found with k-means, each cluster keeps its own list, and
+ * a query only scores the vectors in the few clusters whose centroids are closest to
+ * it. Vectors are stored as one signed byte per dimension with a per-vector scale,
+ * a quarter of the memory of floats.
+ *
+ * Until the index holds enough vectors to be worth clustering, everything is kept in
+ * one list and searched exactly. Vectors added later join the cluster with the nearest
+ * centroid; the centroids are trained again each time the index grows fourfold.
+ *
+ * The index can be saved to and loaded from a file, together with the time it was
+ * saved, so the caller can update only what changed since.
+ */
+public class VectorIndex {
+    private static final int FILE_MAGIC = 0x50545856; // "PTXV"
+    private static final int FILE_VERSION = 1;
+
+    // Fewer vectors than this are searched exactly
+    private static final int TRAIN_THRESHOLD = 4096;
+    private static final int KMEANS_ITERATIONS = 8;
+    private static final int SAMPLES_PER_LIST = 32;
+
+    private final int dimensions;
+    private float[] centroids = null; // listCount * dimensions, null until trained
+    private int listCount = 1;
+    private int trainedSize = 0;
+
+    private int[][] listIds = new int[1][16];
+    private float[][] listScales = new float[1][16];
+    private byte[][] listCodes;
+    private int[] listSizes = new int[1];
+    private final Map<Integer, Integer> listOf = new HashMap<>();
+
+    /**
+     * Creates an empty index
+     *
+     * @param dimensions The length of every vector
+     */
+    public VectorIndex(int dimensions) {
+        this.dimensions = dimensions;
+        this.listCodes = new byte[1][16 * dimensions];
+    }
+
+    /**
+     * Adds or replaces a vector
+     *
+     * @param id The ID the vector belongs to
+     * @param vector A unit-length vector
+     */
+    public synchronized void put(int id, float[] vector) {
+        remove(id);
+        append(nearestList(vector), id, vector);
+        if (listOf.size() >= Math.max(TRAIN_THRESHOLD, trainedSize * 4L)) {
+            train();
+        }
+    }
+
+    /**
+     * Removes a vector
+     *
+     * @param id The ID the vector belongs to
+     */
+    public synchronized void remove(int id) {
+        Integer list = listOf.remove(id);
+        if (list == null) {
+            return;
+        }
+        int[] ids = listIds[list];
+        int last = listSizes[list] - 1;
+        for (int position = 0; position <= last; position++) {
+            if (ids[position] == id) {
+                // Move the last entry into the gap
+                ids[position] = ids[last];
+                listScales[list][position] = listScales[list][last];
+                System.arraycopy(listCodes[list], last * dimensions, listCodes[list], position * dimensions, dimensions);
+                listSizes[list] = last;
+                return;
+            }
+        }
+    }
+
+    public synchronized boolean contains(int id) {
+        return listOf.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return listOf.size();
+    }
+
+    /**
+     * Gets every ID in the index
+     *
+     * @return The IDs, in no particular order
+     */
+    public synchronized int[] ids() {
+        return listOf.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Finds the vectors with the highest dot product with the query
+     *
+     * @param query A unit-length query vector
+     * @param limit The maximum number of results
+     * @param probes The number of closest clusters to search; more is slower but misses less
+     * @param minScore The lowest dot product to include
+     * @return The IDs of the closest vectors, closest first
+     */
+    public synchronized int[] search(float[] query, int limit, int probes, float minScore) {
+        if (limit <= 0) {
+            return new int[0];
+        }
+        int[] bestIds = new int[limit];
+        float[] bestScores = new float[limit];
+        int found = 0;
+
+        for (int list : closestLists(query, probes)) {
+            int[] ids = listIds[list];
+            float[] scales = listScales[list];
+            byte[] codes = listCodes[list];
+            for (int position = 0; position < listSizes[list]; position++) {
+                float score = scales[position] * dot(query, codes, position * dimensions);
+                if (score < minScore || (found == limit && score <= bestScores[limit - 1])) {
+                    continue;
+                }
+                // Insert into the sorted top results
+                int slot = found < limit ? found++ : limit - 1;
+                while (slot > 0 && bestScores[slot - 1] < score) {
+                    bestScores[slot] = bestScores[slot - 1];
+                    bestIds[slot] = bestIds[slot - 1];
+                    slot--;
+                }
+                bestScores[slot] = score;
+                bestIds[slot] = ids[position];
+            }
+        }
+        return Arrays.copyOf(bestIds, found);
+    }
+
+    /**
+     * Writes the index to a file, replacing it only once fully written
+     *
+     * @param file The file to write
+     * @param savedAt The time, in epoch milliseconds, the index is current as of
+     */
+    public synchronized void save(Path file, long savedAt) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(dimensions);
+            out.writeLong(savedAt);
+            out.writeInt(trainedSize);
+            out.writeInt(listCount);
+            out.writeBoolean(centroids != null);
+            if (centroids != null) {
+                for (float value : centroids) {
+                    out.writeFloat(value);
+                }
+            }
+            for (int list = 0; list < listCount; list++) {
+                out.writeInt(listSizes[list]);
+                for (int position = 0; position < listSizes[list]; position++) {
+                    out.writeInt(listIds[list][position]);
+                    out.writeFloat(listScales[list][position]);
+                }
+                out.write(listCodes[list], 0, listSizes[list] * dimensions);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by save
+     *
+     * @param file The file to read
+     * @param dimensions The vector length the caller expects
+     * @return The index, with the time it was saved available from getSavedAt
+     * @throws IOException If the file can't be read or holds vectors of another length
+     */
+    public static Loaded load(Path file, int dimensions) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION || in.readInt() != dimensions) {
+                throw new IOException("Unsupported vector index file: " + file);
+            }
+            long savedAt = in.readLong();
+            VectorIndex index = new VectorIndex(dimensions);
+            index.trainedSize = in.readInt();
+            index.listCount = in.readInt();
+            if (in.readBoolean()) {
+                index.centroids = new float[index.listCount * dimensions];
+                for (int i = 0; i < index.centroids.length; i++) {
+                    index.centroids[i] = in.readFloat();
+                }
+            }
+            index.listIds = new int[index.listCount][];
+            index.listScales = new float[index.listCount][];
+            index.listCodes = new byte[index.listCount][];
+            index.listSizes = new int[index.listCount];
+            for (int list = 0; list < index.listCount; list++) {
+                int size = in.readInt();
+                int capacity = Math.max(16, size);
+                index.listIds[list] = new int[capacity];
+                index.listScales[list] = new float[capacity];
+                index.listCodes[list] = new byte[capacity * dimensions];
+                index.listSizes[list] = size;
+                for (int position = 0; position < size; position++) {
+                    index.listIds[list][position] = in.readInt();
+                    index.listScales[list][position] = in.readFloat();
+                    index.listOf.put(index.listIds[list][position], list);
+                }
+                in.readFully(index.listCodes[list], 0, size * dimensions);
+            }
+            return new Loaded(index, savedAt);
+        }
+    }
+
+    /**
+     * An index read from a file, with the time it was saved
+     */
+    public static class Loaded {
+        private final VectorIndex index;
+        private final long savedAt;
+
+        Loaded(VectorIndex index, long savedAt) {
+            this.index = index;
+            this.savedAt = savedAt;
+        }
+
+        public VectorIndex getIndex() {
+            return index;
+        }
+
+        public long getSavedAt() {
+            return savedAt;
+        }
+    }
+
+    private void append(int list, int id, float[] vector) {
+        int size = listSizes[list];
+        if (size == listIds[list].length) {
+            int capacity = size * 2;
+            listIds[list] = Arrays.copyOf(listIds[list], capacity);
+            listScales[list] = Arrays.copyOf(listScales[list], capacity);
+            listCodes[list] = Arrays.copyOf(listCodes[list], capacity * dimensions);
+        }
+        listIds[list][size] = id;
+        listScales[list][size] = quantize(vector, listCodes[list], size * dimensions);
+        listSizes[list] = size + 1;
+        listOf.put(id, list);
+    }
+
+    // Stores the vector as bytes scaled so its largest component is 127; returns the scale
+    private float quantize(float[] vector, byte[] codes, int offset) {
+        float max = 0;
+        for (float value : vector) {
+            max = Math.max(max, Math.abs(value));
+        }
+        if (max == 0) {
+            Arrays.fill(codes, offset, offset + dimensions, (byte) 0);
+            return 0;
+        }
+        float scale = max / 127;
+        for (int i = 0; i < dimensions; i++) {
+            codes[offset + i] = (byte) Math.round(vector[i] / scale);
+        }
+        return scale;
+    }
+
+    private float dot(float[] query, byte[] codes, int offset) {
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * codes[offset + i];
+        }
+        return sum;
+    }
+
+    private int nearestList(float[] vector) {
+        if (centroids == null) {
+            return 0;
+        }
+        return nearestCentroid(centroids, listCount, vector);
+    }
+
+    private int nearestCentroid(float[] centroids, int count, float[] vector) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < count; c++) {
+            float score = 0;
+            int offset = c * dimensions;
+            for (int i = 0; i < dimensions; i++) {
+                score += centroids[offset + i] * vector[i];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    // The lists whose centroids score highest against the query
+    private int[] closestLists(float[] query, int probes) {
+        if (centroids == null) {
+            return new int[] { 0 };
+        }
+        int count = Math.min(Math.max(1, probes), listCount);
+        int[] best = new int[count];
+        float[] bestScores = new float[count];
+        Arrays.fill(bestScores, Float.NEGATIVE_INFINITY);
+        for (int c = 0; c < listCount; c++) {
+            float score = 0;
+            int offset = c * dimensions;
+            for (int i = 0; i < dimensions; i++) {
+                score += centroids[offset + i] * query[i];
+            }
+            if (score <= bestScores[count - 1]) {
+                continue;
+            }
+            int slot = count - 1;
+            while (slot > 0 && bestScores[slot - 1] < score) {
+                bestScores[slot] = bestScores[slot - 1];
+                best[slot] = best[slot - 1];
+                slot--;
+            }
+            bestScores[slot] = score;
+            best[slot] = c;
+        }
+        return best;
+    }
+
+    /**
+     * Clusters the vectors with spherical k-means on a sample, then moves every vector
+     * to the list of its nearest centroid. About sqrt(n) / 2 clusters keeps both the
+     * centroid scan and the scanned lists short.
+     */
+    private void train() {
+        int size = listOf.size();
+        int count = Math.max(1, (int) Math.sqrt(size) / 2);
+
+        // Where each vector currently is
+        int[] entryLists = new int[size];
+        int[] entryPositions = new int[size];
+        int next = 0;
+        for (int list = 0; list < listCount; list++) {
+            for (int position = 0; position < listSizes[list]; position++) {
+                entryLists[next] = list;
+                entryPositions[next] = position;
+                next++;
+            }
+        }
+
+        Random random = new Random(size);
+        float[][] sample = new float[Math.min(size, count * SAMPLES_PER_LIST)][];
+        for (int i = 0; i < sample.length; i++) {
+            int entry = sample.length == size ? i : random.nextInt(size);
+            sample[i] = decode(entryLists[entry], entryPositions[entry]);
+        }
+
+        float[] trained = new float[count * dimensions];
+        for (int c = 0; c < count; c++) {
+            System.arraycopy(sample[random.nextInt(sample.length)], 0, trained, c * dimensions, dimensions);
+        }
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            float[] current = trained;
+            int[] assignment = IntStream.range(0, sample.length).parallel()
+                    .map(i -> nearestCentroid(current, count, sample[i])).toArray();
+            float[] sums = new float[count * dimensions];
+            int[] members = new int[count];
+            for (int i = 0; i < sample.length; i++) {
+                int offset = assignment[i] * dimensions;
+                members[assignment[i]]++;
+                for (int d = 0; d < dimensions; d++) {
+                    sums[offset + d] += sample[i][d];
+                }
+            }
+            for (int c = 0; c < count; c++) {
+                if (members[c] == 0) {
+                    // Restart an empty cluster from a random sample
+                    System.arraycopy(sample[random.nextInt(sample.length)], 0, sums, c * dimensions, dimensions);
+                }
+                normalize(sums, c * dimensions);
+            }
+            trained = sums;
+        }
+
+        float[] finalCentroids = trained;
+        int[] assignment = IntStream.range(0, size).parallel()
+                .map(i -> nearestCentroid(finalCentroids, count, decode(entryLists[i], entryPositions[i])))
+                .toArray();
+
+        // Copy the stored bytes into the new lists; nothing is quantized twice
+        int[] newSizes = new int[count];
+        for (int cluster : assignment) {
+            newSizes[cluster]++;
+        }
+        int[][] newIds = new int[count][];
+        float[][] newScales = new float[count][];
+        byte[][] newCodes = new byte[count][];
+        for (int c = 0; c < count; c++) {
+            int capacity = Math.max(16, newSizes[c]);
+            newIds[c] = new int[capacity];
+            newScales[c] = new float[capacity];
+            newCodes[c] = new byte[capacity * dimensions];
+            newSizes[c] = 0;
+        }
+        listOf.clear();
+        for (int i = 0; i < size; i++) {
+            int list = entryLists[i];
+            int position = entryPositions[i];
+            int cluster = assignment[i];
+            int target = newSizes[cluster]++;
+            newIds[cluster][target] = listIds[list][position];
+            newScales[cluster][target] = listScales[list][position];
+            System.arraycopy(listCodes[list], position * dimensions, newCodes[cluster], target * dimensions, dimensions);
+            listOf.put(newIds[cluster][target], cluster);
+        }
+
+        centroids = finalCentroids;
+        listCount = count;
+        listIds = newIds;
+        listScales = newScales;
+        listCodes = newCodes;
+        listSizes = newSizes;
+        trainedSize = size;
+    }
+
+    private float[] decode(int list, int position) {
+        float[] vector = new float[dimensions];
+        float scale = listScales[list][position];
+        int offset = position * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = listCodes[list][offset + i] * scale;
+        }
+        return vector;
+    }
+
+    private void normalize(float[] values, int offset) {
+        double sum = 0;
+        for (int i = offset; i < offset + dimensions; i++) {
+            sum += values[i] * values[i];
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = offset; i < offset + dimensions; i++) {
+            values[i] *= scale;
+        }
+    }
+}
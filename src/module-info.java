@@ -1,7 +1,10 @@
 module Ptyxes {
+    requires java.management;
     requires java.sql;
     requires javafx.controls;
     requires javafx.graphics;
+    requires jdk.httpserver;
+    requires jdk.jfr;
 
     opens App;
 }
\ No newline at end of file